@@ -53,6 +53,28 @@ public final class ExchangeApiConfigBuilder {
     if (networkConfig != null) {
       final NetworkConfigImpl exchangeApiNetworkConfig = new NetworkConfigImpl();
       exchangeApiNetworkConfig.setConnectionTimeout(networkConfig.getConnectionTimeout());
+      exchangeApiNetworkConfig.setMaxConnections(networkConfig.getMaxConnections());
+      exchangeApiNetworkConfig.setConnectionIdleTimeout(networkConfig.getConnectionIdleTimeout());
+      exchangeApiNetworkConfig.setRateLimiter(networkConfig.getRateLimiter());
+      exchangeApiNetworkConfig.setRateLimitBurst(networkConfig.getRateLimitBurst());
+      exchangeApiNetworkConfig.setRateLimitCallsPerSecond(
+          networkConfig.getRateLimitCallsPerSecond());
+      exchangeApiNetworkConfig.setHedgeLatencyPercentile(networkConfig.getHedgeLatencyPercentile());
+      exchangeApiNetworkConfig.setHedgeMaxExtraLoadPercent(
+          networkConfig.getHedgeMaxExtraLoadPercent());
+      exchangeApiNetworkConfig.setConnectTimeout(networkConfig.getConnectTimeout());
+      exchangeApiNetworkConfig.setTradingReadTimeout(networkConfig.getTradingReadTimeout());
+      exchangeApiNetworkConfig.setAccountReadTimeout(networkConfig.getAccountReadTimeout());
+      exchangeApiNetworkConfig.setMarketDataReadTimeout(networkConfig.getMarketDataReadTimeout());
+      exchangeApiNetworkConfig.setAdaptiveTimeouts(networkConfig.getAdaptiveTimeouts());
+      exchangeApiNetworkConfig.setCircuitBreakerFailureThreshold(
+          networkConfig.getCircuitBreakerFailureThreshold());
+      exchangeApiNetworkConfig.setCircuitBreakerMinBackoff(
+          networkConfig.getCircuitBreakerMinBackoff());
+      exchangeApiNetworkConfig.setCircuitBreakerMaxBackoff(
+          networkConfig.getCircuitBreakerMaxBackoff());
+      exchangeApiNetworkConfig.setPreWarmConnections(networkConfig.getPreWarmConnections());
+      exchangeApiNetworkConfig.setStreamMarketData(networkConfig.getStreamMarketData());
 
       final List<Integer> nonFatalErrorCodes = networkConfig.getNonFatalErrorCodes();
       if (nonFatalErrorCodes != null && !nonFatalErrorCodes.isEmpty()) {
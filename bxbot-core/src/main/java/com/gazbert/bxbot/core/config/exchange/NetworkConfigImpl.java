@@ -39,6 +39,23 @@ public class NetworkConfigImpl implements NetworkConfig {
   private Integer connectionTimeout;
   private List<Integer> nonFatalErrorCodes;
   private List<String> nonFatalErrorMessages;
+  private Integer maxConnections;
+  private Integer connectionIdleTimeout;
+  private String rateLimiter;
+  private Integer rateLimitBurst;
+  private Double rateLimitCallsPerSecond;
+  private Double hedgeLatencyPercentile;
+  private Double hedgeMaxExtraLoadPercent;
+  private Integer connectTimeout;
+  private Integer tradingReadTimeout;
+  private Integer accountReadTimeout;
+  private Integer marketDataReadTimeout;
+  private Boolean adaptiveTimeouts;
+  private Integer circuitBreakerFailureThreshold;
+  private Integer circuitBreakerMinBackoff;
+  private Integer circuitBreakerMaxBackoff;
+  private Boolean preWarmConnections;
+  private Boolean streamMarketData;
 
   public NetworkConfigImpl() {
     nonFatalErrorCodes = new ArrayList<>();
@@ -72,12 +89,182 @@ public class NetworkConfigImpl implements NetworkConfig {
     this.nonFatalErrorMessages = nonFatalErrorMessages;
   }
 
+  @Override
+  public Integer getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(Integer maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  @Override
+  public Integer getConnectionIdleTimeout() {
+    return connectionIdleTimeout;
+  }
+
+  public void setConnectionIdleTimeout(Integer connectionIdleTimeout) {
+    this.connectionIdleTimeout = connectionIdleTimeout;
+  }
+
+  @Override
+  public String getRateLimiter() {
+    return rateLimiter;
+  }
+
+  public void setRateLimiter(String rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public Integer getRateLimitBurst() {
+    return rateLimitBurst;
+  }
+
+  public void setRateLimitBurst(Integer rateLimitBurst) {
+    this.rateLimitBurst = rateLimitBurst;
+  }
+
+  @Override
+  public Double getRateLimitCallsPerSecond() {
+    return rateLimitCallsPerSecond;
+  }
+
+  public void setRateLimitCallsPerSecond(Double rateLimitCallsPerSecond) {
+    this.rateLimitCallsPerSecond = rateLimitCallsPerSecond;
+  }
+
+  @Override
+  public Double getHedgeLatencyPercentile() {
+    return hedgeLatencyPercentile;
+  }
+
+  public void setHedgeLatencyPercentile(Double hedgeLatencyPercentile) {
+    this.hedgeLatencyPercentile = hedgeLatencyPercentile;
+  }
+
+  @Override
+  public Double getHedgeMaxExtraLoadPercent() {
+    return hedgeMaxExtraLoadPercent;
+  }
+
+  public void setHedgeMaxExtraLoadPercent(Double hedgeMaxExtraLoadPercent) {
+    this.hedgeMaxExtraLoadPercent = hedgeMaxExtraLoadPercent;
+  }
+
+  @Override
+  public Integer getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Integer connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  @Override
+  public Integer getTradingReadTimeout() {
+    return tradingReadTimeout;
+  }
+
+  public void setTradingReadTimeout(Integer tradingReadTimeout) {
+    this.tradingReadTimeout = tradingReadTimeout;
+  }
+
+  @Override
+  public Integer getAccountReadTimeout() {
+    return accountReadTimeout;
+  }
+
+  public void setAccountReadTimeout(Integer accountReadTimeout) {
+    this.accountReadTimeout = accountReadTimeout;
+  }
+
+  @Override
+  public Integer getMarketDataReadTimeout() {
+    return marketDataReadTimeout;
+  }
+
+  public void setMarketDataReadTimeout(Integer marketDataReadTimeout) {
+    this.marketDataReadTimeout = marketDataReadTimeout;
+  }
+
+  @Override
+  public Boolean getAdaptiveTimeouts() {
+    return adaptiveTimeouts;
+  }
+
+  public void setAdaptiveTimeouts(Boolean adaptiveTimeouts) {
+    this.adaptiveTimeouts = adaptiveTimeouts;
+  }
+
+  @Override
+  public Integer getCircuitBreakerFailureThreshold() {
+    return circuitBreakerFailureThreshold;
+  }
+
+  public void setCircuitBreakerFailureThreshold(Integer circuitBreakerFailureThreshold) {
+    this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+  }
+
+  @Override
+  public Integer getCircuitBreakerMinBackoff() {
+    return circuitBreakerMinBackoff;
+  }
+
+  public void setCircuitBreakerMinBackoff(Integer circuitBreakerMinBackoff) {
+    this.circuitBreakerMinBackoff = circuitBreakerMinBackoff;
+  }
+
+  @Override
+  public Integer getCircuitBreakerMaxBackoff() {
+    return circuitBreakerMaxBackoff;
+  }
+
+  public void setCircuitBreakerMaxBackoff(Integer circuitBreakerMaxBackoff) {
+    this.circuitBreakerMaxBackoff = circuitBreakerMaxBackoff;
+  }
+
+  @Override
+  public Boolean getPreWarmConnections() {
+    return preWarmConnections;
+  }
+
+  public void setPreWarmConnections(Boolean preWarmConnections) {
+    this.preWarmConnections = preWarmConnections;
+  }
+
+  @Override
+  public Boolean getStreamMarketData() {
+    return streamMarketData;
+  }
+
+  public void setStreamMarketData(Boolean streamMarketData) {
+    this.streamMarketData = streamMarketData;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
                .add("connectionTimeout", connectionTimeout)
                .add("nonFatalErrorCodes", nonFatalErrorCodes)
                .add("nonFatalErrorMessages", nonFatalErrorMessages)
+               .add("maxConnections", maxConnections)
+               .add("connectionIdleTimeout", connectionIdleTimeout)
+               .add("rateLimiter", rateLimiter)
+               .add("rateLimitBurst", rateLimitBurst)
+               .add("rateLimitCallsPerSecond", rateLimitCallsPerSecond)
+               .add("hedgeLatencyPercentile", hedgeLatencyPercentile)
+               .add("hedgeMaxExtraLoadPercent", hedgeMaxExtraLoadPercent)
+               .add("connectTimeout", connectTimeout)
+               .add("tradingReadTimeout", tradingReadTimeout)
+               .add("accountReadTimeout", accountReadTimeout)
+               .add("marketDataReadTimeout", marketDataReadTimeout)
+               .add("adaptiveTimeouts", adaptiveTimeouts)
+               .add("circuitBreakerFailureThreshold", circuitBreakerFailureThreshold)
+               .add("circuitBreakerMinBackoff", circuitBreakerMinBackoff)
+               .add("circuitBreakerMaxBackoff", circuitBreakerMaxBackoff)
+               .add("preWarmConnections", preWarmConnections)
+               .add("streamMarketData", streamMarketData)
                .toString();
   }
 }
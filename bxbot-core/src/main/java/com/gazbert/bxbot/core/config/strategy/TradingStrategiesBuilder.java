@@ -32,6 +32,7 @@ import com.gazbert.bxbot.trading.api.Market;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -61,8 +62,19 @@ public class TradingStrategiesBuilder {
       List<StrategyConfig> strategies,
       List<MarketConfig> markets,
       ExchangeAdapter exchangeAdapter) {
+    return new ArrayList<>(buildStrategiesByMarket(strategies, markets, exchangeAdapter).values());
+  }
+
+  /**
+   * Builds the Trading Strategy execution list, keyed by the Market config each Strategy trades
+   * on. The map iterates in Market config order.
+   */
+  public Map<MarketConfig, TradingStrategy> buildStrategiesByMarket(
+      List<StrategyConfig> strategies,
+      List<MarketConfig> markets,
+      ExchangeAdapter exchangeAdapter) {
 
-    final List<TradingStrategy> tradingStrategiesToExecute = new ArrayList<>();
+    final Map<MarketConfig, TradingStrategy> tradingStrategiesToExecute = new LinkedHashMap<>();
 
     // Register the strategies
     final Map<String, StrategyConfig> tradingStrategyConfigs = new HashMap<>();
@@ -133,7 +145,7 @@ public class TradingStrategiesBuilder {
                     + "] Class: "
                     + tradingStrategy.getClassName());
 
-        tradingStrategiesToExecute.add(strategyImpl);
+        tradingStrategiesToExecute.put(market, strategyImpl);
       } else {
 
         // Game over. Config integrity blown - we can't find strat.
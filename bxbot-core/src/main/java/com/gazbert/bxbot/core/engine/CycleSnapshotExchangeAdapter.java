@@ -0,0 +1,330 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
+import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
+import com.gazbert.bxbot.exchange.api.ExchangeConfig;
+import com.gazbert.bxbot.trading.api.AsyncTradingApi;
+import com.gazbert.bxbot.trading.api.BalanceInfo;
+import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.ExecutorAsyncTradingApi;
+import com.gazbert.bxbot.trading.api.FixedPointScale;
+import com.gazbert.bxbot.trading.api.Level3OrderBook;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OpenOrder;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.gazbert.bxbot.trading.api.Ticker;
+import com.gazbert.bxbot.trading.api.TradingApiException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Wraps the Exchange Adapter and holds a snapshot of the exchange data fetched during a trade
+ * cycle.
+ *
+ * <p>The Emergency Stop check and every Trading Strategy call the exchange for much the same data
+ * each cycle: balances, order books, open orders, latest prices. The first call in a cycle goes to
+ * the exchange; identical calls for the rest of the cycle are served from the snapshot. The
+ * snapshot is cleared at the start of every trade cycle.
+ *
+ * <p>If the exchange returns the open orders for every market in one call, the open orders for
+ * all the markets are fetched with a single getAllOpenOrders call, and each market's
+ * getYourOpenOrders call is answered from it.
+ *
+ * <p>Placing or cancelling an order changes the market's order book, open orders, and the account
+ * balances, so createOrder and cancelOrder invalidate the snapshot for that market, all the open
+ * orders, and the balance info.
+ *
+ * <p>Order by order (level 3) books are not snapshotted: the adapter keeps them live from the
+ * exchange's feed, so they are always read from the adapter.
+ *
+ * <p>This class is thread safe so it can be used when Trading Strategies are executed in parallel.
+ * Each snapshot entry is the future result of the call, added before the call is sent, so identical
+ * calls made whilst the first one is in flight wait for its result rather than sending their own.
+ * Invalidating removes the entry, so a call that was in flight when an order was placed cannot put
+ * its stale result back; the callers already waiting on it still get it, as their calls overlapped
+ * the order.
+ *
+ * <p>Failed calls are not cached: the exception is passed back to the caller, and to any callers
+ * waiting on the same call, and the next call is sent to the exchange.
+ *
+ * @author gazbert
+ */
+class CycleSnapshotExchangeAdapter implements ExchangeAdapter {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  private static final String KEY_SEPARATOR = "|";
+  private static final String BALANCE_INFO_KEY = KEY_SEPARATOR + "getBalanceInfo";
+  private static final String ALL_OPEN_ORDERS_KEY = KEY_SEPARATOR + "getAllOpenOrders";
+
+  private final ExchangeAdapter exchangeAdapter;
+  private final Map<String, CompletableFuture<Object>> snapshot = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  CycleSnapshotExchangeAdapter(ExchangeAdapter exchangeAdapter) {
+    this.exchangeAdapter = exchangeAdapter;
+  }
+
+  /** Clears the snapshot. Called by the Trading Engine at the start of every trade cycle. */
+  void startNewCycle() {
+    final long cycleHits = hits.getAndSet(0);
+    final long cycleMisses = misses.getAndSet(0);
+    if (cycleHits + cycleMisses > 0) {
+      LOG.info(
+          () ->
+              "Trade cycle exchange calls - sent: "
+                  + cycleMisses
+                  + " served from snapshot: "
+                  + cycleHits);
+    }
+    snapshot.clear();
+  }
+
+  @Override
+  public void init(ExchangeConfig config) {
+    exchangeAdapter.init(config);
+  }
+
+  @Override
+  public Map<String, CircuitBreakerState> getCircuitBreakerStates() {
+    return exchangeAdapter.getCircuitBreakerStates();
+  }
+
+  @Override
+  public void close() {
+    exchangeAdapter.close();
+  }
+
+  @Override
+  public String getVersion() {
+    return exchangeAdapter.getVersion();
+  }
+
+  @Override
+  public String getImplName() {
+    return exchangeAdapter.getImplName();
+  }
+
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId)
+      throws ExchangeNetworkException, TradingApiException {
+    return fromSnapshot(
+        marketKey(marketId, "getMarketOrders"), () -> exchangeAdapter.getMarketOrders(marketId));
+  }
+
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws ExchangeNetworkException, TradingApiException {
+    return fromSnapshot(
+        marketKey(marketId, "getMarketOrders:" + depth),
+        () -> exchangeAdapter.getMarketOrders(marketId, depth));
+  }
+
+  @Override
+  public List<OpenOrder> getYourOpenOrders(String marketId)
+      throws ExchangeNetworkException, TradingApiException {
+    if (exchangeAdapter.isAllOpenOrdersSupported()) {
+      return getAllOpenOrders().stream()
+          .filter(openOrder -> marketId.equalsIgnoreCase(openOrder.getMarketId()))
+          .collect(Collectors.toList());
+    }
+    return fromSnapshot(
+        marketKey(marketId, "getYourOpenOrders"),
+        () -> exchangeAdapter.getYourOpenOrders(marketId));
+  }
+
+  @Override
+  public boolean isAllOpenOrdersSupported() {
+    return exchangeAdapter.isAllOpenOrdersSupported();
+  }
+
+  @Override
+  public List<OpenOrder> getAllOpenOrders() throws ExchangeNetworkException, TradingApiException {
+    return fromSnapshot(ALL_OPEN_ORDERS_KEY, exchangeAdapter::getAllOpenOrders);
+  }
+
+  @Override
+  public boolean isLevel3Supported() {
+    return exchangeAdapter.isLevel3Supported();
+  }
+
+  @Override
+  public Level3OrderBook getLevel3OrderBook(String marketId) {
+    return exchangeAdapter.getLevel3OrderBook(marketId);
+  }
+
+  @Override
+  public FixedPointScale getFixedPointScale(String marketId) {
+    return exchangeAdapter.getFixedPointScale(marketId);
+  }
+
+  @Override
+  public String createOrder(
+      String marketId, OrderType orderType, BigDecimal quantity, BigDecimal price)
+      throws ExchangeNetworkException, TradingApiException {
+    try {
+      return exchangeAdapter.createOrder(marketId, orderType, quantity, price);
+    } finally {
+      invalidate(marketId);
+    }
+  }
+
+  @Override
+  public boolean cancelOrder(String orderId, String marketId)
+      throws ExchangeNetworkException, TradingApiException {
+    try {
+      return exchangeAdapter.cancelOrder(orderId, marketId);
+    } finally {
+      invalidate(marketId);
+    }
+  }
+
+  @Override
+  public BigDecimal getLatestMarketPrice(String marketId)
+      throws ExchangeNetworkException, TradingApiException {
+    return fromSnapshot(
+        marketKey(marketId, "getLatestMarketPrice"),
+        () -> exchangeAdapter.getLatestMarketPrice(marketId));
+  }
+
+  @Override
+  public BalanceInfo getBalanceInfo() throws ExchangeNetworkException, TradingApiException {
+    return fromSnapshot(BALANCE_INFO_KEY, exchangeAdapter::getBalanceInfo);
+  }
+
+  @Override
+  public BigDecimal getPercentageOfBuyOrderTakenForExchangeFee(String marketId)
+      throws TradingApiException, ExchangeNetworkException {
+    return fromSnapshot(
+        marketKey(marketId, "getPercentageOfBuyOrderTakenForExchangeFee"),
+        () -> exchangeAdapter.getPercentageOfBuyOrderTakenForExchangeFee(marketId));
+  }
+
+  @Override
+  public BigDecimal getPercentageOfSellOrderTakenForExchangeFee(String marketId)
+      throws TradingApiException, ExchangeNetworkException {
+    return fromSnapshot(
+        marketKey(marketId, "getPercentageOfSellOrderTakenForExchangeFee"),
+        () -> exchangeAdapter.getPercentageOfSellOrderTakenForExchangeFee(marketId));
+  }
+
+  @Override
+  public Ticker getTicker(String marketId) throws TradingApiException, ExchangeNetworkException {
+    return fromSnapshot(marketKey(marketId, "getTicker"), () -> exchangeAdapter.getTicker(marketId));
+  }
+
+  /*
+   * Async calls go through the snapshot too, on the wrapped adapter's executor if it has one.
+   */
+  @Override
+  public AsyncTradingApi async() {
+    final AsyncTradingApi adapterAsyncApi = exchangeAdapter.async();
+    final Executor executor =
+        adapterAsyncApi instanceof ExecutorAsyncTradingApi
+            ? ((ExecutorAsyncTradingApi) adapterAsyncApi).getExecutor()
+            : Runnable::run;
+    return new ExecutorAsyncTradingApi(this, executor);
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  @SuppressWarnings("unchecked")
+  private <T> T fromSnapshot(String key, ExchangeCall<T> exchangeCall)
+      throws ExchangeNetworkException, TradingApiException {
+    final CompletableFuture<Object> call = new CompletableFuture<>();
+    final CompletableFuture<Object> cached = snapshot.putIfAbsent(key, call);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return (T) await(cached);
+    }
+
+    misses.incrementAndGet();
+    final T result;
+    try {
+      result = exchangeCall.call();
+    } catch (ExchangeNetworkException | TradingApiException | RuntimeException | Error e) {
+      snapshot.remove(key, call);
+      call.completeExceptionally(e);
+      throw e;
+    }
+    if (result == null) {
+      snapshot.remove(key, call);
+    }
+    call.complete(result);
+    return result;
+  }
+
+  /*
+   * Waits uninterruptibly: the call in flight is bounded by the adapter's network timeouts.
+   */
+  private static Object await(CompletableFuture<Object> call)
+      throws ExchangeNetworkException, TradingApiException {
+    try {
+      return call.join();
+    } catch (CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ExchangeNetworkException) {
+        throw (ExchangeNetworkException) cause;
+      } else if (cause instanceof TradingApiException) {
+        throw (TradingApiException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private void invalidate(String marketId) {
+    final String marketKeyPrefix = marketId + KEY_SEPARATOR;
+    snapshot.keySet().removeIf(key -> key.startsWith(marketKeyPrefix));
+    snapshot.remove(BALANCE_INFO_KEY);
+    snapshot.remove(ALL_OPEN_ORDERS_KEY);
+  }
+
+  private static String marketKey(String marketId, String method) {
+    return marketId + KEY_SEPARATOR + method;
+  }
+
+  /** A call to the exchange. */
+  @FunctionalInterface
+  private interface ExchangeCall<T> {
+    T call() throws ExchangeNetworkException, TradingApiException;
+  }
+}
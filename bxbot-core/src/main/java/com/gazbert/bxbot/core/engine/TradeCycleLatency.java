@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import com.google.common.base.MoreObjects;
+import java.time.Duration;
+
+/**
+ * Tracks how long the Trading Engine's trade cycles take to complete.
+ *
+ * <p>The first trade cycle after the engine starts is tracked separately: it is usually the slowest
+ * because it pays for any DNS lookups, TCP connects and TLS handshakes the Exchange Adapter has not
+ * done up front. Comparing it with the mean of the later cycles shows what connection pre-warming
+ * saves.
+ *
+ * <p>Only the Trading Engine thread uses this class - it is not thread safe.
+ *
+ * @author gazbert
+ */
+class TradeCycleLatency {
+
+  private Duration firstCycleLatency;
+  private long laterCycleCount;
+  private long laterCycleTotalNanos;
+  private long laterCycleMaxNanos;
+
+  /**
+   * Records the latency of a completed trade cycle.
+   *
+   * @param latency how long the cycle took.
+   */
+  void record(Duration latency) {
+    if (firstCycleLatency == null) {
+      firstCycleLatency = latency;
+      return;
+    }
+    laterCycleCount++;
+    laterCycleTotalNanos += latency.toNanos();
+    laterCycleMaxNanos = Math.max(laterCycleMaxNanos, latency.toNanos());
+  }
+
+  boolean isFirstCycle() {
+    return firstCycleLatency == null;
+  }
+
+  Duration getFirstCycleLatency() {
+    return firstCycleLatency;
+  }
+
+  long getLaterCycleCount() {
+    return laterCycleCount;
+  }
+
+  Duration getMeanLatencyAfterFirstCycle() {
+    return laterCycleCount == 0 ? null : Duration.ofNanos(laterCycleTotalNanos / laterCycleCount);
+  }
+
+  Duration getMaxLatencyAfterFirstCycle() {
+    return laterCycleCount == 0 ? null : Duration.ofNanos(laterCycleMaxNanos);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("firstCycleLatency", firstCycleLatency)
+        .add("laterCycleCount", laterCycleCount)
+        .add("meanLatencyAfterFirstCycle", getMeanLatencyAfterFirstCycle())
+        .add("maxLatencyAfterFirstCycle", getMaxLatencyAfterFirstCycle())
+        .toString();
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import com.gazbert.bxbot.strategy.api.TradingStrategy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Schedules the execution of each market's Trading Strategy at its own fixed rate.
+ *
+ * <p>Each market is given a deadline on a fixed grid: start time + n * interval. The deadline is
+ * advanced by the interval every time the market's strategy runs, not from when the strategy
+ * finished, so the period does not drift by however long the trade cycle took.
+ *
+ * <p>If a trade cycle takes longer than a market's interval, the overrun is reported. If the
+ * engine is so late that whole ticks have passed, the missed ticks are reported and skipped - the
+ * scheduler does not fire a burst of catch-up cycles at the exchange.
+ *
+ * <p>The deadlines are held in a priority queue ordered by next run time. A bot trades on a
+ * handful of markets, so this is cheaper and simpler than a hashed timer wheel.
+ *
+ * <p>If no markets are scheduled, the engine still wakes every engine tradeCycleInterval, so the
+ * emergency stop check keeps running.
+ *
+ * <p>This class is not thread safe; it is only used by the Trading Engine thread.
+ *
+ * @author gazbert
+ */
+class TradeCycleScheduler {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final PriorityQueue<ScheduledStrategy> schedule =
+      new PriorityQueue<>(
+          Comparator.comparingLong((ScheduledStrategy s) -> s.nextRunTime)
+              .thenComparingInt(s -> s.sequence));
+  private final long idleIntervalMillis;
+  private final LongSupplier nanoClock;
+
+  /**
+   * Creates the scheduler.
+   *
+   * @param idleIntervalInSecs the engine tradeCycleInterval, used if no markets are scheduled.
+   */
+  TradeCycleScheduler(int idleIntervalInSecs) {
+    this(idleIntervalInSecs, System::nanoTime);
+  }
+
+  TradeCycleScheduler(int idleIntervalInSecs, LongSupplier nanoClock) {
+    if (idleIntervalInSecs < 1) {
+      throw new IllegalArgumentException(
+          "Engine trade cycle interval must be 1 or more: " + idleIntervalInSecs);
+    }
+    this.idleIntervalMillis = TimeUnit.SECONDS.toMillis(idleIntervalInSecs);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Schedules a market's Trading Strategy. Its first run is due immediately.
+   *
+   * @param marketId the id of the market the strategy trades on.
+   * @param tradingStrategy the strategy.
+   * @param intervalInSecs the interval in secs between runs. Must be 1 or more.
+   */
+  void schedule(String marketId, TradingStrategy tradingStrategy, int intervalInSecs) {
+    if (intervalInSecs < 1) {
+      throw new IllegalArgumentException(
+          "Trade cycle interval for market " + marketId + " must be 1 or more: " + intervalInSecs);
+    }
+    schedule.add(
+        new ScheduledStrategy(
+            marketId,
+            tradingStrategy,
+            TimeUnit.SECONDS.toNanos(intervalInSecs),
+            nanoClock.getAsLong(),
+            schedule.size()));
+  }
+
+  /**
+   * Returns how long until the next Trading Strategy is due to run.
+   *
+   * @return the time in millis, 0 if a strategy is already due, or the engine tradeCycleInterval
+   *     if nothing has been scheduled.
+   */
+  long getMillisUntilNextRun() {
+    final ScheduledStrategy next = schedule.peek();
+    if (next == null) {
+      return idleIntervalMillis;
+    }
+    final long delay = next.nextRunTime - nanoClock.getAsLong();
+    return delay <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(delay + 999_999);
+  }
+
+  /**
+   * Returns true if no Trading Strategies have been scheduled.
+   *
+   * @return true if nothing has been scheduled.
+   */
+  boolean isEmpty() {
+    return schedule.isEmpty();
+  }
+
+  /**
+   * Returns the Trading Strategies that are due to run, in market config order, and moves their
+   * deadlines on to the next tick. Missed ticks are reported and skipped.
+   *
+   * @return the strategies due to run; empty if none are due.
+   */
+  List<ScheduledStrategy> pollDueStrategies() {
+    final long now = nanoClock.getAsLong();
+    final List<ScheduledStrategy> dueStrategies = new ArrayList<>();
+    while (!schedule.isEmpty() && schedule.peek().nextRunTime <= now) {
+      dueStrategies.add(schedule.poll());
+    }
+
+    for (final ScheduledStrategy dueStrategy : dueStrategies) {
+      final long missedTicks = (now - dueStrategy.nextRunTime) / dueStrategy.interval;
+      if (missedTicks > 0) {
+        dueStrategy.missedTicks += missedTicks;
+        LOG.warn(
+            () ->
+                "Trade cycle for market "
+                    + dueStrategy.marketId
+                    + " missed "
+                    + missedTicks
+                    + " tick(s) - total missed: "
+                    + dueStrategy.missedTicks);
+      }
+      dueStrategy.nextRunTime += (missedTicks + 1) * dueStrategy.interval;
+      schedule.add(dueStrategy);
+    }
+
+    dueStrategies.sort(Comparator.comparingInt(s -> s.sequence));
+    return dueStrategies;
+  }
+
+  /**
+   * Reports any strategies that finished running after their next tick was due.
+   *
+   * @param executedStrategies the strategies that have just been run.
+   */
+  void reportOverruns(List<ScheduledStrategy> executedStrategies) {
+    final long now = nanoClock.getAsLong();
+    for (final ScheduledStrategy executedStrategy : executedStrategies) {
+      final long overrun = now - executedStrategy.nextRunTime;
+      if (overrun > 0) {
+        executedStrategy.overruns++;
+        LOG.warn(
+            () ->
+                "Trade cycle for market "
+                    + executedStrategy.marketId
+                    + " overran its "
+                    + TimeUnit.NANOSECONDS.toSeconds(executedStrategy.interval)
+                    + "s interval by "
+                    + TimeUnit.NANOSECONDS.toMillis(overrun)
+                    + "ms - total overruns: "
+                    + executedStrategy.overruns);
+      }
+    }
+  }
+
+  /** A market's Trading Strategy and its schedule. */
+  static final class ScheduledStrategy {
+
+    private final String marketId;
+    private final TradingStrategy tradingStrategy;
+    private final long interval;
+    private final int sequence;
+    private long nextRunTime;
+    private long missedTicks;
+    private long overruns;
+
+    private ScheduledStrategy(
+        String marketId,
+        TradingStrategy tradingStrategy,
+        long interval,
+        long nextRunTime,
+        int sequence) {
+      this.marketId = marketId;
+      this.tradingStrategy = tradingStrategy;
+      this.interval = interval;
+      this.nextRunTime = nextRunTime;
+      this.sequence = sequence;
+    }
+
+    String getMarketId() {
+      return marketId;
+    }
+
+    TradingStrategy getTradingStrategy() {
+      return tradingStrategy;
+    }
+
+    long getMissedTicks() {
+      return missedTicks;
+    }
+
+    long getOverruns() {
+      return overruns;
+    }
+  }
+}
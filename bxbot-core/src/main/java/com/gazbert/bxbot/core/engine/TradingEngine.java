@@ -26,6 +26,7 @@ package com.gazbert.bxbot.core.engine;
 import com.gazbert.bxbot.core.config.exchange.ExchangeApiConfigBuilder;
 import com.gazbert.bxbot.core.config.exchange.ExchangeConfigImpl;
 import com.gazbert.bxbot.core.config.strategy.TradingStrategiesBuilder;
+import com.gazbert.bxbot.core.engine.TradeCycleScheduler.ScheduledStrategy;
 import com.gazbert.bxbot.core.mail.EmailAlertMessageBuilder;
 import com.gazbert.bxbot.core.mail.EmailAlerter;
 import com.gazbert.bxbot.core.util.ConfigurableComponentFactory;
@@ -34,6 +35,7 @@ import com.gazbert.bxbot.domain.engine.EngineConfig;
 import com.gazbert.bxbot.domain.exchange.ExchangeConfig;
 import com.gazbert.bxbot.domain.market.MarketConfig;
 import com.gazbert.bxbot.domain.strategy.StrategyConfig;
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.services.config.EngineConfigService;
 import com.gazbert.bxbot.services.config.ExchangeConfigService;
@@ -44,7 +46,10 @@ import com.gazbert.bxbot.strategy.api.TradingStrategy;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.TradingApiException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -59,12 +64,23 @@ import org.springframework.stereotype.Component;
  * shutdown.
  *
  * <p>The only time the bot does not fail hard and fast is for network issues connecting to the
- * exchange - it logs the error and retries at next trade cycle.
+ * exchange - it logs the error and retries at next trade cycle. If the Exchange Adapter has circuit
+ * breakers enabled, the endpoints whose breakers are open are logged too: calls to them fail fast
+ * until their backoff has passed, whilst the healthy endpoints keep being used.
  *
  * <p>To keep things simple:
  *
  * <ul>
- *   <li>The engine is single threaded.
+ *   <li>The engine is single threaded by default. If the Engine config strategyParallelism value
+ *       is more than 1, each market's Trading Strategy is executed concurrently within a trade
+ *       cycle using a fixed size thread pool; the engine waits for all of them to complete before
+ *       the next cycle starts.
+ *   <li>Each market's Trading Strategy is executed at a fixed rate: the Engine config
+ *       tradeCycleInterval, or the market's own tradeCycleInterval if it has one. Missed ticks and
+ *       overrunning trade cycles are logged rather than stretching the period.
+ *   <li>The Trading Strategies and the Emergency Stop check share a snapshot of the exchange data
+ *       fetched during a trade cycle - identical calls in the same cycle only hit the exchange
+ *       once.
  *   <li>The engine only supports trading on 1 exchange per instance of the bot, i.e. 1 Exchange
  *       Adapter per process.
  *   <li>The engine only supports 1 Trading Strategy per Market.
@@ -88,9 +104,12 @@ public class TradingEngine {
   private boolean isRunning = false;
 
   private final EmailAlerter emailAlerter;
-  private List<TradingStrategy> tradingStrategies;
+  private TradeCycleScheduler tradeCycleScheduler;
+  private TradingStrategyExecutor tradingStrategyExecutor;
   private EngineConfig engineConfig;
   private ExchangeAdapter exchangeAdapter;
+  private CycleSnapshotExchangeAdapter cycleSnapshotExchangeAdapter;
+  private TradeCycleLatency tradeCycleLatency;
 
   private final ExchangeConfigService exchangeConfigService;
   private final EngineConfigService engineConfigService;
@@ -138,9 +157,13 @@ public class TradingEngine {
   private void init() {
     LOG.info(() -> "Initialising Trading Engine...");
     // the sequence order of these methods is significant - don't change it.
+    closeExchangeAdapter(); // left open if the previous run's shutdown failed
     exchangeAdapter = loadExchangeAdapter();
+    cycleSnapshotExchangeAdapter = new CycleSnapshotExchangeAdapter(exchangeAdapter);
     engineConfig = loadEngineConfig();
-    tradingStrategies = loadTradingStrategies();
+    tradeCycleScheduler = loadTradingStrategies();
+    tradingStrategyExecutor = createTradingStrategyExecutor();
+    tradeCycleLatency = new TradeCycleLatency();
   }
 
   /*
@@ -152,21 +175,31 @@ public class TradingEngine {
     LOG.info(() -> "Starting Trading Engine for " + engineConfig.getBotId() + " ...");
     while (keepAlive) {
       try {
+        waitForNextTradeCycle();
+        if (!keepAlive) {
+          break;
+        }
+
+        final List<ScheduledStrategy> dueStrategies = tradeCycleScheduler.pollDueStrategies();
+        if (dueStrategies.isEmpty() && !tradeCycleScheduler.isEmpty()) {
+          continue; // woken early - no market is due yet
+        }
         LOG.info(() -> "*** Starting next trade cycle... ***");
+        final long cycleStartNanos = System.nanoTime();
+        cycleSnapshotExchangeAdapter.startNewCycle();
 
         // Emergency Stop Check MUST run at start of every trade cycle.
         if (isEmergencyStopLimitBreached()) {
           break;
         }
 
-        for (final TradingStrategy tradingStrategy : tradingStrategies) {
-          LOG.info(
-              () ->
-                  "Executing Trading Strategy ---> " + tradingStrategy.getClass().getSimpleName());
-          tradingStrategy.execute();
-        }
+        tradingStrategyExecutor.execute(
+            dueStrategies.stream()
+                .map(ScheduledStrategy::getTradingStrategy)
+                .collect(Collectors.toList()));
 
-        sleepUntilNextTradingCycle();
+        tradeCycleScheduler.reportOverruns(dueStrategies);
+        recordTradeCycleLatency(Duration.ofNanos(System.nanoTime() - cycleStartNanos));
 
       } catch (ExchangeNetworkException e) {
         handleExchangeNetworkException(e);
@@ -184,8 +217,25 @@ public class TradingEngine {
 
     // We've broken out of the control loop due to error or admin shutdown request
     LOG.fatal(() -> "BX-bot " + engineConfig.getBotId() + " is shutting down NOW!");
-    synchronized (IS_RUNNING_MONITOR) {
-      isRunning = false;
+    try {
+      tradingStrategyExecutor.shutdown();
+      closeExchangeAdapter();
+    } finally {
+      synchronized (IS_RUNNING_MONITOR) {
+        isRunning = false;
+      }
+    }
+  }
+
+  /*
+   * Releases the adapter's threads and connections, e.g. its market data stream. The bot creates
+   * a new adapter each time it is started.
+   */
+  private void closeExchangeAdapter() {
+    final ExchangeAdapter adapterToClose = exchangeAdapter;
+    exchangeAdapter = null;
+    if (adapterToClose != null) {
+      adapterToClose.close();
     }
   }
 
@@ -206,37 +256,55 @@ public class TradingEngine {
     return isRunning;
   }
 
-  private void sleepUntilNextTradingCycle() {
-    LOG.info(
-        () ->
-            "*** Sleeping "
-                + engineConfig.getTradeCycleInterval()
-                + "s til next trade cycle... ***");
+  private void waitForNextTradeCycle() {
+    final long delay = tradeCycleScheduler.getMillisUntilNextRun();
+    if (delay == 0) {
+      return;
+    }
+    LOG.info(() -> "*** Sleeping " + delay + "ms til next trade cycle... ***");
     try {
-      Thread.sleep(engineConfig.getTradeCycleInterval() * 1000L);
+      Thread.sleep(delay);
     } catch (InterruptedException e) {
       LOG.warn(() -> "Control Loop thread interrupted when sleeping before next trade cycle");
       Thread.currentThread().interrupt();
     }
   }
 
+  /*
+   * The first cycle is reported on its own: it pays for any connection setup the Exchange Adapter
+   * did not do during init.
+   */
+  private void recordTradeCycleLatency(Duration latency) {
+    final boolean firstCycle = tradeCycleLatency.isFirstCycle();
+    tradeCycleLatency.record(latency);
+    if (firstCycle) {
+      LOG.info(() -> "*** First trade cycle completed in " + latency.toMillis() + "ms ***");
+    } else {
+      LOG.info(
+          () ->
+              "*** Trade cycle completed in "
+                  + latency.toMillis()
+                  + "ms *** Latency: "
+                  + tradeCycleLatency);
+    }
+  }
+
   /*
    * We have a network connection issue reported by Exchange Adapter when called directly from
-   * Trading Engine. Current policy is to log it and sleep until next trade cycle.
+   * Trading Engine. Current policy is to log it and wait until next trade cycle.
    */
   private void handleExchangeNetworkException(ExchangeNetworkException e) {
     final String errorMessage =
         "A network error has occurred in Exchange Adapter! "
-            + "BX-bot will try again in "
-            + engineConfig.getTradeCycleInterval()
-            + "s...";
+            + "BX-bot will try again at next trade cycle...";
     LOG.error(() -> errorMessage, e);
 
-    try {
-      Thread.sleep(engineConfig.getTradeCycleInterval() * 1000L);
-    } catch (InterruptedException e1) {
-      LOG.warn(() -> "Control Loop thread interrupted when sleeping before next trade cycle");
-      Thread.currentThread().interrupt();
+    final Map<String, CircuitBreakerState> unhealthyEndpoints =
+        exchangeAdapter.getCircuitBreakerStates().entrySet().stream()
+            .filter(entry -> entry.getValue() != CircuitBreakerState.CLOSED)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    if (!unhealthyEndpoints.isEmpty()) {
+      LOG.warn(() -> "Exchange endpoint circuit breakers not closed: " + unhealthyEndpoints);
     }
   }
 
@@ -313,7 +381,7 @@ public class TradingEngine {
       return false; // by-pass the emergency stop check
     }
     return EmergencyStopChecker.isEmergencyStopLimitBreached(
-        exchangeAdapter, engineConfig, emailAlerter);
+        cycleSnapshotExchangeAdapter, engineConfig, emailAlerter);
   }
 
   private ExchangeAdapter loadExchangeAdapter() {
@@ -326,7 +394,13 @@ public class TradingEngine {
 
     final ExchangeConfigImpl exchangeApiConfig =
         ExchangeApiConfigBuilder.buildConfig(exchangeConfig);
+    final long initStartNanos = System.nanoTime();
     adapter.init(exchangeApiConfig);
+    LOG.info(
+        () ->
+            "Exchange Adapter initialised in "
+                + Duration.ofNanos(System.nanoTime() - initStartNanos).toMillis()
+                + "ms");
     return adapter;
   }
 
@@ -336,11 +410,46 @@ public class TradingEngine {
     return loadedEngineConfig;
   }
 
-  private List<TradingStrategy> loadTradingStrategies() {
+  private TradingStrategyExecutor createTradingStrategyExecutor() {
+    final TradingStrategyExecutor executor =
+        new TradingStrategyExecutor(engineConfig.getStrategyParallelism());
+    if (executor.isParallel()) {
+      LOG.info(
+          () ->
+              "Trading Strategies will be executed concurrently using "
+                  + executor.getParallelism()
+                  + " threads");
+    } else {
+      LOG.info(() -> "Trading Strategies will be executed sequentially");
+    }
+    return executor;
+  }
+
+  private TradeCycleScheduler loadTradingStrategies() {
     final List<StrategyConfig> strategies = strategyConfigService.getAllStrategyConfig();
     LOG.info(() -> "Fetched Strategy config from repository: " + strategies);
     final List<MarketConfig> markets = marketConfigService.getAllMarketConfig();
     LOG.info(() -> "Fetched Markets config from repository: " + markets);
-    return tradingStrategiesBuilder.buildStrategies(strategies, markets, exchangeAdapter);
+    final Map<MarketConfig, TradingStrategy> tradingStrategies =
+        tradingStrategiesBuilder.buildStrategiesByMarket(
+            strategies, markets, cycleSnapshotExchangeAdapter);
+
+    if (tradingStrategies.isEmpty()) {
+      LOG.warn(() -> "No markets are enabled for trading - Trading Engine will be idle!");
+    }
+
+    final TradeCycleScheduler scheduler =
+        new TradeCycleScheduler(engineConfig.getTradeCycleInterval());
+    tradingStrategies.forEach(
+        (market, tradingStrategy) -> {
+          final int interval =
+              market.getTradeCycleInterval() != null
+                  ? market.getTradeCycleInterval()
+                  : engineConfig.getTradeCycleInterval();
+          LOG.info(
+              () -> "Trade cycle interval for market " + market.getId() + ": " + interval + "s");
+          scheduler.schedule(market.getId(), tradingStrategy, interval);
+        });
+    return scheduler;
   }
 }
@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import com.gazbert.bxbot.strategy.api.StrategyException;
+import com.gazbert.bxbot.strategy.api.TradingStrategy;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executes the Trading Strategies for a trade cycle.
+ *
+ * <p>If the configured parallelism is 1 or less, the strategies are executed one after another on
+ * the Trading Engine thread - this is the original engine behaviour.
+ *
+ * <p>Otherwise, each market's strategy is submitted to a fixed size thread pool and the engine
+ * thread waits for all of them to complete before the trade cycle ends, i.e. the cycle is a
+ * barrier. The engine's error policy is preserved: once every strategy has finished, the failure of
+ * the first failed strategy (in market config order) is rethrown for the engine to handle.
+ *
+ * @author gazbert
+ */
+class TradingStrategyExecutor {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final int parallelism;
+  private final ExecutorService executorService;
+
+  TradingStrategyExecutor(int parallelism) {
+    this.parallelism = parallelism;
+    if (isParallel()) {
+      executorService =
+          Executors.newFixedThreadPool(
+              parallelism,
+              new ThreadFactoryBuilder()
+                  .setNameFormat("bxbot-strategy-%d")
+                  .setDaemon(true)
+                  .build());
+    } else {
+      executorService = null;
+    }
+  }
+
+  /**
+   * Executes the given strategies and returns once all of them have completed.
+   *
+   * @param tradingStrategies the strategies to execute.
+   * @throws StrategyException if a strategy threw a StrategyException.
+   */
+  void execute(List<TradingStrategy> tradingStrategies) throws StrategyException {
+    if (!isParallel()) {
+      for (final TradingStrategy tradingStrategy : tradingStrategies) {
+        executeStrategy(tradingStrategy);
+      }
+      return;
+    }
+
+    final List<Future<?>> results = new ArrayList<>(tradingStrategies.size());
+    for (final TradingStrategy tradingStrategy : tradingStrategies) {
+      results.add(
+          executorService.submit(
+              () -> {
+                executeStrategy(tradingStrategy);
+                return null;
+              }));
+    }
+    awaitAll(results);
+  }
+
+  /** Stops the strategy thread pool. Any strategies still executing are interrupted. */
+  void shutdown() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  boolean isParallel() {
+    return parallelism > 1;
+  }
+
+  int getParallelism() {
+    return parallelism;
+  }
+
+  private static void executeStrategy(TradingStrategy tradingStrategy) throws StrategyException {
+    LOG.info(
+        () -> "Executing Trading Strategy ---> " + tradingStrategy.getClass().getSimpleName());
+    tradingStrategy.execute();
+  }
+
+  /*
+   * Waits for every strategy to finish - we don't want a strategy still trading when the next
+   * cycle starts - then rethrows the first failure.
+   */
+  private static void awaitAll(List<Future<?>> results) throws StrategyException {
+    Throwable firstFailure = null;
+    for (final Future<?> result : results) {
+      try {
+        result.get();
+      } catch (ExecutionException e) {
+        if (firstFailure == null) {
+          firstFailure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        LOG.warn(() -> "Interrupted whilst waiting for Trading Strategies to complete");
+        results.forEach(r -> r.cancel(true));
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+    if (firstFailure instanceof StrategyException) {
+      throw (StrategyException) firstFailure;
+    } else if (firstFailure instanceof RuntimeException) {
+      throw (RuntimeException) firstFailure;
+    } else if (firstFailure instanceof Error) {
+      throw (Error) firstFailure;
+    } else if (firstFailure != null) {
+      throw new IllegalStateException(firstFailure);
+    }
+  }
+}
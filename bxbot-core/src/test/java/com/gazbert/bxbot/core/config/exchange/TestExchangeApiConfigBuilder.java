@@ -52,6 +52,23 @@ public class TestExchangeApiConfigBuilder {
   private static final List<Integer> NON_FATAL_ERROR_CODES = Arrays.asList(502, 503);
   private static final List<String> NON_FATAL_ERROR_MESSAGES =
       Arrays.asList("Connection refused", "Remote host closed connection during handshake");
+  private static final Integer MAX_CONNECTIONS = 10;
+  private static final Integer CONNECTION_IDLE_TIMEOUT = 60;
+  private static final String RATE_LIMITER = "token-bucket";
+  private static final Integer RATE_LIMIT_BURST = 8;
+  private static final Double RATE_LIMIT_CALLS_PER_SECOND = 1.0;
+  private static final Double HEDGE_LATENCY_PERCENTILE = 95.0;
+  private static final Double HEDGE_MAX_EXTRA_LOAD_PERCENT = 5.0;
+  private static final Integer CONNECT_TIMEOUT = 5;
+  private static final Integer TRADING_READ_TIMEOUT = 20;
+  private static final Integer ACCOUNT_READ_TIMEOUT = 15;
+  private static final Integer MARKET_DATA_READ_TIMEOUT = 10;
+  private static final Boolean ADAPTIVE_TIMEOUTS = true;
+  private static final Integer CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+  private static final Integer CIRCUIT_BREAKER_MIN_BACKOFF = 5;
+  private static final Integer CIRCUIT_BREAKER_MAX_BACKOFF = 300;
+  private static final Boolean PRE_WARM_CONNECTIONS = true;
+  private static final Boolean STREAM_MARKET_DATA = true;
 
   private static final String BUY_FEE_CONFIG_ITEM_KEY = "buy-fee";
   private static final String BUY_FEE_CONFIG_ITEM_VALUE = "0.20";
@@ -77,6 +94,39 @@ public class TestExchangeApiConfigBuilder {
         .isEqualTo(NON_FATAL_ERROR_CODES);
     assertThat(exchangeApiConfig.getNetworkConfig().getNonFatalErrorMessages())
         .isEqualTo(NON_FATAL_ERROR_MESSAGES);
+    assertThat(exchangeApiConfig.getNetworkConfig().getMaxConnections())
+        .isEqualTo(MAX_CONNECTIONS);
+    assertThat(exchangeApiConfig.getNetworkConfig().getConnectionIdleTimeout())
+        .isEqualTo(CONNECTION_IDLE_TIMEOUT);
+    assertThat(exchangeApiConfig.getNetworkConfig().getRateLimiter()).isEqualTo(RATE_LIMITER);
+    assertThat(exchangeApiConfig.getNetworkConfig().getRateLimitBurst())
+        .isEqualTo(RATE_LIMIT_BURST);
+    assertThat(exchangeApiConfig.getNetworkConfig().getRateLimitCallsPerSecond())
+        .isEqualTo(RATE_LIMIT_CALLS_PER_SECOND);
+    assertThat(exchangeApiConfig.getNetworkConfig().getHedgeLatencyPercentile())
+        .isEqualTo(HEDGE_LATENCY_PERCENTILE);
+    assertThat(exchangeApiConfig.getNetworkConfig().getHedgeMaxExtraLoadPercent())
+        .isEqualTo(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    assertThat(exchangeApiConfig.getNetworkConfig().getConnectTimeout())
+        .isEqualTo(CONNECT_TIMEOUT);
+    assertThat(exchangeApiConfig.getNetworkConfig().getTradingReadTimeout())
+        .isEqualTo(TRADING_READ_TIMEOUT);
+    assertThat(exchangeApiConfig.getNetworkConfig().getAccountReadTimeout())
+        .isEqualTo(ACCOUNT_READ_TIMEOUT);
+    assertThat(exchangeApiConfig.getNetworkConfig().getMarketDataReadTimeout())
+        .isEqualTo(MARKET_DATA_READ_TIMEOUT);
+    assertThat(exchangeApiConfig.getNetworkConfig().getAdaptiveTimeouts())
+        .isEqualTo(ADAPTIVE_TIMEOUTS);
+    assertThat(exchangeApiConfig.getNetworkConfig().getCircuitBreakerFailureThreshold())
+        .isEqualTo(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    assertThat(exchangeApiConfig.getNetworkConfig().getCircuitBreakerMinBackoff())
+        .isEqualTo(CIRCUIT_BREAKER_MIN_BACKOFF);
+    assertThat(exchangeApiConfig.getNetworkConfig().getCircuitBreakerMaxBackoff())
+        .isEqualTo(CIRCUIT_BREAKER_MAX_BACKOFF);
+    assertThat(exchangeApiConfig.getNetworkConfig().getPreWarmConnections())
+        .isEqualTo(PRE_WARM_CONNECTIONS);
+    assertThat(exchangeApiConfig.getNetworkConfig().getStreamMarketData())
+        .isEqualTo(STREAM_MARKET_DATA);
 
     assertThat(exchangeApiConfig.getOtherConfig().getItem(BUY_FEE_CONFIG_ITEM_KEY))
         .isEqualTo(BUY_FEE_CONFIG_ITEM_VALUE);
@@ -114,6 +164,23 @@ public class TestExchangeApiConfigBuilder {
         .isEqualTo(CONNECTION_TIMEOUT);
     assertThat(exchangeApiConfig.getNetworkConfig().getNonFatalErrorCodes()).isEmpty();
     assertThat(exchangeApiConfig.getNetworkConfig().getNonFatalErrorMessages()).isEmpty();
+    assertThat(exchangeApiConfig.getNetworkConfig().getMaxConnections()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getConnectionIdleTimeout()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getRateLimiter()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getRateLimitBurst()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getRateLimitCallsPerSecond()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getHedgeLatencyPercentile()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getHedgeMaxExtraLoadPercent()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getConnectTimeout()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getTradingReadTimeout()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getAccountReadTimeout()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getMarketDataReadTimeout()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getAdaptiveTimeouts()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getCircuitBreakerFailureThreshold()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getCircuitBreakerMinBackoff()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getCircuitBreakerMaxBackoff()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getPreWarmConnections()).isNull();
+    assertThat(exchangeApiConfig.getNetworkConfig().getStreamMarketData()).isNull();
 
     assertThat(exchangeApiConfig.getOtherConfig().getItem(BUY_FEE_CONFIG_ITEM_KEY))
         .isEqualTo(BUY_FEE_CONFIG_ITEM_VALUE);
@@ -133,6 +200,23 @@ public class TestExchangeApiConfigBuilder {
     networkConfig.setConnectionTimeout(CONNECTION_TIMEOUT);
     networkConfig.setNonFatalErrorCodes(NON_FATAL_ERROR_CODES);
     networkConfig.setNonFatalErrorMessages(NON_FATAL_ERROR_MESSAGES);
+    networkConfig.setMaxConnections(MAX_CONNECTIONS);
+    networkConfig.setConnectionIdleTimeout(CONNECTION_IDLE_TIMEOUT);
+    networkConfig.setRateLimiter(RATE_LIMITER);
+    networkConfig.setRateLimitBurst(RATE_LIMIT_BURST);
+    networkConfig.setRateLimitCallsPerSecond(RATE_LIMIT_CALLS_PER_SECOND);
+    networkConfig.setHedgeLatencyPercentile(HEDGE_LATENCY_PERCENTILE);
+    networkConfig.setHedgeMaxExtraLoadPercent(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    networkConfig.setConnectTimeout(CONNECT_TIMEOUT);
+    networkConfig.setTradingReadTimeout(TRADING_READ_TIMEOUT);
+    networkConfig.setAccountReadTimeout(ACCOUNT_READ_TIMEOUT);
+    networkConfig.setMarketDataReadTimeout(MARKET_DATA_READ_TIMEOUT);
+    networkConfig.setAdaptiveTimeouts(ADAPTIVE_TIMEOUTS);
+    networkConfig.setCircuitBreakerFailureThreshold(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    networkConfig.setCircuitBreakerMinBackoff(CIRCUIT_BREAKER_MIN_BACKOFF);
+    networkConfig.setCircuitBreakerMaxBackoff(CIRCUIT_BREAKER_MAX_BACKOFF);
+    networkConfig.setPreWarmConnections(PRE_WARM_CONNECTIONS);
+    networkConfig.setStreamMarketData(STREAM_MARKET_DATA);
     return networkConfig;
   }
 
@@ -0,0 +1,356 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.makeThreadSafe;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
+import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
+import com.gazbert.bxbot.trading.api.BalanceInfo;
+import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.ExecutorAsyncTradingApi;
+import com.gazbert.bxbot.trading.api.FixedPointScale;
+import com.gazbert.bxbot.trading.api.Level3OrderBook;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OpenOrder;
+import com.gazbert.bxbot.trading.api.OrderType;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Cycle Snapshot Exchange Adapter behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestCycleSnapshotExchangeAdapter {
+
+  private static final String MARKET_ID = "btcusd";
+  private static final String OTHER_MARKET_ID = "ltcusd";
+  private static final String ORDER_ID = "12345";
+  private static final BigDecimal PRICE = new BigDecimal("9000.12");
+  private static final BigDecimal QUANTITY = new BigDecimal("0.01");
+
+  private ExchangeAdapter exchangeAdapter;
+  private MarketOrderBook marketOrderBook;
+  private BalanceInfo balanceInfo;
+  private CycleSnapshotExchangeAdapter snapshotAdapter;
+
+  @Before
+  public void setupForEachTest() {
+    exchangeAdapter = createMock(ExchangeAdapter.class);
+    marketOrderBook = createMock(MarketOrderBook.class);
+    balanceInfo = createMock(BalanceInfo.class);
+    snapshotAdapter = new CycleSnapshotExchangeAdapter(exchangeAdapter);
+  }
+
+  @Test
+  public void testIdenticalCallsInSameCycleOnlyHitExchangeOnce() throws Exception {
+    expect(exchangeAdapter.getMarketOrders(MARKET_ID)).andReturn(marketOrderBook);
+    expect(exchangeAdapter.getLatestMarketPrice(MARKET_ID)).andReturn(PRICE);
+    expect(exchangeAdapter.getLatestMarketPrice(OTHER_MARKET_ID)).andReturn(PRICE);
+    expect(exchangeAdapter.getBalanceInfo()).andReturn(balanceInfo);
+    replay(exchangeAdapter);
+
+    snapshotAdapter.startNewCycle();
+    assertSame(marketOrderBook, snapshotAdapter.getMarketOrders(MARKET_ID));
+    assertSame(marketOrderBook, snapshotAdapter.getMarketOrders(MARKET_ID));
+    assertSame(PRICE, snapshotAdapter.getLatestMarketPrice(MARKET_ID));
+    assertSame(PRICE, snapshotAdapter.getLatestMarketPrice(MARKET_ID));
+    assertSame(PRICE, snapshotAdapter.getLatestMarketPrice(OTHER_MARKET_ID));
+    assertSame(balanceInfo, snapshotAdapter.getBalanceInfo());
+    assertSame(balanceInfo, snapshotAdapter.getBalanceInfo());
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testDepthLimitedOrderBooksAreCachedPerDepth() throws Exception {
+    final MarketOrderBook topOfBook = createMock(MarketOrderBook.class);
+    expect(exchangeAdapter.getMarketOrders(MARKET_ID, 1)).andReturn(topOfBook);
+    expect(exchangeAdapter.getMarketOrders(MARKET_ID, 10)).andReturn(marketOrderBook);
+    replay(exchangeAdapter);
+
+    snapshotAdapter.startNewCycle();
+    assertSame(topOfBook, snapshotAdapter.getMarketOrders(MARKET_ID, 1));
+    assertSame(topOfBook, snapshotAdapter.getMarketOrders(MARKET_ID, 1));
+    assertSame(marketOrderBook, snapshotAdapter.getMarketOrders(MARKET_ID, 10));
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testSnapshotIsClearedAtStartOfEachCycle() throws Exception {
+    expect(exchangeAdapter.getBalanceInfo()).andReturn(balanceInfo).times(2);
+    replay(exchangeAdapter);
+
+    snapshotAdapter.startNewCycle();
+    snapshotAdapter.getBalanceInfo();
+    snapshotAdapter.getBalanceInfo();
+
+    snapshotAdapter.startNewCycle();
+    snapshotAdapter.getBalanceInfo();
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testCreateOrderInvalidatesMarketAndBalances() throws Exception {
+    final List<OpenOrder> openOrders = Collections.emptyList();
+    expect(exchangeAdapter.isAllOpenOrdersSupported()).andStubReturn(false);
+    expect(exchangeAdapter.getYourOpenOrders(MARKET_ID)).andReturn(openOrders).times(2);
+    expect(exchangeAdapter.getBalanceInfo()).andReturn(balanceInfo).times(2);
+    expect(exchangeAdapter.getLatestMarketPrice(OTHER_MARKET_ID)).andReturn(PRICE);
+    expect(exchangeAdapter.createOrder(MARKET_ID, OrderType.BUY, QUANTITY, PRICE))
+        .andReturn(ORDER_ID);
+    replay(exchangeAdapter);
+
+    snapshotAdapter.getYourOpenOrders(MARKET_ID);
+    snapshotAdapter.getBalanceInfo();
+    snapshotAdapter.getLatestMarketPrice(OTHER_MARKET_ID);
+
+    assertSame(ORDER_ID, snapshotAdapter.createOrder(MARKET_ID, OrderType.BUY, QUANTITY, PRICE));
+
+    snapshotAdapter.getYourOpenOrders(MARKET_ID);
+    snapshotAdapter.getBalanceInfo();
+    snapshotAdapter.getLatestMarketPrice(OTHER_MARKET_ID); // other market still in snapshot
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testOpenOrdersForAllMarketsAreFetchedInOneCallWhenSupported() throws Exception {
+    final OpenOrder btcOrder = createOpenOrder("BTCUSD");
+    final OpenOrder otherBtcOrder = createOpenOrder(MARKET_ID);
+    final OpenOrder ltcOrder = createOpenOrder(OTHER_MARKET_ID);
+    final List<OpenOrder> allOpenOrders = Arrays.asList(btcOrder, ltcOrder, otherBtcOrder);
+
+    expect(exchangeAdapter.isAllOpenOrdersSupported()).andStubReturn(true);
+    expect(exchangeAdapter.getAllOpenOrders()).andReturn(allOpenOrders).times(2);
+    expect(exchangeAdapter.cancelOrder(ORDER_ID, OTHER_MARKET_ID)).andReturn(true);
+    replay(exchangeAdapter);
+
+    snapshotAdapter.startNewCycle();
+    assertEquals(
+        Arrays.asList(btcOrder, otherBtcOrder), snapshotAdapter.getYourOpenOrders(MARKET_ID));
+    assertEquals(
+        Collections.singletonList(ltcOrder), snapshotAdapter.getYourOpenOrders(OTHER_MARKET_ID));
+    assertEquals(Collections.emptyList(), snapshotAdapter.getYourOpenOrders("ethusd"));
+    assertSame(allOpenOrders, snapshotAdapter.getAllOpenOrders());
+
+    // cancelling an order on any market changes the open orders for all of them
+    snapshotAdapter.cancelOrder(ORDER_ID, OTHER_MARKET_ID);
+    assertEquals(
+        Arrays.asList(btcOrder, otherBtcOrder), snapshotAdapter.getYourOpenOrders(MARKET_ID));
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testFailedCancelOrderStillInvalidatesMarket() throws Exception {
+    expect(exchangeAdapter.getMarketOrders(MARKET_ID)).andReturn(marketOrderBook).times(2);
+    expect(exchangeAdapter.cancelOrder(ORDER_ID, MARKET_ID))
+        .andThrow(new ExchangeNetworkException("Timeout"));
+    replay(exchangeAdapter);
+
+    snapshotAdapter.getMarketOrders(MARKET_ID);
+    try {
+      snapshotAdapter.cancelOrder(ORDER_ID, MARKET_ID);
+      fail("Expected ExchangeNetworkException");
+    } catch (ExchangeNetworkException e) {
+      // expected - the cancel may have reached the exchange
+    }
+    snapshotAdapter.getMarketOrders(MARKET_ID);
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testAsyncCallsAreServedFromSnapshot() throws Exception {
+    expect(exchangeAdapter.async())
+        .andReturn(new ExecutorAsyncTradingApi(exchangeAdapter, Runnable::run));
+    expect(exchangeAdapter.getMarketOrders(MARKET_ID)).andReturn(marketOrderBook);
+    replay(exchangeAdapter);
+
+    assertSame(marketOrderBook, snapshotAdapter.getMarketOrders(MARKET_ID));
+    assertSame(marketOrderBook, snapshotAdapter.async().getMarketOrders(MARKET_ID).get());
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testFailedCallsAreNotCached() throws Exception {
+    expect(exchangeAdapter.getMarketOrders(MARKET_ID))
+        .andThrow(new ExchangeNetworkException("Connection reset"));
+    expect(exchangeAdapter.getMarketOrders(MARKET_ID)).andReturn(marketOrderBook);
+    replay(exchangeAdapter);
+
+    try {
+      snapshotAdapter.getMarketOrders(MARKET_ID);
+      fail("Expected ExchangeNetworkException");
+    } catch (ExchangeNetworkException e) {
+      // expected
+    }
+    assertSame(marketOrderBook, snapshotAdapter.getMarketOrders(MARKET_ID));
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testConcurrentIdenticalCallsOnlyHitExchangeOnce() throws Exception {
+    final CountDownLatch inFlight = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    makeThreadSafe(exchangeAdapter, false); // else EasyMock serialises the calls
+    expect(exchangeAdapter.getBalanceInfo()).andAnswer(() -> awaitRelease(inFlight, release));
+    replay(exchangeAdapter);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<BalanceInfo> first = executor.submit(snapshotAdapter::getBalanceInfo);
+      assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+      final Future<BalanceInfo> second = executor.submit(snapshotAdapter::getBalanceInfo);
+      release.countDown();
+
+      assertSame(balanceInfo, first.get(5, TimeUnit.SECONDS));
+      assertSame(balanceInfo, second.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testCallInFlightWhenOrderIsCreatedIsNotServedFromSnapshot() throws Exception {
+    final BalanceInfo balanceAfterOrder = createMock(BalanceInfo.class);
+    final CountDownLatch inFlight = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    makeThreadSafe(exchangeAdapter, false); // else EasyMock serialises the calls
+    expect(exchangeAdapter.getBalanceInfo()).andAnswer(() -> awaitRelease(inFlight, release));
+    expect(exchangeAdapter.createOrder(MARKET_ID, OrderType.BUY, QUANTITY, PRICE))
+        .andReturn(ORDER_ID);
+    expect(exchangeAdapter.getBalanceInfo()).andReturn(balanceAfterOrder);
+    replay(exchangeAdapter);
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<BalanceInfo> balanceBeforeOrder =
+          executor.submit(snapshotAdapter::getBalanceInfo);
+      assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+      snapshotAdapter.createOrder(MARKET_ID, OrderType.BUY, QUANTITY, PRICE);
+      release.countDown();
+      assertSame(balanceInfo, balanceBeforeOrder.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertSame(balanceAfterOrder, snapshotAdapter.getBalanceInfo());
+    assertSame(balanceAfterOrder, snapshotAdapter.getBalanceInfo());
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testCircuitBreakerStatesAreNotCached() {
+    final Map<String, CircuitBreakerState> open =
+        Collections.singletonMap("https://api.exchange.com/ticker", CircuitBreakerState.OPEN);
+    final Map<String, CircuitBreakerState> halfOpen =
+        Collections.singletonMap("https://api.exchange.com/ticker", CircuitBreakerState.HALF_OPEN);
+    expect(exchangeAdapter.getCircuitBreakerStates()).andReturn(open);
+    expect(exchangeAdapter.getCircuitBreakerStates()).andReturn(halfOpen);
+    replay(exchangeAdapter);
+
+    assertEquals(open, snapshotAdapter.getCircuitBreakerStates());
+    assertEquals(halfOpen, snapshotAdapter.getCircuitBreakerStates());
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testFixedPointScaleIsDelegatedToExchangeAdapter() {
+    final FixedPointScale scale = FixedPointScale.of(1, 8);
+    expect(exchangeAdapter.getFixedPointScale(MARKET_ID)).andReturn(scale);
+    replay(exchangeAdapter);
+
+    assertSame(scale, snapshotAdapter.getFixedPointScale(MARKET_ID));
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testLevel3OrderBooksAreAlwaysReadFromExchangeAdapter() {
+    final Level3OrderBook level3OrderBook = createMock(Level3OrderBook.class);
+    expect(exchangeAdapter.isLevel3Supported()).andReturn(true);
+    expect(exchangeAdapter.getLevel3OrderBook(MARKET_ID)).andReturn(level3OrderBook).times(2);
+    replay(exchangeAdapter);
+
+    snapshotAdapter.startNewCycle();
+    assertTrue(snapshotAdapter.isLevel3Supported());
+    assertSame(level3OrderBook, snapshotAdapter.getLevel3OrderBook(MARKET_ID));
+    assertSame(level3OrderBook, snapshotAdapter.getLevel3OrderBook(MARKET_ID));
+
+    verify(exchangeAdapter);
+  }
+
+  @Test
+  public void testCloseIsDelegatedToExchangeAdapter() {
+    exchangeAdapter.close();
+    replay(exchangeAdapter);
+
+    snapshotAdapter.close();
+
+    verify(exchangeAdapter);
+  }
+
+  private BalanceInfo awaitRelease(CountDownLatch inFlight, CountDownLatch release)
+      throws InterruptedException {
+    inFlight.countDown();
+    assertTrue(release.await(5, TimeUnit.SECONDS));
+    return balanceInfo;
+  }
+
+  private static OpenOrder createOpenOrder(String marketId) {
+    final OpenOrder openOrder = createMock(OpenOrder.class);
+    expect(openOrder.getMarketId()).andStubReturn(marketId);
+    replay(openOrder);
+    return openOrder;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import org.junit.Test;
+
+/**
+ * Tests the Trade Cycle Latency tracker behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestTradeCycleLatency {
+
+  @Test
+  public void testFirstCycleIsTrackedSeparately() {
+    final TradeCycleLatency latency = new TradeCycleLatency();
+    assertTrue(latency.isFirstCycle());
+    assertNull(latency.getFirstCycleLatency());
+    assertNull(latency.getMeanLatencyAfterFirstCycle());
+
+    latency.record(Duration.ofMillis(900));
+    assertFalse(latency.isFirstCycle());
+    assertEquals(Duration.ofMillis(900), latency.getFirstCycleLatency());
+    assertEquals(0, latency.getLaterCycleCount());
+    assertNull(latency.getMaxLatencyAfterFirstCycle());
+
+    latency.record(Duration.ofMillis(100));
+    latency.record(Duration.ofMillis(300));
+    assertEquals(Duration.ofMillis(900), latency.getFirstCycleLatency());
+    assertEquals(2, latency.getLaterCycleCount());
+    assertEquals(Duration.ofMillis(200), latency.getMeanLatencyAfterFirstCycle());
+    assertEquals(Duration.ofMillis(300), latency.getMaxLatencyAfterFirstCycle());
+    assertTrue(latency.toString().contains("firstCycleLatency=PT0.9S"));
+  }
+}
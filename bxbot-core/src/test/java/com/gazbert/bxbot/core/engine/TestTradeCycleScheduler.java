@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.core.engine.TradeCycleScheduler.ScheduledStrategy;
+import com.gazbert.bxbot.strategy.api.StrategyConfig;
+import com.gazbert.bxbot.strategy.api.TradingStrategy;
+import com.gazbert.bxbot.trading.api.Market;
+import com.gazbert.bxbot.trading.api.TradingApi;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Trade Cycle Scheduler behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestTradeCycleScheduler {
+
+  private static final String BTC_USD_MARKET_ID = "btcusd";
+  private static final String LTC_USD_MARKET_ID = "ltcusd";
+  private static final int ENGINE_INTERVAL_SECS = 20;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final TradingStrategy btcUsdStrategy = new NoOpTradingStrategy();
+  private final TradingStrategy ltcUsdStrategy = new NoOpTradingStrategy();
+  private TradeCycleScheduler scheduler;
+
+  @Before
+  public void setupForEachTest() {
+    clock.set(TimeUnit.SECONDS.toNanos(1000));
+    scheduler = new TradeCycleScheduler(ENGINE_INTERVAL_SECS, clock::get);
+  }
+
+  @Test
+  public void testAllStrategiesAreDueImmediatelyInMarketOrder() {
+    scheduler.schedule(BTC_USD_MARKET_ID, btcUsdStrategy, 10);
+    scheduler.schedule(LTC_USD_MARKET_ID, ltcUsdStrategy, 30);
+
+    assertEquals(0, scheduler.getMillisUntilNextRun());
+    final List<ScheduledStrategy> due = scheduler.pollDueStrategies();
+    assertEquals(2, due.size());
+    assertSame(btcUsdStrategy, due.get(0).getTradingStrategy());
+    assertSame(ltcUsdStrategy, due.get(1).getTradingStrategy());
+    assertEquals(10_000, scheduler.getMillisUntilNextRun());
+  }
+
+  @Test
+  public void testEachMarketRunsAtItsOwnInterval() {
+    scheduler.schedule(BTC_USD_MARKET_ID, btcUsdStrategy, 10);
+    scheduler.schedule(LTC_USD_MARKET_ID, ltcUsdStrategy, 30);
+    scheduler.pollDueStrategies();
+
+    int btcUsdRuns = 0;
+    int ltcUsdRuns = 0;
+    for (int i = 0; i < 6; i++) {
+      advanceMillis(scheduler.getMillisUntilNextRun());
+      for (final ScheduledStrategy dueStrategy : scheduler.pollDueStrategies()) {
+        if (dueStrategy.getMarketId().equals(BTC_USD_MARKET_ID)) {
+          btcUsdRuns++;
+        } else {
+          ltcUsdRuns++;
+        }
+      }
+    }
+
+    // 60s later
+    assertEquals(6, btcUsdRuns);
+    assertEquals(2, ltcUsdRuns);
+  }
+
+  @Test
+  public void testPeriodDoesNotDriftByTheTimeTakenToExecuteTradeCycle() {
+    scheduler.schedule(BTC_USD_MARKET_ID, btcUsdStrategy, 10);
+    final List<ScheduledStrategy> due = scheduler.pollDueStrategies();
+
+    // cycle takes 3s to execute
+    advanceMillis(3000);
+    scheduler.reportOverruns(due);
+
+    // next cycle is due 10s after the last one started, not 10s after it finished
+    assertEquals(7000, scheduler.getMillisUntilNextRun());
+    assertEquals(0, due.get(0).getOverruns());
+  }
+
+  @Test
+  public void testOverrunIsReportedAndNextCycleRunsStraightAway() {
+    scheduler.schedule(BTC_USD_MARKET_ID, btcUsdStrategy, 10);
+    final List<ScheduledStrategy> due = scheduler.pollDueStrategies();
+
+    // cycle takes 12s to execute
+    advanceMillis(12_000);
+    scheduler.reportOverruns(due);
+
+    assertEquals(1, due.get(0).getOverruns());
+    assertEquals(0, scheduler.getMillisUntilNextRun());
+
+    // runs late, but stays on the fixed rate grid
+    assertEquals(1, scheduler.pollDueStrategies().size());
+    assertEquals(0, due.get(0).getMissedTicks());
+    assertEquals(8000, scheduler.getMillisUntilNextRun());
+  }
+
+  @Test
+  public void testMissedTicksAreReportedAndSkipped() {
+    scheduler.schedule(BTC_USD_MARKET_ID, btcUsdStrategy, 10);
+    final List<ScheduledStrategy> due = scheduler.pollDueStrategies();
+
+    // engine stalls for 35s: ticks at 10s, 20s are missed; 30s tick runs late.
+    advanceMillis(35_000);
+    scheduler.reportOverruns(due);
+
+    final List<ScheduledStrategy> dueAfterStall = scheduler.pollDueStrategies();
+    assertEquals(1, dueAfterStall.size());
+    assertEquals(2, dueAfterStall.get(0).getMissedTicks());
+    assertTrue(scheduler.pollDueStrategies().isEmpty());
+    assertEquals(5000, scheduler.getMillisUntilNextRun());
+  }
+
+  @Test
+  public void testEngineIntervalIsUsedIfNothingScheduled() {
+    assertTrue(scheduler.isEmpty());
+    assertEquals(20_000, scheduler.getMillisUntilNextRun());
+    assertTrue(scheduler.pollDueStrategies().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEngineIntervalMustBeAtLeastOneSecond() {
+    new TradeCycleScheduler(0, clock::get);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIntervalMustBeAtLeastOneSecond() {
+    scheduler.schedule(BTC_USD_MARKET_ID, btcUsdStrategy, 0);
+  }
+
+  private void advanceMillis(long millis) {
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  /** Trading Strategy that does nothing. */
+  private static class NoOpTradingStrategy implements TradingStrategy {
+
+    @Override
+    public void init(TradingApi tradingApi, Market market, StrategyConfig config) {
+    }
+
+    @Override
+    public void execute() {
+    }
+  }
+}
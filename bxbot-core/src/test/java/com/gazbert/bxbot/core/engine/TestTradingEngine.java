@@ -26,6 +26,7 @@ package com.gazbert.bxbot.core.engine;
 import static junit.framework.TestCase.assertTrue;
 import static org.awaitility.Awaitility.await;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
 import static org.easymock.EasyMock.contains;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
@@ -40,6 +41,7 @@ import com.gazbert.bxbot.domain.engine.EngineConfig;
 import com.gazbert.bxbot.domain.exchange.NetworkConfig;
 import com.gazbert.bxbot.domain.market.MarketConfig;
 import com.gazbert.bxbot.domain.strategy.StrategyConfig;
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.services.config.EngineConfigService;
@@ -56,6 +58,7 @@ import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -231,6 +234,39 @@ public class TestTradingEngine {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testEngineStillPerformsEmergencyStopCheckWhenNoMarketsAreEnabled()
+      throws Exception {
+    setupExchangeAdapterConfigExpectations();
+    setupEngineConfigExpectations();
+    expect(strategyConfigService.getAllStrategyConfig()).andReturn(allTheStrategiesConfig());
+    expect(marketConfigService.getAllMarketConfig()).andReturn(new ArrayList<>());
+
+    final Map<String, BigDecimal> balancesAvailable = new HashMap<>();
+    balancesAvailable.put(ENGINE_EMERGENCY_STOP_CURRENCY, new BigDecimal("0.49999999"));
+    final BalanceInfo balanceInfo = PowerMock.createMock(BalanceInfo.class);
+    expect(exchangeAdapter.getBalanceInfo()).andReturn(balanceInfo);
+    expect(balanceInfo.getBalancesAvailable()).andReturn(balancesAvailable);
+    emailAlerter.sendMessage(eq(CRITICAL_EMAIL_ALERT_SUBJECT), anyString());
+
+    PowerMock.replayAll();
+
+    final TradingEngine tradingEngine =
+        new TradingEngine(
+            exchangeConfigService,
+            engineConfigService,
+            strategyConfigService,
+            marketConfigService,
+            emailAlerter,
+            tradingStrategiesBuilder);
+    tradingEngine.start();
+
+    await().until(engineStateChanged(tradingEngine, EngineState.SHUTDOWN));
+    assertFalse(tradingEngine.isRunning());
+
+    PowerMock.verifyAll();
+  }
+
   @Test
   public void testEngineDoesNotPerformEmergencyStopCheckWhenEmergencyStopBalanceIsZero()
       throws Exception {
@@ -543,6 +579,9 @@ public class TestTradingEngine {
     // expect recoverable ExchangeNetworkException in 2nd trade cycle
     expect(exchangeAdapter.getBalanceInfo())
         .andThrow(new ExchangeNetworkException(exceptionErrorMsg));
+    expect(exchangeAdapter.getCircuitBreakerStates())
+        .andReturn(
+            Collections.singletonMap("https://api.exchange.com/balance", CircuitBreakerState.OPEN));
 
     // expect bot recover and continue 3rd cycle + any subsequent ones...
     expect(exchangeAdapter.getBalanceInfo()).andReturn(balanceInfo).atLeastOnce();
@@ -716,6 +755,7 @@ public class TestTradingEngine {
         .andReturn(exchangeAdapter);
     expect(exchangeAdapter.getImplName()).andReturn(EXCHANGE_NAME).anyTimes();
     exchangeAdapter.init(anyObject(ExchangeConfig.class));
+    exchangeAdapter.close(); // its threads and connections are released on shutdown
   }
 
   private void setupExchangeAdapterConfigWithNoNetworkConfigExpectations() {
@@ -726,6 +766,7 @@ public class TestTradingEngine {
         .andReturn(exchangeAdapter);
     expect(exchangeAdapter.getImplName()).andReturn(EXCHANGE_NAME).anyTimes();
     exchangeAdapter.init(anyObject(ExchangeConfig.class));
+    exchangeAdapter.close();
   }
 
   private void setupEngineConfigExpectations() {
@@ -743,7 +784,7 @@ public class TestTradingEngine {
     expect(ConfigurableComponentFactory.createComponent(STRATEGY_IMPL_CLASS))
         .andReturn(tradingStrategy);
     tradingStrategy.init(
-        eq(exchangeAdapter),
+        anyObject(ExchangeAdapter.class),
         anyObject(Market.class),
         anyObject(com.gazbert.bxbot.strategy.api.StrategyConfig.class));
   }
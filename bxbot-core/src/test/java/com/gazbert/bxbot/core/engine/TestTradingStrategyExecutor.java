@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.gazbert.bxbot.strategy.api.StrategyConfig;
+import com.gazbert.bxbot.strategy.api.StrategyException;
+import com.gazbert.bxbot.strategy.api.TradingStrategy;
+import com.gazbert.bxbot.trading.api.Market;
+import com.gazbert.bxbot.trading.api.TradingApi;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Tests the Trading Strategy Executor behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestTradingStrategyExecutor {
+
+  @Test
+  public void testStrategiesAreExecutedSequentiallyOnCallingThreadByDefault() throws Exception {
+    final List<String> executionOrder = new CopyOnWriteArrayList<>();
+    final Thread callingThread = Thread.currentThread();
+    final List<TradingStrategy> strategies =
+        Arrays.asList(
+            new StubTradingStrategy(
+                () -> {
+                  assertSame(callingThread, Thread.currentThread());
+                  executionOrder.add("btcusd");
+                }),
+            new StubTradingStrategy(
+                () -> {
+                  assertSame(callingThread, Thread.currentThread());
+                  executionOrder.add("ltcusd");
+                }));
+
+    final TradingStrategyExecutor executor = new TradingStrategyExecutor(0);
+    assertFalse(executor.isParallel());
+    executor.execute(strategies);
+    executor.shutdown();
+
+    assertEquals(Arrays.asList("btcusd", "ltcusd"), executionOrder);
+  }
+
+  @Test
+  public void testStrategiesAreExecutedConcurrentlyWhenParallelismIsMoreThanOne()
+      throws Exception {
+    // Each strategy blocks until all 3 are running - only works if they run at the same time.
+    final CountDownLatch allRunning = new CountDownLatch(3);
+    final AtomicInteger completed = new AtomicInteger();
+    final StubTradingStrategy.Action action =
+        () -> {
+          allRunning.countDown();
+          if (!allRunning.await(5, TimeUnit.SECONDS)) {
+            throw new StrategyException("Strategies were not executed concurrently!");
+          }
+          completed.incrementAndGet();
+        };
+
+    final TradingStrategyExecutor executor = new TradingStrategyExecutor(3);
+    assertTrue(executor.isParallel());
+    executor.execute(
+        Arrays.asList(
+            new StubTradingStrategy(action),
+            new StubTradingStrategy(action),
+            new StubTradingStrategy(action)));
+    executor.shutdown();
+
+    // barrier: all strategies have completed by the time execute returns
+    assertEquals(3, completed.get());
+  }
+
+  @Test
+  public void testFirstFailureIsRethrownOnceAllStrategiesHaveCompleted() {
+    final StrategyException firstFailure = new StrategyException("1st market strat broke");
+    final AtomicInteger completed = new AtomicInteger();
+    final List<TradingStrategy> strategies =
+        Arrays.asList(
+            new StubTradingStrategy(
+                () -> {
+                  Thread.sleep(200); // make sure it finishes last
+                  throw firstFailure;
+                }),
+            new StubTradingStrategy(
+                () -> {
+                  throw new IllegalStateException("3rd market strat broke");
+                }),
+            new StubTradingStrategy(completed::incrementAndGet));
+
+    final TradingStrategyExecutor executor = new TradingStrategyExecutor(3);
+    try {
+      executor.execute(strategies);
+      fail("Expected StrategyException to be thrown");
+    } catch (StrategyException e) {
+      assertSame(firstFailure, e);
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, completed.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnexpectedExceptionIsRethrownWhenExecutingConcurrently() throws Exception {
+    final TradingStrategyExecutor executor = new TradingStrategyExecutor(2);
+    try {
+      executor.execute(
+          Arrays.asList(
+              new StubTradingStrategy(() -> {}),
+              new StubTradingStrategy(
+                  () -> {
+                    throw new IllegalArgumentException("Unexpected!");
+                  })));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /** Trading Strategy that runs a given action when executed. */
+  private static class StubTradingStrategy implements TradingStrategy {
+
+    interface Action {
+      void run() throws Exception;
+    }
+
+    private final Action action;
+
+    StubTradingStrategy(Action action) {
+      this.action = action;
+    }
+
+    @Override
+    public void init(TradingApi tradingApi, Market market, StrategyConfig config) {
+    }
+
+    @Override
+    public void execute() throws StrategyException {
+      try {
+        action.run();
+      } catch (StrategyException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new StrategyException(e);
+      }
+    }
+  }
+}
@@ -51,6 +51,9 @@ public class EngineConfig {
   @Min(value = 1, message = "Trace Cycle Interval must be more than 1 second")
   private int tradeCycleInterval;
 
+  @Min(value = 0, message = "Strategy Parallelism must be 0 or more")
+  private int strategyParallelism;
+
   // Required by ConfigurableComponentFactory
   public EngineConfig() {
   }
@@ -110,6 +113,14 @@ public class EngineConfig {
     this.tradeCycleInterval = tradeCycleInterval;
   }
 
+  public int getStrategyParallelism() {
+    return strategyParallelism;
+  }
+
+  public void setStrategyParallelism(int strategyParallelism) {
+    this.strategyParallelism = strategyParallelism;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -135,6 +146,7 @@ public class EngineConfig {
         .add("emergencyStopCurrency", emergencyStopCurrency)
         .add("emergencyStopBalance", emergencyStopBalance)
         .add("tradeCycleInterval", tradeCycleInterval)
+        .add("strategyParallelism", strategyParallelism)
         .toString();
   }
 }
@@ -26,6 +26,8 @@ package com.gazbert.bxbot.domain.exchange;
 import com.google.common.base.MoreObjects;
 import java.util.ArrayList;
 import java.util.List;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 
 /**
@@ -41,6 +43,67 @@ public class NetworkConfig {
   private List<Integer> nonFatalErrorCodes;
   private List<String> nonFatalErrorMessages;
 
+  @Min(message = "Max connections must be 1 or more", value = 1)
+  private Integer maxConnections;
+
+  @Min(message = "Connection idle timeout must be 1 second or more", value = 1)
+  private Integer connectionIdleTimeout;
+
+  private String rateLimiter;
+
+  @Min(message = "Rate limit burst must be 1 or more", value = 1)
+  private Integer rateLimitBurst;
+
+  @DecimalMin(
+      message = "Rate limit calls per second must be more than 0",
+      value = "0",
+      inclusive = false)
+  private Double rateLimitCallsPerSecond;
+
+  @DecimalMin(
+      message = "Hedge latency percentile must be more than 0",
+      value = "0",
+      inclusive = false)
+  @DecimalMax(
+      message = "Hedge latency percentile must be less than 100",
+      value = "100",
+      inclusive = false)
+  private Double hedgeLatencyPercentile;
+
+  @DecimalMin(
+      message = "Hedge max extra load percent must be more than 0",
+      value = "0",
+      inclusive = false)
+  @DecimalMax(message = "Hedge max extra load percent must be 100 or less", value = "100")
+  private Double hedgeMaxExtraLoadPercent;
+
+  @Min(message = "Connect timeout must be 1 second or more", value = 1)
+  private Integer connectTimeout;
+
+  @Min(message = "Trading read timeout must be 1 second or more", value = 1)
+  private Integer tradingReadTimeout;
+
+  @Min(message = "Account read timeout must be 1 second or more", value = 1)
+  private Integer accountReadTimeout;
+
+  @Min(message = "Market data read timeout must be 1 second or more", value = 1)
+  private Integer marketDataReadTimeout;
+
+  private Boolean adaptiveTimeouts;
+
+  @Min(message = "Circuit breaker failure threshold must be 1 or more", value = 1)
+  private Integer circuitBreakerFailureThreshold;
+
+  @Min(message = "Circuit breaker min backoff must be 1 second or more", value = 1)
+  private Integer circuitBreakerMinBackoff;
+
+  @Min(message = "Circuit breaker max backoff must be 1 second or more", value = 1)
+  private Integer circuitBreakerMaxBackoff;
+
+  private Boolean preWarmConnections;
+
+  private Boolean streamMarketData;
+
   public NetworkConfig() {
     nonFatalErrorCodes = new ArrayList<>();
     nonFatalErrorMessages = new ArrayList<>();
@@ -70,12 +133,165 @@ public class NetworkConfig {
     this.nonFatalErrorMessages = nonFatalErrorMessages;
   }
 
+  public Integer getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(Integer maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public Integer getConnectionIdleTimeout() {
+    return connectionIdleTimeout;
+  }
+
+  public void setConnectionIdleTimeout(Integer connectionIdleTimeout) {
+    this.connectionIdleTimeout = connectionIdleTimeout;
+  }
+
+  public String getRateLimiter() {
+    return rateLimiter;
+  }
+
+  public void setRateLimiter(String rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  public Integer getRateLimitBurst() {
+    return rateLimitBurst;
+  }
+
+  public void setRateLimitBurst(Integer rateLimitBurst) {
+    this.rateLimitBurst = rateLimitBurst;
+  }
+
+  public Double getRateLimitCallsPerSecond() {
+    return rateLimitCallsPerSecond;
+  }
+
+  public void setRateLimitCallsPerSecond(Double rateLimitCallsPerSecond) {
+    this.rateLimitCallsPerSecond = rateLimitCallsPerSecond;
+  }
+
+  public Double getHedgeLatencyPercentile() {
+    return hedgeLatencyPercentile;
+  }
+
+  public void setHedgeLatencyPercentile(Double hedgeLatencyPercentile) {
+    this.hedgeLatencyPercentile = hedgeLatencyPercentile;
+  }
+
+  public Double getHedgeMaxExtraLoadPercent() {
+    return hedgeMaxExtraLoadPercent;
+  }
+
+  public void setHedgeMaxExtraLoadPercent(Double hedgeMaxExtraLoadPercent) {
+    this.hedgeMaxExtraLoadPercent = hedgeMaxExtraLoadPercent;
+  }
+
+  public Integer getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Integer connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Integer getTradingReadTimeout() {
+    return tradingReadTimeout;
+  }
+
+  public void setTradingReadTimeout(Integer tradingReadTimeout) {
+    this.tradingReadTimeout = tradingReadTimeout;
+  }
+
+  public Integer getAccountReadTimeout() {
+    return accountReadTimeout;
+  }
+
+  public void setAccountReadTimeout(Integer accountReadTimeout) {
+    this.accountReadTimeout = accountReadTimeout;
+  }
+
+  public Integer getMarketDataReadTimeout() {
+    return marketDataReadTimeout;
+  }
+
+  public void setMarketDataReadTimeout(Integer marketDataReadTimeout) {
+    this.marketDataReadTimeout = marketDataReadTimeout;
+  }
+
+  public Boolean getAdaptiveTimeouts() {
+    return adaptiveTimeouts;
+  }
+
+  public void setAdaptiveTimeouts(Boolean adaptiveTimeouts) {
+    this.adaptiveTimeouts = adaptiveTimeouts;
+  }
+
+  public Integer getCircuitBreakerFailureThreshold() {
+    return circuitBreakerFailureThreshold;
+  }
+
+  public void setCircuitBreakerFailureThreshold(Integer circuitBreakerFailureThreshold) {
+    this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+  }
+
+  public Integer getCircuitBreakerMinBackoff() {
+    return circuitBreakerMinBackoff;
+  }
+
+  public void setCircuitBreakerMinBackoff(Integer circuitBreakerMinBackoff) {
+    this.circuitBreakerMinBackoff = circuitBreakerMinBackoff;
+  }
+
+  public Integer getCircuitBreakerMaxBackoff() {
+    return circuitBreakerMaxBackoff;
+  }
+
+  public void setCircuitBreakerMaxBackoff(Integer circuitBreakerMaxBackoff) {
+    this.circuitBreakerMaxBackoff = circuitBreakerMaxBackoff;
+  }
+
+  public Boolean getPreWarmConnections() {
+    return preWarmConnections;
+  }
+
+  public void setPreWarmConnections(Boolean preWarmConnections) {
+    this.preWarmConnections = preWarmConnections;
+  }
+
+  public Boolean getStreamMarketData() {
+    return streamMarketData;
+  }
+
+  public void setStreamMarketData(Boolean streamMarketData) {
+    this.streamMarketData = streamMarketData;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
         .add("connectionTimeout", connectionTimeout)
         .add("nonFatalErrorCodes", nonFatalErrorCodes)
         .add("nonFatalErrorMessages", nonFatalErrorMessages)
+        .add("maxConnections", maxConnections)
+        .add("connectionIdleTimeout", connectionIdleTimeout)
+        .add("rateLimiter", rateLimiter)
+        .add("rateLimitBurst", rateLimitBurst)
+        .add("rateLimitCallsPerSecond", rateLimitCallsPerSecond)
+        .add("hedgeLatencyPercentile", hedgeLatencyPercentile)
+        .add("hedgeMaxExtraLoadPercent", hedgeMaxExtraLoadPercent)
+        .add("connectTimeout", connectTimeout)
+        .add("tradingReadTimeout", tradingReadTimeout)
+        .add("accountReadTimeout", accountReadTimeout)
+        .add("marketDataReadTimeout", marketDataReadTimeout)
+        .add("adaptiveTimeouts", adaptiveTimeouts)
+        .add("circuitBreakerFailureThreshold", circuitBreakerFailureThreshold)
+        .add("circuitBreakerMinBackoff", circuitBreakerMinBackoff)
+        .add("circuitBreakerMaxBackoff", circuitBreakerMaxBackoff)
+        .add("preWarmConnections", preWarmConnections)
+        .add("streamMarketData", streamMarketData)
         .toString();
   }
 }
@@ -27,6 +27,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import javax.validation.constraints.Min;
 
 /**
  * Domain object representing a Market config.
@@ -45,6 +46,9 @@ public class MarketConfig {
   private boolean enabled;
   private String tradingStrategyId;
 
+  @Min(value = 1, message = "Trade Cycle Interval must be 1 second or more")
+  private Integer tradeCycleInterval;
+
   // Required by ConfigurableComponentFactory
   public MarketConfig() {
   }
@@ -57,6 +61,7 @@ public class MarketConfig {
     this.counterCurrency = other.counterCurrency;
     this.enabled = other.enabled;
     this.tradingStrategyId = other.tradingStrategyId;
+    this.tradeCycleInterval = other.tradeCycleInterval;
   }
 
   /** Creates a new MarketConfig. */
@@ -124,6 +129,19 @@ public class MarketConfig {
     this.tradingStrategyId = tradingStrategyId;
   }
 
+  /**
+   * Returns the interval in secs between executions of this market's Trading Strategy.
+   *
+   * @return the interval in secs, or null if the Engine tradeCycleInterval is to be used.
+   */
+  public Integer getTradeCycleInterval() {
+    return tradeCycleInterval;
+  }
+
+  public void setTradeCycleInterval(Integer tradeCycleInterval) {
+    this.tradeCycleInterval = tradeCycleInterval;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -150,6 +168,7 @@ public class MarketConfig {
         .add("counterCurrency", counterCurrency)
         .add("enabled", enabled)
         .add("tradingStrategyId", tradingStrategyId)
+        .add("tradeCycleInterval", tradeCycleInterval)
         .toString();
   }
 }
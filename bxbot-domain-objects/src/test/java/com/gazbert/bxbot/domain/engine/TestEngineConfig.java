@@ -42,6 +42,7 @@ public class TestEngineConfig {
   private static final String EMERGENCY_STOP_CURRENCY = "BTC";
   private static final BigDecimal EMERGENCY_STOP_BALANCE = new BigDecimal("1.5");
   private static final int TRADE_CYCLE_INTERVAL = 30;
+  private static final int STRATEGY_PARALLELISM = 4;
 
   @Test
   public void testInitialisationWorksAsExpected() {
@@ -68,6 +69,7 @@ public class TestEngineConfig {
     assertNull(engineConfig.getEmergencyStopCurrency());
     assertNull(engineConfig.getEmergencyStopBalance());
     assertEquals(0, engineConfig.getTradeCycleInterval());
+    assertEquals(0, engineConfig.getStrategyParallelism());
 
     engineConfig.setBotId(BOT_ID);
     assertEquals(BOT_ID, engineConfig.getBotId());
@@ -83,6 +85,9 @@ public class TestEngineConfig {
 
     engineConfig.setTradeCycleInterval(TRADE_CYCLE_INTERVAL);
     assertEquals(TRADE_CYCLE_INTERVAL, engineConfig.getTradeCycleInterval());
+
+    engineConfig.setStrategyParallelism(STRATEGY_PARALLELISM);
+    assertEquals(STRATEGY_PARALLELISM, engineConfig.getStrategyParallelism());
   }
 
   @Test
@@ -159,7 +164,7 @@ public class TestEngineConfig {
 
     assertEquals(
         "EngineConfig{botId=avro-707_1, botName=Avro 707, emergencyStopCurrency=BTC, "
-            + "emergencyStopBalance=1.5, tradeCycleInterval=30}",
+            + "emergencyStopBalance=1.5, tradeCycleInterval=30, strategyParallelism=0}",
         engineConfig.toString());
   }
 }
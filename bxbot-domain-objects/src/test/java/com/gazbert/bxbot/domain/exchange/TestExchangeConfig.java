@@ -86,7 +86,15 @@ public class TestExchangeConfig {
         "ExchangeConfig{name=Bitstamp, "
             + "adapter=com.gazbert.bxbot.exchanges.TestExchangeAdapter, "
             + "networkConfig=NetworkConfig{connectionTimeout=null, nonFatalErrorCodes=[], "
-            + "nonFatalErrorMessages=[]}, otherConfig={}}",
+            + "nonFatalErrorMessages=[], maxConnections=null, connectionIdleTimeout=null, "
+            + "rateLimiter=null, rateLimitBurst=null, rateLimitCallsPerSecond=null, "
+            + "hedgeLatencyPercentile=null, hedgeMaxExtraLoadPercent=null, "
+            + "connectTimeout=null, tradingReadTimeout=null, accountReadTimeout=null, "
+            + "marketDataReadTimeout=null, adaptiveTimeouts=null, "
+            + "circuitBreakerFailureThreshold=null, circuitBreakerMinBackoff=null, "
+            + "circuitBreakerMaxBackoff=null, "
+            + "preWarmConnections=null, streamMarketData=null}, "
+            + "otherConfig={}}",
         exchangeConfig.toString());
   }
 }
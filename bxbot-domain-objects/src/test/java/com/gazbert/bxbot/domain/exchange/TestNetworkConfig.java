@@ -45,6 +45,23 @@ public class TestNetworkConfig {
           "Connection refused",
           "Connection reset",
           "Remote host closed connection during handshake");
+  private static final Integer MAX_CONNECTIONS = 10;
+  private static final Integer CONNECTION_IDLE_TIMEOUT = 60;
+  private static final String RATE_LIMITER = "token-bucket";
+  private static final Integer RATE_LIMIT_BURST = 15;
+  private static final Double RATE_LIMIT_CALLS_PER_SECOND = 0.5;
+  private static final Double HEDGE_LATENCY_PERCENTILE = 95.0;
+  private static final Double HEDGE_MAX_EXTRA_LOAD_PERCENT = 5.0;
+  private static final Integer CONNECT_TIMEOUT = 5;
+  private static final Integer TRADING_READ_TIMEOUT = 20;
+  private static final Integer ACCOUNT_READ_TIMEOUT = 15;
+  private static final Integer MARKET_DATA_READ_TIMEOUT = 10;
+  private static final Boolean ADAPTIVE_TIMEOUTS = true;
+  private static final Integer CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+  private static final Integer CIRCUIT_BREAKER_MIN_BACKOFF = 5;
+  private static final Integer CIRCUIT_BREAKER_MAX_BACKOFF = 300;
+  private static final Boolean PRE_WARM_CONNECTIONS = true;
+  private static final Boolean STREAM_MARKET_DATA = true;
 
   @Test
   public void testInitialisationWorksAsExpected() {
@@ -52,6 +69,23 @@ public class TestNetworkConfig {
     assertNull(networkConfig.getConnectionTimeout());
     assertTrue(networkConfig.getNonFatalErrorCodes().isEmpty());
     assertTrue(networkConfig.getNonFatalErrorMessages().isEmpty());
+    assertNull(networkConfig.getMaxConnections());
+    assertNull(networkConfig.getConnectionIdleTimeout());
+    assertNull(networkConfig.getRateLimiter());
+    assertNull(networkConfig.getRateLimitBurst());
+    assertNull(networkConfig.getRateLimitCallsPerSecond());
+    assertNull(networkConfig.getHedgeLatencyPercentile());
+    assertNull(networkConfig.getHedgeMaxExtraLoadPercent());
+    assertNull(networkConfig.getConnectTimeout());
+    assertNull(networkConfig.getTradingReadTimeout());
+    assertNull(networkConfig.getAccountReadTimeout());
+    assertNull(networkConfig.getMarketDataReadTimeout());
+    assertNull(networkConfig.getAdaptiveTimeouts());
+    assertNull(networkConfig.getCircuitBreakerFailureThreshold());
+    assertNull(networkConfig.getCircuitBreakerMinBackoff());
+    assertNull(networkConfig.getCircuitBreakerMaxBackoff());
+    assertNull(networkConfig.getPreWarmConnections());
+    assertNull(networkConfig.getStreamMarketData());
   }
 
   @Test
@@ -66,6 +100,58 @@ public class TestNetworkConfig {
 
     networkConfig.setNonFatalErrorMessages(NON_FATAL_ERROR_MESSAGES);
     assertEquals(NON_FATAL_ERROR_MESSAGES, networkConfig.getNonFatalErrorMessages());
+
+    networkConfig.setMaxConnections(MAX_CONNECTIONS);
+    assertEquals(MAX_CONNECTIONS, networkConfig.getMaxConnections());
+
+    networkConfig.setConnectionIdleTimeout(CONNECTION_IDLE_TIMEOUT);
+    assertEquals(CONNECTION_IDLE_TIMEOUT, networkConfig.getConnectionIdleTimeout());
+
+    networkConfig.setRateLimiter(RATE_LIMITER);
+    assertEquals(RATE_LIMITER, networkConfig.getRateLimiter());
+
+    networkConfig.setRateLimitBurst(RATE_LIMIT_BURST);
+    assertEquals(RATE_LIMIT_BURST, networkConfig.getRateLimitBurst());
+
+    networkConfig.setRateLimitCallsPerSecond(RATE_LIMIT_CALLS_PER_SECOND);
+    assertEquals(RATE_LIMIT_CALLS_PER_SECOND, networkConfig.getRateLimitCallsPerSecond());
+
+    networkConfig.setHedgeLatencyPercentile(HEDGE_LATENCY_PERCENTILE);
+    assertEquals(HEDGE_LATENCY_PERCENTILE, networkConfig.getHedgeLatencyPercentile());
+
+    networkConfig.setHedgeMaxExtraLoadPercent(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    assertEquals(HEDGE_MAX_EXTRA_LOAD_PERCENT, networkConfig.getHedgeMaxExtraLoadPercent());
+
+    networkConfig.setConnectTimeout(CONNECT_TIMEOUT);
+    assertEquals(CONNECT_TIMEOUT, networkConfig.getConnectTimeout());
+
+    networkConfig.setTradingReadTimeout(TRADING_READ_TIMEOUT);
+    assertEquals(TRADING_READ_TIMEOUT, networkConfig.getTradingReadTimeout());
+
+    networkConfig.setAccountReadTimeout(ACCOUNT_READ_TIMEOUT);
+    assertEquals(ACCOUNT_READ_TIMEOUT, networkConfig.getAccountReadTimeout());
+
+    networkConfig.setMarketDataReadTimeout(MARKET_DATA_READ_TIMEOUT);
+    assertEquals(MARKET_DATA_READ_TIMEOUT, networkConfig.getMarketDataReadTimeout());
+
+    networkConfig.setAdaptiveTimeouts(ADAPTIVE_TIMEOUTS);
+    assertEquals(ADAPTIVE_TIMEOUTS, networkConfig.getAdaptiveTimeouts());
+
+    networkConfig.setCircuitBreakerFailureThreshold(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    assertEquals(
+        CIRCUIT_BREAKER_FAILURE_THRESHOLD, networkConfig.getCircuitBreakerFailureThreshold());
+
+    networkConfig.setCircuitBreakerMinBackoff(CIRCUIT_BREAKER_MIN_BACKOFF);
+    assertEquals(CIRCUIT_BREAKER_MIN_BACKOFF, networkConfig.getCircuitBreakerMinBackoff());
+
+    networkConfig.setCircuitBreakerMaxBackoff(CIRCUIT_BREAKER_MAX_BACKOFF);
+    assertEquals(CIRCUIT_BREAKER_MAX_BACKOFF, networkConfig.getCircuitBreakerMaxBackoff());
+
+    networkConfig.setPreWarmConnections(PRE_WARM_CONNECTIONS);
+    assertEquals(PRE_WARM_CONNECTIONS, networkConfig.getPreWarmConnections());
+
+    networkConfig.setStreamMarketData(STREAM_MARKET_DATA);
+    assertEquals(STREAM_MARKET_DATA, networkConfig.getStreamMarketData());
   }
 
   @Test
@@ -74,11 +160,35 @@ public class TestNetworkConfig {
     networkConfig.setConnectionTimeout(CONNECTION_TIMEOUT);
     networkConfig.setNonFatalErrorCodes(NON_FATAL_ERROR_CODES);
     networkConfig.setNonFatalErrorMessages(NON_FATAL_ERROR_MESSAGES);
+    networkConfig.setMaxConnections(MAX_CONNECTIONS);
+    networkConfig.setConnectionIdleTimeout(CONNECTION_IDLE_TIMEOUT);
+    networkConfig.setRateLimiter(RATE_LIMITER);
+    networkConfig.setRateLimitBurst(RATE_LIMIT_BURST);
+    networkConfig.setRateLimitCallsPerSecond(RATE_LIMIT_CALLS_PER_SECOND);
+    networkConfig.setHedgeLatencyPercentile(HEDGE_LATENCY_PERCENTILE);
+    networkConfig.setHedgeMaxExtraLoadPercent(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    networkConfig.setConnectTimeout(CONNECT_TIMEOUT);
+    networkConfig.setTradingReadTimeout(TRADING_READ_TIMEOUT);
+    networkConfig.setAccountReadTimeout(ACCOUNT_READ_TIMEOUT);
+    networkConfig.setMarketDataReadTimeout(MARKET_DATA_READ_TIMEOUT);
+    networkConfig.setAdaptiveTimeouts(ADAPTIVE_TIMEOUTS);
+    networkConfig.setCircuitBreakerFailureThreshold(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    networkConfig.setCircuitBreakerMinBackoff(CIRCUIT_BREAKER_MIN_BACKOFF);
+    networkConfig.setCircuitBreakerMaxBackoff(CIRCUIT_BREAKER_MAX_BACKOFF);
+    networkConfig.setPreWarmConnections(PRE_WARM_CONNECTIONS);
+    networkConfig.setStreamMarketData(STREAM_MARKET_DATA);
 
     assertEquals(
         "NetworkConfig{connectionTimeout=30, nonFatalErrorCodes=[502, 503, 504],"
             + " nonFatalErrorMessages=[Connection refused, Connection reset, "
-            + "Remote host closed connection during handshake]}",
+            + "Remote host closed connection during handshake], maxConnections=10,"
+            + " connectionIdleTimeout=60, rateLimiter=token-bucket, rateLimitBurst=15,"
+            + " rateLimitCallsPerSecond=0.5, hedgeLatencyPercentile=95.0,"
+            + " hedgeMaxExtraLoadPercent=5.0, connectTimeout=5, tradingReadTimeout=20,"
+            + " accountReadTimeout=15, marketDataReadTimeout=10, adaptiveTimeouts=true,"
+            + " circuitBreakerFailureThreshold=3, circuitBreakerMinBackoff=5,"
+            + " circuitBreakerMaxBackoff=300,"
+            + " preWarmConnections=true, streamMarketData=true}",
         networkConfig.toString());
   }
 }
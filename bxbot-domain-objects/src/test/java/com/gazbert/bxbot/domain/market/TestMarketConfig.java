@@ -27,7 +27,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
-
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
 import org.junit.Test;
 
 /**
@@ -43,6 +50,7 @@ public class TestMarketConfig {
   private static final String COUNTER_CURRENCY = "USD";
   private static final boolean IS_ENABLED = true;
   private static final String TRADING_STRATEGY = "macd_trend_follower";
+  private static final Integer TRADE_CYCLE_INTERVAL = 10;
 
   @Test
   public void testInitialisationWorksAsExpected() {
@@ -66,6 +74,7 @@ public class TestMarketConfig {
     assertNull(marketConfig.getCounterCurrency());
     assertFalse(marketConfig.isEnabled());
     assertNull(marketConfig.getTradingStrategyId());
+    assertNull(marketConfig.getTradeCycleInterval());
 
     marketConfig.setId(ID);
     assertEquals(ID, marketConfig.getId());
@@ -84,15 +93,20 @@ public class TestMarketConfig {
 
     marketConfig.setTradingStrategyId(TRADING_STRATEGY);
     assertEquals(TRADING_STRATEGY, marketConfig.getTradingStrategyId());
+
+    marketConfig.setTradeCycleInterval(TRADE_CYCLE_INTERVAL);
+    assertEquals(TRADE_CYCLE_INTERVAL, marketConfig.getTradeCycleInterval());
   }
 
   @Test
   public void testCloningWorksAsExpected() {
     final MarketConfig marketConfig =
         new MarketConfig(ID, NAME, BASE_CURRENCY, COUNTER_CURRENCY, IS_ENABLED, TRADING_STRATEGY);
+    marketConfig.setTradeCycleInterval(TRADE_CYCLE_INTERVAL);
     final MarketConfig clonedMarketConfig = new MarketConfig(marketConfig);
 
     assertEquals(clonedMarketConfig, marketConfig);
+    assertEquals(TRADE_CYCLE_INTERVAL, clonedMarketConfig.getTradeCycleInterval());
   }
 
   @Test
@@ -111,6 +125,30 @@ public class TestMarketConfig {
     assertEquals(market1, market3);
   }
 
+  @Test
+  public void testTradeCycleIntervalMustBeAtLeastOneSecondIfSet() {
+    final MarketConfig marketConfig =
+        new MarketConfig(ID, NAME, BASE_CURRENCY, COUNTER_CURRENCY, IS_ENABLED, TRADING_STRATEGY);
+    try (ValidatorFactory validatorFactory =
+        Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()) {
+      final Validator validator = validatorFactory.getValidator();
+      assertTrue(validator.validate(marketConfig).isEmpty());
+
+      marketConfig.setTradeCycleInterval(TRADE_CYCLE_INTERVAL);
+      assertTrue(validator.validate(marketConfig).isEmpty());
+
+      marketConfig.setTradeCycleInterval(0);
+      final Set<ConstraintViolation<MarketConfig>> violations = validator.validate(marketConfig);
+      assertEquals(1, violations.size());
+      assertEquals(
+          "Trade Cycle Interval must be 1 second or more",
+          violations.iterator().next().getMessage());
+    }
+  }
+
   @Test
   public void testHashCodeWorksAsExpected() {
     final MarketConfig market1 =
@@ -134,7 +172,8 @@ public class TestMarketConfig {
 
     assertEquals(
         "MarketConfig{id=gemini_usd/btc, name=BTC/USD, baseCurrency=BTC,"
-            + " counterCurrency=USD, enabled=true, tradingStrategyId=macd_trend_follower}",
+            + " counterCurrency=USD, enabled=true, tradingStrategyId=macd_trend_follower,"
+            + " tradeCycleInterval=null}",
         market1.toString());
   }
 }
@@ -24,13 +24,17 @@
 package com.gazbert.bxbot.exchange.api;
 
 import com.gazbert.bxbot.trading.api.TradingApi;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * All Exchange Adapters must implement this interface. It's main purpose is for the Trading Engine
  * to pass the adapter its configuration on startup.
  *
- * <p>The Trading Engine will send only 1 thread through the Exchange Adapter code at a time - you
- * do not have to code for concurrency.
+ * <p>By default, the Trading Engine will send only 1 thread through the Exchange Adapter code at a
+ * time - you do not have to code for concurrency. If the Engine is configured to execute Trading
+ * Strategies in parallel (strategyParallelism &gt; 1 in the engine.yaml config), multiple threads
+ * will call the adapter at the same time and it must be thread safe.
  *
  * @author gazbert
  * @since 1.0
@@ -43,4 +47,30 @@ public interface ExchangeAdapter extends TradingApi {
    * @param config configuration for the Exchange Adapter.
    */
   void init(ExchangeConfig config);
+
+  /**
+   * Returns the state of the adapter's circuit breaker for each exchange endpoint it has called.
+   *
+   * <p>The Trading Engine uses this to report which endpoints are currently failing. Adapters that
+   * do not use circuit breakers do not need to override this method.
+   *
+   * @return the circuit breaker state keyed by endpoint; empty if the adapter has no breakers.
+   * @since 1.2
+   */
+  default Map<String, CircuitBreakerState> getCircuitBreakerStates() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Called by the Trading Engine when it shuts down, and before it replaces the adapter when it is
+   * restarted. The adapter should release anything it holds open, e.g. threads and WebSocket
+   * connections. It is not used again once closed.
+   *
+   * <p>Adapters that hold nothing open do not need to override this method.
+   *
+   * @since 1.2
+   */
+  default void close() {
+    // nothing to release
+  }
 }
@@ -53,4 +53,187 @@ public interface NetworkConfig {
    * @return the connection timeout value if present, null otherwise.
    */
   Integer getConnectionTimeout();
+
+  /**
+   * Fetches (optional) maximum number of pooled connections to the exchange.
+   *
+   * @return the maximum number of connections if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getMaxConnections() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) time in secs an idle pooled connection is kept open for before it is
+   * closed.
+   *
+   * @return the connection idle timeout value if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getConnectionIdleTimeout() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) name of the client-side rate limiter to use, e.g. token-bucket or
+   * kraken-counter.
+   *
+   * @return the rate limiter name if present, null otherwise.
+   * @since 1.2
+   */
+  default String getRateLimiter() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) max number of API calls the rate limiter lets through in a burst.
+   *
+   * @return the rate limit burst if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getRateLimitBurst() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) number of API calls per second the rate limiter lets through once the burst
+   * has been used up.
+   *
+   * @return the rate limit calls per second if present, null otherwise.
+   * @since 1.2
+   */
+  default Double getRateLimitCallsPerSecond() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) percentile of recent response times after which a slow market data request
+   * is hedged with a second identical request, e.g. 95.
+   *
+   * @return the hedge latency percentile if present, null otherwise.
+   * @since 1.2
+   */
+  default Double getHedgeLatencyPercentile() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) cap on hedge requests, as a percentage of the market data requests made.
+   *
+   * @return the hedge max extra load percentage if present, null otherwise.
+   * @since 1.2
+   */
+  default Double getHedgeMaxExtraLoadPercent() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) timeout in seconds for connecting to the exchange. If not set, the
+   * connection timeout is used.
+   *
+   * @return the connect timeout if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getConnectTimeout() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) timeout in seconds for reading the response to an order placement or
+   * cancellation. If not set, the connection timeout is used.
+   *
+   * @return the trading read timeout if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getTradingReadTimeout() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) timeout in seconds for reading the response to a balance or open orders
+   * call. If not set, the connection timeout is used.
+   *
+   * @return the account read timeout if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getAccountReadTimeout() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) timeout in seconds for reading the response to a market data call. If not
+   * set, the connection timeout is used.
+   *
+   * @return the market data read timeout if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getMarketDataReadTimeout() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) flag for deriving the read timeouts from the exchange's recent response
+   * times. The configured read timeouts are then the max read timeouts.
+   *
+   * @return true if the read timeouts are adaptive, false or null otherwise.
+   * @since 1.2
+   */
+  default Boolean getAdaptiveTimeouts() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) number of consecutive network errors from an endpoint that opens the
+   * endpoint's circuit breaker. If not set, circuit breakers are disabled.
+   *
+   * @return the circuit breaker failure threshold if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getCircuitBreakerFailureThreshold() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) time in seconds a circuit breaker stays open the first time it opens. It is
+   * doubled each time the breaker opens again without a successful call in between.
+   *
+   * @return the circuit breaker min backoff if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getCircuitBreakerMinBackoff() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) cap in seconds on the time a circuit breaker stays open.
+   *
+   * @return the circuit breaker max backoff if present, null otherwise.
+   * @since 1.2
+   */
+  default Integer getCircuitBreakerMaxBackoff() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) flag for opening connections to the exchange when the adapter is
+   * initialised, and keeping them warm whilst the adapter is in use.
+   *
+   * @return true if connections are pre-warmed, false or null otherwise.
+   * @since 1.2
+   */
+  default Boolean getPreWarmConnections() {
+    return null;
+  }
+
+  /**
+   * Fetches (optional) flag for streaming market data over the exchange's WebSocket feed and
+   * answering order book and ticker calls from the local copy, where the adapter supports it.
+   *
+   * @return true if market data is streamed, false or null otherwise.
+   * @since 1.2
+   */
+  default Boolean getStreamMarketData() {
+    return null;
+  }
 }
@@ -82,6 +82,23 @@ public class BitfinexIT {
     expect(networkConfig.getConnectionTimeout()).andReturn(30);
     expect(networkConfig.getNonFatalErrorCodes()).andReturn(nonFatalNetworkErrorCodes);
     expect(networkConfig.getNonFatalErrorMessages()).andReturn(nonFatalNetworkErrorMessages);
+    expect(networkConfig.getMaxConnections()).andReturn(null);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(null);
+    expect(networkConfig.getRateLimiter()).andReturn(null);
+    expect(networkConfig.getRateLimitBurst()).andReturn(null);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(null);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
 
     exchangeConfig = createMock(ExchangeConfig.class);
     expect(exchangeConfig.getAuthenticationConfig()).andReturn(authenticationConfig);
@@ -24,33 +24,73 @@
 package com.gazbert.bxbot.exchanges;
 
 import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.NetworkConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
+import com.gazbert.bxbot.exchange.api.PairPrecisionConfig;
+import com.gazbert.bxbot.exchanges.hedging.HedgingMetrics;
+import com.gazbert.bxbot.exchanges.hedging.RequestHedger;
+import com.gazbert.bxbot.exchanges.ratelimit.RateLimiter;
+import com.gazbert.bxbot.exchanges.ratelimit.RateLimiterFactory;
+import com.gazbert.bxbot.exchanges.ratelimit.RateLimiterMetrics;
+import com.gazbert.bxbot.exchanges.resilience.CircuitBreaker;
+import com.gazbert.bxbot.exchanges.resilience.EndpointCircuitBreakers;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataStream;
+import com.gazbert.bxbot.exchanges.streaming.StreamProtocol;
+import com.gazbert.bxbot.exchanges.transport.ConnectionWarmer;
+import com.gazbert.bxbot.exchanges.transport.HttpClientTransport;
+import com.gazbert.bxbot.exchanges.transport.HttpTransport;
+import com.gazbert.bxbot.exchanges.transport.PriorityRequestDispatcher;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
+import com.gazbert.bxbot.exchanges.transport.RequestTimeouts;
+import com.gazbert.bxbot.exchanges.transport.ResponseSizeMetrics;
+import com.gazbert.bxbot.trading.api.AsyncTradingApi;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.ExecutorAsyncTradingApi;
+import com.gazbert.bxbot.trading.api.FixedPointScale;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.Ticker;
+import com.gazbert.bxbot.trading.api.TradingApi;
 import com.gazbert.bxbot.trading.api.TradingApiException;
 import com.google.common.base.MoreObjects;
-import java.io.BufferedReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormatSymbols;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.spec.SecretKeySpec;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -59,6 +99,25 @@ import org.apache.logging.log4j.Logger;
  *
  * <p>Exchange Adapters should extend this class.
  *
+ * <p>Exchange Adapters are thread-safe: a Trading Strategy, or several strategies running in
+ * parallel, can make authenticated API calls concurrently. The nonce and request signer needed to
+ * sign the requests are provided by this class - see {@link #leaseNonce(URL, String)} and {@link
+ * #getRequestSigner()} - so adapters must not keep their own mutable signing state. Requests
+ * signed with a nonce are sent one at a time, in nonce order.
+ *
+ * <p>Requests are sent in priority order: see {@link #getRequestPriority(URL, String)}. Order
+ * placement and cancellation jump ahead of queued balance and market data reads. Identical market
+ * data requests made at the same time, e.g. by strategies running in parallel, share one call to
+ * the exchange. Slow market data requests can be hedged with a second identical request: see
+ * {@link #getHedgingMetrics()}. Each endpoint class has its own read timeout, which can adapt to
+ * the Exchange's recent response times so a hung call fails fast. Each endpoint can also have a
+ * circuit breaker: once it keeps failing, calls to it fail fast without being sent until a jittered
+ * exponential backoff has passed - see {@link #getCircuitBreakerStates()}. Responses are requested
+ * gzip or deflate compressed: see {@link #getResponseSizeMetrics()}. Connections to the Exchange
+ * can be opened during init and kept warm: see {@link #preWarmConnections(String...)}. Adapters
+ * that support the Exchange's WebSocket feed can answer market data calls from a local copy that
+ * the feed keeps up to date: see {@link #startMarketDataStream(StreamProtocol)}.
+ *
  * @author gazbert
  * @since 1.0
  */
@@ -73,6 +132,10 @@ abstract class AbstractExchangeAdapter {
       "Failed to connect to Exchange due to socket timeout.";
   private static final String IO_5XX_TIMEOUT_ERROR_MSG =
       "Failed to connect to Exchange due to 5xx timeout.";
+  private static final String EXCHANGE_IS_DEAD_ERROR_MSG =
+      "Failed to connect to Exchange. It's dead Jim!";
+  private static final String RATE_LIMIT_EXCEEDED_ERROR_MSG =
+      "Exchange rate limit exceeded - the call was not sent.";
   private static final String AUTHENTICATION_CONFIG_MISSING =
       "authenticationConfig is missing in exchange.yaml file.";
   private static final String NETWORK_CONFIG_MISSING =
@@ -85,12 +148,50 @@ abstract class AbstractExchangeAdapter {
   private static final String CONNECTION_TIMEOUT_PROPERTY_NAME = "connection-timeout";
   private static final String NON_FATAL_ERROR_CODES_PROPERTY_NAME = "non-fatal-error-codes";
   private static final String NON_FATAL_ERROR_MESSAGES_PROPERTY_NAME = "non-fatal-error-messages";
+  private static final String MAX_CONNECTIONS_PROPERTY_NAME = "max-connections";
+  private static final String CONNECTION_IDLE_TIMEOUT_PROPERTY_NAME = "connection-idle-timeout";
+  private static final String RATE_LIMITER_PROPERTY_NAME = "rate-limiter";
+  private static final String REQUEST_HEDGER_PROPERTY_NAME = "request-hedger";
+  private static final String CONNECT_TIMEOUT_PROPERTY_NAME = "connect-timeout";
+  private static final String REQUEST_TIMEOUTS_PROPERTY_NAME = "request-timeouts";
+  private static final String CIRCUIT_BREAKERS_PROPERTY_NAME = "circuit-breakers";
+  private static final String PRE_WARM_CONNECTIONS_PROPERTY_NAME = "pre-warm-connections";
+  private static final String STREAM_MARKET_DATA_PROPERTY_NAME = "stream-market-data";
+
+  private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+  private static final int DEFAULT_MAX_CONNECTIONS = 10;
+  private static final int DEFAULT_CONNECTION_IDLE_TIMEOUT = 60;
+
+  /** Order book depth used to fetch the full order book. */
+  static final int FULL_ORDER_BOOK = 0;
 
   private final Set<Integer> nonFatalNetworkErrorCodes;
   private final Set<String> nonFatalNetworkErrorMessages;
+  private final AtomicLong nonce = new AtomicLong();
+  private final PriorityRequestDispatcher nonceGate = new PriorityRequestDispatcher(1);
+  private final SingleFlight<String, ExchangeHttpResponse> marketDataRequests =
+      new SingleFlight<>();
 
   private int connectionTimeout;
+  private volatile Integer connectTimeout;
+  private volatile Integer maxConnections;
+  private Integer connectionIdleTimeout;
+  private HttpTransport httpTransport;
+  private PriorityRequestDispatcher requestDispatcher;
   private DecimalFormatSymbols decimalFormatSymbols;
+  private ExecutorService asyncExecutor;
+  private ExecutorService hedgingExecutor;
+  private ScheduledExecutorService keepWarmScheduler;
+  private volatile ThreadLocal<RequestSigner> threadLocalRequestSigner;
+  private volatile RateLimiter rateLimiter;
+  private volatile RequestHedger requestHedger;
+  private volatile RequestTimeouts requestTimeouts;
+  private volatile EndpointCircuitBreakers circuitBreakers;
+  private volatile boolean preWarmConnections;
+  private volatile ConnectionWarmer connectionWarmer;
+  private volatile boolean streamMarketData;
+  private volatile MarketDataStream marketDataStream;
 
   /**
    * Constructor sets some sensible defaults for the network config and specifies decimal point
@@ -107,14 +208,59 @@ abstract class AbstractExchangeAdapter {
     decimalFormatSymbols.setDecimalSeparator('.');
   }
 
+  /**
+   * Returns the asynchronous version of the Trading API.
+   *
+   * <p>The calls are made on a pool of daemon threads owned by the adapter, so the caller is not
+   * blocked while the requests are in flight. This is not non-blocking I/O: each call still blocks
+   * a pool thread, as the adapters build their responses from a chain of blocking requests. The
+   * pool has a thread for each request the adapter lets in flight (max-connections), so async calls
+   * only queue when the request dispatcher would queue them anyway. It is created on first use.
+   *
+   * @return the async Trading API.
+   */
+  public AsyncTradingApi async() {
+    // Exchange Adapters extend this class and implement the TradingApi
+    return new ExecutorAsyncTradingApi((TradingApi) this, getAsyncExecutor());
+  }
+
+  /**
+   * Closes the market data stream, stops keeping connections warm, and shuts down the adapter's
+   * async, hedging and keep warm thread pools.
+   */
+  public synchronized void close() {
+    final MarketDataStream stream = marketDataStream;
+    marketDataStream = null;
+    if (stream != null) {
+      stream.close();
+    }
+    final ConnectionWarmer warmer = connectionWarmer;
+    connectionWarmer = null;
+    if (warmer != null) {
+      warmer.stop();
+    }
+    if (asyncExecutor != null) {
+      asyncExecutor.shutdownNow();
+      asyncExecutor = null;
+    }
+    if (hedgingExecutor != null) {
+      hedgingExecutor.shutdownNow();
+      hedgingExecutor = null;
+    }
+    if (keepWarmScheduler != null) {
+      keepWarmScheduler.shutdownNow();
+      keepWarmScheduler = null;
+    }
+    LOG.info(() -> getClass().getSimpleName() + " closed");
+  }
+
   /**
    * Makes a request to the Exchange.
    *
    * @param url the URL to invoke.
    * @param postData optional post data to send. This can be null.
    * @param httpMethod the HTTP method to use, e.g. GET, POST, DELETE
-   * @param requestHeaders optional request headers to set on the {@link URLConnection} used to
-   *     invoke the Exchange.
+   * @param requestHeaders optional request headers to send to the Exchange.
    * @return the response from the Exchange.
    * @throws ExchangeNetworkException if a network error occurred trying to connect to the exchange.
    *     This exception allows for recovery from temporary network issues.
@@ -124,48 +270,233 @@ abstract class AbstractExchangeAdapter {
   ExchangeHttpResponse sendNetworkRequest(
       URL url, String httpMethod, String postData, Map<String, String> requestHeaders)
       throws TradingApiException, ExchangeNetworkException {
+    return coalesceNetworkRequest(url, httpMethod, postData, requestHeaders, null, null);
+  }
+
+  /**
+   * Makes a request to the Exchange and decodes the JSON response as it is read off the wire.
+   *
+   * <p>The response body is streamed into a Gson {@link JsonReader}, so large payloads like a full
+   * order book are not held in memory as a String before being decoded. Use {@link
+   * ExchangeHttpResponse#getPayloadAs(Gson, Type)} to fetch the decoded payload.
+   *
+   * @param url the URL to invoke.
+   * @param postData optional post data to send. This can be null.
+   * @param httpMethod the HTTP method to use, e.g. GET, POST, DELETE
+   * @param requestHeaders optional request headers to send to the Exchange.
+   * @param gson the Gson instance to decode the payload with.
+   * @param payloadType the type to decode the payload to.
+   * @return the response from the Exchange.
+   * @throws ExchangeNetworkException if a network error occurred trying to connect to the exchange.
+   *     This exception allows for recovery from temporary network issues.
+   * @throws TradingApiException if the API call failed for any reason other than a network error.
+   *     This means something really bad as happened.
+   */
+  ExchangeHttpResponse sendNetworkRequest(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Gson gson,
+      Type payloadType)
+      throws TradingApiException, ExchangeNetworkException {
+    return coalesceNetworkRequest(
+        url,
+        httpMethod,
+        postData,
+        requestHeaders,
+        createJsonDecoder(gson, payloadType),
+        payloadType);
+  }
+
+  /*
+   * Identical market data GETs in flight at the same time share one call to the exchange - the
+   * response is immutable, so it can be handed to every caller. Authenticated calls are never
+   * coalesced.
+   */
+  private ExchangeHttpResponse coalesceNetworkRequest(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      HttpTransport.BodyDecoder<?> decoder,
+      Type payloadType)
+      throws TradingApiException, ExchangeNetworkException {
+
+    final RequestPriority priority = getRequestPriority(url, httpMethod);
+    if (priority == RequestPriority.MARKET_DATA && "GET".equalsIgnoreCase(httpMethod)) {
+      final String requestKey =
+          payloadType == null ? url.toString() : url + " -> " + payloadType.getTypeName();
+      return marketDataRequests.execute(
+          requestKey,
+          () -> hedgeNetworkRequest(url, httpMethod, postData, requestHeaders, decoder, priority));
+    }
+    return dispatchNetworkRequest(url, httpMethod, postData, requestHeaders, decoder, priority);
+  }
+
+  /*
+   * Market data GETs are idempotent, so a slow one can safely be sent again if hedging is enabled.
+   * Each request, hedge or not, waits for its own dispatch slot and rate limit permits.
+   */
+  private ExchangeHttpResponse hedgeNetworkRequest(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      HttpTransport.BodyDecoder<?> decoder,
+      RequestPriority priority)
+      throws TradingApiException, ExchangeNetworkException {
 
-    HttpURLConnection exchangeConnection = null;
-    final StringBuilder exchangeResponse = new StringBuilder();
+    final RequestHedger hedger = requestHedger;
+    if (hedger == null) {
+      return dispatchNetworkRequest(url, httpMethod, postData, requestHeaders, decoder, priority);
+    }
+    return hedger.execute(
+        getEndpoint(url),
+        () -> dispatchNetworkRequest(url, httpMethod, postData, requestHeaders, decoder, priority));
+  }
 
+  private ExchangeHttpResponse dispatchNetworkRequest(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      HttpTransport.BodyDecoder<?> decoder,
+      RequestPriority priority)
+      throws TradingApiException, ExchangeNetworkException {
+
+    final String endpoint = getEndpoint(url);
+    final CircuitBreaker circuitBreaker = acquireCircuitBreakerPermission(endpoint);
+    boolean sent = false;
+    boolean networkError = false;
     try {
-      LOG.debug(() -> "Using following URL for API call: " + url);
+      // Add timeouts so we don't get blocked indefinitely.
+      final Duration timeout = Duration.ofSeconds(connectionTimeout);
+      final PriorityRequestDispatcher dispatcher = getRequestDispatcher();
+      acquireDispatchSlot(dispatcher, priority, url, timeout);
+      try {
+        acquireRateLimitPermits(url, priority, timeout);
+        sent = true;
+        return sendToTransport(
+            url,
+            httpMethod,
+            postData,
+            requestHeaders,
+            decoder,
+            endpoint,
+            getReadTimeout(priority, endpoint));
+      } finally {
+        dispatcher.release(priority);
+      }
+    } catch (ExchangeNetworkException e) {
+      networkError = true;
+      throw e;
+    } finally {
+      recordCircuitBreakerOutcome(circuitBreaker, sent, networkError);
+    }
+  }
 
-      exchangeConnection = (HttpURLConnection) url.openConnection();
-      exchangeConnection.setUseCaches(false);
-      exchangeConnection.setDoOutput(true);
-      exchangeConnection.setRequestMethod(httpMethod); // GET|POST|DELETE
+  /*
+   * Fails fast if the endpoint's circuit breaker is open. Returns null if breakers are disabled.
+   */
+  private CircuitBreaker acquireCircuitBreakerPermission(String endpoint)
+      throws ExchangeNetworkException {
+    final EndpointCircuitBreakers breakers = circuitBreakers;
+    if (breakers == null) {
+      return null;
+    }
+    final CircuitBreaker circuitBreaker = breakers.get(endpoint);
+    if (!circuitBreaker.tryAcquirePermission()) {
+      final String errorMsg =
+          "Circuit breaker is open for endpoint: "
+              + endpoint
+              + " - the call was not sent. Retry in: "
+              + circuitBreaker.getRemainingBackoff();
+      LOG.warn(errorMsg);
+      throw new ExchangeNetworkException(errorMsg);
+    }
+    return circuitBreaker;
+  }
 
-      setRequestHeaders(exchangeConnection, requestHeaders);
+  /*
+   * Only network errors count as failures - an error response still means the endpoint is up.
+   */
+  private static void recordCircuitBreakerOutcome(
+      CircuitBreaker circuitBreaker, boolean sent, boolean networkError) {
+    if (circuitBreaker == null) {
+      return;
+    }
+    if (!sent) {
+      circuitBreaker.releasePermission();
+    } else if (networkError) {
+      circuitBreaker.onFailure();
+    } else {
+      circuitBreaker.onSuccess();
+    }
+  }
 
-      // Add a timeout so we don't get blocked indefinitely; timeout on URLConnection is in millis.
-      final int timeoutInMillis = connectionTimeout * 1000;
-      exchangeConnection.setConnectTimeout(timeoutInMillis);
-      exchangeConnection.setReadTimeout(timeoutInMillis);
+  private ExchangeHttpResponse sendToTransport(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      HttpTransport.BodyDecoder<?> decoder,
+      String endpoint,
+      Duration timeout)
+      throws TradingApiException, ExchangeNetworkException {
 
+    try {
+      LOG.debug(() -> "Using following URL for API call: " + url);
       if (httpMethod.equalsIgnoreCase("POST") && postData != null) {
         LOG.debug(() -> "Doing POST with request body: " + postData);
-        try (final OutputStreamWriter outputPostStream =
-            new OutputStreamWriter(exchangeConnection.getOutputStream(), StandardCharsets.UTF_8)) {
-          outputPostStream.write(postData);
-        }
       }
 
-      // Grab the response - we just block here as per Connection API
-      try (final BufferedReader responseInputStream =
-          new BufferedReader(
-              new InputStreamReader(exchangeConnection.getInputStream(), StandardCharsets.UTF_8))) {
-
-        // Read the JSON response lines into our response buffer
-        String responseLine;
-        while ((responseLine = responseInputStream.readLine()) != null) {
-          exchangeResponse.append(responseLine);
-        }
+      final HttpTransport transport = getHttpTransport();
+      final long startNanos = System.nanoTime();
+      final HttpTransport.Response response =
+          decoder == null
+              ? transport.send(url, httpMethod, postData, requestHeaders, timeout)
+              : transport.send(url, httpMethod, postData, requestHeaders, timeout, decoder);
+      recordLatency(endpoint, Duration.ofNanos(System.nanoTime() - startNanos));
+      final ConnectionWarmer warmer = connectionWarmer;
+      if (warmer != null) {
+        warmer.onRequestSent();
+      }
 
+      final int statusCode = response.getStatusCode();
+      if (response.isSuccessful()) {
         return new ExchangeHttpResponse(
-            exchangeConnection.getResponseCode(),
-            exchangeConnection.getResponseMessage(),
-            exchangeResponse.toString());
+            statusCode, response.getReasonPhrase(), response.getBody(), response.getDecodedBody());
+
+      } else if (statusCode == HttpURLConnection.HTTP_NOT_FOUND
+          || statusCode == HttpURLConnection.HTTP_GONE) {
+        // Huobi started returning 404s as of 8 Nov 2015.
+        final String errorMsg = EXCHANGE_IS_DEAD_ERROR_MSG + " HTTP status: " + statusCode;
+        LOG.error(errorMsg);
+        throw new ExchangeNetworkException(errorMsg);
+
+      } else if (statusCode == HTTP_TOO_MANY_REQUESTS) {
+        onRateLimitExceeded();
+        final String errorMsg =
+            "Exchange rejected the call for exceeding its rate limit. HTTP status: " + statusCode;
+        LOG.error(errorMsg);
+        throw new ExchangeNetworkException(errorMsg);
+
+      } else if (nonFatalNetworkErrorCodes.contains(statusCode)) {
+        final String errorMsg = IO_5XX_TIMEOUT_ERROR_MSG + " HTTP status: " + statusCode;
+        LOG.error(errorMsg);
+        throw new ExchangeNetworkException(errorMsg);
+
+      } else {
+        // Game over!
+        final String errorMsg =
+            UNEXPECTED_IO_ERROR_MSG
+                + " HTTP status: "
+                + statusCode
+                + " ErrorStream Response: "
+                + response.getBody();
+        LOG.error(errorMsg);
+        throw new TradingApiException(errorMsg);
       }
 
     } catch (MalformedURLException e) {
@@ -173,47 +504,29 @@ abstract class AbstractExchangeAdapter {
       LOG.error(errorMsg, e);
       throw new TradingApiException(errorMsg, e);
 
-    } catch (SocketTimeoutException e) {
-      final String errorMsg = IO_SOCKET_TIMEOUT_ERROR_MSG;
+    } catch (SocketTimeoutException | HttpTimeoutException e) {
+      final String errorMsg = IO_SOCKET_TIMEOUT_ERROR_MSG + " Timeout: " + timeout;
       LOG.error(errorMsg, e);
       throw new ExchangeNetworkException(errorMsg, e);
 
     } catch (FileNotFoundException | UnknownHostException e) {
-      // Huobi started throwing FileNotFoundException as of 8 Nov 2015.
       // EC2 started throwing UnknownHostException for BTC-e, GDAX, as of 14 July 2016 :-/
-      final String errorMsg = "Failed to connect to Exchange. It's dead Jim!";
+      final String errorMsg = EXCHANGE_IS_DEAD_ERROR_MSG;
       LOG.error(errorMsg, e);
       throw new ExchangeNetworkException(errorMsg, e);
 
     } catch (IOException e) {
-      try {
-        if (errorMessageIsRecoverableNetworkError(e)) {
-          final String errorMsg =
-              "Failed to connect to Exchange. SSL Connection was refused or reset by the server.";
-          LOG.error(errorMsg, e);
-          throw new ExchangeNetworkException(errorMsg, e);
-
-        } else if (errorCodeIsRecoverableNetworkError(exchangeConnection)) {
-          final String errorMsg = IO_5XX_TIMEOUT_ERROR_MSG;
-          LOG.error(errorMsg, e);
-          throw new ExchangeNetworkException(errorMsg, e);
-
-        } else {
-          // Game over!
-          String errorMsg = extractIoErrorMessage(exchangeConnection);
-          LOG.error(errorMsg, e);
-          throw new TradingApiException(errorMsg, e);
-        }
+      if (errorMessageIsRecoverableNetworkError(e)) {
+        final String errorMsg =
+            "Failed to connect to Exchange. SSL Connection was refused or reset by the server.";
+        LOG.error(errorMsg, e);
+        throw new ExchangeNetworkException(errorMsg, e);
 
-      } catch (IOException e1) {
+      } else {
+        // Game over!
         final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
-        LOG.error(errorMsg, e1);
-        throw new TradingApiException(errorMsg, e1);
-      }
-
-    } finally {
-      if (exchangeConnection != null) {
-        exchangeConnection.disconnect();
+        LOG.error(errorMsg, e);
+        throw new TradingApiException(errorMsg, e);
       }
     }
   }
@@ -253,6 +566,306 @@ abstract class AbstractExchangeAdapter {
       nonFatalNetworkErrorMessages.addAll(nonFatalErrorMessagesFromConfig);
     }
     LOG.info(() -> NON_FATAL_ERROR_MESSAGES_PROPERTY_NAME + ": " + nonFatalNetworkErrorMessages);
+
+    maxConnections = networkConfig.getMaxConnections();
+    LOG.info(() -> MAX_CONNECTIONS_PROPERTY_NAME + ": " + maxConnections);
+
+    connectionIdleTimeout = networkConfig.getConnectionIdleTimeout();
+    LOG.info(() -> CONNECTION_IDLE_TIMEOUT_PROPERTY_NAME + ": " + connectionIdleTimeout);
+
+    rateLimiter =
+        RateLimiterFactory.createRateLimiter(
+            networkConfig.getRateLimiter(),
+            networkConfig.getRateLimitBurst(),
+            networkConfig.getRateLimitCallsPerSecond());
+    LOG.info(() -> RATE_LIMITER_PROPERTY_NAME + ": " + rateLimiter);
+
+    final Double hedgeLatencyPercentile = networkConfig.getHedgeLatencyPercentile();
+    final Double hedgeMaxExtraLoadPercent = networkConfig.getHedgeMaxExtraLoadPercent();
+    if (hedgeLatencyPercentile != null) {
+      requestHedger =
+          new RequestHedger(
+              hedgeLatencyPercentile,
+              hedgeMaxExtraLoadPercent == null
+                  ? RequestHedger.DEFAULT_MAX_EXTRA_LOAD_PERCENT
+                  : hedgeMaxExtraLoadPercent,
+              getHedgingExecutor());
+    }
+    LOG.info(() -> REQUEST_HEDGER_PROPERTY_NAME + ": " + requestHedger);
+
+    connectTimeout = networkConfig.getConnectTimeout();
+    LOG.info(() -> CONNECT_TIMEOUT_PROPERTY_NAME + ": " + connectTimeout);
+
+    final Map<RequestPriority, Duration> readTimeouts = new EnumMap<>(RequestPriority.class);
+    readTimeouts.put(RequestPriority.TRADING, toReadTimeout(networkConfig.getTradingReadTimeout()));
+    readTimeouts.put(RequestPriority.ACCOUNT, toReadTimeout(networkConfig.getAccountReadTimeout()));
+    readTimeouts.put(
+        RequestPriority.MARKET_DATA, toReadTimeout(networkConfig.getMarketDataReadTimeout()));
+    requestTimeouts =
+        new RequestTimeouts(readTimeouts, Boolean.TRUE.equals(networkConfig.getAdaptiveTimeouts()));
+    LOG.info(() -> REQUEST_TIMEOUTS_PROPERTY_NAME + ": " + requestTimeouts);
+
+    final Integer failureThreshold = networkConfig.getCircuitBreakerFailureThreshold();
+    final Integer minBackoff = networkConfig.getCircuitBreakerMinBackoff();
+    final Integer maxBackoff = networkConfig.getCircuitBreakerMaxBackoff();
+    if (failureThreshold != null) {
+      circuitBreakers =
+          new EndpointCircuitBreakers(
+              failureThreshold,
+              minBackoff == null
+                  ? EndpointCircuitBreakers.DEFAULT_MIN_BACKOFF
+                  : Duration.ofSeconds(minBackoff),
+              maxBackoff == null
+                  ? EndpointCircuitBreakers.DEFAULT_MAX_BACKOFF
+                  : Duration.ofSeconds(maxBackoff));
+    }
+    LOG.info(() -> CIRCUIT_BREAKERS_PROPERTY_NAME + ": " + circuitBreakers);
+
+    preWarmConnections = Boolean.TRUE.equals(networkConfig.getPreWarmConnections());
+    LOG.info(() -> PRE_WARM_CONNECTIONS_PROPERTY_NAME + ": " + preWarmConnections);
+
+    streamMarketData = Boolean.TRUE.equals(networkConfig.getStreamMarketData());
+    LOG.info(() -> STREAM_MARKET_DATA_PROPERTY_NAME + ": " + streamMarketData);
+  }
+
+  /**
+   * Opens connections to the Exchange's API hosts, if enabled in the network config, so the DNS
+   * lookup, TCP connect and TLS handshake are not on the critical path of the first API call. The
+   * connections are then kept warm whilst the adapter is in use. Adapters call this at the end of
+   * init, once the network config has been set.
+   *
+   * @param apiUrls the Exchange's public and authenticated API URLs.
+   */
+  void preWarmConnections(String... apiUrls) {
+    if (!preWarmConnections) {
+      return;
+    }
+    final ConnectionWarmer previousWarmer = connectionWarmer;
+    if (previousWarmer != null) {
+      previousWarmer.stop();
+    }
+
+    final int idleTimeout =
+        connectionIdleTimeout == null ? DEFAULT_CONNECTION_IDLE_TIMEOUT : connectionIdleTimeout;
+    try {
+      final ConnectionWarmer warmer =
+          new ConnectionWarmer(
+              getHttpTransport(),
+              Arrays.asList(apiUrls),
+              Duration.ofSeconds(connectionTimeout),
+              // warm again well before the pooled connections are closed for being idle
+              Duration.ofMillis(idleTimeout * 1000L / 2),
+              getKeepWarmScheduler());
+      connectionWarmer = warmer;
+      warmer.warmUp();
+    } catch (MalformedURLException e) {
+      final String errorMsg = "Invalid API URL to pre-warm: " + Arrays.toString(apiUrls);
+      LOG.error(errorMsg, e);
+      throw new IllegalArgumentException(errorMsg, e);
+    }
+  }
+
+  /**
+   * Starts streaming market data from the Exchange's WebSocket feed, if enabled in the network
+   * config. Adapters that support the feed call this at the end of init, once the network config
+   * has been set, then ask {@link #getStreamedMarketOrders(String, int)} and {@link
+   * #getStreamedTicker(String)} before calling the REST API. A stream started by a previous init
+   * is closed.
+   *
+   * @param protocol the Exchange's feed protocol.
+   */
+  void startMarketDataStream(StreamProtocol protocol) {
+    if (!streamMarketData) {
+      return;
+    }
+    final HttpClient webSocketClient =
+        HttpClient.newBuilder()
+            .connectTimeout(
+                Duration.ofSeconds(connectTimeout == null ? connectionTimeout : connectTimeout))
+            .build();
+    startMarketDataStream(new MarketDataStream(protocol, webSocketClient));
+  }
+
+  /*
+   * Plugs in a market data stream, e.g. for testing.
+   */
+  synchronized void startMarketDataStream(MarketDataStream stream) {
+    final MarketDataStream previousStream = marketDataStream;
+    if (previousStream != null) {
+      previousStream.close();
+    }
+    marketDataStream = stream;
+    stream.start();
+  }
+
+  /**
+   * Returns a market's order book from the market data stream. The market is subscribed to the
+   * first time it is asked for.
+   *
+   * @param marketId the market id.
+   * @param depth the max number of levels on each side, or {@link #FULL_ORDER_BOOK} for all the
+   *     levels the stream keeps.
+   * @return the order book, or null if market data is not streamed or the market's local book is
+   *     not in sync - the adapter then calls the REST API.
+   */
+  MarketOrderBook getStreamedMarketOrders(String marketId, int depth) {
+    final MarketDataStream stream = marketDataStream;
+    if (stream == null) {
+      return null;
+    }
+    stream.subscribe(marketId);
+    return stream.getOrderBook(marketId, depth);
+  }
+
+  /**
+   * Returns a market's ticker from the market data stream. The market is subscribed to the first
+   * time it is asked for.
+   *
+   * @param marketId the market id.
+   * @return the ticker, or null if market data is not streamed or no ticker has been received yet -
+   *     the adapter then calls the REST API.
+   */
+  Ticker getStreamedTicker(String marketId) {
+    final MarketDataStream stream = marketDataStream;
+    if (stream == null) {
+      return null;
+    }
+    stream.subscribe(marketId);
+    return stream.getTicker(marketId);
+  }
+
+  /*
+   * Returns the market data stream, or null if market data is not streamed.
+   */
+  MarketDataStream getMarketDataStream() {
+    return marketDataStream;
+  }
+
+  /*
+   * Returns the connection warmer, or null if connections are not pre-warmed.
+   */
+  ConnectionWarmer getConnectionWarmer() {
+    return connectionWarmer;
+  }
+
+  /*
+   * Read timeouts that are not set default to the connection timeout.
+   */
+  private Duration toReadTimeout(Integer readTimeoutSeconds) {
+    return Duration.ofSeconds(readTimeoutSeconds == null ? connectionTimeout : readTimeoutSeconds);
+  }
+
+  /*
+   * Plugs in different request timeouts, e.g. for testing.
+   */
+  void setRequestTimeouts(RequestTimeouts requestTimeouts) {
+    this.requestTimeouts = requestTimeouts;
+  }
+
+  /**
+   * Returns the metrics of the rate limiter configured for the adapter.
+   *
+   * @return the rate limiter metrics, or null if the adapter's calls are not rate limited.
+   */
+  public RateLimiterMetrics getRateLimiterMetrics() {
+    final RateLimiter limiter = rateLimiter;
+    return limiter == null ? null : limiter.getMetrics();
+  }
+
+  /**
+   * Returns the metrics of the request hedger configured for the adapter, e.g. how often a hedge
+   * request answered before a slow market data request.
+   *
+   * @return the hedging metrics, or null if market data requests are not hedged.
+   */
+  public HedgingMetrics getHedgingMetrics() {
+    final RequestHedger hedger = requestHedger;
+    return hedger == null ? null : hedger.getMetrics();
+  }
+
+  /*
+   * Plugs in a different request hedger, e.g. for testing.
+   */
+  void setRequestHedger(RequestHedger requestHedger) {
+    this.requestHedger = requestHedger;
+  }
+
+  /**
+   * Returns the sizes of the Exchange's responses on the wire and after decompression, i.e. the
+   * bandwidth saved by requesting compressed responses.
+   *
+   * @return the response size metrics, or null if the HTTP transport does not track them.
+   */
+  public ResponseSizeMetrics getResponseSizeMetrics() {
+    return getHttpTransport().getResponseSizeMetrics();
+  }
+
+  /**
+   * Returns the state of the circuit breaker of each endpoint the adapter has called.
+   *
+   * @return the breaker states keyed by endpoint; empty if circuit breakers are not enabled.
+   */
+  public Map<String, CircuitBreakerState> getCircuitBreakerStates() {
+    final EndpointCircuitBreakers breakers = circuitBreakers;
+    return breakers == null ? Collections.emptyMap() : breakers.getStates();
+  }
+
+  /*
+   * Plugs in different circuit breakers, e.g. for testing.
+   */
+  void setCircuitBreakers(EndpointCircuitBreakers circuitBreakers) {
+    this.circuitBreakers = circuitBreakers;
+  }
+
+  /**
+   * Returns the rate limit cost of an API call, i.e. the number of permits it takes from the rate
+   * limiter. Adapters for exchanges that weight their API calls should override this.
+   *
+   * @param url the URL of the API call.
+   * @return the cost of the call; 0 if the call is not rate limited.
+   */
+  int getRateLimitCost(URL url) {
+    return 1;
+  }
+
+  /**
+   * Returns the number of market data requests that shared the response of an identical request
+   * already in flight, rather than calling the exchange themselves.
+   *
+   * @return the coalesced request count.
+   */
+  public long getCoalescedRequestCount() {
+    return marketDataRequests.getCoalescedCount();
+  }
+
+  /**
+   * Returns the priority of an API call. Adapters should override this so their order placement
+   * and cancellation calls are sent ahead of any queued balance and market data reads.
+   *
+   * @param url the URL of the API call.
+   * @param httpMethod the HTTP method of the API call.
+   * @return the priority of the call; {@link RequestPriority#ACCOUNT} by default.
+   */
+  RequestPriority getRequestPriority(URL url, String httpMethod) {
+    return RequestPriority.ACCOUNT;
+  }
+
+  /**
+   * Tells the rate limiter the exchange rejected a call for exceeding its rate limit. Adapters call
+   * this if the exchange reports it in the response body rather than with an HTTP 429 status.
+   */
+  void onRateLimitExceeded() {
+    final RateLimiter limiter = rateLimiter;
+    if (limiter != null) {
+      limiter.onRateLimitExceeded();
+    }
+  }
+
+  /*
+   * Plugs in a different rate limiter, e.g. for testing.
+   */
+  void setRateLimiter(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
   }
 
   /**
@@ -340,6 +953,283 @@ abstract class AbstractExchangeAdapter {
     return sortedQueryString.toString();
   }
 
+  /*
+   * HTTP transport shared by all the adapter's requests - created on first use so it picks up the
+   * network config.
+   */
+  synchronized HttpTransport getHttpTransport() {
+    if (httpTransport == null) {
+      httpTransport =
+          new HttpClientTransport(
+              Duration.ofSeconds(connectTimeout == null ? connectionTimeout : connectTimeout));
+    }
+    return httpTransport;
+  }
+
+  /*
+   * Dispatcher shared by all the adapter's requests - created on first use so it picks up the
+   * network config.
+   */
+  synchronized PriorityRequestDispatcher getRequestDispatcher() {
+    if (requestDispatcher == null) {
+      final PriorityRequestDispatcher dispatcher =
+          new PriorityRequestDispatcher(getMaxRequestsInFlight());
+      LOG.info(() -> "Request dispatcher: " + dispatcher);
+      requestDispatcher = dispatcher;
+    }
+    return requestDispatcher;
+  }
+
+  /*
+   * The max number of requests the adapter lets in flight at once. Only the request dispatcher
+   * enforces it.
+   */
+  private int getMaxRequestsInFlight() {
+    return maxConnections == null ? DEFAULT_MAX_CONNECTIONS : maxConnections;
+  }
+
+  /*
+   * Plugs in a different request dispatcher, e.g. for testing.
+   */
+  synchronized void setRequestDispatcher(PriorityRequestDispatcher requestDispatcher) {
+    this.requestDispatcher = requestDispatcher;
+  }
+
+  /*
+   * Plugs in a different HTTP transport, e.g. for testing.
+   */
+  synchronized void setHttpTransport(HttpTransport httpTransport) {
+    this.httpTransport = httpTransport;
+  }
+
+  /*
+   * Thread pool for the async Trading API calls - created on first use. More threads than requests
+   * allowed in flight would only wait on the request dispatcher.
+   */
+  synchronized ExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      asyncExecutor =
+          Executors.newFixedThreadPool(
+              getMaxRequestsInFlight(),
+              new ThreadFactoryBuilder()
+                  .setNameFormat(getClass().getSimpleName() + "-async-%d")
+                  .setDaemon(true)
+                  .build());
+    }
+    return asyncExecutor;
+  }
+
+  /*
+   * Runs the keep warm checks of the pre-warmed connections - created on first use.
+   */
+  synchronized ScheduledExecutorService getKeepWarmScheduler() {
+    if (keepWarmScheduler == null) {
+      keepWarmScheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat(getClass().getSimpleName() + "-keep-warm-%d")
+                  .setDaemon(true)
+                  .build());
+    }
+    return keepWarmScheduler;
+  }
+
+  /*
+   * Thread pool the hedged market data requests race on - created on first use. It is not bounded:
+   * the request dispatcher already caps the requests in flight.
+   */
+  synchronized Executor getHedgingExecutor() {
+    if (hedgingExecutor == null) {
+      hedgingExecutor =
+          Executors.newCachedThreadPool(
+              new ThreadFactoryBuilder()
+                  .setNameFormat(getClass().getSimpleName() + "-hedge-%d")
+                  .setDaemon(true)
+                  .build());
+    }
+    return hedgingExecutor;
+  }
+
+  /**
+   * Sets the starting value of the nonce sent in authenticated requests. Adapters call this when
+   * they are initialised, typically with a timestamp, so the nonce is still increasing after the
+   * bot is restarted.
+   *
+   * @param initialNonce the starting nonce.
+   */
+  void initNonce(long initialNonce) {
+    nonce.set(initialNonce);
+  }
+
+  /**
+   * Returns the next nonce.
+   *
+   * <p>This is safe to call from multiple threads: every call returns a unique value greater than
+   * the last one. Adapters should use {@link #leaseNonce(URL, String)} to sign their requests, so
+   * the requests also reach the exchange in nonce order.
+   *
+   * @return the next nonce.
+   */
+  long nextNonce() {
+    return nonce.incrementAndGet();
+  }
+
+  /**
+   * Takes the nonce for an authenticated request. Every other authenticated request is held back
+   * until the lease is closed, so the request must be signed and sent, and its response read,
+   * whilst holding the lease:
+   *
+   * <pre>
+   * try (NonceLease nonceLease = leaseNonce(url, "POST")) {
+   *   // sign the request with nonceLease.getNonce() and send it
+   * }
+   * </pre>
+   *
+   * <p>Exchanges like Bitstamp and Gemini reject a nonce lower than the last one they have seen,
+   * and requests in flight at the same time can reach the exchange in any order. So requests
+   * signed with a nonce are sent one at a time, in nonce order. Waiting requests are given the next
+   * nonce in priority order, so an order cancel is not held back by queued balance reads.
+   *
+   * @param url the URL of the request.
+   * @param httpMethod the HTTP method of the request.
+   * @return the nonce lease.
+   * @throws ExchangeNetworkException if the earlier requests did not finish within the connection
+   *     timeout.
+   * @throws TradingApiException if the calling thread was interrupted whilst waiting.
+   */
+  NonceLease leaseNonce(URL url, String httpMethod)
+      throws TradingApiException, ExchangeNetworkException {
+    final RequestPriority priority = getRequestPriority(url, httpMethod);
+    acquireDispatchSlot(nonceGate, priority, url, Duration.ofSeconds(connectionTimeout));
+    return new NonceLease(nextNonce(), nonceGate, priority);
+  }
+
+  /**
+   * Initialises the request signer used to sign authenticated requests.
+   *
+   * <p>A {@link RequestSigner} is not thread-safe, so each thread making requests gets its own
+   * instance, and reuses it - along with its buffers - for every request it signs. One is created
+   * here so a missing algorithm or an invalid key fails hard n fast at startup.
+   *
+   * @param keySpec the secret key and HMAC algorithm, e.g. HmacSHA512.
+   * @throws NoSuchAlgorithmException if the HMAC algorithm is not installed.
+   * @throws InvalidKeyException if the secret key is invalid.
+   */
+  void initRequestSigner(SecretKeySpec keySpec)
+      throws NoSuchAlgorithmException, InvalidKeyException {
+    final RequestSigner requestSigner = RequestSigner.create(keySpec);
+
+    final ThreadLocal<RequestSigner> requestSigners =
+        ThreadLocal.withInitial(() -> createRequestSigner(keySpec));
+    requestSigners.set(requestSigner);
+    threadLocalRequestSigner = requestSigners;
+  }
+
+  /**
+   * Checks if the request signer has been initialised.
+   *
+   * @return true if {@link #initRequestSigner(SecretKeySpec)} has been called successfully.
+   */
+  boolean isRequestSignerInitialized() {
+    return threadLocalRequestSigner != null;
+  }
+
+  /**
+   * Returns the calling thread's request signer for signing an authenticated request.
+   *
+   * @return the request signer; it must not be shared with other threads.
+   * @throws IllegalStateException if the request signer has not been initialised.
+   */
+  RequestSigner getRequestSigner() {
+    final ThreadLocal<RequestSigner> requestSigners = threadLocalRequestSigner;
+    if (requestSigners == null) {
+      final String errorMsg = "MAC Message security layer has not been initialized.";
+      LOG.error(errorMsg);
+      throw new IllegalStateException(errorMsg);
+    }
+    return requestSigners.get();
+  }
+
+  /**
+   * Checks the order book depth requested by a Trading Strategy is valid.
+   *
+   * @param depth the order book depth.
+   * @throws IllegalArgumentException if depth is less than 1.
+   */
+  static void assertValidOrderBookDepth(int depth) {
+    if (depth < 1) {
+      final String errorMsg = "Order book depth must be at least 1: " + depth;
+      LOG.error(errorMsg);
+      throw new IllegalArgumentException(errorMsg);
+    }
+  }
+
+  /**
+   * Checks if an order book side has all the orders needed. Adapters call this whilst adapting the
+   * exchange's order book, so orders beyond the depth are skipped.
+   *
+   * @param orders the orders adapted so far.
+   * @param depth the order book depth, or {@link #FULL_ORDER_BOOK}.
+   * @return true if no more orders are needed.
+   */
+  static boolean isOrderBookDepthReached(List<?> orders, int depth) {
+    return depth != FULL_ORDER_BOOK && orders.size() >= depth;
+  }
+
+  /**
+   * Limits an order book side that has already been decoded to the requested depth. The levels are
+   * not copied, so a lazily decoded side stays lazy.
+   *
+   * @param orders the orders, best price first.
+   * @param depth the order book depth, or {@link #FULL_ORDER_BOOK}.
+   * @param <T> the order type.
+   * @return the orders if there are no more than depth of them, else a view of the first depth
+   *     orders.
+   */
+  static <T> List<T> limitOrderBookDepth(List<T> orders, int depth) {
+    if (depth == FULL_ORDER_BOOK || orders.size() <= depth) {
+      return orders;
+    }
+    return orders.subList(0, depth);
+  }
+
+  /**
+   * Creates the fixed-point scales of a market from the exchange's pair precision config. Adapters
+   * that load a {@link PairPrecisionConfig} use this to implement {@link
+   * TradingApi#getFixedPointScale(String)}.
+   *
+   * @param pairPrecisionConfig the pair precision config, or null if it could not be loaded.
+   * @param marketId the id of the market.
+   * @return the fixed-point scales, or null if the market's precision is not known or too big.
+   */
+  static FixedPointScale createFixedPointScale(
+      PairPrecisionConfig pairPrecisionConfig, String marketId) {
+    if (pairPrecisionConfig == null) {
+      return null;
+    }
+    final int priceScale = pairPrecisionConfig.getPricePrecision(marketId);
+    final int quantityScale = pairPrecisionConfig.getVolumePrecision(marketId);
+    if (priceScale < 0
+        || priceScale > FixedPointScale.MAX_SCALE
+        || quantityScale < 0
+        || quantityScale > FixedPointScale.MAX_SCALE) {
+      return null;
+    }
+    return FixedPointScale.of(priceScale, quantityScale);
+  }
+
+  /**
+   * Checks if an open order returned by the exchange is for the market the orders were fetched for.
+   * Used by adapters whose exchange returns the open orders for every market in one response.
+   *
+   * @param marketId the id of the market, or null for all markets.
+   * @param orderMarketId the order's market id as returned by the exchange.
+   * @return true if the order should be returned.
+   */
+  static boolean isOrderForMarket(String marketId, String orderMarketId) {
+    return marketId == null || marketId.equalsIgnoreCase(orderMarketId);
+  }
+
   /**
    * Returns the decimal format symbols for using with BigDecimals with the exchanges. Specifically,
    * the decimal point symbol is set to a '.'
@@ -350,17 +1240,53 @@ abstract class AbstractExchangeAdapter {
     return decimalFormatSymbols;
   }
 
+  /**
+   * A nonce taken by {@link #leaseNonce(URL, String)}. Closing the lease lets the next request in.
+   */
+  static final class NonceLease implements AutoCloseable {
+
+    private final long nonce;
+    private final PriorityRequestDispatcher nonceGate;
+    private final RequestPriority priority;
+    private boolean closed;
+
+    private NonceLease(long nonce, PriorityRequestDispatcher nonceGate, RequestPriority priority) {
+      this.nonce = nonce;
+      this.nonceGate = nonceGate;
+      this.priority = priority;
+    }
+
+    long getNonce() {
+      return nonce;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        nonceGate.release(priority);
+      }
+    }
+  }
+
   /** Wrapper for holding Exchange HTTP response. */
   static class ExchangeHttpResponse {
 
     private final int statusCode;
     private final String reasonPhrase;
     private final String payload;
+    private final Object decodedPayload;
 
     ExchangeHttpResponse(int statusCode, String reasonPhrase, String payload) {
+      this(statusCode, reasonPhrase, payload, null);
+    }
+
+    ExchangeHttpResponse(
+        int statusCode, String reasonPhrase, String payload, Object decodedPayload) {
       this.statusCode = statusCode;
       this.reasonPhrase = reasonPhrase;
       this.payload = payload;
+      this.decodedPayload = decodedPayload;
     }
 
     String getReasonPhrase() {
@@ -371,16 +1297,37 @@ abstract class AbstractExchangeAdapter {
       return statusCode;
     }
 
+    /*
+     * Null if the payload was decoded as it was streamed in - use getPayloadAs.
+     */
     String getPayload() {
       return payload;
     }
 
+    /**
+     * Returns the payload decoded to the given type. If the payload was decoded as it was streamed
+     * in, the decoded payload is returned; else the String payload is decoded.
+     *
+     * @param gson the Gson instance to decode the String payload with.
+     * @param payloadType the type to decode the payload to.
+     * @param <T> the payload type.
+     * @return the decoded payload.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getPayloadAs(Gson gson, Type payloadType) {
+      if (decodedPayload != null) {
+        return (T) decodedPayload;
+      }
+      return gson.fromJson(payload, payloadType);
+    }
+
     @Override
     public String toString() {
       return MoreObjects.toStringHelper(this)
           .add("statusCode", statusCode)
           .add("reasonPhrase", reasonPhrase)
           .add("payload", payload)
+          .add("decodedPayload", decodedPayload)
           .toString();
     }
   }
@@ -389,52 +1336,132 @@ abstract class AbstractExchangeAdapter {
   //  Util methods
   // --------------------------------------------------------------------------
 
-  private void setRequestHeaders(
-      HttpURLConnection exchangeConnection, Map<String, String> requestHeaders) {
-    // Er, perhaps, we need to be a bit more stealth here...
-    // This was needed for some exchanges back in the day!
-    exchangeConnection.setRequestProperty(
-        "User-Agent",
-        "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) "
-            + "Chrome/74.0.3729.169 Safari/537.36");
-
-    if (requestHeaders != null) {
-      for (final Map.Entry<String, String> requestHeader : requestHeaders.entrySet()) {
-        exchangeConnection.setRequestProperty(requestHeader.getKey(), requestHeader.getValue());
-        LOG.debug(() -> "Setting following request header: " + requestHeader);
+  /*
+   * Gson wraps any IO errors whilst reading the stream - unwrap them so network failures are still
+   * mapped to ExchangeNetworkException.
+   */
+  private static HttpTransport.BodyDecoder<Object> createJsonDecoder(Gson gson, Type payloadType) {
+    return body -> {
+      try (JsonReader jsonReader =
+          new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+        return gson.fromJson(jsonReader, payloadType);
+      } catch (JsonParseException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw e;
+      }
+    };
+  }
+
+  /*
+   * The key spec was already validated by initRequestSigner, so this should never fail.
+   */
+  private static RequestSigner createRequestSigner(SecretKeySpec keySpec) {
+    try {
+      return RequestSigner.create(keySpec);
+    } catch (GeneralSecurityException e) {
+      final String errorMsg = "Failed to create MAC for " + keySpec.getAlgorithm();
+      LOG.error(errorMsg, e);
+      throw new IllegalStateException(errorMsg, e);
+    }
+  }
+
+  /*
+   * Response times and adaptive timeouts are tracked per endpoint. The query is left out, so on
+   * exchanges that pass the market as a param, every market's order book shares one endpoint.
+   */
+  private static String getEndpoint(URL url) {
+    return url.getProtocol() + "://" + url.getAuthority() + url.getPath();
+  }
+
+  private Duration getReadTimeout(RequestPriority priority, String endpoint) {
+    final RequestTimeouts timeouts = requestTimeouts;
+    return timeouts == null
+        ? Duration.ofSeconds(connectionTimeout)
+        : timeouts.getReadTimeout(priority, endpoint);
+  }
+
+  private void recordLatency(String endpoint, Duration latency) {
+    final RequestTimeouts timeouts = requestTimeouts;
+    if (timeouts != null) {
+      timeouts.recordLatency(endpoint, latency);
+    }
+  }
+
+  /*
+   * Waits for the dispatcher to give the call a slot. Higher priority calls are given slots first.
+   */
+  private static void acquireDispatchSlot(
+      PriorityRequestDispatcher dispatcher, RequestPriority priority, URL url, Duration maxWait)
+      throws TradingApiException, ExchangeNetworkException {
+    try {
+      if (!dispatcher.acquire(priority, maxWait)) {
+        final String errorMsg =
+            "Timed out waiting to send " + priority + " request to Exchange. URL: " + url;
+        LOG.error(errorMsg);
+        throw new ExchangeNetworkException(errorMsg);
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      final String errorMsg = "Interrupted whilst waiting to send request. URL: " + url;
+      LOG.error(errorMsg, e);
+      throw new TradingApiException(errorMsg, e);
     }
   }
 
+  /*
+   * Holds the call back until the rate limiter has permits for it. The limiter serves waiting calls
+   * in priority order, so an order cancel is not held back by the market data reads already queued
+   * for permits. If the call would have to wait longer than the connection timeout, it is failed
+   * straight away so the bot can retry next cycle.
+   */
+  private void acquireRateLimitPermits(URL url, RequestPriority priority, Duration maxWait)
+      throws TradingApiException, ExchangeNetworkException {
+    final RateLimiter limiter = rateLimiter;
+    if (limiter == null) {
+      return;
+    }
+
+    final int cost = getRateLimitCost(url);
+    final long startNanos = System.nanoTime();
+    try {
+      if (!limiter.tryAcquire(cost, priority, maxWait)) {
+        final String errorMsg =
+            RATE_LIMIT_EXCEEDED_ERROR_MSG + " URL: " + url + " Metrics: " + limiter.getMetrics();
+        LOG.warn(errorMsg);
+        throw new ExchangeNetworkException(errorMsg);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      final String errorMsg = "Interrupted whilst waiting for rate limiter. URL: " + url;
+      LOG.error(errorMsg, e);
+      throw new TradingApiException(errorMsg, e);
+    }
+
+    final long waitMillis = (System.nanoTime() - startNanos) / 1_000_000;
+    if (waitMillis > 0) {
+      LOG.debug(
+          () ->
+              "Rate limiter held back call for "
+                  + waitMillis
+                  + "ms. URL: "
+                  + url
+                  + " Metrics: "
+                  + limiter.getMetrics());
+    }
+  }
+
+  /*
+   * HttpClient wraps some of the low level exceptions, so we check the causes too.
+   */
   private boolean errorMessageIsRecoverableNetworkError(Exception e) {
-    return e.getMessage() != null && nonFatalNetworkErrorMessages.contains(e.getMessage());
-  }
-
-  private boolean errorCodeIsRecoverableNetworkError(HttpURLConnection exchangeConnection)
-      throws IOException {
-    return (exchangeConnection != null
-        && nonFatalNetworkErrorCodes.contains(exchangeConnection.getResponseCode()));
-  }
-
-  private String extractIoErrorMessage(HttpURLConnection exchangeConnection) throws IOException {
-    String errorMsg = UNEXPECTED_IO_ERROR_MSG;
-    // Check for any clue in the response...
-    if (exchangeConnection != null) {
-      final InputStream rawErrorStream = exchangeConnection.getErrorStream();
-      if (rawErrorStream != null) {
-        try (final BufferedReader errorInputStream =
-            new BufferedReader(new InputStreamReader(rawErrorStream, StandardCharsets.UTF_8))) {
-
-          final StringBuilder errorResponse = new StringBuilder();
-          String errorLine;
-          while ((errorLine = errorInputStream.readLine()) != null) {
-            errorResponse.append(errorLine);
-          }
-          errorMsg += " ErrorStream Response: " + errorResponse;
-        }
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t.getMessage() != null && nonFatalNetworkErrorMessages.contains(t.getMessage())) {
+        return true;
       }
     }
-    return errorMsg;
+    return false;
   }
 
   private static String assertItemExists(String itemName, String itemValue) {
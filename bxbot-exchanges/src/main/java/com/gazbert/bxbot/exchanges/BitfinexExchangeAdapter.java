@@ -26,11 +26,15 @@ package com.gazbert.bxbot.exchanges;
 import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
+import com.gazbert.bxbot.exchanges.streaming.LocalOrderBook;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataSink;
+import com.gazbert.bxbot.exchanges.streaming.StreamProtocol;
 import com.gazbert.bxbot.exchanges.trading.api.impl.BalanceInfoImpl;
+import com.gazbert.bxbot.exchanges.trading.api.impl.LazyTickerImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.OpenOrderImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.TickerImpl;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrder;
@@ -43,10 +47,17 @@ import com.gazbert.bxbot.trading.api.TradingApiException;
 import com.google.common.base.MoreObjects;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
@@ -58,10 +69,10 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import javax.crypto.Mac;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.crypto.spec.SecretKeySpec;
-import javax.xml.bind.DatatypeConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -74,7 +85,9 @@ import org.apache.logging.log4j.Logger;
  * point of calling the {@link #sendPublicRequestToExchange(String)} and {@link
  * #sendAuthenticatedRequestToExchange(String, Map)} methods. Use it at our own risk!</strong>
  *
- * <p>The adapter uses v1 of the Bitfinex API - it is limited to 60 API calls per minute. It only
+ * <p>The adapter uses v1 of the Bitfinex API - it is limited to 60 API calls per minute. If the
+ * stream-market-data network config item is set, the order book and ticker are instead streamed
+ * from the v2 WebSocket feed and read locally, with the REST API as the fallback. It only
  * supports 'exchange' accounts; it does <em>not</em> support 'trading' (margin trading) accounts or
  * 'deposit' (liquidity SWAPs) accounts. Furthermore, the adapter does not support sending 'hidden'
  * orders.
@@ -130,10 +143,6 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
   private String key = "";
   private String secret = "";
 
-  private Mac mac;
-  private boolean initializedMacAuthentication = false;
-  private long nonce = 0;
-
   private Gson gson;
 
   @Override
@@ -142,9 +151,11 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
     setAuthenticationConfig(config);
     setNetworkConfig(config);
 
-    nonce = System.currentTimeMillis() / 1000;
+    initNonce(System.currentTimeMillis() / 1000);
     initSecureMessageLayer();
     initGson();
+    preWarmConnections(PUBLIC_API_BASE_URL, AUTHENTICATED_API_URL);
+    startMarketDataStream(new BitfinexStreamProtocol(BitfinexStreamProtocol.STREAM_URI));
   }
 
   // --------------------------------------------------------------------------
@@ -155,36 +166,39 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public MarketOrderBook getMarketOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getMarketOrderBook(marketId, FULL_ORDER_BOOK);
+  }
+
+  /*
+   * Uses the Bitfinex limit_bids and limit_asks params.
+   */
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    assertValidOrderBookDepth(depth);
+    return getMarketOrderBook(marketId, depth);
+  }
+
+  private MarketOrderBook getMarketOrderBook(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    final MarketOrderBook streamedOrderBook = getStreamedMarketOrders(marketId, depth);
+    if (streamedOrderBook != null) {
+      return streamedOrderBook;
+    }
     try {
-      final ExchangeHttpResponse response = sendPublicRequestToExchange("book/" + marketId);
+      final String depthParams =
+          depth == FULL_ORDER_BOOK ? "" : "?limit_bids=" + depth + "&limit_asks=" + depth;
+      final ExchangeHttpResponse response =
+          sendPublicRequestToExchange("book/" + marketId + depthParams);
       LOG.debug(() -> "Market Orders response: " + response);
 
       final BitfinexOrderBook orderBook =
           gson.fromJson(response.getPayload(), BitfinexOrderBook.class);
 
-      final List<MarketOrder> buyOrders = new ArrayList<>();
-      for (BitfinexMarketOrder bitfinexBuyOrder : orderBook.bids) {
-        final MarketOrder buyOrder =
-            new MarketOrderImpl(
-                OrderType.BUY,
-                bitfinexBuyOrder.price,
-                bitfinexBuyOrder.amount,
-                bitfinexBuyOrder.price.multiply(bitfinexBuyOrder.amount));
-        buyOrders.add(buyOrder);
-      }
-
-      final List<MarketOrder> sellOrders = new ArrayList<>();
-      for (BitfinexMarketOrder bitfinexSellOrder : orderBook.asks) {
-        final MarketOrder sellOrder =
-            new MarketOrderImpl(
-                OrderType.SELL,
-                bitfinexSellOrder.price,
-                bitfinexSellOrder.amount,
-                bitfinexSellOrder.price.multiply(bitfinexSellOrder.amount));
-        sellOrders.add(sellOrder);
-      }
-
-      return new MarketOrderBookImpl(marketId, sellOrders, buyOrders);
+      return new MarketOrderBookImpl(
+          marketId,
+          limitOrderBookDepth(orderBook.asks, depth),
+          limitOrderBookDepth(orderBook.bids, depth));
 
     } catch (ExchangeNetworkException | TradingApiException e) {
       throw e;
@@ -198,6 +212,27 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public List<OpenOrder> getYourOpenOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getOpenOrders(marketId);
+  }
+
+  /*
+   * The Bitfinex orders endpoint returns the open orders for every market.
+   */
+  @Override
+  public boolean isAllOpenOrdersSupported() {
+    return true;
+  }
+
+  @Override
+  public List<OpenOrder> getAllOpenOrders() throws TradingApiException, ExchangeNetworkException {
+    return getOpenOrders(null);
+  }
+
+  /*
+   * Fetches the open orders for the given market, or for every market if marketId is null.
+   */
+  private List<OpenOrder> getOpenOrders(String marketId)
+      throws TradingApiException, ExchangeNetworkException {
     try {
       final ExchangeHttpResponse response = sendAuthenticatedRequestToExchange("orders", null);
       LOG.debug(() -> "Open Orders response: " + response);
@@ -208,7 +243,7 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
       final List<OpenOrder> ordersToReturn = new ArrayList<>();
       for (final BitfinexOpenOrder bitfinexOpenOrder : bitfinexOpenOrders) {
 
-        if (!marketId.equalsIgnoreCase(bitfinexOpenOrder.symbol)) {
+        if (!isOrderForMarket(marketId, bitfinexOpenOrder.symbol)) {
           continue;
         }
 
@@ -234,7 +269,7 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
                 Date.from(
                     Instant.ofEpochMilli(
                         Integer.parseInt(bitfinexOpenOrder.timestamp.split("\\.")[0]))),
-                marketId,
+                marketId == null ? bitfinexOpenOrder.symbol : marketId,
                 orderType,
                 bitfinexOpenOrder.price,
                 bitfinexOpenOrder.remainingAmount,
@@ -367,7 +402,7 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
       LOG.debug(() -> "Latest Market Price response: " + response);
 
       final BitfinexTicker ticker = gson.fromJson(response.getPayload(), BitfinexTicker.class);
-      return ticker.lastPrice;
+      return new BigDecimal(ticker.lastPrice);
 
     } catch (ExchangeNetworkException | TradingApiException e) {
       throw e;
@@ -475,12 +510,16 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
 
   @Override
   public Ticker getTicker(String marketId) throws TradingApiException, ExchangeNetworkException {
+    final Ticker streamedTicker = getStreamedTicker(marketId);
+    if (streamedTicker != null) {
+      return streamedTicker;
+    }
     try {
       final ExchangeHttpResponse response = sendPublicRequestToExchange("pubticker/" + marketId);
       LOG.debug(() -> "Latest Market Price response: " + response);
 
       final BitfinexTicker ticker = gson.fromJson(response.getPayload(), BitfinexTicker.class);
-      return new TickerImpl(
+      return new LazyTickerImpl(
           ticker.lastPrice,
           ticker.bid,
           ticker.ask,
@@ -508,11 +547,13 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
   //  See https://www.bitfinex.com/pages/api
   // --------------------------------------------------------------------------
 
-  /** GSON class for a market Order Book. */
+  /**
+   * GSON class for a market Order Book. Decoded by {@link BitfinexOrderBookTypeAdapter}.
+   */
   private static class BitfinexOrderBook {
 
-    BitfinexMarketOrder[] bids;
-    BitfinexMarketOrder[] asks;
+    List<MarketOrder> bids;
+    List<MarketOrder> asks;
 
     @Override
     public String toString() {
@@ -520,62 +561,31 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class for a Market Order. */
-  private static class BitfinexMarketOrder {
-
-    BigDecimal price;
-    BigDecimal amount;
-    String timestamp;
-
-    @Override
-    public String toString() {
-      return MoreObjects.toStringHelper(this)
-          .add(PRICE, price)
-          .add(AMOUNT, amount)
-          .add(TIMESTAMP, timestamp)
-          .toString();
-    }
-  }
-
   /** GSON class for receiving your open orders in 'orders' API call response. */
   private static class BitfinexOpenOrders extends ArrayList<BitfinexOpenOrder> {
     private static final long serialVersionUID = 5516523641153401953L;
   }
 
-  /** GSON class for mapping returned order from 'orders' API call response. */
+  /**
+   * GSON class for mapping returned order from 'orders' API call response. Decoded by {@link
+   * BitfinexOpenOrderTypeAdapter}.
+   */
   private static class BitfinexOpenOrder {
 
     long id;
     String symbol;
     String exchange;
     BigDecimal price;
-
-    @SerializedName("avg_execution_price")
     BigDecimal avgExecutionPrice;
-
     String side; // e.g. "sell"
     String type; // e.g. "exchange limit"
     String timestamp;
-
-    @SerializedName("is_live")
     boolean isLive;
-
-    @SerializedName("is_cancelled")
     boolean isCancelled;
-
-    @SerializedName("is_hidden")
     boolean isHidden;
-
-    @SerializedName("was_forced")
     boolean wasForced;
-
-    @SerializedName("original_amount")
     BigDecimal originalAmount;
-
-    @SerializedName("remaining_amount")
     BigDecimal remainingAmount;
-
-    @SerializedName("executed_amount")
     BigDecimal executedAmount;
 
     @Override
@@ -600,19 +610,21 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class for a Bitfinex 'pubticker' API call response. */
+  /**
+   * GSON class for a Bitfinex 'pubticker' API call response. Decoded by {@link
+   * BitfinexTickerTypeAdapter}.
+   *
+   * <p>The prices and volumes are kept as the raw tokens - see {@link LazyTickerImpl}.
+   */
   private static class BitfinexTicker {
 
-    BigDecimal mid;
-    BigDecimal bid;
-    BigDecimal ask;
-
-    @SerializedName("last_price")
-    BigDecimal lastPrice;
-
-    BigDecimal low;
-    BigDecimal high;
-    BigDecimal volume;
+    String mid;
+    String bid;
+    String ask;
+    String lastPrice;
+    String low;
+    String high;
+    String volume;
     String timestamp;
 
     @Override
@@ -889,6 +901,355 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
+  // --------------------------------------------------------------------------
+  //  GSON type adapters for the hot responses - see ResponseTypeAdapter.
+  // --------------------------------------------------------------------------
+
+  /** Decodes a Bitfinex order book straight into MarketOrders. */
+  private static class BitfinexOrderBookTypeAdapter
+      extends ResponseTypeAdapter<BitfinexOrderBook> {
+
+    @Override
+    BitfinexOrderBook readResponse(JsonReader in) throws IOException {
+      final BitfinexOrderBook orderBook = new BitfinexOrderBook();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "bids":
+            orderBook.bids = readPriceLevelObjects(in, OrderType.BUY);
+            break;
+          case "asks":
+            orderBook.asks = readPriceLevelObjects(in, OrderType.SELL);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return orderBook;
+    }
+  }
+
+  /** Decodes a Bitfinex open order. */
+  private static class BitfinexOpenOrderTypeAdapter
+      extends ResponseTypeAdapter<BitfinexOpenOrder> {
+
+    @Override
+    BitfinexOpenOrder readResponse(JsonReader in) throws IOException {
+      final BitfinexOpenOrder openOrder = new BitfinexOpenOrder();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "id":
+            openOrder.id = nextLong(in);
+            break;
+          case "symbol":
+            openOrder.symbol = nextString(in);
+            break;
+          case "exchange":
+            openOrder.exchange = nextString(in);
+            break;
+          case "price":
+            openOrder.price = nextBigDecimal(in);
+            break;
+          case "avg_execution_price":
+            openOrder.avgExecutionPrice = nextBigDecimal(in);
+            break;
+          case "side":
+            openOrder.side = nextString(in);
+            break;
+          case "type":
+            openOrder.type = nextString(in);
+            break;
+          case "timestamp":
+            openOrder.timestamp = nextString(in);
+            break;
+          case "is_live":
+            openOrder.isLive = nextBoolean(in);
+            break;
+          case "is_cancelled":
+            openOrder.isCancelled = nextBoolean(in);
+            break;
+          case "is_hidden":
+            openOrder.isHidden = nextBoolean(in);
+            break;
+          case "was_forced":
+            openOrder.wasForced = nextBoolean(in);
+            break;
+          case "original_amount":
+            openOrder.originalAmount = nextBigDecimal(in);
+            break;
+          case "remaining_amount":
+            openOrder.remainingAmount = nextBigDecimal(in);
+            break;
+          case "executed_amount":
+            openOrder.executedAmount = nextBigDecimal(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return openOrder;
+    }
+  }
+
+  /** Decodes a Bitfinex ticker. */
+  private static class BitfinexTickerTypeAdapter extends ResponseTypeAdapter<BitfinexTicker> {
+
+    @Override
+    BitfinexTicker readResponse(JsonReader in) throws IOException {
+      final BitfinexTicker ticker = new BitfinexTicker();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "mid":
+            ticker.mid = nextString(in);
+            break;
+          case "bid":
+            ticker.bid = nextString(in);
+            break;
+          case "ask":
+            ticker.ask = nextString(in);
+            break;
+          case "last_price":
+            ticker.lastPrice = nextString(in);
+            break;
+          case "low":
+            ticker.low = nextString(in);
+            break;
+          case "high":
+            ticker.high = nextString(in);
+            break;
+          case "volume":
+            ticker.volume = nextString(in);
+            break;
+          case "timestamp":
+            ticker.timestamp = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return ticker;
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  //  WebSocket market data feed - see MarketDataStream.
+  //  See https://docs.bitfinex.com/docs/ws-general
+  // --------------------------------------------------------------------------
+
+  /**
+   * Decodes the Bitfinex v2 public WebSocket feed: the raw price level (P0) book and the ticker of
+   * each market.
+   *
+   * <p>Sequence numbers are switched on when the feed connects. Bitfinex numbers the messages of
+   * the whole connection, not of each channel, so a gap means messages were lost on the
+   * connection: it is reconnected and every book is snapshot again.
+   */
+  static final class BitfinexStreamProtocol implements StreamProtocol {
+
+    static final URI STREAM_URI = URI.create("wss://api-pub.bitfinex.com/ws/2");
+
+    private static final int SEQUENCE_ALL_FLAG = 65536;
+    private static final int RECONNECT_INFO_CODE = 20051;
+    private static final int MAINTENANCE_ENDED_INFO_CODE = 20061;
+    private static final String BOOK_CHANNEL = "book";
+    private static final String TICKER_CHANNEL = "ticker";
+    private static final String BOOK_LENGTH = "100";
+
+    private final URI uri;
+
+    // Bitfinex symbol -> market id, for every market ever subscribed to
+    private final Map<String, String> markets = new ConcurrentHashMap<>();
+
+    // Per connection state - reset when the feed connects
+    private final Map<Integer, String> bookChannels = new ConcurrentHashMap<>();
+    private final Map<Integer, String> tickerChannels = new ConcurrentHashMap<>();
+    private final Map<String, Integer> bookChannelIds = new ConcurrentHashMap<>();
+    private long lastSequence;
+
+    BitfinexStreamProtocol(URI uri) {
+      this.uri = uri;
+    }
+
+    @Override
+    public URI getUri() {
+      return uri;
+    }
+
+    @Override
+    public List<String> onConnected() {
+      bookChannels.clear();
+      tickerChannels.clear();
+      bookChannelIds.clear();
+      lastSequence = MarketDataSink.NO_SEQUENCE;
+      return List.of("{\"event\":\"conf\",\"flags\":" + SEQUENCE_ALL_FLAG + "}");
+    }
+
+    @Override
+    public List<String> createSubscribeMessages(String marketId) {
+      final String symbol = toSymbol(marketId);
+      markets.put(symbol, marketId);
+      return List.of(createBookSubscribeMessage(symbol), createTickerSubscribeMessage(symbol));
+    }
+
+    /*
+     * A Bitfinex book channel only sends a snapshot when it is subscribed to, so it is
+     * unsubscribed from first.
+     */
+    @Override
+    public List<String> createResyncMessages(String marketId) {
+      final String symbol = toSymbol(marketId);
+      final Integer chanId = bookChannelIds.remove(marketId);
+      if (chanId == null) {
+        return List.of(createBookSubscribeMessage(symbol));
+      }
+      bookChannels.remove(chanId);
+      return List.of(
+          "{\"event\":\"unsubscribe\",\"chanId\":" + chanId + "}",
+          createBookSubscribeMessage(symbol));
+    }
+
+    @Override
+    public void decode(String message, MarketDataSink sink) {
+      final JsonElement json = JsonParser.parseString(message);
+      if (json.isJsonObject()) {
+        decodeEvent(json.getAsJsonObject(), sink);
+      } else {
+        decodeChannelMessage(json.getAsJsonArray(), sink);
+      }
+    }
+
+    private void decodeEvent(JsonObject event, MarketDataSink sink) {
+      switch (event.get("event").getAsString()) {
+        case "subscribed":
+          final int chanId = event.get("chanId").getAsInt();
+          final String marketId = markets.get(event.get("symbol").getAsString());
+          if (marketId == null) {
+            return;
+          }
+          if (BOOK_CHANNEL.equals(event.get("channel").getAsString())) {
+            bookChannels.put(chanId, marketId);
+            bookChannelIds.put(marketId, chanId);
+          } else {
+            tickerChannels.put(chanId, marketId);
+          }
+          break;
+        case "info":
+          final JsonElement code = event.get("code");
+          if (code != null
+              && (code.getAsInt() == RECONNECT_INFO_CODE
+                  || code.getAsInt() == MAINTENANCE_ENDED_INFO_CODE)) {
+            sink.reconnect("Bitfinex info event " + code.getAsInt());
+          }
+          break;
+        case "error":
+          LOG.warn(() -> "Bitfinex market data stream error: " + event);
+          break;
+        default:
+          // conf and unsubscribed acks
+      }
+    }
+
+    /*
+     * Channel messages are [CHANNEL_ID, DATA, SEQUENCE]. The data of a heartbeat is "hb".
+     */
+    private void decodeChannelMessage(JsonArray message, MarketDataSink sink) {
+      if (message.size() > 2) {
+        final long sequence = message.get(2).getAsLong();
+        if (lastSequence != MarketDataSink.NO_SEQUENCE && sequence != lastSequence + 1) {
+          sink.reconnect("Sequence gap: expected " + (lastSequence + 1) + " but got " + sequence);
+          return;
+        }
+        lastSequence = sequence;
+      }
+
+      final JsonElement data = message.get(1);
+      if (!data.isJsonArray()) {
+        return; // heartbeat
+      }
+      final int chanId = message.get(0).getAsInt();
+      final String bookMarketId = bookChannels.get(chanId);
+      if (bookMarketId != null) {
+        decodeBook(bookMarketId, data.getAsJsonArray(), sink);
+        return;
+      }
+      final String tickerMarketId = tickerChannels.get(chanId);
+      if (tickerMarketId != null) {
+        sink.onTicker(tickerMarketId, decodeTicker(data.getAsJsonArray()));
+      }
+    }
+
+    /*
+     * A snapshot is a list of [PRICE, COUNT, AMOUNT] levels, an update is a single level. Bids
+     * have a positive amount, asks a negative one. A count of 0 removes the level.
+     */
+    private static void decodeBook(String marketId, JsonArray data, MarketDataSink sink) {
+      if (data.size() > 0 && data.get(0).isJsonArray()) {
+        sink.onSnapshot(
+            marketId,
+            MarketDataSink.NO_SEQUENCE,
+            book -> data.forEach(level -> applyLevel(book, level.getAsJsonArray())));
+      } else {
+        sink.onUpdate(marketId, MarketDataSink.NO_SEQUENCE, book -> applyLevel(book, data));
+      }
+    }
+
+    private static void applyLevel(LocalOrderBook book, JsonArray level) {
+      final BigDecimal price = level.get(0).getAsBigDecimal();
+      final BigDecimal amount = level.get(2).getAsBigDecimal();
+      final OrderType type = amount.signum() > 0 ? OrderType.BUY : OrderType.SELL;
+      if (level.get(1).getAsInt() == 0) {
+        book.removeLevel(type, price);
+      } else {
+        book.setLevel(type, price, amount.abs());
+      }
+    }
+
+    /*
+     * [BID, BID_SIZE, ASK, ASK_SIZE, DAILY_CHANGE, DAILY_CHANGE_RELATIVE, LAST_PRICE, VOLUME, HIGH,
+     * LOW]
+     */
+    private static Ticker decodeTicker(JsonArray data) {
+      return new LazyTickerImpl(
+          data.get(6).getAsString(),
+          data.get(0).getAsString(),
+          data.get(2).getAsString(),
+          data.get(9).getAsString(),
+          data.get(8).getAsString(),
+          null, // open not supplied by Bitfinex
+          data.get(7).getAsString(),
+          null, // vwap not supplied by Bitfinex
+          // same units as the REST ticker
+          Instant.now().getEpochSecond());
+    }
+
+    private static String toSymbol(String marketId) {
+      return "t" + marketId.toUpperCase(Locale.ROOT);
+    }
+
+    private static String createBookSubscribeMessage(String symbol) {
+      return "{\"event\":\"subscribe\",\"channel\":\""
+          + BOOK_CHANNEL
+          + "\",\"symbol\":\""
+          + symbol
+          + "\",\"prec\":\"P0\",\"len\":\""
+          + BOOK_LENGTH
+          + "\"}";
+    }
+
+    private static String createTickerSubscribeMessage(String symbol) {
+      return "{\"event\":\"subscribe\",\"channel\":\""
+          + TICKER_CHANNEL
+          + "\",\"symbol\":\""
+          + symbol
+          + "\"}";
+    }
+  }
+
   // --------------------------------------------------------------------------
   //  Transport layer methods
   // --------------------------------------------------------------------------
@@ -936,11 +1297,8 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
       String apiMethod, Map<String, Object> params)
       throws ExchangeNetworkException, TradingApiException {
 
-    if (!initializedMacAuthentication) {
-      final String errorMsg = "MAC Message security layer has not been initialized.";
-      LOG.error(errorMsg);
-      throw new IllegalStateException(errorMsg);
-    }
+    // fail fast if the MAC message security layer has not been initialized
+    final RequestSigner requestSigner = getRequestSigner();
 
     try {
       if (params == null) {
@@ -948,42 +1306,42 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
         params = createRequestParamMap();
       }
 
-      // nonce is required by Bitfinex in every request
-      params.put("nonce", Long.toString(nonce));
-      nonce++; // increment ready for next call.
+      final URL url = new URL(AUTHENTICATED_API_URL + apiMethod);
+      try (NonceLease nonceLease = leaseNonce(url, "POST")) {
+        // nonce is required by Bitfinex in every request
+        params.put("nonce", Long.toString(nonceLease.getNonce()));
 
-      // must include the method in request param too
-      params.put("request", "/" + BITFINEX_API_VERSION + "/" + apiMethod);
+        // must include the method in request param too
+        params.put("request", "/" + BITFINEX_API_VERSION + "/" + apiMethod);
 
-      // JSON-ify the param dictionary
-      final String paramsInJson = gson.toJson(params);
+        // JSON-ify the param dictionary
+        final String paramsInJson = gson.toJson(params);
 
-      // Need to base64 encode payload as per API
-      final String base64payload =
-          DatatypeConverter.printBase64Binary(paramsInJson.getBytes(StandardCharsets.UTF_8));
+        // Need to base64 encode payload as per API
+        final String base64payload = requestSigner.encodeBase64(paramsInJson);
 
-      // Request headers required by Exchange
-      final Map<String, String> requestHeaders = createHeaderParamMap();
-      requestHeaders.put("X-BFX-APIKEY", key);
-      requestHeaders.put("X-BFX-PAYLOAD", base64payload);
+        // Request headers required by Exchange
+        final Map<String, String> requestHeaders = createHeaderParamMap();
+        requestHeaders.put("X-BFX-APIKEY", key);
+        requestHeaders.put("X-BFX-PAYLOAD", base64payload);
 
-      // Add the signature
-      mac.reset(); // force reset
-      mac.update(base64payload.getBytes(StandardCharsets.UTF_8));
+        // Add the signature
+        requestSigner.reset(); // force reset
+        requestSigner.update(base64payload);
 
-      /*
-       * signature = HMAC-SHA384(payload, api-secret) as hexadecimal - MUST be in LOWERCASE else
-       * signature fails. See:
-       * http://bitcoin.stackexchange.com/questions/25835/bitfinex-api-call-returns-400-bad-request
-       */
-      final String signature = toHex(mac.doFinal()).toLowerCase();
-      requestHeaders.put("X-BFX-SIGNATURE", signature);
+        /*
+         * signature = HMAC-SHA384(payload, api-secret) as hexadecimal - MUST be in LOWERCASE else
+         * signature fails. See:
+         * http://bitcoin.stackexchange.com/questions/25835/bitfinex-api-call-returns-400-bad-request
+         */
+        final String signature = requestSigner.signToHex(false);
+        requestHeaders.put("X-BFX-SIGNATURE", signature);
 
-      // payload is JSON for this exchange
-      requestHeaders.put("Content-Type", "application/json");
+        // payload is JSON for this exchange
+        requestHeaders.put("Content-Type", "application/json");
 
-      final URL url = new URL(AUTHENTICATED_API_URL + apiMethod);
-      return makeNetworkRequest(url, "POST", paramsInJson, requestHeaders);
+        return makeNetworkRequest(url, "POST", paramsInJson, requestHeaders);
+      }
 
     } catch (MalformedURLException e) {
       final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
@@ -992,12 +1350,18 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  private String toHex(byte[] byteArrayToConvert) {
-    final StringBuilder hexString = new StringBuilder();
-    for (final byte aByte : byteArrayToConvert) {
-      hexString.append(String.format("%02x", aByte & 0xff));
+  /*
+   * Order placement and cancellation are sent ahead of the market data and account reads.
+   */
+  @Override
+  RequestPriority getRequestPriority(URL url, String httpMethod) {
+    final String apiMethod = url.getPath().substring(("/" + BITFINEX_API_VERSION + "/").length());
+    if (apiMethod.equals("order/new") || apiMethod.equals("order/cancel")) {
+      return RequestPriority.TRADING;
+    } else if (apiMethod.startsWith("book/") || apiMethod.startsWith("pubticker/")) {
+      return RequestPriority.MARKET_DATA;
     }
-    return hexString.toString();
+    return RequestPriority.ACCOUNT;
   }
 
   /*
@@ -1010,9 +1374,7 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
     try {
       final SecretKeySpec keyspec =
           new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA384");
-      mac = Mac.getInstance("HmacSHA384");
-      mac.init(keyspec);
-      initializedMacAuthentication = true;
+      initRequestSigner(keyspec);
     } catch (NoSuchAlgorithmException e) {
       final String errorMsg = "Failed to setup MAC security. HINT: Is HMAC-SHA384 installed?";
       LOG.error(errorMsg, e);
@@ -1040,6 +1402,9 @@ public final class BitfinexExchangeAdapter extends AbstractExchangeAdapter
 
   private void initGson() {
     final GsonBuilder gsonBuilder = new GsonBuilder();
+    gsonBuilder.registerTypeAdapter(BitfinexOrderBook.class, new BitfinexOrderBookTypeAdapter());
+    gsonBuilder.registerTypeAdapter(BitfinexOpenOrder.class, new BitfinexOpenOrderTypeAdapter());
+    gsonBuilder.registerTypeAdapter(BitfinexTicker.class, new BitfinexTickerTypeAdapter());
     gson = gsonBuilder.create();
   }
 
@@ -26,11 +26,12 @@ package com.gazbert.bxbot.exchanges;
 import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
 import com.gazbert.bxbot.exchanges.trading.api.impl.BalanceInfoImpl;
+import com.gazbert.bxbot.exchanges.trading.api.impl.LazyTickerImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.OpenOrderImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.TickerImpl;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrder;
@@ -43,11 +44,10 @@ import com.gazbert.bxbot.trading.api.TradingApiException;
 import com.google.common.base.MoreObjects;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
@@ -60,14 +60,16 @@ import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -107,7 +109,8 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
 
   private static final Logger LOG = LogManager.getLogger();
 
-  private static final String API_BASE_URL = "https://www.bitstamp.net/api/v2/";
+  private static final String API_BASE_PATH = "/api/v2/";
+  private static final String API_BASE_URL = "https://www.bitstamp.net" + API_BASE_PATH;
 
   private static final String UNEXPECTED_ERROR_MSG =
       "Unexpected error has occurred in Bitstamp Exchange Adapter. ";
@@ -126,10 +129,6 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
   private String key = "";
   private String secret = "";
 
-  private Mac mac;
-  private long nonce = 0;
-  private boolean initializedMacAuthentication = false;
-
   private Gson gson;
 
   @Override
@@ -138,9 +137,10 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
     setAuthenticationConfig(config);
     setNetworkConfig(config);
 
-    nonce = System.currentTimeMillis() / 1000;
+    initNonce(System.currentTimeMillis() / 1000);
     initSecureMessageLayer();
     initGson();
+    preWarmConnections(API_BASE_URL);
   }
 
   // --------------------------------------------------------------------------
@@ -151,38 +151,34 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
   @Override
   public MarketOrderBook getMarketOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getMarketOrderBook(marketId, FULL_ORDER_BOOK);
+  }
+
+  /*
+   * Bitstamp has no depth param, so the full order book is fetched and truncated.
+   */
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    assertValidOrderBookDepth(depth);
+    return getMarketOrderBook(marketId, depth);
+  }
+
+  private MarketOrderBook getMarketOrderBook(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
     try {
-      final ExchangeHttpResponse response = sendPublicRequestToExchange("order_book/" + marketId);
+      // Order books can be big - decode it as it streams in.
+      final ExchangeHttpResponse response =
+          sendPublicStreamingRequestToExchange("order_book/" + marketId, BitstampOrderBook.class);
       LOG.debug(() -> "Market Orders response: " + response);
 
       final BitstampOrderBook bitstampOrderBook =
-          gson.fromJson(response.getPayload(), BitstampOrderBook.class);
-
-      final List<MarketOrder> buyOrders = new ArrayList<>();
-      final List<List<BigDecimal>> bitstampBuyOrders = bitstampOrderBook.bids;
-      for (final List<BigDecimal> order : bitstampBuyOrders) {
-        final MarketOrder buyOrder =
-            new MarketOrderImpl(
-                OrderType.BUY,
-                order.get(0), // price
-                order.get(1), // quantity
-                order.get(0).multiply(order.get(1)));
-        buyOrders.add(buyOrder);
-      }
-
-      final List<MarketOrder> sellOrders = new ArrayList<>();
-      final List<List<BigDecimal>> bitstampSellOrders = bitstampOrderBook.asks;
-      for (final List<BigDecimal> order : bitstampSellOrders) {
-        final MarketOrder sellOrder =
-            new MarketOrderImpl(
-                OrderType.SELL,
-                order.get(0), // price
-                order.get(1), // quantity
-                order.get(0).multiply(order.get(1)));
-        sellOrders.add(sellOrder);
-      }
+          response.getPayloadAs(gson, BitstampOrderBook.class);
 
-      return new MarketOrderBookImpl(marketId, sellOrders, buyOrders);
+      return new MarketOrderBookImpl(
+          marketId,
+          limitOrderBookDepth(bitstampOrderBook.asks, depth),
+          limitOrderBookDepth(bitstampOrderBook.bids, depth));
 
     } catch (ExchangeNetworkException | TradingApiException e) {
       throw e;
@@ -338,7 +334,7 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
 
       final BitstampTicker bitstampTicker =
           gson.fromJson(response.getPayload(), BitstampTicker.class);
-      return bitstampTicker.last;
+      return new BigDecimal(bitstampTicker.last);
 
     } catch (ExchangeNetworkException | TradingApiException e) {
       throw e;
@@ -472,7 +468,7 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
 
       final BitstampTicker bitstampTicker =
           gson.fromJson(response.getPayload(), BitstampTicker.class);
-      return new TickerImpl(
+      return new LazyTickerImpl(
           bitstampTicker.last,
           bitstampTicker.bid,
           bitstampTicker.ask,
@@ -621,12 +617,13 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
    * </pre>
    *
    * <p>Each is a list of open orders and each order is represented as a list of price and amount.
+   * Decoded by {@link BitstampOrderBookTypeAdapter}.
    */
   private static class BitstampOrderBook {
 
     long timestamp; // unix timestamp
-    List<List<BigDecimal>> bids;
-    List<List<BigDecimal>> asks;
+    List<MarketOrder> bids;
+    List<MarketOrder> asks;
 
     @Override
     public String toString() {
@@ -638,18 +635,22 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
     }
   }
 
-  /** GSON class for a Bitstamp ticker response. */
+  /**
+   * GSON class for a Bitstamp ticker response. Decoded by {@link BitstampTickerTypeAdapter}.
+   *
+   * <p>The prices and volume are kept as the raw tokens - see {@link LazyTickerImpl}.
+   */
   private static class BitstampTicker {
 
-    BigDecimal high;
-    BigDecimal last;
+    String high;
+    String last;
     Long timestamp;
-    BigDecimal bid;
-    BigDecimal vwap;
-    BigDecimal volume;
-    BigDecimal low;
-    BigDecimal ask;
-    BigDecimal open;
+    String bid;
+    String vwap;
+    String volume;
+    String low;
+    String ask;
+    String open;
 
     @Override
     public String toString() {
@@ -667,7 +668,10 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
     }
   }
 
-  /** GSON class for Bitstamp create order response. */
+  /**
+   * GSON class for Bitstamp create order and open orders responses. Decoded by {@link
+   * BitstampOrderResponseTypeAdapter}.
+   */
   private static class BitstampOrderResponse {
 
     long id;
@@ -707,40 +711,137 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
     }
   }
 
+  // --------------------------------------------------------------------------
+  //  GSON type adapters for the hot responses - see ResponseTypeAdapter.
+  // --------------------------------------------------------------------------
+
+  /** Decodes a Bitstamp order book straight into MarketOrders. */
+  private static class BitstampOrderBookTypeAdapter
+      extends ResponseTypeAdapter<BitstampOrderBook> {
+
+    @Override
+    BitstampOrderBook readResponse(JsonReader in) throws IOException {
+      final BitstampOrderBook orderBook = new BitstampOrderBook();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "timestamp":
+            orderBook.timestamp = nextLong(in);
+            break;
+          case "bids":
+            orderBook.bids = readPriceLevelArrays(in, OrderType.BUY);
+            break;
+          case "asks":
+            orderBook.asks = readPriceLevelArrays(in, OrderType.SELL);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return orderBook;
+    }
+  }
+
+  /** Decodes a Bitstamp ticker. */
+  private static class BitstampTickerTypeAdapter extends ResponseTypeAdapter<BitstampTicker> {
+
+    @Override
+    BitstampTicker readResponse(JsonReader in) throws IOException {
+      final BitstampTicker ticker = new BitstampTicker();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "high":
+            ticker.high = nextString(in);
+            break;
+          case "last":
+            ticker.last = nextString(in);
+            break;
+          case "timestamp":
+            final BigDecimal timestamp = nextBigDecimal(in);
+            ticker.timestamp = timestamp == null ? null : timestamp.longValueExact();
+            break;
+          case "bid":
+            ticker.bid = nextString(in);
+            break;
+          case "vwap":
+            ticker.vwap = nextString(in);
+            break;
+          case "volume":
+            ticker.volume = nextString(in);
+            break;
+          case "low":
+            ticker.low = nextString(in);
+            break;
+          case "ask":
+            ticker.ask = nextString(in);
+            break;
+          case "open":
+            ticker.open = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return ticker;
+    }
+  }
+
   /**
-   * Deserializer needed because stamp Date format is different in open_order response and causes
-   * default GSON parsing to barf.
-   *
-   * <pre>
-   * [main] 2014-05-25 20:51:31,074 ERROR BitstampExchangeAdapter  - Failed to parse a Bitstamp date
-   * java.text.ParseException: Unparseable date: "2014-05-25 19:50:32"
-   * at java.text.DateFormat.parse(DateFormat.java:357)
-   * at com.gazbert.bxbot.adapter.BitstampExchangeAdapter$DateDeserializer
-   *  .deserialize(BitstampExchangeAdapter.java:596)
-   * at com.gazbert.bxbot.adapter.BitstampExchangeAdapter$DateDeserializer
-   *  .deserialize(BitstampExchangeAdapter.java:1)
-   * at com.google.gson.TreeTypeAdapter.read(TreeTypeAdapter.java:58)
-   * </pre>
+   * Decodes a Bitstamp order. The datetime is in the exchange's own format, e.g. "2015-01-09
+   * 21:14:50", or "2015-08-31 18:51:35.682085" when an order is created; the fraction of a second
+   * is ignored.
    */
-  private static class BitstampDateDeserializer implements JsonDeserializer<Date> {
+  private static class BitstampOrderResponseTypeAdapter
+      extends ResponseTypeAdapter<BitstampOrderResponse> {
 
-    private final SimpleDateFormat bitstampDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    BitstampDateDeserializer() {
+    @Override
+    BitstampOrderResponse readResponse(JsonReader in) throws IOException {
+      final BitstampOrderResponse order = new BitstampOrderResponse();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "id":
+            order.id = nextLong(in);
+            break;
+          case "datetime":
+            order.datetime = parseDate(nextString(in));
+            break;
+          case "type":
+            order.type = (int) nextLong(in);
+            break;
+          case "price":
+            order.price = nextBigDecimal(in);
+            break;
+          case "amount":
+            order.amount = nextBigDecimal(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return order;
     }
 
-    public Date deserialize(JsonElement json, Type type, JsonDeserializationContext context) {
-      Date dateFromBitstamp = null;
-      if (json.isJsonPrimitive()) {
-        try {
-          dateFromBitstamp = bitstampDateFormat.parse(json.getAsString());
-        } catch (ParseException e) {
-          final String errorMsg = "DateDeserializer failed to parse a Bitstamp date!";
-          LOG.error(errorMsg, e);
-          throw new JsonParseException(errorMsg, e);
-        }
+    private static Date parseDate(String datetime) {
+      if (datetime == null) {
+        return null;
+      }
+      try {
+        final LocalDateTime localDateTime =
+            LocalDateTime.from(DATE_TIME_FORMAT.parse(datetime, new ParsePosition(0)));
+        return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+      } catch (DateTimeException e) {
+        final String errorMsg = "Failed to parse a Bitstamp date: " + datetime;
+        LOG.error(errorMsg, e);
+        throw new JsonParseException(errorMsg, e);
       }
-      return dateFromBitstamp;
     }
   }
 
@@ -761,15 +862,25 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
     }
   }
 
+  private ExchangeHttpResponse sendPublicStreamingRequestToExchange(
+      String apiMethod, Type payloadType) throws ExchangeNetworkException, TradingApiException {
+    try {
+      final URL url = new URL(API_BASE_URL + apiMethod);
+      return makeStreamingNetworkRequest(url, "GET", null, createHeaderParamMap(), payloadType);
+
+    } catch (MalformedURLException e) {
+      final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
+      LOG.error(errorMsg, e);
+      throw new TradingApiException(errorMsg, e);
+    }
+  }
+
   private ExchangeHttpResponse sendAuthenticatedRequestToExchange(
       String apiMethod, Map<String, String> params)
       throws ExchangeNetworkException, TradingApiException {
 
-    if (!initializedMacAuthentication) {
-      final String errorMsg = "MAC Message security layer has not been initialized.";
-      LOG.error(errorMsg);
-      throw new IllegalStateException(errorMsg);
-    }
+    // fail fast if the MAC message security layer has not been initialized
+    final RequestSigner requestSigner = getRequestSigner();
 
     try {
       // Setup common params for the API call
@@ -777,48 +888,47 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
         params = createRequestParamMap();
       }
 
-      params.put("key", key);
-      params.put("nonce", Long.toString(nonce));
-
-      // Create MAC message for signature
-      // message = nonce + client_id + api_key
-      mac.reset(); // force reset
-      mac.update(String.valueOf(nonce).getBytes(StandardCharsets.UTF_8));
-      mac.update(clientId.getBytes(StandardCharsets.UTF_8));
-      mac.update(key.getBytes(StandardCharsets.UTF_8));
-
-      /*
-       * Signature is a HMAC-SHA256 encoded message containing: nonce, client ID and API key.
-       * The HMAC-SHA256 code must be generated using a secret key that was generated with your
-       * API key.
-       * This code must be converted to it's hexadecimal representation (64 uppercase characters).
-       *
-       * signature = hmac.new(API_SECRET, msg=message, digestmod=hashlib.sha256).hexdigest().upper()
-       */
-      final String signature = toHex(mac.doFinal()).toUpperCase();
-      params.put("signature", signature);
-
-      // increment ready for next call...
-      nonce++;
-
-      // Build the URL with query param args in it
-      final StringBuilder postData = new StringBuilder();
-      for (final Map.Entry<String, String> param : params.entrySet()) {
-        if (postData.length() > 0) {
-          postData.append("&");
+      // MUST have the trailing slash else exchange barfs...
+      final URL url = new URL(API_BASE_URL + apiMethod + "/");
+      try (NonceLease nonceLease = leaseNonce(url, "POST")) {
+        final String nonce = Long.toString(nonceLease.getNonce());
+        params.put("key", key);
+        params.put("nonce", nonce);
+
+        // Create MAC message for signature
+        // message = nonce + client_id + api_key
+        requestSigner.reset(); // force reset
+        requestSigner.update(nonce).update(clientId).update(key);
+
+        /*
+         * Signature is a HMAC-SHA256 encoded message containing: nonce, client ID and API key.
+         * The HMAC-SHA256 code must be generated using a secret key that was generated with your
+         * API key.
+         * This code must be converted to it's hexadecimal representation (64 uppercase characters).
+         *
+         * signature =
+         *     hmac.new(API_SECRET, msg=message, digestmod=hashlib.sha256).hexdigest().upper()
+         */
+        final String signature = requestSigner.signToHex(true);
+        params.put("signature", signature);
+
+        // Build the URL with query param args in it
+        final StringBuilder postData = new StringBuilder();
+        for (final Map.Entry<String, String> param : params.entrySet()) {
+          if (postData.length() > 0) {
+            postData.append("&");
+          }
+          postData.append(param.getKey());
+          postData.append("=");
+          postData.append(URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
         }
-        postData.append(param.getKey());
-        postData.append("=");
-        postData.append(URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
-      }
 
-      // Request headers required by Exchange
-      final Map<String, String> requestHeaders = createHeaderParamMap();
-      requestHeaders.put("Content-Type", "application/x-www-form-urlencoded");
+        // Request headers required by Exchange
+        final Map<String, String> requestHeaders = createHeaderParamMap();
+        requestHeaders.put("Content-Type", "application/x-www-form-urlencoded");
 
-      // MUST have the trailing slash else exchange barfs...
-      final URL url = new URL(API_BASE_URL + apiMethod + "/");
-      return makeNetworkRequest(url, "POST", postData.toString(), requestHeaders);
+        return makeNetworkRequest(url, "POST", postData.toString(), requestHeaders);
+      }
 
     } catch (MalformedURLException e) {
       final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
@@ -827,12 +937,20 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
     }
   }
 
-  private String toHex(byte[] byteArrayToConvert) {
-    final StringBuilder hexString = new StringBuilder();
-    for (final byte aByte : byteArrayToConvert) {
-      hexString.append(String.format("%02x", aByte & 0xff));
+  /*
+   * Order placement and cancellation are sent ahead of the market data and account reads.
+   */
+  @Override
+  RequestPriority getRequestPriority(URL url, String httpMethod) {
+    final String apiMethod = url.getPath().substring(API_BASE_PATH.length());
+    if (apiMethod.startsWith("buy/")
+        || apiMethod.startsWith("sell/")
+        || apiMethod.startsWith("cancel_order")) {
+      return RequestPriority.TRADING;
+    } else if (apiMethod.startsWith("order_book/") || apiMethod.startsWith("ticker/")) {
+      return RequestPriority.MARKET_DATA;
     }
-    return hexString.toString();
+    return RequestPriority.ACCOUNT;
   }
 
   /*
@@ -845,9 +963,7 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
     try {
       final SecretKeySpec keyspec =
           new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-      mac = Mac.getInstance("HmacSHA256");
-      mac.init(keyspec);
-      initializedMacAuthentication = true;
+      initRequestSigner(keyspec);
     } catch (NoSuchAlgorithmException e) {
       final String errorMsg = "Failed to setup MAC security. HINT: Is HMAC-SHA256 installed?";
       LOG.error(errorMsg, e);
@@ -876,7 +992,10 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
 
   private void initGson() {
     final GsonBuilder gsonBuilder = new GsonBuilder();
-    gsonBuilder.registerTypeAdapter(Date.class, new BitstampDateDeserializer());
+    gsonBuilder.registerTypeAdapter(BitstampOrderBook.class, new BitstampOrderBookTypeAdapter());
+    gsonBuilder.registerTypeAdapter(BitstampTicker.class, new BitstampTickerTypeAdapter());
+    gsonBuilder.registerTypeAdapter(
+        BitstampOrderResponse.class, new BitstampOrderResponseTypeAdapter());
     gson = gsonBuilder.create();
   }
 
@@ -902,4 +1021,17 @@ public class BitstampExchangeAdapter extends AbstractExchangeAdapter implements
       throws TradingApiException, ExchangeNetworkException {
     return super.sendNetworkRequest(url, httpMethod, postData, requestHeaders);
   }
+
+  /*
+   * Hack for unit-testing streaming transport layer.
+   */
+  private ExchangeHttpResponse makeStreamingNetworkRequest(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Type payloadType)
+      throws TradingApiException, ExchangeNetworkException {
+    return super.sendNetworkRequest(url, httpMethod, postData, requestHeaders, gson, payloadType);
+  }
 }
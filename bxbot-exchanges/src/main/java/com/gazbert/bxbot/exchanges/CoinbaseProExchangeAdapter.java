@@ -28,13 +28,21 @@ import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
+import com.gazbert.bxbot.exchanges.streaming.LocalLevel3OrderBook;
+import com.gazbert.bxbot.exchanges.streaming.LocalOrderBook;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataSink;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataStream;
+import com.gazbert.bxbot.exchanges.streaming.StreamProtocol;
 import com.gazbert.bxbot.exchanges.trading.api.impl.BalanceInfoImpl;
+import com.gazbert.bxbot.exchanges.trading.api.impl.LazyTickerImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.OpenOrderImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.TickerImpl;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.Level3Order;
+import com.gazbert.bxbot.trading.api.Level3OrderBook;
 import com.gazbert.bxbot.trading.api.MarketOrder;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
 import com.gazbert.bxbot.trading.api.OpenOrder;
@@ -45,11 +53,18 @@ import com.gazbert.bxbot.trading.api.TradingApiException;
 import com.google.common.base.MoreObjects;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
@@ -63,7 +78,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.crypto.Mac;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.crypto.spec.SecretKeySpec;
 import javax.xml.bind.DatatypeConverter;
 import org.apache.logging.log4j.LogManager;
@@ -79,8 +95,14 @@ import org.apache.logging.log4j.Logger;
  * #sendAuthenticatedRequestToExchange(String, String, Map)} methods. Use it at our own risk!
  * </strong>
  *
- * <p>This adapter only supports the CoinbasePro <a href="https://docs.pro.coinbase.com/#api">REST
- * API</a>. The design of the API and documentation is excellent.
+ * <p>This adapter uses the CoinbasePro <a href="https://docs.pro.coinbase.com/#api">REST API</a>.
+ * The design of the API and documentation is excellent.
+ *
+ * <p>If the stream-market-data network config item is set, the order book and ticker are streamed
+ * from the CoinbasePro WebSocket feed instead and read locally, with the REST API as the fallback.
+ * The feed's full channel has every order placed on, changed on and removed from the book, so the
+ * adapter keeps the book order by order: {@link #getLevel3OrderBook(String)} gives strategies the
+ * queue at each price, e.g. how much is ahead of one of their orders.
  *
  * <p>The adapter currently only supports <a
  * href="https://docs.pro.coinbase.com/#place-a-new-order">Limit Orders</a>. It was originally
@@ -138,10 +160,8 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
   private String key = "";
   private String secret = "";
 
-  private Mac mac;
-  private boolean initializedMacAuthentication = false;
-
   private Gson gson;
+  private CoinbaseProStreamProtocol streamProtocol;
 
   @Override
   public void init(ExchangeConfig config) {
@@ -152,6 +172,11 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
 
     initSecureMessageLayer();
     initGson();
+    preWarmConnections(PUBLIC_API_BASE_URL, AUTHENTICATED_API_URL);
+    streamProtocol =
+        new CoinbaseProStreamProtocol(
+            CoinbaseProStreamProtocol.STREAM_URI, this::getLevel3OrderBookSnapshot);
+    startMarketDataStream(streamProtocol);
   }
 
   // --------------------------------------------------------------------------
@@ -332,9 +357,32 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public MarketOrderBook getMarketOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getMarketOrderBook(marketId, FULL_ORDER_BOOK);
+  }
+
+  /*
+   * Uses the Coinbase Pro level param: level 1 is the best bid and ask only; level 2 is the top 50
+   * bids and asks, which is truncated to the depth.
+   */
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    assertValidOrderBookDepth(depth);
+    return getMarketOrderBook(marketId, depth);
+  }
+
+  private MarketOrderBook getMarketOrderBook(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+
+    final MarketOrderBook streamedOrderBook = getStreamedMarketOrders(marketId, depth);
+    if (streamedOrderBook != null) {
+      return streamedOrderBook;
+    }
+
     try {
       final Map<String, String> params = createRequestParamMap();
-      params.put("level", "2"); //  "2" = Top 50 bids and asks (aggregated)
+      //  "1" = Only the best bid and ask, "2" = Top 50 bids and asks (aggregated)
+      params.put("level", depth == 1 ? "1" : "2");
 
       final ExchangeHttpResponse response =
           sendPublicRequestToExchange(PRODUCTS + marketId + "/book", params);
@@ -345,28 +393,10 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
         final CoinbaseProBookWrapper orderBook =
             gson.fromJson(response.getPayload(), CoinbaseProBookWrapper.class);
 
-        final List<MarketOrder> buyOrders = new ArrayList<>();
-        for (CoinbaseProMarketOrder coinbaseProBuyOrder : orderBook.bids) {
-          final MarketOrder buyOrder =
-              new MarketOrderImpl(
-                  OrderType.BUY,
-                  coinbaseProBuyOrder.get(0),
-                  coinbaseProBuyOrder.get(1),
-                  coinbaseProBuyOrder.get(0).multiply(coinbaseProBuyOrder.get(1)));
-          buyOrders.add(buyOrder);
-        }
-
-        final List<MarketOrder> sellOrders = new ArrayList<>();
-        for (CoinbaseProMarketOrder coinbaseProSellOrder : orderBook.asks) {
-          final MarketOrder sellOrder =
-              new MarketOrderImpl(
-                  OrderType.SELL,
-                  coinbaseProSellOrder.get(0),
-                  coinbaseProSellOrder.get(1),
-                  coinbaseProSellOrder.get(0).multiply(coinbaseProSellOrder.get(1)));
-          sellOrders.add(sellOrder);
-        }
-        return new MarketOrderBookImpl(marketId, sellOrders, buyOrders);
+        return new MarketOrderBookImpl(
+            marketId,
+            limitOrderBookDepth(orderBook.asks, depth),
+            limitOrderBookDepth(orderBook.bids, depth));
 
       } else {
         final String errorMsg =
@@ -431,7 +461,7 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
       if (response.getStatusCode() == HttpURLConnection.HTTP_OK) {
         final CoinbaseProTicker coinbaseProTicker =
             gson.fromJson(response.getPayload(), CoinbaseProTicker.class);
-        return coinbaseProTicker.price;
+        return new BigDecimal(coinbaseProTicker.price);
       } else {
         final String errorMsg = "Failed to get market ticker from exchange. Details: " + response;
         LOG.error(errorMsg);
@@ -474,6 +504,12 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
 
   @Override
   public Ticker getTicker(String marketId) throws ExchangeNetworkException, TradingApiException {
+
+    final Ticker streamedTicker = getStreamedTicker(marketId);
+    if (streamedTicker != null) {
+      return streamedTicker;
+    }
+
     try {
       final ExchangeHttpResponse tickerResponse =
           sendPublicRequestToExchange(PRODUCTS + marketId + "/ticker", null);
@@ -484,18 +520,6 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
         final CoinbaseProTicker coinbaseProTicker =
             gson.fromJson(tickerResponse.getPayload(), CoinbaseProTicker.class);
 
-        final TickerImpl ticker =
-            new TickerImpl(
-                coinbaseProTicker.price,
-                coinbaseProTicker.bid,
-                coinbaseProTicker.ask,
-                null, // low,
-                null, // high,
-                null, // open,
-                coinbaseProTicker.volume,
-                null, // vwap - not supplied by COINBASE PRO
-                Date.from(Instant.parse(coinbaseProTicker.time)).getTime());
-
         // Now we need to call the stats operation to get the 24hr indicators
         final ExchangeHttpResponse statsResponse =
             sendPublicRequestToExchange(PRODUCTS + marketId + "/stats", null);
@@ -505,17 +529,22 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
         if (statsResponse.getStatusCode() == HttpURLConnection.HTTP_OK) {
           final CoinbaseProStats coinbaseProStats =
               gson.fromJson(statsResponse.getPayload(), CoinbaseProStats.class);
-          ticker.setLow(coinbaseProStats.low);
-          ticker.setHigh(coinbaseProStats.high);
-          ticker.setOpen(coinbaseProStats.open);
+          return new LazyTickerImpl(
+              coinbaseProTicker.price,
+              coinbaseProTicker.bid,
+              coinbaseProTicker.ask,
+              coinbaseProStats.low,
+              coinbaseProStats.high,
+              coinbaseProStats.open,
+              coinbaseProTicker.volume,
+              null, // vwap - not supplied by COINBASE PRO
+              Date.from(Instant.parse(coinbaseProTicker.time)).getTime());
         } else {
           final String errorMsg = "Failed to get stats from exchange. Details: " + statsResponse;
           LOG.error(errorMsg);
           throw new TradingApiException(errorMsg);
         }
 
-        return ticker;
-
       } else {
         final String errorMsg =
             "Failed to get market ticker from exchange. Details: " + tickerResponse;
@@ -532,13 +561,42 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
+  /**
+   * Returns true if market data is streamed: the order by order book is kept from the WebSocket
+   * feed.
+   */
+  @Override
+  public boolean isLevel3Supported() {
+    return getMarketDataStream() != null;
+  }
+
+  /**
+   * Returns a market's order by order book, kept up to date from the WebSocket feed's full channel.
+   * The market is subscribed to the first time it is asked for.
+   *
+   * <p>The book is read live: call this again before each use, as the book can go out of sync.
+   *
+   * @param marketId the market id, e.g. BTC-USD.
+   * @return the book, or null if market data is not streamed or the market's book is not in sync.
+   */
+  @Override
+  public Level3OrderBook getLevel3OrderBook(String marketId) {
+    final MarketDataStream stream = getMarketDataStream();
+    if (stream == null) {
+      return null;
+    }
+    stream.subscribe(marketId);
+    return stream.isInSync(marketId) ? streamProtocol.getBook(marketId) : null;
+  }
+
   // --------------------------------------------------------------------------
   //  GSON classes for JSON responses.
   //  See https://docs.pro.coinbase.com/#api
   // --------------------------------------------------------------------------
 
   /**
-   * GSON class for COINBASE PRO '/orders' API call response.
+   * GSON class for COINBASE PRO '/orders' API call response. Decoded by {@link
+   * CoinbaseProOrderTypeAdapter}.
    *
    * <p>There are other critters in here different to what is spec'd:
    * https://docs.pro.coinbase.com/#list-orders
@@ -548,29 +606,15 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
     String id;
     BigDecimal price;
     BigDecimal size;
-
-    @SerializedName("product_id")
     String productId; // e.g. "BTC-GBP", "BTC-USD"
-
     String side; // "buy" or "sell"
     String stp; // Self-Trade Prevention flag, e.g. "dc"
     String type; // order type, e.g. "limit"
-
-    @SerializedName("time_in_force")
     String timeInForce; // e.g. "GTC" (Good Til Cancelled)
-
-    @SerializedName("post_only")
     boolean postOnly; // shows in book + provides exchange liquidity, but will not execute
-
-    @SerializedName("created_at")
     String createdAt; // e.g. "2014-11-14 06:39:55.189376+00"
-
-    @SerializedName("fill_fees")
     BigDecimal fillFees;
-
-    @SerializedName("filled_size")
     BigDecimal filledSize;
-
     String status; // e.g. "open"
     boolean settled;
 
@@ -595,12 +639,15 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class for COINBASE PRO '/products/{marketId}/book' API call response. */
+  /**
+   * GSON class for COINBASE PRO '/products/{marketId}/book' API call response. Decoded by {@link
+   * CoinbaseProBookTypeAdapter}.
+   */
   private static class CoinbaseProBookWrapper {
 
     long sequence;
-    List<CoinbaseProMarketOrder> bids;
-    List<CoinbaseProMarketOrder> asks;
+    List<MarketOrder> bids;
+    List<MarketOrder> asks;
 
     @Override
     public String toString() {
@@ -613,25 +660,19 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
   }
 
   /**
-   * GSON class for holding Market Orders. First element in array is price, second element is
-   * amount, third is number of orders.
+   * GSON class for COINBASE PRO '/products/{marketId}/ticker' API call response. Decoded by {@link
+   * CoinbaseProTickerTypeAdapter}.
+   *
+   * <p>The prices and volumes are kept as the raw tokens - see {@link LazyTickerImpl}.
    */
-  private static class CoinbaseProMarketOrder extends ArrayList<BigDecimal> {
-
-    private static final long serialVersionUID = -4919711220797077759L;
-  }
-
-  /** GSON class for COINBASE PRO '/products/{marketId}/ticker' API call response. */
   private static class CoinbaseProTicker {
 
-    @SerializedName("trade_id")
     long tradeId;
-
-    BigDecimal price;
-    BigDecimal size;
-    BigDecimal bid;
-    BigDecimal ask;
-    BigDecimal volume;
+    String price;
+    String size;
+    String bid;
+    String ask;
+    String volume;
     String time; // e.g. "2015-10-14T19:19:36.604735Z"
 
     @Override
@@ -648,14 +689,17 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class for COINBASE PRO '/products/&ltproduct-id&gt/stats' API call response. */
+  /**
+   * GSON class for COINBASE PRO '/products/&ltproduct-id&gt/stats' API call response. The prices
+   * and volumes are kept as the raw tokens - see {@link LazyTickerImpl}.
+   */
   private static class CoinbaseProStats {
 
-    BigDecimal open;
-    BigDecimal high;
-    BigDecimal low;
-    BigDecimal volume;
-    BigDecimal last;
+    String open;
+    String high;
+    String low;
+    String volume;
+    String last;
 
     @SerializedName("volume_30day")
     String volume30Day;
@@ -698,6 +742,383 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
+  // --------------------------------------------------------------------------
+  //  GSON type adapters for the hot responses - see ResponseTypeAdapter.
+  // --------------------------------------------------------------------------
+
+  /**
+   * Decodes a COINBASE PRO order book straight into MarketOrders. Each price level is an array:
+   * first element is price, second element is amount, third is number of orders.
+   */
+  private static class CoinbaseProBookTypeAdapter
+      extends ResponseTypeAdapter<CoinbaseProBookWrapper> {
+
+    @Override
+    CoinbaseProBookWrapper readResponse(JsonReader in) throws IOException {
+      final CoinbaseProBookWrapper orderBook = new CoinbaseProBookWrapper();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "sequence":
+            orderBook.sequence = nextLong(in);
+            break;
+          case "bids":
+            orderBook.bids = readPriceLevelArrays(in, OrderType.BUY);
+            break;
+          case "asks":
+            orderBook.asks = readPriceLevelArrays(in, OrderType.SELL);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return orderBook;
+    }
+  }
+
+  /** Decodes a COINBASE PRO order. */
+  private static class CoinbaseProOrderTypeAdapter extends ResponseTypeAdapter<CoinbaseProOrder> {
+
+    @Override
+    CoinbaseProOrder readResponse(JsonReader in) throws IOException {
+      final CoinbaseProOrder order = new CoinbaseProOrder();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "id":
+            order.id = nextString(in);
+            break;
+          case "price":
+            order.price = nextBigDecimal(in);
+            break;
+          case "size":
+            order.size = nextBigDecimal(in);
+            break;
+          case "product_id":
+            order.productId = nextString(in);
+            break;
+          case "side":
+            order.side = nextString(in);
+            break;
+          case "stp":
+            order.stp = nextString(in);
+            break;
+          case "type":
+            order.type = nextString(in);
+            break;
+          case "time_in_force":
+            order.timeInForce = nextString(in);
+            break;
+          case "post_only":
+            order.postOnly = nextBoolean(in);
+            break;
+          case "created_at":
+            order.createdAt = nextString(in);
+            break;
+          case "fill_fees":
+            order.fillFees = nextBigDecimal(in);
+            break;
+          case "filled_size":
+            order.filledSize = nextBigDecimal(in);
+            break;
+          case "status":
+            order.status = nextString(in);
+            break;
+          case "settled":
+            order.settled = nextBoolean(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return order;
+    }
+  }
+
+  /** Decodes a COINBASE PRO ticker. */
+  private static class CoinbaseProTickerTypeAdapter
+      extends ResponseTypeAdapter<CoinbaseProTicker> {
+
+    @Override
+    CoinbaseProTicker readResponse(JsonReader in) throws IOException {
+      final CoinbaseProTicker ticker = new CoinbaseProTicker();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "trade_id":
+            ticker.tradeId = nextLong(in);
+            break;
+          case "price":
+            ticker.price = nextString(in);
+            break;
+          case "size":
+            ticker.size = nextString(in);
+            break;
+          case "bid":
+            ticker.bid = nextString(in);
+            break;
+          case "ask":
+            ticker.ask = nextString(in);
+            break;
+          case "volume":
+            ticker.volume = nextString(in);
+            break;
+          case "time":
+            ticker.time = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return ticker;
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  //  WebSocket market data feed - see MarketDataStream.
+  //  See https://docs.pro.coinbase.com/#websocket-feed
+  // --------------------------------------------------------------------------
+
+  /*
+   * Fetches a market's full, order by order, book for the market data stream to start from.
+   */
+  private String getLevel3OrderBookSnapshot(String marketId)
+      throws ExchangeNetworkException, TradingApiException {
+    final Map<String, String> params = createRequestParamMap();
+    params.put("level", "3");
+
+    final ExchangeHttpResponse response =
+        sendPublicRequestToExchange(PRODUCTS + marketId + "/book", params);
+
+    if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+      final String errorMsg =
+          "Failed to get level 3 order book from exchange. Details: " + response;
+      LOG.error(errorMsg);
+      throw new TradingApiException(errorMsg);
+    }
+    return response.getPayload();
+  }
+
+  /**
+   * Decodes the CoinbasePro public WebSocket feed: the full channel and the ticker of each market.
+   *
+   * <p>The full channel has no snapshot, so the level 3 book is fetched from the REST API when a
+   * market is subscribed to and whenever it is resynced. It is fetched on the feed thread when the
+   * market's next message arrives; the messages received meanwhile wait in the socket buffer. Each
+   * market's messages are numbered, so the ones already in the snapshot are dropped, and a missed
+   * one is spotted and the market resynced from a fresh snapshot.
+   *
+   * <p>The book is kept in a {@link LocalLevel3OrderBook}. Each order change is copied to the
+   * stream's level 2 book, which the getMarketOrders calls read.
+   */
+  static final class CoinbaseProStreamProtocol implements StreamProtocol {
+
+    static final URI STREAM_URI = URI.create("wss://ws-feed.pro.coinbase.com");
+
+    private final URI uri;
+    private final SnapshotSource snapshotSource;
+    private final Map<String, LocalLevel3OrderBook> books = new ConcurrentHashMap<>();
+    private final Set<String> awaitingSnapshot = ConcurrentHashMap.newKeySet();
+
+    /** Fetches a market's level 3 order book from the REST API. */
+    @FunctionalInterface
+    interface SnapshotSource {
+
+      /**
+       * Fetches the book.
+       *
+       * @param marketId the market id.
+       * @return the JSON book.
+       * @throws ExchangeNetworkException if a network error occurs.
+       * @throws TradingApiException if the exchange returns an error.
+       */
+      String fetchSnapshot(String marketId) throws ExchangeNetworkException, TradingApiException;
+    }
+
+    /**
+     * Creates the protocol.
+     *
+     * @param uri the feed URI.
+     * @param snapshotSource fetches the level 3 book of a market.
+     */
+    CoinbaseProStreamProtocol(URI uri, SnapshotSource snapshotSource) {
+      this.uri = uri;
+      this.snapshotSource = snapshotSource;
+    }
+
+    @Override
+    public URI getUri() {
+      return uri;
+    }
+
+    @Override
+    public List<String> createSubscribeMessages(String marketId) {
+      books.computeIfAbsent(marketId, id -> new LocalLevel3OrderBook());
+      awaitingSnapshot.add(marketId);
+      return List.of(
+          "{\"type\":\"subscribe\",\"product_ids\":[\""
+              + marketId
+              + "\"],\"channels\":[\"full\",\"ticker\"]}");
+    }
+
+    /*
+     * The subscription stays as it is - the snapshot is fetched again with the next message.
+     */
+    @Override
+    public List<String> createResyncMessages(String marketId) {
+      awaitingSnapshot.add(marketId);
+      return List.of();
+    }
+
+    @Override
+    public void decode(String message, MarketDataSink sink) {
+      final JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+      final String type = json.get("type").getAsString();
+      switch (type) {
+        case "received":
+        case "open":
+        case "done":
+        case "match":
+        case "change":
+          decodeOrderMessage(type, json, sink);
+          break;
+        case "ticker":
+          sink.onTicker(json.get("product_id").getAsString(), decodeTicker(json));
+          break;
+        case "error":
+          LOG.warn(() -> "COINBASE PRO market data stream error: " + json);
+          break;
+        default:
+          // subscriptions, heartbeat, and activate - stop orders are not on the book until open
+      }
+    }
+
+    /**
+     * Returns a market's level 3 book. It is only up to date whilst the stream has the market in
+     * sync.
+     *
+     * @param marketId the market id.
+     * @return the book, or null if the market has not been subscribed to.
+     */
+    Level3OrderBook getBook(String marketId) {
+      return books.get(marketId);
+    }
+
+    private void decodeOrderMessage(String type, JsonObject json, MarketDataSink sink) {
+      final String marketId = json.get("product_id").getAsString();
+      final LocalLevel3OrderBook book = books.get(marketId);
+      if (book == null) {
+        return;
+      }
+      if (awaitingSnapshot.remove(marketId)) {
+        loadSnapshot(marketId, book, sink);
+      }
+      sink.onUpdate(
+          marketId,
+          json.get("sequence").getAsLong(),
+          levels -> applyOrderMessage(type, json, book, levels));
+    }
+
+    /*
+     * The REST snapshot lists the orders at each price in queue order: [PRICE, SIZE, ORDER_ID].
+     */
+    private void loadSnapshot(String marketId, LocalLevel3OrderBook book, MarketDataSink sink) {
+      final JsonObject snapshot;
+      try {
+        snapshot =
+            JsonParser.parseString(snapshotSource.fetchSnapshot(marketId)).getAsJsonObject();
+      } catch (ExchangeNetworkException | TradingApiException e) {
+        throw new IllegalStateException("Failed to fetch " + marketId + " order book", e);
+      }
+      sink.onSnapshot(
+          marketId,
+          snapshot.get("sequence").getAsLong(),
+          levels -> {
+            book.clear();
+            loadOrders(book, OrderType.SELL, snapshot.getAsJsonArray("asks"));
+            loadOrders(book, OrderType.BUY, snapshot.getAsJsonArray("bids"));
+            book.copyLevelsTo(levels);
+          });
+    }
+
+    private static void loadOrders(LocalLevel3OrderBook book, OrderType type, JsonArray orders) {
+      for (final JsonElement order : orders) {
+        final JsonArray fields = order.getAsJsonArray();
+        book.addOrder(
+            fields.get(2).getAsString(),
+            type,
+            new BigDecimal(fields.get(0).getAsString()),
+            new BigDecimal(fields.get(1).getAsString()));
+      }
+    }
+
+    /*
+     * Only open orders are on the book: "received" orders are not yet, and "done" orders that
+     * never opened, e.g. market orders, are not in it, so removing them does nothing.
+     */
+    private static void applyOrderMessage(
+        String type, JsonObject json, LocalLevel3OrderBook book, LocalOrderBook levels) {
+      final Level3Order changed;
+      switch (type) {
+        case "open":
+          changed =
+              book.addOrder(
+                  json.get("order_id").getAsString(),
+                  "buy".equals(json.get("side").getAsString()) ? OrderType.BUY : OrderType.SELL,
+                  new BigDecimal(json.get(PRICE).getAsString()),
+                  new BigDecimal(json.get("remaining_size").getAsString()));
+          break;
+        case "done":
+          changed = book.removeOrder(json.get("order_id").getAsString());
+          break;
+        case "match":
+          changed =
+              book.fillOrder(
+                  json.get("maker_order_id").getAsString(),
+                  new BigDecimal(json.get("size").getAsString()));
+          break;
+        case "change":
+          // a market order's change has new_funds instead - it is not on the book
+          changed =
+              json.has("new_size")
+                  ? book.changeOrder(
+                      json.get("order_id").getAsString(),
+                      new BigDecimal(json.get("new_size").getAsString()))
+                  : null;
+          break;
+        default:
+          changed = null;
+      }
+      if (changed != null) {
+        levels.setLevel(
+            changed.getType(),
+            changed.getPrice(),
+            book.getLevelQuantity(changed.getType(), changed.getPrice()));
+      }
+    }
+
+    /*
+     * Same fields as the REST ticker and stats: the open, high, low and volume are over the last
+     * 24h.
+     */
+    private static Ticker decodeTicker(JsonObject ticker) {
+      final JsonElement time = ticker.get("time"); // e.g. "2017-09-02T17:05:49.250000Z"
+      return new LazyTickerImpl(
+          ticker.get(PRICE).getAsString(),
+          ticker.get("best_bid").getAsString(),
+          ticker.get("best_ask").getAsString(),
+          ticker.get("low_24h").getAsString(),
+          ticker.get("high_24h").getAsString(),
+          ticker.get("open_24h").getAsString(),
+          ticker.get("volume_24h").getAsString(),
+          null, // vwap - not supplied by COINBASE PRO
+          time == null ? null : Instant.parse(time.getAsString()).toEpochMilli());
+    }
+  }
+
   // --------------------------------------------------------------------------
   //  Transport layer methods
   // --------------------------------------------------------------------------
@@ -784,11 +1205,8 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
       String httpMethod, String apiMethod, Map<String, String> params)
       throws ExchangeNetworkException, TradingApiException {
 
-    if (!initializedMacAuthentication) {
-      final String errorMsg = "MAC Message security layer has not been initialized.";
-      LOG.error(errorMsg);
-      throw new IllegalStateException(errorMsg);
-    }
+    // fail fast if the MAC message security layer has not been initialized
+    final RequestSigner requestSigner = getRequestSigner();
 
     try {
       if (params == null) {
@@ -845,14 +1263,15 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
       final String timestamp = Long.toString(timeServer);
       LOG.debug(() -> "Server UNIX EPOCH in seconds: " + timestamp);
 
-      // Build the signature string: timestamp + method + requestPath + body
-      final String signatureBuilder =
-          timestamp + httpMethod.toUpperCase() + "/" + apiMethod + requestBody;
-
-      // Sign the signature string and Base64 encode it
-      mac.reset();
-      mac.update(signatureBuilder.getBytes(StandardCharsets.UTF_8));
-      final String signature = DatatypeConverter.printBase64Binary(mac.doFinal());
+      // Sign the signature string: timestamp + method + requestPath + body - and Base64 encode it
+      requestSigner.reset();
+      requestSigner
+          .update(timestamp)
+          .update(httpMethod.toUpperCase())
+          .update("/")
+          .update(apiMethod)
+          .update(requestBody);
+      final String signature = requestSigner.signToBase64();
 
       // Request headers required by Exchange
       final Map<String, String> requestHeaders = createHeaderParamMap();
@@ -872,6 +1291,21 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
+  /*
+   * Order placement (POST orders) and cancellation (DELETE orders/id) are sent ahead of the market
+   * data and account reads.
+   */
+  @Override
+  RequestPriority getRequestPriority(URL url, String httpMethod) {
+    final String path = url.getPath();
+    if (path.startsWith("/orders") && !"GET".equalsIgnoreCase(httpMethod)) {
+      return RequestPriority.TRADING;
+    } else if (path.startsWith("/" + PRODUCTS)) {
+      return RequestPriority.MARKET_DATA;
+    }
+    return RequestPriority.ACCOUNT;
+  }
+
   /*
    * Initialises the secure messaging layer.
    * Sets up the MAC to safeguard the data we send to the exchange.
@@ -884,9 +1318,7 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
       final byte[] decodedBase64Secret = DatatypeConverter.parseBase64Binary(secret);
 
       final SecretKeySpec keyspec = new SecretKeySpec(decodedBase64Secret, "HmacSHA256");
-      mac = Mac.getInstance("HmacSHA256");
-      mac.init(keyspec);
-      initializedMacAuthentication = true;
+      initRequestSigner(keyspec);
     } catch (NoSuchAlgorithmException e) {
       final String errorMsg = "Failed to setup MAC security. HINT: Is HMAC-SHA256 installed?";
       LOG.error(errorMsg, e);
@@ -934,6 +1366,9 @@ public final class CoinbaseProExchangeAdapter extends AbstractExchangeAdapter
 
   private void initGson() {
     final GsonBuilder gsonBuilder = new GsonBuilder();
+    gsonBuilder.registerTypeAdapter(CoinbaseProBookWrapper.class, new CoinbaseProBookTypeAdapter());
+    gsonBuilder.registerTypeAdapter(CoinbaseProOrder.class, new CoinbaseProOrderTypeAdapter());
+    gsonBuilder.registerTypeAdapter(CoinbaseProTicker.class, new CoinbaseProTickerTypeAdapter());
     gson = gsonBuilder.create();
   }
 
@@ -27,10 +27,11 @@ import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
 import com.gazbert.bxbot.exchanges.trading.api.impl.BalanceInfoImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.OpenOrderImpl;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrder;
@@ -42,7 +43,9 @@ import com.gazbert.bxbot.trading.api.TradingApiException;
 import com.google.common.base.MoreObjects;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.MalformedURLException;
@@ -58,9 +61,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import javax.xml.bind.DatatypeConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -156,10 +157,6 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
   private String key = "";
   private String secret = "";
 
-  private Mac mac;
-  private boolean initializedMacAuthentication = false;
-  private long nonce = 0;
-
   private Gson gson;
 
   @Override
@@ -169,9 +166,10 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
     setNetworkConfig(config);
     setOtherConfig(config);
 
-    nonce = System.currentTimeMillis() / 1000;
+    initNonce(System.currentTimeMillis() / 1000);
     initSecureMessageLayer();
     initGson();
+    preWarmConnections(PUBLIC_API_BASE_URL, AUTHENTICATED_API_URL);
   }
 
   // --------------------------------------------------------------------------
@@ -292,6 +290,27 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public List<OpenOrder> getYourOpenOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getOpenOrders(marketId);
+  }
+
+  /*
+   * The Gemini orders endpoint returns the open orders for every market.
+   */
+  @Override
+  public boolean isAllOpenOrdersSupported() {
+    return true;
+  }
+
+  @Override
+  public List<OpenOrder> getAllOpenOrders() throws TradingApiException, ExchangeNetworkException {
+    return getOpenOrders(null);
+  }
+
+  /*
+   * Fetches the open orders for the given market, or for every market if marketId is null.
+   */
+  private List<OpenOrder> getOpenOrders(String marketId)
+      throws TradingApiException, ExchangeNetworkException {
     try {
       final ExchangeHttpResponse response = sendAuthenticatedRequestToExchange("orders", null);
 
@@ -303,7 +322,7 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
       final List<OpenOrder> ordersToReturn = new ArrayList<>();
       for (final GeminiOpenOrder geminiOpenOrder : geminiOpenOrders) {
 
-        if (!marketId.equalsIgnoreCase(geminiOpenOrder.symbol)) {
+        if (!isOrderForMarket(marketId, geminiOpenOrder.symbol)) {
           continue;
         }
 
@@ -325,7 +344,7 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
             new OpenOrderImpl(
                 Long.toString(geminiOpenOrder.orderId),
                 Date.from(Instant.ofEpochMilli(geminiOpenOrder.timestampms)),
-                marketId,
+                marketId == null ? geminiOpenOrder.symbol : marketId,
                 orderType,
                 geminiOpenOrder.price,
                 geminiOpenOrder.remainingAmount,
@@ -350,36 +369,35 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public MarketOrderBook getMarketOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getMarketOrderBook(marketId, FULL_ORDER_BOOK);
+  }
+
+  /*
+   * Uses the Gemini limit_bids and limit_asks params.
+   */
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    assertValidOrderBookDepth(depth);
+    return getMarketOrderBook(marketId, depth);
+  }
+
+  private MarketOrderBook getMarketOrderBook(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
     try {
-      final ExchangeHttpResponse response = sendPublicRequestToExchange("book/" + marketId);
+      final String depthParams =
+          depth == FULL_ORDER_BOOK ? "" : "?limit_bids=" + depth + "&limit_asks=" + depth;
+      final ExchangeHttpResponse response =
+          sendPublicRequestToExchange("book/" + marketId + depthParams);
 
       LOG.debug(() -> "Market Orders response: " + response);
 
       final GeminiOrderBook orderBook = gson.fromJson(response.getPayload(), GeminiOrderBook.class);
 
-      final List<MarketOrder> buyOrders = new ArrayList<>();
-      for (GeminiMarketOrder geminiBuyOrder : orderBook.bids) {
-        final MarketOrder buyOrder =
-            new MarketOrderImpl(
-                OrderType.BUY,
-                geminiBuyOrder.price,
-                geminiBuyOrder.amount,
-                geminiBuyOrder.price.multiply(geminiBuyOrder.amount));
-        buyOrders.add(buyOrder);
-      }
-
-      final List<MarketOrder> sellOrders = new ArrayList<>();
-      for (GeminiMarketOrder geminiSellOrder : orderBook.asks) {
-        final MarketOrder sellOrder =
-            new MarketOrderImpl(
-                OrderType.SELL,
-                geminiSellOrder.price,
-                geminiSellOrder.amount,
-                geminiSellOrder.price.multiply(geminiSellOrder.amount));
-        sellOrders.add(sellOrder);
-      }
-
-      return new MarketOrderBookImpl(marketId, sellOrders, buyOrders);
+      return new MarketOrderBookImpl(
+          marketId,
+          limitOrderBookDepth(orderBook.asks, depth),
+          limitOrderBookDepth(orderBook.bids, depth));
 
     } catch (ExchangeNetworkException | TradingApiException e) {
       throw e;
@@ -469,11 +487,13 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
   //  See https://docs.gemini.com/rest-api/
   // --------------------------------------------------------------------------
 
-  /** GSON class for a market Order Book. */
+  /**
+   * GSON class for a market Order Book. Decoded by {@link GeminiOrderBookTypeAdapter}.
+   */
   private static class GeminiOrderBook {
 
-    List<GeminiMarketOrder> bids;
-    List<GeminiMarketOrder> asks;
+    List<MarketOrder> bids;
+    List<MarketOrder> asks;
 
     @Override
     public String toString() {
@@ -481,19 +501,6 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class for a Market Order. */
-  private static class GeminiMarketOrder {
-
-    BigDecimal price;
-    BigDecimal amount;
-    // ignore the timestamp attribute as per the API spec
-
-    @Override
-    public String toString() {
-      return MoreObjects.toStringHelper(this).add(PRICE, price).add(AMOUNT, amount).toString();
-    }
-  }
-
   /** GSON class for Balances API call response. */
   private static class GeminiBalances extends ArrayList<GeminiAccountBalance> {
 
@@ -523,7 +530,9 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class for Ticker API call response. */
+  /**
+   * GSON class for Ticker API call response. Decoded by {@link GeminiTickerTypeAdapter}.
+   */
   private static class GeminiTicker {
 
     BigDecimal bid;
@@ -547,12 +556,8 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
   /** GSON class for holding volume information in the Ticker response. */
   private static class GeminiVolume {
 
-    @SerializedName("BTC")
     BigDecimal btc;
-
-    @SerializedName("USD")
     BigDecimal usd;
-
     long timestamp;
 
     @Override
@@ -571,44 +576,28 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
     private static final long serialVersionUID = 5516523611153405953L;
   }
 
-  /** GSON class representing an open order on the exchange. */
+  /**
+   * GSON class representing an open order on the exchange. Decoded by {@link
+   * GeminiOpenOrderTypeAdapter}.
+   */
   private static class GeminiOpenOrder {
 
-    @SerializedName("order_id")
     long orderId; // use this value for order id as per the API spec
-
     long id;
     String symbol;
     String exchange;
     BigDecimal price;
-
-    @SerializedName("avg_execution_price")
     BigDecimal avgExecutionPrice;
-
     String side; // buy|sell
     String type; // exchange limit
     String timestamp; // timestamp as a String
     long timestampms; // timestamp in millis as a long
-
-    @SerializedName("is_live")
     boolean isLive;
-
-    @SerializedName("is_cancelled")
     boolean isCancelled;
-
-    @SerializedName("is_hidden")
     boolean isHidden;
-
-    @SerializedName("was_forced")
     boolean wasForced;
-
-    @SerializedName("remaining_amount")
     BigDecimal remainingAmount;
-
-    @SerializedName("executed_amount")
     BigDecimal executedAmount;
-
-    @SerializedName("original_amount")
     BigDecimal originalAmount;
 
     @Override
@@ -635,6 +624,162 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
+  // --------------------------------------------------------------------------
+  //  GSON type adapters for the hot responses - see ResponseTypeAdapter.
+  // --------------------------------------------------------------------------
+
+  /** Decodes a Gemini order book straight into MarketOrders. */
+  private static class GeminiOrderBookTypeAdapter extends ResponseTypeAdapter<GeminiOrderBook> {
+
+    @Override
+    GeminiOrderBook readResponse(JsonReader in) throws IOException {
+      final GeminiOrderBook orderBook = new GeminiOrderBook();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "bids":
+            orderBook.bids = readPriceLevelObjects(in, OrderType.BUY);
+            break;
+          case "asks":
+            orderBook.asks = readPriceLevelObjects(in, OrderType.SELL);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return orderBook;
+    }
+  }
+
+  /** Decodes a Gemini ticker, including its volume. */
+  private static class GeminiTickerTypeAdapter extends ResponseTypeAdapter<GeminiTicker> {
+
+    @Override
+    GeminiTicker readResponse(JsonReader in) throws IOException {
+      final GeminiTicker ticker = new GeminiTicker();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "bid":
+            ticker.bid = nextBigDecimal(in);
+            break;
+          case "ask":
+            ticker.ask = nextBigDecimal(in);
+            break;
+          case "last":
+            ticker.last = nextBigDecimal(in);
+            break;
+          case "low":
+            ticker.low = nextBigDecimal(in);
+            break;
+          case "volume":
+            ticker.volume = readVolume(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return ticker;
+    }
+
+    private static GeminiVolume readVolume(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      final GeminiVolume volume = new GeminiVolume();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "BTC":
+            volume.btc = nextBigDecimal(in);
+            break;
+          case "USD":
+            volume.usd = nextBigDecimal(in);
+            break;
+          case "timestamp":
+            volume.timestamp = nextLong(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return volume;
+    }
+  }
+
+  /** Decodes a Gemini open order. */
+  private static class GeminiOpenOrderTypeAdapter extends ResponseTypeAdapter<GeminiOpenOrder> {
+
+    @Override
+    GeminiOpenOrder readResponse(JsonReader in) throws IOException {
+      final GeminiOpenOrder openOrder = new GeminiOpenOrder();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "order_id":
+            openOrder.orderId = nextLong(in);
+            break;
+          case "id":
+            openOrder.id = nextLong(in);
+            break;
+          case "symbol":
+            openOrder.symbol = nextString(in);
+            break;
+          case "exchange":
+            openOrder.exchange = nextString(in);
+            break;
+          case "price":
+            openOrder.price = nextBigDecimal(in);
+            break;
+          case "avg_execution_price":
+            openOrder.avgExecutionPrice = nextBigDecimal(in);
+            break;
+          case "side":
+            openOrder.side = nextString(in);
+            break;
+          case "type":
+            openOrder.type = nextString(in);
+            break;
+          case "timestamp":
+            openOrder.timestamp = nextString(in);
+            break;
+          case "timestampms":
+            openOrder.timestampms = nextLong(in);
+            break;
+          case "is_live":
+            openOrder.isLive = nextBoolean(in);
+            break;
+          case "is_cancelled":
+            openOrder.isCancelled = nextBoolean(in);
+            break;
+          case "is_hidden":
+            openOrder.isHidden = nextBoolean(in);
+            break;
+          case "was_forced":
+            openOrder.wasForced = nextBoolean(in);
+            break;
+          case "remaining_amount":
+            openOrder.remainingAmount = nextBigDecimal(in);
+            break;
+          case "executed_amount":
+            openOrder.executedAmount = nextBigDecimal(in);
+            break;
+          case "original_amount":
+            openOrder.originalAmount = nextBigDecimal(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return openOrder;
+    }
+  }
+
   // --------------------------------------------------------------------------
   //  Transport layer
   // --------------------------------------------------------------------------
@@ -697,11 +842,8 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
       String apiMethod, Map<String, String> params)
       throws ExchangeNetworkException, TradingApiException {
 
-    if (!initializedMacAuthentication) {
-      final String errorMsg = "MAC Message security layer has not been initialized.";
-      LOG.error(errorMsg);
-      throw new IllegalStateException(errorMsg);
-    }
+    // fail fast if the MAC message security layer has not been initialized
+    final RequestSigner requestSigner = getRequestSigner();
 
     try {
       if (params == null) {
@@ -712,33 +854,33 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
       // Add the API call method
       params.put("request", "/" + GEMINI_API_VERSION + "/" + apiMethod);
 
-      // nonce is required by Gemini in every request
-      params.put("nonce", Long.toString(nonce));
-      nonce++;
+      final URL url = new URL(AUTHENTICATED_API_URL + apiMethod);
+      try (NonceLease nonceLease = leaseNonce(url, "POST")) {
+        // nonce is required by Gemini in every request
+        params.put("nonce", Long.toString(nonceLease.getNonce()));
 
-      // JSON-ify the param dictionary
-      final String paramsInJson = gson.toJson(params);
+        // JSON-ify the param dictionary
+        final String paramsInJson = gson.toJson(params);
 
-      // Need to base64 encode payload as per API
-      final String base64payload =
-          DatatypeConverter.printBase64Binary(paramsInJson.getBytes(StandardCharsets.UTF_8));
+        // Need to base64 encode payload as per API
+        final String base64payload = requestSigner.encodeBase64(paramsInJson);
 
-      // Create the signature
-      mac.reset(); // force reset
-      mac.update(base64payload.getBytes(StandardCharsets.UTF_8));
-      final String signature = toHex(mac.doFinal()).toLowerCase();
+        // Create the signature
+        requestSigner.reset(); // force reset
+        requestSigner.update(base64payload);
+        final String signature = requestSigner.signToHex(false);
 
-      // Request headers required by Exchange
-      final Map<String, String> requestHeaders = createHeaderParamMap();
-      requestHeaders.put("X-GEMINI-APIKEY", key);
-      requestHeaders.put("X-GEMINI-PAYLOAD", base64payload);
-      requestHeaders.put("X-GEMINI-SIGNATURE", signature);
+        // Request headers required by Exchange
+        final Map<String, String> requestHeaders = createHeaderParamMap();
+        requestHeaders.put("X-GEMINI-APIKEY", key);
+        requestHeaders.put("X-GEMINI-PAYLOAD", base64payload);
+        requestHeaders.put("X-GEMINI-SIGNATURE", signature);
 
-      // payload is JSON for this exchange
-      requestHeaders.put("Content-Type", "application/json");
+        // payload is JSON for this exchange
+        requestHeaders.put("Content-Type", "application/json");
 
-      final URL url = new URL(AUTHENTICATED_API_URL + apiMethod);
-      return makeNetworkRequest(url, "POST", paramsInJson, requestHeaders);
+        return makeNetworkRequest(url, "POST", paramsInJson, requestHeaders);
+      }
 
     } catch (MalformedURLException e) {
       final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
@@ -747,12 +889,18 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  private String toHex(byte[] byteArrayToConvert) {
-    final StringBuilder hexString = new StringBuilder();
-    for (final byte aByte : byteArrayToConvert) {
-      hexString.append(String.format("%02x", aByte & 0xff));
+  /*
+   * Order placement and cancellation are sent ahead of the market data and account reads.
+   */
+  @Override
+  RequestPriority getRequestPriority(URL url, String httpMethod) {
+    final String apiMethod = url.getPath().substring(("/" + GEMINI_API_VERSION + "/").length());
+    if (apiMethod.equals("order/new") || apiMethod.equals("order/cancel")) {
+      return RequestPriority.TRADING;
+    } else if (apiMethod.startsWith("book/") || apiMethod.startsWith("pubticker/")) {
+      return RequestPriority.MARKET_DATA;
     }
-    return hexString.toString();
+    return RequestPriority.ACCOUNT;
   }
 
   /*
@@ -765,9 +913,7 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
     try {
       final SecretKeySpec keyspec =
           new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA384");
-      mac = Mac.getInstance("HmacSHA384");
-      mac.init(keyspec);
-      initializedMacAuthentication = true;
+      initRequestSigner(keyspec);
     } catch (NoSuchAlgorithmException e) {
       final String errorMsg = "Failed to setup MAC security. HINT: Is HMAC-SHA384 installed?";
       LOG.error(errorMsg, e);
@@ -809,6 +955,9 @@ public final class GeminiExchangeAdapter extends AbstractExchangeAdapter
 
   private void initGson() {
     final GsonBuilder gsonBuilder = new GsonBuilder();
+    gsonBuilder.registerTypeAdapter(GeminiOrderBook.class, new GeminiOrderBookTypeAdapter());
+    gsonBuilder.registerTypeAdapter(GeminiTicker.class, new GeminiTickerTypeAdapter());
+    gsonBuilder.registerTypeAdapter(GeminiOpenOrder.class, new GeminiOpenOrderTypeAdapter());
     gson = gsonBuilder.create();
   }
 
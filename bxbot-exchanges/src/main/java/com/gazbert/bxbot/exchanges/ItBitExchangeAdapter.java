@@ -27,11 +27,12 @@ import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
 import com.gazbert.bxbot.exchanges.trading.api.impl.BalanceInfoImpl;
+import com.gazbert.bxbot.exchanges.trading.api.impl.LazyTickerImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.OpenOrderImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.TickerImpl;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrder;
@@ -44,7 +45,8 @@ import com.gazbert.bxbot.trading.api.TradingApiException;
 import com.google.common.base.MoreObjects;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.HttpURLConnection;
@@ -53,7 +55,6 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import java.time.Instant;
@@ -62,9 +63,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.crypto.Mac;
+import java.util.function.Supplier;
 import javax.crypto.spec.SecretKeySpec;
-import javax.xml.bind.DatatypeConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -152,17 +152,13 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
   private BigDecimal buyFeePercentage;
   private BigDecimal sellFeePercentage;
 
-  private String walletId;
+  private volatile String walletId;
   private boolean keepAliveDuringMaintenance;
 
   private String userId = "";
   private String key = "";
   private String secret = "";
 
-  private Mac mac;
-  private boolean initializedMacAuthentication = false;
-  private long nonce = 0;
-
   private Gson gson;
 
   @Override
@@ -172,9 +168,10 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
     setNetworkConfig(config);
     setOtherConfig(config);
 
-    nonce = System.currentTimeMillis() / 1000;
+    initNonce(System.currentTimeMillis() / 1000);
     initSecureMessageLayer();
     initGson();
+    preWarmConnections(PUBLIC_API_BASE_URL, AUTHENTICATED_API_URL);
   }
 
   // --------------------------------------------------------------------------
@@ -366,6 +363,21 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
   @Override
   public MarketOrderBook getMarketOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getMarketOrderBook(marketId, FULL_ORDER_BOOK);
+  }
+
+  /*
+   * itBit has no depth param, so the full order book is fetched and truncated.
+   */
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    assertValidOrderBookDepth(depth);
+    return getMarketOrderBook(marketId, depth);
+  }
+
+  private MarketOrderBook getMarketOrderBook(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
 
     ExchangeHttpResponse response = null;
 
@@ -380,29 +392,10 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
         final ItBitOrderBookWrapper orderBook =
             gson.fromJson(response.getPayload(), ItBitOrderBookWrapper.class);
 
-        final List<MarketOrder> buyOrders = new ArrayList<>();
-        for (ItBitMarketOrder itBitBuyOrder : orderBook.bids) {
-          final MarketOrder buyOrder =
-              new MarketOrderImpl(
-                  OrderType.BUY,
-                  itBitBuyOrder.get(0),
-                  itBitBuyOrder.get(1),
-                  itBitBuyOrder.get(0).multiply(itBitBuyOrder.get(1)));
-          buyOrders.add(buyOrder);
-        }
-
-        final List<MarketOrder> sellOrders = new ArrayList<>();
-        for (ItBitMarketOrder itBitSellOrder : orderBook.asks) {
-          final MarketOrder sellOrder =
-              new MarketOrderImpl(
-                  OrderType.SELL,
-                  itBitSellOrder.get(0),
-                  itBitSellOrder.get(1),
-                  itBitSellOrder.get(0).multiply(itBitSellOrder.get(1)));
-          sellOrders.add(sellOrder);
-        }
-
-        return new MarketOrderBookImpl(marketId, sellOrders, buyOrders);
+        return new MarketOrderBookImpl(
+            marketId,
+            limitOrderBookDepth(orderBook.asks, depth),
+            limitOrderBookDepth(orderBook.bids, depth));
       } else {
         final String errorMsg =
             "Failed to get market order book from exchange. Details: " + response;
@@ -442,7 +435,7 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
       if (response.getStatusCode() == HttpURLConnection.HTTP_OK) {
 
         final ItBitTicker itBitTicker = gson.fromJson(response.getPayload(), ItBitTicker.class);
-        return itBitTicker.lastPrice;
+        return new BigDecimal(itBitTicker.lastPrice);
       } else {
         final String errorMsg = "Failed to get market ticker from exchange. Details: " + response;
         LOG.error(errorMsg);
@@ -546,7 +539,7 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
 
       if (response.getStatusCode() == HttpURLConnection.HTTP_OK) {
         final ItBitTicker itBitTicker = gson.fromJson(response.getPayload(), ItBitTicker.class);
-        return new TickerImpl(
+        return new LazyTickerImpl(
             itBitTicker.lastPrice,
             itBitTicker.bid,
             itBitTicker.ask,
@@ -616,7 +609,8 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
 
   /**
    * GSON class for holding itBit order returned from: "Get Orders"
-   * /wallets/{walletId}/orders{?instrument,page,perPage,status} API call.
+   * /wallets/{walletId}/orders{?instrument,page,perPage,status} API call. Decoded by {@link
+   * ItBitYourOrderTypeAdapter}.
    */
   private static class ItBitYourOrder {
 
@@ -656,12 +650,12 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
 
   /**
    * GSON class for holding itBit ticker returned from: "Get Order Book"
-   * /markets/{tickerSymbol}/order_book API call.
+   * /markets/{tickerSymbol}/order_book API call. Decoded by {@link ItBitOrderBookTypeAdapter}.
    */
   private static class ItBitOrderBookWrapper {
 
-    List<ItBitMarketOrder> bids;
-    List<ItBitMarketOrder> asks;
+    List<MarketOrder> bids;
+    List<MarketOrder> asks;
 
     @Override
     public String toString() {
@@ -669,39 +663,30 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
     }
   }
 
-  /**
-   * GSON class for holding Market Orders. First element in array is price, second element is
-   * amount.
-   */
-  private static class ItBitMarketOrder extends ArrayList<BigDecimal> {
-
-    private static final long serialVersionUID = -4959711260747077759L;
-  }
-
   /**
    * GSON class for holding itBit ticker returned from: "Get Ticker" /markets/{tickerSymbol}/ticker
-   * API call.
+   * API call. Decoded by {@link ItBitTickerTypeAdapter}.
+   *
+   * <p>The prices and volumes are kept as the raw tokens - see {@link LazyTickerImpl}.
    */
   private static class ItBitTicker {
 
     String pair; // e.g. XBTUSD
-    BigDecimal bid;
-    BigDecimal bidAmt;
-    BigDecimal ask;
-    BigDecimal askAmt;
-    BigDecimal lastPrice;
-    BigDecimal lastAmt;
-    BigDecimal volume24h;
-    BigDecimal volumeToday;
-    BigDecimal high24h;
-    BigDecimal low24h;
-    BigDecimal highToday;
-    BigDecimal lowToday;
-    BigDecimal openToday;
-    BigDecimal vwapToday;
-    BigDecimal vwap24h;
-
-    @SerializedName("serverTimeUTC")
+    String bid;
+    String bidAmt;
+    String ask;
+    String askAmt;
+    String lastPrice;
+    String lastAmt;
+    String volume24h;
+    String volumeToday;
+    String high24h;
+    String low24h;
+    String highToday;
+    String lowToday;
+    String openToday;
+    String vwapToday;
+    String vwap24h;
     String serverTimeUtc;
 
     @Override
@@ -767,6 +752,171 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
     }
   }
 
+  // --------------------------------------------------------------------------
+  //  GSON type adapters for the hot responses - see ResponseTypeAdapter.
+  // --------------------------------------------------------------------------
+
+  /** Decodes an itBit order book straight into MarketOrders. */
+  private static class ItBitOrderBookTypeAdapter
+      extends ResponseTypeAdapter<ItBitOrderBookWrapper> {
+
+    @Override
+    ItBitOrderBookWrapper readResponse(JsonReader in) throws IOException {
+      final ItBitOrderBookWrapper orderBook = new ItBitOrderBookWrapper();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "bids":
+            orderBook.bids = readPriceLevelArrays(in, OrderType.BUY);
+            break;
+          case "asks":
+            orderBook.asks = readPriceLevelArrays(in, OrderType.SELL);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return orderBook;
+    }
+  }
+
+  /** Decodes an itBit ticker. */
+  private static class ItBitTickerTypeAdapter extends ResponseTypeAdapter<ItBitTicker> {
+
+    @Override
+    ItBitTicker readResponse(JsonReader in) throws IOException {
+      final ItBitTicker ticker = new ItBitTicker();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "pair":
+            ticker.pair = nextString(in);
+            break;
+          case "bid":
+            ticker.bid = nextString(in);
+            break;
+          case "bidAmt":
+            ticker.bidAmt = nextString(in);
+            break;
+          case "ask":
+            ticker.ask = nextString(in);
+            break;
+          case "askAmt":
+            ticker.askAmt = nextString(in);
+            break;
+          case "lastPrice":
+            ticker.lastPrice = nextString(in);
+            break;
+          case "lastAmt":
+            ticker.lastAmt = nextString(in);
+            break;
+          case "volume24h":
+            ticker.volume24h = nextString(in);
+            break;
+          case "volumeToday":
+            ticker.volumeToday = nextString(in);
+            break;
+          case "high24h":
+            ticker.high24h = nextString(in);
+            break;
+          case "low24h":
+            ticker.low24h = nextString(in);
+            break;
+          case "highToday":
+            ticker.highToday = nextString(in);
+            break;
+          case "lowToday":
+            ticker.lowToday = nextString(in);
+            break;
+          case "openToday":
+            ticker.openToday = nextString(in);
+            break;
+          case "vwapToday":
+            ticker.vwapToday = nextString(in);
+            break;
+          case "vwap24h":
+            ticker.vwap24h = nextString(in);
+            break;
+          case "serverTimeUTC":
+            ticker.serverTimeUtc = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return ticker;
+    }
+  }
+
+  /**
+   * Decodes an itBit order. The same adapter type is registered for both the Get Orders and the
+   * Create New Order responses.
+   */
+  private static class ItBitYourOrderTypeAdapter<T extends ItBitYourOrder>
+      extends ResponseTypeAdapter<T> {
+
+    private final Supplier<T> orderFactory;
+
+    ItBitYourOrderTypeAdapter(Supplier<T> orderFactory) {
+      this.orderFactory = orderFactory;
+    }
+
+    @Override
+    T readResponse(JsonReader in) throws IOException {
+      final T order = orderFactory.get();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "id":
+            order.id = nextString(in);
+            break;
+          case "walletId":
+            order.walletId = nextString(in);
+            break;
+          case "side":
+            order.side = nextString(in);
+            break;
+          case "instrument":
+            order.instrument = nextString(in);
+            break;
+          case "type":
+            order.type = nextString(in);
+            break;
+          case "amount":
+            order.amount = nextBigDecimal(in);
+            break;
+          case "displayAmount":
+            order.displayAmount = nextBigDecimal(in);
+            break;
+          case "price":
+            order.price = nextBigDecimal(in);
+            break;
+          case "volumeWeightedAveragePrice":
+            order.volumeWeightedAveragePrice = nextBigDecimal(in);
+            break;
+          case "amountFilled":
+            order.amountFilled = nextBigDecimal(in);
+            break;
+          case "createdTime":
+            order.createdTime = nextString(in);
+            break;
+          case "status":
+            order.status = nextString(in);
+            break;
+          case "clientOrderIdentifier":
+            order.clientOrderIdentifier = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return order;
+    }
+  }
+
   // --------------------------------------------------------------------------
   //  Transport layer
   // --------------------------------------------------------------------------
@@ -793,19 +943,10 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
       String httpMethod, String apiMethod, Map<String, String> params)
       throws ExchangeNetworkException, TradingApiException {
 
-    if (!initializedMacAuthentication) {
-      final String errorMsg = "MAC Message security layer has not been initialized.";
-      LOG.error(errorMsg);
-      throw new IllegalStateException(errorMsg);
-    }
+    // fail fast if the MAC message security layer has not been initialized
+    final RequestSigner requestSigner = getRequestSigner();
 
     try {
-      // Generate new UNIX time in secs
-      final String unixTime = Long.toString(System.currentTimeMillis());
-
-      // increment nonce for use in this call
-      nonce++;
-
       if (params == null) {
         // create empty map for non-param API calls
         params = createRequestParamMap();
@@ -877,54 +1018,57 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
               "Don't know how to build secure [" + httpMethod + "] request!");
       }
 
-      // Add the nonce
-      signatureParamList.add(Long.toString(nonce));
-
-      // Add the UNIX time
-      signatureParamList.add(unixTime);
-
-      /*
-       * Convert that array to JSON, encoded as UTF-8. The resulting JSON should contain no
-       * spaces or other whitespace characters. For example, a valid JSON-encoded array might look
-       * like:
-       * '["GET","https://api.itbit.com/v1/wallets/7e037345-1288-4c39-12fe-d0f99a475a98","","5",
-       * "1405385860202"]'
-       */
-      final String signatureParamsInJson = gson.toJson(signatureParamList);
-      LOG.debug(() -> "Signature params in JSON: " + signatureParamsInJson);
-
-      // Prepend the string version of the nonce to the JSON-encoded array string
-      final String noncePrependedToJson = nonce + signatureParamsInJson;
-
-      // Construct the SHA-256 hash of the noncePrependedToJson. Call this the message hash.
-      final MessageDigest md = MessageDigest.getInstance("SHA-256");
-      md.update(noncePrependedToJson.getBytes(StandardCharsets.UTF_8));
-      final byte[] messageHash = md.digest();
-
-      // Prepend the UTF-8 encoded request URL to the message hash.
-      // Generate the SHA-512 HMAC of the prependRequestUrlToMsgHash using your API secret as the
-      // key.
-      mac.reset(); // force reset
-      mac.update(invocationUrl.getBytes(StandardCharsets.UTF_8));
-      mac.update(messageHash);
-
-      final String signature = DatatypeConverter.printBase64Binary(mac.doFinal());
-
-      // Request headers required by Exchange
-      final Map<String, String> requestHeaders = createHeaderParamMap();
-      requestHeaders.put("Content-Type", "application/json");
-
-      // Add Authorization header
-      // Generate the authorization header by concatenating the client key with a colon separator
-      // (‘:’)
-      // and the signature. The resulting string should look like "clientkey:signature".
-      requestHeaders.put("Authorization", key + ":" + signature);
-
-      requestHeaders.put("X-Auth-Timestamp", unixTime);
-      requestHeaders.put("X-Auth-Nonce", Long.toString(nonce));
-
       final URL url = new URL(invocationUrl);
-      return makeNetworkRequest(url, httpMethod, requestBody, requestHeaders);
+      try (NonceLease nonceLease = leaseNonce(url, httpMethod)) {
+        // get a new nonce for use in this call
+        final long nonce = nonceLease.getNonce();
+
+        // Generate new UNIX time in secs
+        final String unixTime = Long.toString(System.currentTimeMillis());
+
+        // Add the nonce
+        signatureParamList.add(Long.toString(nonce));
+
+        // Add the UNIX time
+        signatureParamList.add(unixTime);
+
+        /*
+         * Convert that array to JSON, encoded as UTF-8. The resulting JSON should contain no
+         * spaces or other whitespace characters. For example, a valid JSON-encoded array might look
+         * like:
+         * '["GET","https://api.itbit.com/v1/wallets/7e037345-1288-4c39-12fe-d0f99a475a98","","5",
+         * "1405385860202"]'
+         */
+        final String signatureParamsInJson = gson.toJson(signatureParamList);
+        LOG.debug(() -> "Signature params in JSON: " + signatureParamsInJson);
+
+        // Prepend the string version of the nonce to the JSON-encoded array string and construct
+        // the SHA-256 hash of it. Call this the message hash.
+        // Prepend the UTF-8 encoded request URL to the message hash.
+        // Generate the SHA-512 HMAC of the prependRequestUrlToMsgHash using your API secret as the
+        // key.
+        requestSigner.reset(); // force reset
+        requestSigner
+            .update(invocationUrl)
+            .updateWithSha256Of(Long.toString(nonce), signatureParamsInJson);
+
+        final String signature = requestSigner.signToBase64();
+
+        // Request headers required by Exchange
+        final Map<String, String> requestHeaders = createHeaderParamMap();
+        requestHeaders.put("Content-Type", "application/json");
+
+        // Add Authorization header
+        // Generate the authorization header by concatenating the client key with a colon separator
+        // (‘:’)
+        // and the signature. The resulting string should look like "clientkey:signature".
+        requestHeaders.put("Authorization", key + ":" + signature);
+
+        requestHeaders.put("X-Auth-Timestamp", unixTime);
+        requestHeaders.put("X-Auth-Nonce", Long.toString(nonce));
+
+        return makeNetworkRequest(url, httpMethod, requestBody, requestHeaders);
+      }
 
     } catch (MalformedURLException e) {
       final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
@@ -938,6 +1082,23 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
     }
   }
 
+  /*
+   * Order placement (POST wallets/id/orders) and cancellation (DELETE wallets/id/orders/id) are
+   * sent ahead of the market data and account reads.
+   */
+  @Override
+  RequestPriority getRequestPriority(URL url, String httpMethod) {
+    final String apiMethod = url.getPath().substring(("/" + ITBIT_API_VERSION + "/").length());
+    if (apiMethod.startsWith(WALLETS_RESOURCE)
+        && apiMethod.contains("/orders")
+        && !"GET".equalsIgnoreCase(httpMethod)) {
+      return RequestPriority.TRADING;
+    } else if (apiMethod.startsWith(MARKETS_RESOURCE)) {
+      return RequestPriority.MARKET_DATA;
+    }
+    return RequestPriority.ACCOUNT;
+  }
+
   /*
    * Initialises the secure messaging layer.
    * Sets up the MAC to safeguard the data we send to the exchange.
@@ -948,9 +1109,7 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
     try {
       final SecretKeySpec keyspec =
           new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
-      mac = Mac.getInstance("HmacSHA512");
-      mac.init(keyspec);
-      initializedMacAuthentication = true;
+      initRequestSigner(keyspec);
     } catch (NoSuchAlgorithmException e) {
       final String errorMsg = "Failed to setup MAC security. HINT: Is HMAC-SHA512 installed?";
       LOG.error(errorMsg, e);
@@ -1078,6 +1237,12 @@ public final class ItBitExchangeAdapter extends AbstractExchangeAdapter implemen
     // https://api.itbit.com/v1/wallets?userId=56DA621F -->
     // https://api.itbit.com/v1/wallets?userId\u003d56DA621F
     final GsonBuilder gsonBuilder = new GsonBuilder().disableHtmlEscaping();
+    gsonBuilder.registerTypeAdapter(ItBitOrderBookWrapper.class, new ItBitOrderBookTypeAdapter());
+    gsonBuilder.registerTypeAdapter(ItBitTicker.class, new ItBitTickerTypeAdapter());
+    gsonBuilder.registerTypeAdapter(
+        ItBitYourOrder.class, new ItBitYourOrderTypeAdapter<>(ItBitYourOrder::new));
+    gsonBuilder.registerTypeAdapter(
+        ItBitNewOrderResponse.class, new ItBitYourOrderTypeAdapter<>(ItBitNewOrderResponse::new));
     gson = gsonBuilder.create();
   }
 
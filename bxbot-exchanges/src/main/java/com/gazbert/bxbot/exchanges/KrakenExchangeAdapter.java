@@ -32,13 +32,18 @@ import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
 import com.gazbert.bxbot.exchange.api.PairPrecisionConfig;
 import com.gazbert.bxbot.exchanges.config.PairPrecisionConfigImpl;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
+import com.gazbert.bxbot.exchanges.streaming.LocalOrderBook;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataSink;
+import com.gazbert.bxbot.exchanges.streaming.StreamProtocol;
 import com.gazbert.bxbot.exchanges.trading.api.impl.BalanceInfoImpl;
+import com.gazbert.bxbot.exchanges.trading.api.impl.LazyTickerImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
 import com.gazbert.bxbot.exchanges.trading.api.impl.OpenOrderImpl;
-import com.gazbert.bxbot.exchanges.trading.api.impl.TickerImpl;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.FixedPointScale;
 import com.gazbert.bxbot.trading.api.MarketOrder;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
 import com.gazbert.bxbot.trading.api.OpenOrder;
@@ -49,23 +54,25 @@ import com.gazbert.bxbot.trading.api.TradingApiException;
 import com.google.common.base.MoreObjects;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
@@ -74,9 +81,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
-import javax.crypto.Mac;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 import javax.crypto.spec.SecretKeySpec;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -103,7 +112,9 @@ import org.apache.logging.log4j.Logger;
  *
  * <p>The Kraken API has call rate limits - see <a
  * href="https://www.kraken.com/en-gb/help/api#api-call-rate-limit">API Call Rate Limit</a> for
- * details.
+ * details. Set the kraken-counter rate limiter in the exchange.yaml config file to schedule the
+ * private API calls just under the limit; the adapter gives each call the same cost as Kraken's
+ * API call counter does.
  *
  * <p>Kraken markets assets (e.g. currencies) can be referenced using their ISO4217-A3 names in the
  * case of ISO registered names, their 3 letter commonly used names in the case of unregistered
@@ -115,6 +126,11 @@ import org.apache.logging.log4j.Logger;
  * response contains the asset pair in the 3 letter format ('XBTUSD'), and we need to be able to
  * filter only the orders for the given market id.
  *
+ * <p>If the stream-market-data network config item is set, the order book and ticker are streamed
+ * from the Kraken WebSocket feed instead and read locally, with the REST API as the fallback. The
+ * local book holds the top 100 levels on each side and is checked against Kraken's checksum after
+ * every update; a book that fails the check is resynced from a fresh snapshot.
+ *
  * <p>The exchange regularly goes down for maintenance. If the keep-alive-during-maintenance
  * config-item is set to true in the exchange.yaml config file, the bot will stay alive and wait
  * until the next trade cycle.
@@ -175,10 +191,10 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
   private static final String KEEP_ALIVE_DURING_MAINTENANCE_PROPERTY_NAME =
       "keep-alive-during-maintenance";
   private static final String EXCHANGE_UNDERGOING_MAINTENANCE_RESPONSE = "EService:Unavailable";
+  private static final String RATE_LIMIT_EXCEEDED_RESPONSE = "EAPI:Rate limit exceeded";
 
   private PairPrecisionConfig pairPrecisionConfig;
-
-  private long nonce = 0;
+  private Map<String, String> webSocketPairNames = Map.of();
 
   private BigDecimal buyFeePercentage;
   private BigDecimal sellFeePercentage;
@@ -188,9 +204,6 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
   private String key = "";
   private String secret = "";
 
-  private Mac mac;
-  private boolean initializedMacAuthentication = false;
-
   private Gson gson;
 
   @Override
@@ -202,8 +215,11 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     loadPairPrecisionConfig();
     setOtherConfig(config);
 
-    nonce = System.currentTimeMillis();
+    initNonce(System.currentTimeMillis());
     initSecureMessageLayer();
+    preWarmConnections(PUBLIC_API_BASE_URL, AUTHENTICATED_API_URL);
+    startMarketDataStream(
+        new KrakenStreamProtocol(KrakenStreamProtocol.STREAM_URI, webSocketPairNames));
   }
 
   // --------------------------------------------------------------------------
@@ -214,27 +230,54 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public MarketOrderBook getMarketOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getMarketOrderBook(marketId, FULL_ORDER_BOOK);
+  }
+
+  /*
+   * Uses the Kraken count param.
+   */
+  @Override
+  public MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    assertValidOrderBookDepth(depth);
+    return getMarketOrderBook(marketId, depth);
+  }
+
+  private MarketOrderBook getMarketOrderBook(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+
+    final MarketOrderBook streamedOrderBook = getStreamedMarketOrders(marketId, depth);
+    if (streamedOrderBook != null) {
+      return streamedOrderBook;
+    }
 
     ExchangeHttpResponse response;
 
     try {
       final Map<String, String> params = createRequestParamMap();
       params.put("pair", marketId);
+      if (depth != FULL_ORDER_BOOK) {
+        params.put("count", String.valueOf(depth));
+      }
 
-      response = sendPublicRequestToExchange("Depth", params);
+      // Order books can be big - decode it as it streams in.
+      final Type resultType =
+          new TypeToken<KrakenResponse<KrakenMarketOrderBookResult>>() {}.getType();
+      response = sendPublicStreamingRequestToExchange("Depth", params, resultType);
       LOG.debug(() -> "Market Orders response: " + response);
 
       if (response.getStatusCode() == HttpURLConnection.HTTP_OK) {
-        final Type resultType =
-            new TypeToken<KrakenResponse<KrakenMarketOrderBookResult>>() {}.getType();
-        final KrakenResponse krakenResponse = gson.fromJson(response.getPayload(), resultType);
+        final KrakenResponse krakenResponse = response.getPayloadAs(gson, resultType);
 
         final List errors = krakenResponse.error;
         if (errors == null || errors.isEmpty()) {
-          return adaptKrakenOrderBook(krakenResponse, marketId);
+          return adaptKrakenOrderBook(krakenResponse, marketId, depth);
 
         } else {
-          if (isExchangeUndergoingMaintenance(response) && keepAliveDuringMaintenance) {
+          // a streamed response has no String payload to check, so check the decoded errors too
+          if ((isExchangeUndergoingMaintenance(response)
+                  || errors.contains(EXCHANGE_UNDERGOING_MAINTENANCE_RESPONSE))
+              && keepAliveDuringMaintenance) {
             LOG.warn(() -> UNDER_MAINTENANCE_WARNING_MESSAGE);
             throw new ExchangeNetworkException(UNDER_MAINTENANCE_WARNING_MESSAGE);
           }
@@ -262,6 +305,27 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public List<OpenOrder> getYourOpenOrders(String marketId)
       throws TradingApiException, ExchangeNetworkException {
+    return getOpenOrders(marketId);
+  }
+
+  /*
+   * The Kraken OpenOrders endpoint returns the open orders for every market.
+   */
+  @Override
+  public boolean isAllOpenOrdersSupported() {
+    return true;
+  }
+
+  @Override
+  public List<OpenOrder> getAllOpenOrders() throws TradingApiException, ExchangeNetworkException {
+    return getOpenOrders(null);
+  }
+
+  /*
+   * Fetches the open orders for the given market, or for every market if marketId is null.
+   */
+  private List<OpenOrder> getOpenOrders(String marketId)
+      throws TradingApiException, ExchangeNetworkException {
 
     ExchangeHttpResponse response;
 
@@ -304,6 +368,15 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
+  /**
+   * Returns the fixed-point scales of a market, using the pair and lot decimals loaded from the
+   * AssetPairs API call when the adapter was initialised.
+   */
+  @Override
+  public FixedPointScale getFixedPointScale(String marketId) {
+    return createFixedPointScale(pairPrecisionConfig, marketId);
+  }
+
   @Override
   public String createOrder(
       String marketId, OrderType orderType, BigDecimal quantity, BigDecimal price)
@@ -541,6 +614,11 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
   @Override
   public Ticker getTicker(String marketId) throws TradingApiException, ExchangeNetworkException {
 
+    final Ticker streamedTicker = getStreamedTicker(marketId);
+    if (streamedTicker != null) {
+      return streamedTicker;
+    }
+
     ExchangeHttpResponse response;
 
     try {
@@ -562,15 +640,15 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
           final KrakenTickerResult tickerResult = (KrakenTickerResult) krakenResponse.result;
 
           // ouch!
-          return new TickerImpl(
-              new BigDecimal(tickerResult.get("c")), // last trade
-              new BigDecimal(tickerResult.get("b")), // bid
-              new BigDecimal(tickerResult.get("a")), // ask
-              new BigDecimal(tickerResult.get("l")), // low 24h
-              new BigDecimal(tickerResult.get("h")), // high 24hr
-              new BigDecimal(tickerResult.get("o")), // open
-              new BigDecimal(tickerResult.get("v")), // volume 24hr
-              new BigDecimal(tickerResult.get("p")), // vwap 24hr
+          return new LazyTickerImpl(
+              tickerResult.get("c"), // last trade
+              tickerResult.get("b"), // bid
+              tickerResult.get("a"), // ask
+              tickerResult.get("l"), // low 24h
+              tickerResult.get("h"), // high 24hr
+              tickerResult.get("o"), // open
+              tickerResult.get("v"), // volume 24hr
+              tickerResult.get("p"), // vwap 24hr
               null); // timestamp not supplied by Kraken
 
         } else {
@@ -645,7 +723,10 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     private static final long serialVersionUID = -4919711010747027759L;
   }
 
-  /** GSON class that wraps a Ticker API call result. */
+  /**
+   * GSON class that wraps a Ticker API call result. Decoded by {@link
+   * KrakenTickerResultTypeAdapter}.
+   */
   private static class KrakenTickerResult extends HashMap<String, String> {
 
     private static final long serialVersionUID = -4913711010647027759L;
@@ -677,6 +758,22 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
 
       return new PairPrecisionConfigImpl(prices, volumes);
     }
+
+    /* Maps each market id to its WebSocket feed pair name - dark pools have no feed. */
+    Map<String, String> loadWebSocketPairNames() {
+      Gson gson = new Gson();
+      Map<String, String> pairNames = new HashMap<>();
+
+      for (Entry<String, Object> entry : this.entrySet()) {
+        JsonObject jsonObject = gson.toJsonTree(entry.getValue()).getAsJsonObject();
+        JsonElement wsName = jsonObject.get("wsname");
+        if (wsName != null) {
+          pairNames.put(jsonObject.get("altname").getAsString(), wsName.getAsString());
+        }
+      }
+
+      return pairNames;
+    }
   }
 
   /** GSON class that wraps an Open Order API call result - your open orders. */
@@ -690,7 +787,9 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class the represents a Kraken Open Order. */
+  /**
+   * GSON class the represents a Kraken Open Order. Decoded by {@link KrakenOpenOrderTypeAdapter}.
+   */
   private static class KrakenOpenOrder {
 
     String refid;
@@ -701,10 +800,7 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     double expiretm;
     KrakenOpenOrderDescription descr;
     BigDecimal vol;
-
-    @SerializedName("vol_exec")
     BigDecimal volExec;
-
     BigDecimal cost;
     BigDecimal fee;
     BigDecimal price;
@@ -791,11 +887,13 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /** GSON class for a Market Order Book. */
+  /**
+   * GSON class for a Market Order Book. Decoded by {@link KrakenOrderBookTypeAdapter}.
+   */
   private static class KrakenOrderBook {
 
-    List<KrakenMarketOrder> bids;
-    List<KrakenMarketOrder> asks;
+    List<MarketOrder> bids;
+    List<MarketOrder> asks;
 
     @Override
     public String toString() {
@@ -803,99 +901,439 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
-  /**
-   * GSON class for holding Market Orders. First element in array is price, second element is
-   * amount, 3rd is UNIX time.
-   */
-  private static class KrakenMarketOrder extends ArrayList<BigDecimal> {
+  // --------------------------------------------------------------------------
+  //  GSON type adapters for the hot responses - see ResponseTypeAdapter.
+  // --------------------------------------------------------------------------
 
-    private static final long serialVersionUID = -4959711260742077759L;
+  /** Decodes a Kraken order book straight into MarketOrders. */
+  private static class KrakenOrderBookTypeAdapter extends ResponseTypeAdapter<KrakenOrderBook> {
+
+    @Override
+    KrakenOrderBook readResponse(JsonReader in) throws IOException {
+      final KrakenOrderBook orderBook = new KrakenOrderBook();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "bids":
+            orderBook.bids = readPriceLevelArrays(in, OrderType.BUY);
+            break;
+          case "asks":
+            orderBook.asks = readPriceLevelArrays(in, OrderType.SELL);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return orderBook;
+    }
   }
 
   /**
-   * Custom GSON Deserializer for Ticker API call result.
+   * Decodes a Ticker API call result.
    *
    * <p>Have to do this because last entry in the Ticker param map is a String, not an array like
    * the rest of 'em!
    */
-  private static class KrakenTickerResultDeserializer
-      implements JsonDeserializer<KrakenTickerResult> {
-
-    KrakenTickerResultDeserializer() {
-    }
-
-    public KrakenTickerResult deserialize(
-        JsonElement json, Type type, JsonDeserializationContext context) {
+  private static class KrakenTickerResultTypeAdapter
+      extends ResponseTypeAdapter<KrakenTickerResult> {
 
+    @Override
+    KrakenTickerResult readResponse(JsonReader in) throws IOException {
       final KrakenTickerResult krakenTickerResult = new KrakenTickerResult();
-      if (json.isJsonObject()) {
-
-        final JsonObject jsonObject = json.getAsJsonObject();
-
-        // assume 1 (KV) entry as per API spec - the K is the market id, the V is a Map of ticker
-        // params
-        final JsonElement tickerParams = jsonObject.entrySet().iterator().next().getValue();
-
-        final JsonObject tickerMap = tickerParams.getAsJsonObject();
-        for (Map.Entry<String, JsonElement> jsonTickerParam : tickerMap.entrySet()) {
-
-          final String key = jsonTickerParam.getKey();
+      in.beginObject();
+
+      // assume 1 (KV) entry as per API spec - the K is the market id, the V is a Map of ticker
+      // params
+      if (in.hasNext()) {
+        in.nextName();
+        in.beginObject();
+        while (in.hasNext()) {
+          final String key = in.nextName();
           switch (key) {
             case "c":
-              final List<String> lastTradeDetails =
-                  context.deserialize(jsonTickerParam.getValue(), List.class);
-              krakenTickerResult.put("c", lastTradeDetails.get(0));
-              break;
-
             case "b":
-              final List<String> bidDetails =
-                  context.deserialize(jsonTickerParam.getValue(), List.class);
-              krakenTickerResult.put("b", bidDetails.get(0));
-              break;
-
             case "a":
-              final List<String> askDetails =
-                  context.deserialize(jsonTickerParam.getValue(), List.class);
-              krakenTickerResult.put("a", askDetails.get(0));
+              krakenTickerResult.put(key, nextArrayElement(in, 0));
               break;
 
             case "l":
-              final List<String> lowDetails =
-                  context.deserialize(jsonTickerParam.getValue(), List.class);
-              krakenTickerResult.put("l", lowDetails.get(1));
-              break;
-
             case "h":
-              final List<String> highDetails =
-                  context.deserialize(jsonTickerParam.getValue(), List.class);
-              krakenTickerResult.put("h", highDetails.get(1));
-              break;
-
-            case "o":
-              final String openDetails =
-                  context.deserialize(jsonTickerParam.getValue(), String.class);
-              krakenTickerResult.put("o", openDetails);
-              break;
-
             case "v":
-              final List<String> volumeDetails =
-                  context.deserialize(jsonTickerParam.getValue(), List.class);
-              krakenTickerResult.put("v", volumeDetails.get(1));
+            case "p":
+              krakenTickerResult.put(key, nextArrayElement(in, 1));
               break;
 
-            case "p":
-              final List<String> vWapDetails =
-                  context.deserialize(jsonTickerParam.getValue(), List.class);
-              krakenTickerResult.put("p", vWapDetails.get(1));
+            case "o":
+              krakenTickerResult.put(key, nextString(in));
               break;
 
             default:
               LOG.warn(() -> "Received unexpected Ticker param - ignoring: " + key);
+              in.skipValue();
           }
         }
+        in.endObject();
       }
+      while (in.hasNext()) {
+        in.skipValue();
+      }
+      in.endObject();
       return krakenTickerResult;
     }
+
+    private static String nextArrayElement(JsonReader in, int index) throws IOException {
+      String element = null;
+      in.beginArray();
+      for (int i = 0; in.hasNext(); i++) {
+        if (i == index) {
+          element = nextString(in);
+        } else {
+          in.skipValue();
+        }
+      }
+      in.endArray();
+      return element;
+    }
+  }
+
+  /** Decodes a Kraken open order, including its description. */
+  private static class KrakenOpenOrderTypeAdapter extends ResponseTypeAdapter<KrakenOpenOrder> {
+
+    @Override
+    KrakenOpenOrder readResponse(JsonReader in) throws IOException {
+      final KrakenOpenOrder openOrder = new KrakenOpenOrder();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "refid":
+            openOrder.refid = nextString(in);
+            break;
+          case "userref":
+            openOrder.userref = nextString(in);
+            break;
+          case "status":
+            openOrder.status = nextString(in);
+            break;
+          case "opentm":
+            openOrder.opentm = nextDouble(in);
+            break;
+          case "starttm":
+            openOrder.starttm = nextDouble(in);
+            break;
+          case "expiretm":
+            openOrder.expiretm = nextDouble(in);
+            break;
+          case "descr":
+            openOrder.descr = readDescription(in);
+            break;
+          case "vol":
+            openOrder.vol = nextBigDecimal(in);
+            break;
+          case "vol_exec":
+            openOrder.volExec = nextBigDecimal(in);
+            break;
+          case "cost":
+            openOrder.cost = nextBigDecimal(in);
+            break;
+          case "fee":
+            openOrder.fee = nextBigDecimal(in);
+            break;
+          case "price":
+            openOrder.price = nextBigDecimal(in);
+            break;
+          case "misc":
+            openOrder.misc = nextString(in);
+            break;
+          case "oflags":
+            openOrder.oflags = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return openOrder;
+    }
+
+    private static KrakenOpenOrderDescription readDescription(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      final KrakenOpenOrderDescription description = new KrakenOpenOrderDescription();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "pair":
+            description.pair = nextString(in);
+            break;
+          case "type":
+            description.type = nextString(in);
+            break;
+          case "ordertype":
+            description.ordertype = nextString(in);
+            break;
+          case "price":
+            description.price = nextBigDecimal(in);
+            break;
+          case "price2":
+            description.price2 = nextBigDecimal(in);
+            break;
+          case "leverage":
+            description.leverage = nextString(in);
+            break;
+          case "order":
+            description.order = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return description;
+    }
+  }
+
+  // --------------------------------------------------------------------------
+  //  WebSocket market data feed - see MarketDataStream.
+  //  See https://docs.kraken.com/websockets/
+  // --------------------------------------------------------------------------
+
+  /**
+   * Decodes the Kraken public WebSocket feed: the book and the ticker of each market.
+   *
+   * <p>The book is a snapshot followed by updates, applied in place to the local book. Each update
+   * carries a CRC32 checksum of the top 10 levels on each side, which is checked once the update
+   * is applied. On a mismatch the market is reported out of sync and resynced: Kraken only sends a
+   * snapshot when a book is subscribed to, so it is unsubscribed from and subscribed to again.
+   */
+  static final class KrakenStreamProtocol implements StreamProtocol {
+
+    static final URI STREAM_URI = URI.create("wss://ws.kraken.com");
+    static final int BOOK_DEPTH = 100;
+
+    private static final int CHECKSUM_DEPTH = 10;
+    private static final String BOOK_CHANNEL = "book";
+    private static final String TICKER_CHANNEL = "ticker";
+
+    private final URI uri;
+    private final Map<String, String> pairNames;
+    private final Map<String, String> marketIds = new HashMap<>();
+
+    /**
+     * Creates the protocol.
+     *
+     * @param uri the feed URI.
+     * @param pairNames the feed's pair name, e.g. XBT/USD, of each market id.
+     */
+    KrakenStreamProtocol(URI uri, Map<String, String> pairNames) {
+      this.uri = uri;
+      this.pairNames = Map.copyOf(pairNames);
+      pairNames.forEach((marketId, pairName) -> marketIds.put(pairName, marketId));
+    }
+
+    @Override
+    public URI getUri() {
+      return uri;
+    }
+
+    /*
+     * Markets the feed does not know are not subscribed to - the adapter keeps using REST for
+     * them.
+     */
+    @Override
+    public List<String> createSubscribeMessages(String marketId) {
+      final String pairName = pairNames.get(marketId);
+      if (pairName == null) {
+        LOG.warn(() -> "No WebSocket pair name for market " + marketId + " - not streaming it");
+        return List.of();
+      }
+      return List.of(createBookMessage("subscribe", pairName), createTickerMessage(pairName));
+    }
+
+    @Override
+    public List<String> createResyncMessages(String marketId) {
+      final String pairName = pairNames.get(marketId);
+      if (pairName == null) {
+        return List.of();
+      }
+      return List.of(
+          createBookMessage("unsubscribe", pairName), createBookMessage("subscribe", pairName));
+    }
+
+    @Override
+    public void decode(String message, MarketDataSink sink) {
+      final JsonElement json = JsonParser.parseString(message);
+      if (json.isJsonObject()) {
+        decodeEvent(json.getAsJsonObject());
+        return;
+      }
+
+      // [CHANNEL_ID, PAYLOAD..., CHANNEL_NAME, PAIR] - a book update can have 2 payloads
+      final JsonArray channelMessage = json.getAsJsonArray();
+      final int size = channelMessage.size();
+      final String channelName = channelMessage.get(size - 2).getAsString();
+      final String marketId = marketIds.get(channelMessage.get(size - 1).getAsString());
+      if (marketId == null) {
+        return;
+      }
+      if (channelName.startsWith(BOOK_CHANNEL)) {
+        final List<JsonObject> payloads = new ArrayList<>(2);
+        for (int i = 1; i < size - 2; i++) {
+          payloads.add(channelMessage.get(i).getAsJsonObject());
+        }
+        decodeBook(marketId, payloads, sink);
+      } else if (TICKER_CHANNEL.equals(channelName)) {
+        sink.onTicker(marketId, decodeTicker(channelMessage.get(1).getAsJsonObject()));
+      }
+    }
+
+    /**
+     * Calculates the checksum of a book the way Kraken does: the price and volume of the top 10
+     * asks, then the top 10 bids, with the decimal point and leading zeros removed, are joined and
+     * CRC32'd.
+     *
+     * @param book the book.
+     * @return the checksum.
+     */
+    static long checksum(LocalOrderBook book) {
+      final StringBuilder levels = new StringBuilder(CHECKSUM_DEPTH * 2 * 24);
+      appendChecksumLevels(levels, book.getLevels(OrderType.SELL));
+      appendChecksumLevels(levels, book.getLevels(OrderType.BUY));
+      final CRC32 crc = new CRC32();
+      crc.update(levels.toString().getBytes(StandardCharsets.US_ASCII));
+      return crc.getValue();
+    }
+
+    private static void decodeEvent(JsonObject event) {
+      final String eventName = event.get("event").getAsString();
+      if ("subscriptionStatus".equals(eventName)
+          && "error".equals(event.get("status").getAsString())) {
+        LOG.warn(() -> "Kraken market data stream subscription failed: " + event);
+      } else if ("systemStatus".equals(eventName)) {
+        LOG.info(() -> "Kraken market data stream status: " + event.get("status"));
+      }
+    }
+
+    /*
+     * A snapshot has "as" and "bs" levels, an update "a" and/or "b" levels and the checksum "c".
+     * Levels are [PRICE, VOLUME, TIMESTAMP]; a volume of 0 removes the level.
+     */
+    private static void decodeBook(
+        String marketId, List<JsonObject> payloads, MarketDataSink sink) {
+      final JsonObject first = payloads.get(0);
+      if (first.has("as") || first.has("bs")) {
+        sink.onSnapshot(
+            marketId,
+            MarketDataSink.NO_SEQUENCE,
+            book -> {
+              applyLevels(book, OrderType.SELL, first.getAsJsonArray("as"));
+              applyLevels(book, OrderType.BUY, first.getAsJsonArray("bs"));
+            });
+        return;
+      }
+
+      final AtomicBoolean checksumMismatch = new AtomicBoolean();
+      final boolean applied =
+          sink.onUpdate(
+              marketId,
+              MarketDataSink.NO_SEQUENCE,
+              book -> {
+                String expectedChecksum = null;
+                for (final JsonObject payload : payloads) {
+                  applyLevels(book, OrderType.SELL, payload.getAsJsonArray("a"));
+                  applyLevels(book, OrderType.BUY, payload.getAsJsonArray("b"));
+                  if (payload.has("c")) {
+                    expectedChecksum = payload.get("c").getAsString();
+                  }
+                }
+                book.truncate(BOOK_DEPTH);
+                checksumMismatch.set(
+                    expectedChecksum != null
+                        && Long.parseLong(expectedChecksum) != checksum(book));
+              });
+      if (applied && checksumMismatch.get()) {
+        sink.onOutOfSync(marketId, "Checksum mismatch");
+      }
+    }
+
+    private static void applyLevels(LocalOrderBook book, OrderType type, JsonArray levels) {
+      if (levels == null) {
+        return;
+      }
+      for (final JsonElement level : levels) {
+        final JsonArray fields = level.getAsJsonArray();
+        book.setLevel(
+            type,
+            new BigDecimal(fields.get(0).getAsString()),
+            new BigDecimal(fields.get(1).getAsString()));
+      }
+    }
+
+    /*
+     * BigDecimals made from Kraken's strings keep their scale, so toPlainString gives back the
+     * strings Kraken checksummed.
+     */
+    private static void appendChecksumLevels(
+        StringBuilder levels, NavigableMap<BigDecimal, BigDecimal> side) {
+      int count = 0;
+      for (final Map.Entry<BigDecimal, BigDecimal> level : side.entrySet()) {
+        if (count++ == CHECKSUM_DEPTH) {
+          break;
+        }
+        appendChecksumToken(levels, level.getKey().toPlainString());
+        appendChecksumToken(levels, level.getValue().toPlainString());
+      }
+    }
+
+    private static void appendChecksumToken(StringBuilder levels, String value) {
+      boolean leadingZero = true;
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+        if (c == '.' || (leadingZero && c == '0')) {
+          continue;
+        }
+        leadingZero = false;
+        levels.append(c);
+      }
+    }
+
+    /*
+     * Same fields as the REST ticker: "o" is today's open, the others are over the last 24h.
+     */
+    private static Ticker decodeTicker(JsonObject ticker) {
+      return new LazyTickerImpl(
+          ticker.getAsJsonArray("c").get(0).getAsString(),
+          ticker.getAsJsonArray("b").get(0).getAsString(),
+          ticker.getAsJsonArray("a").get(0).getAsString(),
+          ticker.getAsJsonArray("l").get(1).getAsString(),
+          ticker.getAsJsonArray("h").get(1).getAsString(),
+          ticker.getAsJsonArray("o").get(0).getAsString(),
+          ticker.getAsJsonArray("v").get(1).getAsString(),
+          ticker.getAsJsonArray("p").get(1).getAsString(),
+          null); // timestamp not supplied by Kraken
+    }
+
+    private static String createBookMessage(String event, String pairName) {
+      return "{\"event\":\""
+          + event
+          + "\",\"pair\":[\""
+          + pairName
+          + "\"],\"subscription\":{\"name\":\""
+          + BOOK_CHANNEL
+          + "\",\"depth\":"
+          + BOOK_DEPTH
+          + "}}";
+    }
+
+    private static String createTickerMessage(String pairName) {
+      return "{\"event\":\"subscribe\",\"pair\":[\""
+          + pairName
+          + "\"],\"subscription\":{\"name\":\""
+          + TICKER_CHANNEL
+          + "\"}}";
+    }
   }
 
   // --------------------------------------------------------------------------
@@ -905,6 +1343,15 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
   private ExchangeHttpResponse sendPublicRequestToExchange(
       String apiMethod, Map<String, String> params)
       throws ExchangeNetworkException, TradingApiException {
+    return sendPublicStreamingRequestToExchange(apiMethod, params, null);
+  }
+
+  /*
+   * Makes a public API call and, if a payload type is given, decodes the response as it streams in.
+   */
+  private ExchangeHttpResponse sendPublicStreamingRequestToExchange(
+      String apiMethod, Map<String, String> params, Type payloadType)
+      throws ExchangeNetworkException, TradingApiException {
 
     if (params == null) {
       params = createRequestParamMap(); // no params, so empty query string
@@ -930,7 +1377,10 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
       }
 
       final URL url = new URL(PUBLIC_API_BASE_URL + apiMethod + queryString);
-      return makeNetworkRequest(url, "GET", null, requestHeaders);
+      if (payloadType == null) {
+        return makeNetworkRequest(url, "GET", null, requestHeaders);
+      }
+      return makeStreamingNetworkRequest(url, "GET", null, requestHeaders, payloadType);
 
     } catch (MalformedURLException e) {
       final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
@@ -950,21 +1400,18 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
    *
    * The nonce must always increasing unsigned 64 bit integer.
    *
-   * Note: Sometimes requests can arrive out of order or NTP can cause your clock to rewind,
-   * resulting in nonce issues. If you encounter this issue, you can change the nonce window in
-   * your account API settings page. The amount to set it to depends upon how you increment the
-   * nonce. Depending on your connectivity, a setting that would accommodate 3-15 seconds of
-   * network issues is suggested.
+   * Note: Requests are sent one at a time in nonce order - see leaseNonce - but NTP can cause your
+   * clock to rewind, resulting in nonce issues. If you encounter this issue, you can change the
+   * nonce window in your account API settings page. The amount to set it to depends upon how you
+   * increment the nonce. Depending on your connectivity, a setting that would accommodate 3-15
+   * seconds of network issues is suggested.
    */
   private ExchangeHttpResponse sendAuthenticatedRequestToExchange(
       String apiMethod, Map<String, String> params)
       throws ExchangeNetworkException, TradingApiException {
 
-    if (!initializedMacAuthentication) {
-      final String errorMsg = "MAC Message security layer has not been initialized.";
-      LOG.error(errorMsg);
-      throw new IllegalStateException(errorMsg);
-    }
+    // fail fast if the MAC message security layer has not been initialized
+    final RequestSigner requestSigner = getRequestSigner();
 
     try {
       if (params == null) {
@@ -972,50 +1419,55 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
         params = createRequestParamMap();
       }
 
-      // The nonce is required by Kraken in every request.
-      // It MUST be incremented each time and the nonce param MUST match the value used in
-      // signature.
-      nonce++;
-      params.put("nonce", Long.toString(nonce));
-
-      // Build the URL with query param args in it - yuk!
-      final StringBuilder postData = new StringBuilder();
-      for (final Map.Entry<String, String> param : params.entrySet()) {
-        if (postData.length() > 0) {
-          postData.append("&");
+      final URL url = new URL(AUTHENTICATED_API_URL + apiMethod);
+      try (NonceLease nonceLease = leaseNonce(url, "POST")) {
+        // The nonce is required by Kraken in every request.
+        // It MUST be incremented each time and the nonce param MUST match the value used in
+        // signature.
+        final long nonce = nonceLease.getNonce();
+        params.put("nonce", Long.toString(nonce));
+
+        // Build the URL with query param args in it - yuk!
+        final StringBuilder postData = new StringBuilder();
+        for (final Map.Entry<String, String> param : params.entrySet()) {
+          if (postData.length() > 0) {
+            postData.append("&");
+          }
+          postData.append(param.getKey());
+          postData.append("=");
+          postData.append(URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
         }
-        postData.append(param.getKey());
-        postData.append("=");
-        postData.append(URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8));
-      }
-
-      // And now the tricky part... ;-o
-      final byte[] pathInBytes =
-          ("/" + KRAKEN_API_VERSION + KRAKEN_PRIVATE_PATH + apiMethod)
-              .getBytes(StandardCharsets.UTF_8);
-      final String noncePrependedToPostData = Long.toString(nonce) + postData;
-
-      // Create sha256 hash of nonce and post data:
-      final MessageDigest md = MessageDigest.getInstance("SHA-256");
-      md.update(noncePrependedToPostData.getBytes(StandardCharsets.UTF_8));
-      final byte[] messageHash = md.digest();
-
-      // Create hmac_sha512 digest of path and previous sha256 hash
-      mac.reset(); // force reset
-      mac.update(pathInBytes);
-      mac.update(messageHash);
 
-      // Signature in Base64
-      final String signature = Base64.getEncoder().encodeToString(mac.doFinal());
+        // And now the tricky part... ;-o
+        // Create hmac_sha512 digest of path and sha256 hash of nonce and post data
+        requestSigner.reset(); // force reset
+        requestSigner
+            .update("/")
+            .update(KRAKEN_API_VERSION)
+            .update(KRAKEN_PRIVATE_PATH)
+            .update(apiMethod)
+            .updateWithSha256Of(Long.toString(nonce), postData);
+
+        // Signature in Base64
+        final String signature = requestSigner.signToBase64();
+
+        // Request headers required by Exchange
+        final Map<String, String> requestHeaders = createHeaderParamMap();
+        requestHeaders.put("Content-Type", "application/x-www-form-urlencoded");
+        requestHeaders.put("API-Key", key);
+        requestHeaders.put("API-Sign", signature);
 
-      // Request headers required by Exchange
-      final Map<String, String> requestHeaders = createHeaderParamMap();
-      requestHeaders.put("Content-Type", "application/x-www-form-urlencoded");
-      requestHeaders.put("API-Key", key);
-      requestHeaders.put("API-Sign", signature);
+        final ExchangeHttpResponse response =
+            makeNetworkRequest(url, "POST", postData.toString(), requestHeaders);
 
-      final URL url = new URL(AUTHENTICATED_API_URL + apiMethod);
-      return makeNetworkRequest(url, "POST", postData.toString(), requestHeaders);
+        // Kraken reports the call counter going over the max in the response body
+        final String payload = response.getPayload();
+        if (payload != null && payload.contains(RATE_LIMIT_EXCEEDED_RESPONSE)) {
+          LOG.warn(() -> "Kraken API call rate limit exceeded for " + apiMethod);
+          onRateLimitExceeded();
+        }
+        return response;
+      }
 
     } catch (MalformedURLException | NoSuchAlgorithmException e) {
       final String errorMsg = UNEXPECTED_IO_ERROR_MSG;
@@ -1024,6 +1476,50 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     }
   }
 
+  /*
+   * Returns how much the call increases Kraken's API call counter. Public calls are limited per IP
+   * address and don't use the counter. AddOrder and CancelOrder use a separate per-market trading
+   * counter, so they don't use it either.
+   * See https://docs.kraken.com/rest/#section/Rate-Limits
+   */
+  @Override
+  int getRateLimitCost(URL url) {
+    final String privatePath = "/" + KRAKEN_API_VERSION + KRAKEN_PRIVATE_PATH;
+    final String path = url.getPath();
+    if (!path.startsWith(privatePath)) {
+      return 0;
+    }
+    switch (path.substring(privatePath.length())) {
+      case "Ledgers":
+      case "QueryLedgers":
+      case "TradesHistory":
+      case "QueryTrades":
+        return 2;
+      case "AddOrder":
+      case "CancelOrder":
+        return 0;
+      default:
+        return 1;
+    }
+  }
+
+  /*
+   * Order placement and cancellation are sent ahead of the market data and account reads.
+   */
+  @Override
+  RequestPriority getRequestPriority(URL url, String httpMethod) {
+    final String privatePath = "/" + KRAKEN_API_VERSION + KRAKEN_PRIVATE_PATH;
+    final String path = url.getPath();
+    if (!path.startsWith(privatePath)) {
+      return RequestPriority.MARKET_DATA;
+    }
+    final String apiMethod = path.substring(privatePath.length());
+    if (apiMethod.equals("AddOrder") || apiMethod.equals("CancelOrder")) {
+      return RequestPriority.TRADING;
+    }
+    return RequestPriority.ACCOUNT;
+  }
+
   /*
    * Initialises the secure messaging layer.
    * Sets up the MAC to safeguard the data we send to the exchange.
@@ -1036,9 +1532,7 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
       final byte[] base64DecodedSecret = Base64.getDecoder().decode(secret);
 
       final SecretKeySpec keyspec = new SecretKeySpec(base64DecodedSecret, "HmacSHA512");
-      mac = Mac.getInstance("HmacSHA512");
-      mac.init(keyspec);
-      initializedMacAuthentication = true;
+      initRequestSigner(keyspec);
     } catch (NoSuchAlgorithmException e) {
       final String errorMsg = "Failed to setup MAC security. HINT: Is HmacSHA512 installed?";
       LOG.error(errorMsg, e);
@@ -1101,6 +1595,7 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
         }
 
         this.pairPrecisionConfig = krakenResponse.result.loadPrecisionConfig();
+        this.webSocketPairNames = krakenResponse.result.loadWebSocketPairNames();
       }
     } catch (ExchangeNetworkException | TradingApiException e) {
       final String errorMsg = "Failed to load price precision config";
@@ -1128,7 +1623,7 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
         final KrakenOpenOrder krakenOpenOrder = openOrder.getValue();
         final KrakenOpenOrderDescription krakenOpenOrderDescription = krakenOpenOrder.descr;
 
-        if (!marketId.equalsIgnoreCase(krakenOpenOrderDescription.pair)) {
+        if (!isOrderForMarket(marketId, krakenOpenOrderDescription.pair)) {
           continue;
         }
 
@@ -1149,7 +1644,7 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
             new OpenOrderImpl(
                 openOrder.getKey(),
                 new Date((long) krakenOpenOrder.opentm), // opentm == creationDate
-                marketId,
+                marketId == null ? krakenOpenOrderDescription.pair : marketId,
                 orderType,
                 krakenOpenOrderDescription.price,
                 // vol_exec == amount of order that has been executed
@@ -1165,8 +1660,8 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     return openOrders;
   }
 
-  private MarketOrderBookImpl adaptKrakenOrderBook(KrakenResponse krakenResponse, String marketId)
-      throws TradingApiException {
+  private MarketOrderBookImpl adaptKrakenOrderBook(
+      KrakenResponse krakenResponse, String marketId, int depth) throws TradingApiException {
 
     // Assume we'll always get something here if errors array is empty; else blow fast wih NPE
     final KrakenMarketOrderBookResult krakenOrderBookResult =
@@ -1174,29 +1669,10 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
     final Optional<KrakenOrderBook> first = krakenOrderBookResult.values().stream().findFirst();
     if (first.isPresent()) {
       final KrakenOrderBook krakenOrderBook = first.get();
-
-      final List<MarketOrder> buyOrders = new ArrayList<>();
-      for (KrakenMarketOrder krakenBuyOrder : krakenOrderBook.bids) {
-        final MarketOrder buyOrder =
-            new MarketOrderImpl(
-                OrderType.BUY,
-                krakenBuyOrder.get(0),
-                krakenBuyOrder.get(1),
-                krakenBuyOrder.get(0).multiply(krakenBuyOrder.get(1)));
-        buyOrders.add(buyOrder);
-      }
-
-      final List<MarketOrder> sellOrders = new ArrayList<>();
-      for (KrakenMarketOrder krakenSellOrder : krakenOrderBook.asks) {
-        final MarketOrder sellOrder =
-            new MarketOrderImpl(
-                OrderType.SELL,
-                krakenSellOrder.get(0),
-                krakenSellOrder.get(1),
-                krakenSellOrder.get(0).multiply(krakenSellOrder.get(1)));
-        sellOrders.add(sellOrder);
-      }
-      return new MarketOrderBookImpl(marketId, sellOrders, buyOrders);
+      return new MarketOrderBookImpl(
+          marketId,
+          limitOrderBookDepth(krakenOrderBook.asks, depth),
+          limitOrderBookDepth(krakenOrderBook.bids, depth));
     } else {
       final String errorMsg = FAILED_TO_GET_MARKET_ORDERS + krakenResponse;
       LOG.error(errorMsg);
@@ -1260,7 +1736,9 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
 
   private void initGson() {
     final GsonBuilder gsonBuilder = new GsonBuilder();
-    gsonBuilder.registerTypeAdapter(KrakenTickerResult.class, new KrakenTickerResultDeserializer());
+    gsonBuilder.registerTypeAdapter(KrakenOrderBook.class, new KrakenOrderBookTypeAdapter());
+    gsonBuilder.registerTypeAdapter(KrakenTickerResult.class, new KrakenTickerResultTypeAdapter());
+    gsonBuilder.registerTypeAdapter(KrakenOpenOrder.class, new KrakenOpenOrderTypeAdapter());
     gson = gsonBuilder.create();
   }
 
@@ -1294,4 +1772,17 @@ public final class KrakenExchangeAdapter extends AbstractExchangeAdapter
       throws TradingApiException, ExchangeNetworkException {
     return super.sendNetworkRequest(url, httpMethod, postData, requestHeaders);
   }
+
+  /*
+   * Hack for unit-testing streaming transport layer.
+   */
+  private ExchangeHttpResponse makeStreamingNetworkRequest(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Type payloadType)
+      throws TradingApiException, ExchangeNetworkException {
+    return super.sendNetworkRequest(url, httpMethod, postData, requestHeaders, gson, payloadType);
+  }
 }
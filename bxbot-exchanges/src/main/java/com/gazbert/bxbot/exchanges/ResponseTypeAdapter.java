@@ -0,0 +1,254 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges;
+
+import com.gazbert.bxbot.exchanges.trading.api.impl.LazyMarketOrderList;
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base class for the hand-written Gson TypeAdapters that decode the hot exchange responses: order
+ * books, tickers and open orders.
+ *
+ * <p>Gson's reflective binding decodes every order book price level into its own list of boxed
+ * values, which the Exchange Adapter then copies into a {@link MarketOrder}. A response type
+ * adapter instead reads the JSON a token at a time: it keeps each price level's raw price and
+ * quantity tokens in a {@link LazyMarketOrderList}, which only parses a level when it is read, sets
+ * the fields of the other response classes without reflection, and skips fields it doesn't know.
+ *
+ * <p>Response type adapters only decode - exchange responses are never serialized.
+ *
+ * @param <T> the response type.
+ * @author gazbert
+ * @since 1.2
+ */
+abstract class ResponseTypeAdapter<T> extends TypeAdapter<T> {
+
+  @Override
+  public final void write(JsonWriter out, T value) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " only decodes exchange responses");
+  }
+
+  @Override
+  public final T read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return readResponse(in);
+  }
+
+  /**
+   * Reads a response that is not JSON null.
+   *
+   * @param in the reader, positioned at the start of the response.
+   * @return the response.
+   * @throws IOException if the response cannot be read.
+   */
+  abstract T readResponse(JsonReader in) throws IOException;
+
+  /**
+   * Reads a number, or a string holding a number.
+   *
+   * @param in the reader.
+   * @return the number, or null if the value is JSON null.
+   * @throws IOException if the value cannot be read.
+   */
+  static BigDecimal nextBigDecimal(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return new BigDecimal(in.nextString());
+  }
+
+  /**
+   * Reads a string; numbers are returned as they appear in the JSON.
+   *
+   * @param in the reader.
+   * @return the string, or null if the value is JSON null.
+   * @throws IOException if the value cannot be read.
+   */
+  static String nextString(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+
+  /**
+   * Reads a whole number, or a string holding a whole number.
+   *
+   * @param in the reader.
+   * @return the number, or 0 if the value is JSON null - as Gson does for a primitive field.
+   * @throws IOException if the value cannot be read.
+   */
+  static long nextLong(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return 0;
+    }
+    return in.nextLong();
+  }
+
+  /**
+   * Reads a decimal number, or a string holding a decimal number.
+   *
+   * @param in the reader.
+   * @return the number, or 0 if the value is JSON null - as Gson does for a primitive field.
+   * @throws IOException if the value cannot be read.
+   */
+  static double nextDouble(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return 0;
+    }
+    return in.nextDouble();
+  }
+
+  /**
+   * Reads a boolean.
+   *
+   * @param in the reader.
+   * @return the boolean, or false if the value is JSON null - as Gson does for a primitive field.
+   * @throws IOException if the value cannot be read.
+   */
+  static boolean nextBoolean(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return false;
+    }
+    return in.nextBoolean();
+  }
+
+  /**
+   * Reads one side of an order book where each price level is an array, e.g. [["521.86",
+   * "0.00017398"], ["519.58", "0.25100000"]]. Values after the price and quantity - timestamps or
+   * order counts on some exchanges - are skipped.
+   *
+   * @param in the reader.
+   * @param orderType the order type of this side of the book.
+   * @return the market orders, best price first as sent by the exchange. Each level is parsed
+   *     when it is first read.
+   * @throws IOException if the orders cannot be read.
+   */
+  static List<MarketOrder> readPriceLevelArrays(JsonReader in, OrderType orderType)
+      throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return Collections.emptyList();
+    }
+    final PriceLevelTokens priceLevels = new PriceLevelTokens();
+    in.beginArray();
+    while (in.hasNext()) {
+      in.beginArray();
+      final String price = nextString(in);
+      final String quantity = nextString(in);
+      while (in.hasNext()) {
+        in.skipValue();
+      }
+      in.endArray();
+      priceLevels.add(price, quantity);
+    }
+    in.endArray();
+    return priceLevels.toMarketOrders(orderType);
+  }
+
+  /**
+   * Reads one side of an order book where each price level is an object with price and amount
+   * fields, e.g. [{"price": "521.86", "amount": "0.00017398", "timestamp": "1442080762.0"}].
+   * Other fields are skipped.
+   *
+   * @param in the reader.
+   * @param orderType the order type of this side of the book.
+   * @return the market orders, best price first as sent by the exchange. Each level is parsed
+   *     when it is first read.
+   * @throws IOException if the orders cannot be read.
+   */
+  static List<MarketOrder> readPriceLevelObjects(JsonReader in, OrderType orderType)
+      throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return Collections.emptyList();
+    }
+    final PriceLevelTokens priceLevels = new PriceLevelTokens();
+    in.beginArray();
+    while (in.hasNext()) {
+      String price = null;
+      String quantity = null;
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "price":
+            price = nextString(in);
+            break;
+          case "amount":
+            quantity = nextString(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      priceLevels.add(price, quantity);
+    }
+    in.endArray();
+    return priceLevels.toMarketOrders(orderType);
+  }
+
+  /** Collects the price and quantity tokens of an order book side, in pairs. */
+  private static final class PriceLevelTokens {
+
+    private String[] tokens = new String[64];
+    private int size;
+
+    void add(String price, String quantity) {
+      if (price == null || quantity == null) {
+        throw new JsonSyntaxException("Order book price level is missing its price or quantity");
+      }
+      if (size * 2 == tokens.length) {
+        tokens = Arrays.copyOf(tokens, tokens.length * 2);
+      }
+      tokens[size * 2] = price;
+      tokens[size * 2 + 1] = quantity;
+      size++;
+    }
+
+    List<MarketOrder> toMarketOrders(OrderType orderType) {
+      return new LazyMarketOrderList(orderType, tokens, size);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges;
+
+import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.TradingApiException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical calls that are in flight at the same time.
+ *
+ * <p>The first caller for a key makes the call. Callers that ask for the same key whilst it is in
+ * flight don't make their own call: they wait for the first one to finish and share its result, or
+ * its failure. Once the call has finished, the next caller for the key makes a new call - results
+ * are never cached.
+ *
+ * @param <K> the key type.
+ * @param <V> the result type. Results are shared between callers, so must not be mutated.
+ * @author gazbert
+ * @since 1.2
+ */
+final class SingleFlight<K, V> {
+
+  /**
+   * A call that can be coalesced.
+   *
+   * @param <V> the result type.
+   */
+  @FunctionalInterface
+  interface Call<V> {
+    V call() throws TradingApiException, ExchangeNetworkException;
+  }
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  /**
+   * Makes the call, or joins the identical call already in flight.
+   *
+   * @param key identifies identical calls.
+   * @param call the call to make if none is in flight for the key.
+   * @return the result of the call.
+   * @throws ExchangeNetworkException if the call failed with a network error.
+   * @throws TradingApiException if the call failed for any other reason, or the caller was
+   *     interrupted whilst waiting for the call in flight.
+   */
+  V execute(K key, Call<V> call) throws TradingApiException, ExchangeNetworkException {
+    final CompletableFuture<V> result = new CompletableFuture<>();
+    final CompletableFuture<V> callInFlight = inFlight.putIfAbsent(key, result);
+    if (callInFlight != null) {
+      coalescedCount.incrementAndGet();
+      return await(key, callInFlight);
+    }
+
+    try {
+      final V value = call.call();
+      result.complete(value);
+      return value;
+    } catch (TradingApiException | ExchangeNetworkException | RuntimeException | Error e) {
+      result.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, result);
+    }
+  }
+
+  /**
+   * Returns the number of calls that joined a call already in flight.
+   *
+   * @return the coalesced call count.
+   */
+  long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /*
+   * Rethrows the failure of the call in flight as a new exception of the same type, so the
+   * caller's stack trace is kept.
+   */
+  private V await(K key, CompletableFuture<V> callInFlight)
+      throws TradingApiException, ExchangeNetworkException {
+    try {
+      return callInFlight.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TradingApiException("Interrupted whilst waiting for call in flight: " + key, e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ExchangeNetworkException) {
+        throw new ExchangeNetworkException(cause.getMessage(), cause);
+      } else if (cause instanceof TradingApiException) {
+        throw new TradingApiException(cause.getMessage(), cause);
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause.getMessage(), cause);
+    }
+  }
+}
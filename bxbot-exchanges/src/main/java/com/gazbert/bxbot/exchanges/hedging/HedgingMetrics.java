@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.hedging;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Snapshot of a {@link RequestHedger}'s metrics.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class HedgingMetrics {
+
+  private final long requestCount;
+  private final long hedgedRequestCount;
+  private final long hedgeWinCount;
+  private final long budgetExhaustedCount;
+
+  HedgingMetrics(
+      long requestCount, long hedgedRequestCount, long hedgeWinCount, long budgetExhaustedCount) {
+    this.requestCount = requestCount;
+    this.hedgedRequestCount = hedgedRequestCount;
+    this.hedgeWinCount = hedgeWinCount;
+    this.budgetExhaustedCount = budgetExhaustedCount;
+  }
+
+  /**
+   * Returns the number of requests made through the hedger.
+   *
+   * @return the request count.
+   */
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  /**
+   * Returns the number of requests that were slow enough to send a hedge request.
+   *
+   * @return the hedged request count.
+   */
+  public long getHedgedRequestCount() {
+    return hedgedRequestCount;
+  }
+
+  /**
+   * Returns the number of hedge requests that answered before the original request, i.e. how often
+   * hedging helped.
+   *
+   * @return the hedge win count.
+   */
+  public long getHedgeWinCount() {
+    return hedgeWinCount;
+  }
+
+  /**
+   * Returns the number of slow requests that were not hedged because the extra load cap had been
+   * reached.
+   *
+   * @return the budget exhausted count.
+   */
+  public long getBudgetExhaustedCount() {
+    return budgetExhaustedCount;
+  }
+
+  /**
+   * Returns the extra load hedging has put on the exchange, as a percentage of the requests made.
+   *
+   * @return the extra load percentage.
+   */
+  public double getExtraLoadPercent() {
+    return requestCount == 0 ? 0 : 100.0 * hedgedRequestCount / requestCount;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("requestCount", requestCount)
+        .add("hedgedRequestCount", hedgedRequestCount)
+        .add("hedgeWinCount", hedgeWinCount)
+        .add("budgetExhaustedCount", budgetExhaustedCount)
+        .toString();
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.hedging;
+
+import com.gazbert.bxbot.exchanges.transport.LatencyWindow;
+import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.TradingApiException;
+import com.google.common.base.MoreObjects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hedges slow idempotent requests.
+ *
+ * <p>The response times of each endpoint are tracked in a rolling window. If a request has not
+ * answered within the configured percentile of its endpoint's recent response times, a second
+ * identical request - the hedge - is sent, and whichever answers first wins. The other response is
+ * discarded. The request only fails if both requests fail.
+ *
+ * <p>Hedge requests are extra load on the exchange, so they are capped at a percentage of the
+ * requests made: once the cap is reached, slow requests are not hedged until enough requests have
+ * been made to free up the budget.
+ *
+ * <p>Only use this for calls that are safe to send twice, i.e. public market data reads.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class RequestHedger {
+
+  /**
+   * A call that can be hedged.
+   *
+   * @param <V> the result type.
+   */
+  @FunctionalInterface
+  public interface Call<V> {
+    V call() throws TradingApiException, ExchangeNetworkException;
+  }
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  /** Default cap on the hedge requests, as a percentage of the requests made. */
+  public static final double DEFAULT_MAX_EXTRA_LOAD_PERCENT = 5.0;
+
+  static final int DEFAULT_WINDOW_SIZE = 100;
+  static final int DEFAULT_MIN_SAMPLES = 20;
+
+  private final double latencyPercentile;
+  private final double maxExtraLoadPercent;
+  private final int windowSize;
+  private final int minSamples;
+  private final Executor executor;
+
+  private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong hedgedRequestCount = new AtomicLong();
+  private final AtomicLong hedgeWinCount = new AtomicLong();
+  private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+  /**
+   * Creates a request hedger.
+   *
+   * @param latencyPercentile the percentile of an endpoint's recent response times after which a
+   *     hedge request is sent, e.g. 95.
+   * @param maxExtraLoadPercent the cap on the hedge requests, as a percentage of the requests made.
+   * @param executor runs the requests whilst the caller waits for the first to answer.
+   * @throws IllegalArgumentException if the percentile or extra load cap is not valid.
+   */
+  public RequestHedger(double latencyPercentile, double maxExtraLoadPercent, Executor executor) {
+    this(
+        latencyPercentile,
+        maxExtraLoadPercent,
+        executor,
+        DEFAULT_WINDOW_SIZE,
+        DEFAULT_MIN_SAMPLES);
+  }
+
+  RequestHedger(
+      double latencyPercentile,
+      double maxExtraLoadPercent,
+      Executor executor,
+      int windowSize,
+      int minSamples) {
+    if (latencyPercentile <= 0 || latencyPercentile >= 100) {
+      throw new IllegalArgumentException(
+          "Hedge latency percentile must be more than 0 and less than 100: " + latencyPercentile);
+    }
+    if (maxExtraLoadPercent <= 0 || maxExtraLoadPercent > 100) {
+      throw new IllegalArgumentException(
+          "Hedge max extra load must be more than 0 and 100 percent or less: "
+              + maxExtraLoadPercent);
+    }
+    this.latencyPercentile = latencyPercentile;
+    this.maxExtraLoadPercent = maxExtraLoadPercent;
+    this.executor = executor;
+    this.windowSize = windowSize;
+    this.minSamples = minSamples;
+  }
+
+  /**
+   * Makes the call, and hedges it if it is slow.
+   *
+   * <p>Until the endpoint has enough recent response times for the percentile to be reliable, the
+   * call is made on the caller's thread and is not hedged.
+   *
+   * @param endpoint identifies the endpoint; response times are tracked per endpoint.
+   * @param call the call to make.
+   * @param <V> the result type.
+   * @return the result of the first call to answer.
+   * @throws ExchangeNetworkException if the call, and its hedge if one was sent, failed with a
+   *     network error.
+   * @throws TradingApiException if the call failed for any other reason, or the caller was
+   *     interrupted whilst waiting for it.
+   */
+  public <V> V execute(String endpoint, Call<V> call)
+      throws TradingApiException, ExchangeNetworkException {
+    final LatencyWindow window =
+        latencies.computeIfAbsent(endpoint, key -> new LatencyWindow(windowSize));
+    requestCount.incrementAndGet();
+
+    final long hedgeDelayNanos = window.percentile(latencyPercentile, minSamples);
+    if (hedgeDelayNanos < 0) {
+      return timedCall(call, window);
+    }
+
+    final CompletableFuture<V> primary = submit(call, window);
+    try {
+      return primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      // slow - hedge it below
+    } catch (InterruptedException e) {
+      throw interrupted(endpoint, e);
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
+    }
+
+    if (!tryReserveHedge()) {
+      budgetExhaustedCount.incrementAndGet();
+      LOG.debug(() -> "Hedge budget used up - not hedging slow request to " + endpoint);
+      return await(endpoint, primary);
+    }
+
+    LOG.debug(
+        () ->
+            "No response from "
+                + endpoint
+                + " after "
+                + TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos)
+                + "ms - sending hedge request");
+    final CompletableFuture<V> hedge = submit(call, null);
+    final CompletableFuture<V> firstSuccess = new CompletableFuture<>();
+    final AtomicInteger failures = new AtomicInteger();
+    primary.whenComplete((value, failure) -> complete(firstSuccess, value, failure, failures));
+    hedge.whenComplete((value, failure) -> complete(firstSuccess, value, failure, failures));
+
+    final V result = await(endpoint, firstSuccess);
+    if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.getNow(null) == result) {
+      hedgeWinCount.incrementAndGet();
+      LOG.debug(() -> "Hedge request to " + endpoint + " answered first");
+    }
+    return result;
+  }
+
+  /**
+   * Returns a snapshot of the hedger's metrics.
+   *
+   * @return the metrics.
+   */
+  public HedgingMetrics getMetrics() {
+    return new HedgingMetrics(
+        requestCount.get(),
+        hedgedRequestCount.get(),
+        hedgeWinCount.get(),
+        budgetExhaustedCount.get());
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("latencyPercentile", latencyPercentile)
+        .add("maxExtraLoadPercent", maxExtraLoadPercent)
+        .add("windowSize", windowSize)
+        .add("minSamples", minSamples)
+        .toString();
+  }
+
+  /*
+   * Only the original request's response times are recorded: hedges answer faster by design, so
+   * recording them would drag the percentile down and hedge ever more requests.
+   */
+  private <V> CompletableFuture<V> submit(Call<V> call, LatencyWindow window) {
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    executor.execute(
+        () -> {
+          try {
+            future.complete(window == null ? call.call() : timedCall(call, window));
+          } catch (TradingApiException | ExchangeNetworkException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+          }
+        });
+    return future;
+  }
+
+  private static <V> V timedCall(Call<V> call, LatencyWindow window)
+      throws TradingApiException, ExchangeNetworkException {
+    final long startNanos = System.nanoTime();
+    final V result = call.call();
+    window.record(System.nanoTime() - startNanos);
+    return result;
+  }
+
+  private boolean tryReserveHedge() {
+    while (true) {
+      final long hedged = hedgedRequestCount.get();
+      if ((hedged + 1) * 100 > maxExtraLoadPercent * requestCount.get()) {
+        return false;
+      }
+      if (hedgedRequestCount.compareAndSet(hedged, hedged + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /*
+   * The first success wins. A failure only completes the result once both requests have failed.
+   */
+  private static <V> void complete(
+      CompletableFuture<V> firstSuccess, V value, Throwable failure, AtomicInteger failures) {
+    if (failure == null) {
+      firstSuccess.complete(value);
+    } else if (failures.incrementAndGet() == 2) {
+      firstSuccess.completeExceptionally(failure);
+    }
+  }
+
+  private static <V> V await(String endpoint, CompletableFuture<V> future)
+      throws TradingApiException, ExchangeNetworkException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      throw interrupted(endpoint, e);
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
+    }
+  }
+
+  private static TradingApiException interrupted(String endpoint, InterruptedException e) {
+    Thread.currentThread().interrupt();
+    final String errorMsg = "Interrupted whilst waiting for response from " + endpoint;
+    LOG.error(errorMsg, e);
+    return new TradingApiException(errorMsg, e);
+  }
+
+  private static TradingApiException rethrow(Throwable cause) throws ExchangeNetworkException {
+    if (cause instanceof ExchangeNetworkException) {
+      throw (ExchangeNetworkException) cause;
+    } else if (cause instanceof TradingApiException) {
+      return (TradingApiException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    throw new IllegalStateException(cause);
+  }
+}
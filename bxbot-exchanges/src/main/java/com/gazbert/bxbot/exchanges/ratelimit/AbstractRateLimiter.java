@@ -0,0 +1,238 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Base class for the rate limiters.
+ *
+ * <p>Permits are taken under a lock, but the waiting is done outside it. A call that has to wait
+ * joins a queue ordered by priority, then by arrival, and does not reserve its permits up front: it
+ * sleeps until the limiter should have enough permits for it and every call ahead of it in the
+ * queue, then checks again. A call can only take permits if that leaves enough for the calls ahead
+ * of it, so a trading call that arrives behind a burst of market data reads takes the next permits
+ * rather than waiting for the whole burst to be paid back.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+abstract class AbstractRateLimiter implements RateLimiter {
+
+  /** Sleeps the calling thread; pluggable for testing. */
+  @FunctionalInterface
+  interface Sleeper {
+    void sleep(long nanos) throws InterruptedException;
+  }
+
+  private final LongSupplier nanoClock;
+  private final Sleeper sleeper;
+  private final List<Waiter> waiters = new ArrayList<>();
+
+  private long arrivalCount;
+  private long callCount;
+  private long throttledCallCount;
+  private long rejectedCallCount;
+  private int maxQueueDepth;
+  private long totalWaitNanos;
+  private long maxWaitNanos;
+
+  AbstractRateLimiter(LongSupplier nanoClock, Sleeper sleeper) {
+    this.nanoClock = nanoClock;
+    this.sleeper = sleeper;
+  }
+
+  @Override
+  public boolean tryAcquire(int permits, RequestPriority priority, Duration maxWait)
+      throws InterruptedException {
+    if (permits < 0) {
+      throw new IllegalArgumentException("Permits cannot be negative: " + permits);
+    }
+
+    final Waiter waiter;
+    final long startNanos;
+    final long deadlineNanos;
+    long waitNanos;
+    synchronized (this) {
+      startNanos = nanoClock.getAsLong();
+      deadlineNanos = startNanos + maxWait.toNanos();
+      waiter = new Waiter(permits, priority, arrivalCount++);
+      waitNanos = nanosUntilServed(waiter, startNanos);
+      if (waitNanos == 0) {
+        take(permits);
+        callCount++;
+        return true;
+      }
+      if (startNanos + waitNanos - deadlineNanos > 0) {
+        rejectedCallCount++;
+        return false;
+      }
+      waiters.add(waiter);
+      maxQueueDepth = Math.max(maxQueueDepth, waiters.size());
+    }
+
+    try {
+      while (true) {
+        sleeper.sleep(waitNanos);
+        synchronized (this) {
+          final long nowNanos = nanoClock.getAsLong();
+          waitNanos = nanosUntilServed(waiter, nowNanos);
+          if (waitNanos == 0) {
+            take(permits);
+            final long waitedNanos = nowNanos - startNanos;
+            callCount++;
+            throttledCallCount++;
+            totalWaitNanos += waitedNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitedNanos);
+            return true;
+          }
+          if (nowNanos + waitNanos - deadlineNanos > 0) {
+            // overtaken by higher priority calls
+            rejectedCallCount++;
+            return false;
+          }
+        }
+      }
+    } finally {
+      synchronized (this) {
+        waiters.remove(waiter);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void onRateLimitExceeded() {
+    drain(nanoClock.getAsLong());
+  }
+
+  @Override
+  public synchronized RateLimiterMetrics getMetrics() {
+    return new RateLimiterMetrics(
+        callCount,
+        throttledCallCount,
+        rejectedCallCount,
+        waiters.size(),
+        maxQueueDepth,
+        Duration.ofNanos(totalWaitNanos),
+        Duration.ofNanos(maxWaitNanos));
+  }
+
+  /*
+   * Returns 0 if the waiter can take its permits now, else how long until it should be able to,
+   * assuming the waiters ahead of it are served first. A waiter at the front of the queue whose
+   * cost is more than the limiter's capacity is served once the limiter is full.
+   */
+  private long nanosUntilServed(Waiter waiter, long nowNanos) {
+    final double available = getAvailablePermits(nowNanos);
+    if (waiter.permits == 0) {
+      return 0;
+    }
+    double permitsAhead = 0;
+    for (final Waiter other : waiters) {
+      if (other.isAheadOf(waiter)) {
+        permitsAhead += other.permits;
+      }
+    }
+    final double permitsNeeded = permitsAhead + waiter.permits;
+    if (available >= permitsNeeded || (permitsAhead == 0 && available >= getCapacity())) {
+      return 0;
+    }
+    return secondsToNanos((permitsNeeded - available) / getPermitsPerSecond());
+  }
+
+  /**
+   * Brings the limiter up to date and returns the permits available. Called whilst holding the
+   * limiter's lock.
+   *
+   * @param nowNanos the current time.
+   * @return the permits available; negative if an oversized call has put the limiter into debt.
+   */
+  abstract double getAvailablePermits(long nowNanos);
+
+  /**
+   * Takes permits. Called whilst holding the limiter's lock, straight after {@link
+   * #getAvailablePermits(long)}.
+   *
+   * @param permits the permits to take.
+   */
+  abstract void take(int permits);
+
+  /**
+   * Returns the max permits the limiter can hold.
+   *
+   * @return the capacity.
+   */
+  abstract int getCapacity();
+
+  /**
+   * Returns the rate permits become available again.
+   *
+   * @return the permits per second.
+   */
+  abstract double getPermitsPerSecond();
+
+  /**
+   * Uses up all the available permits. Called whilst holding the limiter's lock.
+   *
+   * @param nowNanos the current time.
+   */
+  abstract void drain(long nowNanos);
+
+  static void sleepNanos(long nanos) throws InterruptedException {
+    TimeUnit.NANOSECONDS.sleep(nanos);
+  }
+
+  static long secondsToNanos(double seconds) {
+    return (long) Math.ceil(seconds * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  static double nanosToSeconds(long nanos) {
+    return (double) nanos / TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /** A call waiting for permits. */
+  private static final class Waiter {
+
+    private final int permits;
+    private final RequestPriority priority;
+    private final long arrival;
+
+    Waiter(int permits, RequestPriority priority, long arrival) {
+      this.permits = permits;
+      this.priority = priority;
+      this.arrival = arrival;
+    }
+
+    boolean isAheadOf(Waiter other) {
+      final int byPriority = priority.compareTo(other.priority);
+      return byPriority < 0 || (byPriority == 0 && arrival < other.arrival);
+    }
+  }
+}
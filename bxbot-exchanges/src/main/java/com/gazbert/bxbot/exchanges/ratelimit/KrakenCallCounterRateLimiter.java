@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import com.google.common.base.MoreObjects;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter that mirrors Kraken's API call counter.
+ *
+ * <p>Kraken gives each API key a counter that starts at 0. Each private API call increases it -
+ * most calls by 1, the ledger and trade history calls by 2 - and the counter decays over time. If
+ * the counter goes over the max, Kraken rejects calls with an {@code EAPI:Rate limit exceeded}
+ * error and can lock the key out. The max and decay rate depend on the account's verification tier:
+ *
+ * <ul>
+ *   <li>Starter - max 15, decays 0.33 per second.
+ *   <li>Intermediate - max 20, decays 0.5 per second.
+ *   <li>Pro - max 20, decays 1 per second.
+ * </ul>
+ *
+ * <p>This limiter keeps its own copy of the counter and holds back a call until it can be made
+ * without the counter going over the max. See https://docs.kraken.com/rest/#section/Rate-Limits
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public class KrakenCallCounterRateLimiter extends AbstractRateLimiter {
+
+  /** Max counter value for a Starter tier account. */
+  public static final int DEFAULT_MAX_COUNTER = 15;
+
+  /** Counter decay per second for a Starter tier account. */
+  public static final double DEFAULT_DECAY_PER_SECOND = 0.33;
+
+  private final int maxCounter;
+  private final double decayPerSecond;
+
+  private double counter;
+  private long lastDecayNanos;
+
+  /**
+   * Creates a new Kraken call counter rate limiter.
+   *
+   * @param maxCounter the max counter value for the account's tier.
+   * @param decayPerSecond the counter decay per second for the account's tier.
+   * @throws IllegalArgumentException if maxCounter or decayPerSecond are not greater than 0.
+   */
+  public KrakenCallCounterRateLimiter(int maxCounter, double decayPerSecond) {
+    this(maxCounter, decayPerSecond, System::nanoTime, AbstractRateLimiter::sleepNanos);
+  }
+
+  KrakenCallCounterRateLimiter(
+      int maxCounter, double decayPerSecond, LongSupplier nanoClock, Sleeper sleeper) {
+    super(nanoClock, sleeper);
+    if (maxCounter < 1) {
+      throw new IllegalArgumentException("Kraken max counter must be at least 1: " + maxCounter);
+    }
+    if (!(decayPerSecond > 0)) {
+      throw new IllegalArgumentException(
+          "Kraken counter decay per second must be greater than 0: " + decayPerSecond);
+    }
+    this.maxCounter = maxCounter;
+    this.decayPerSecond = decayPerSecond;
+    lastDecayNanos = nanoClock.getAsLong();
+  }
+
+  @Override
+  double getAvailablePermits(long nowNanos) {
+    decay(nowNanos);
+    return maxCounter - counter;
+  }
+
+  @Override
+  void take(int permits) {
+    counter += permits;
+  }
+
+  @Override
+  int getCapacity() {
+    return maxCounter;
+  }
+
+  @Override
+  double getPermitsPerSecond() {
+    return decayPerSecond;
+  }
+
+  @Override
+  void drain(long nowNanos) {
+    decay(nowNanos);
+    counter = Math.max(counter, maxCounter);
+  }
+
+  /**
+   * Returns the limiter's copy of the Kraken call counter. This is only over the max if a call
+   * cost more than the max.
+   *
+   * @return the counter value.
+   */
+  public synchronized double getCounter() {
+    return counter;
+  }
+
+  private void decay(long nowNanos) {
+    counter = Math.max(0, counter - nanosToSeconds(nowNanos - lastDecayNanos) * decayPerSecond);
+    lastDecayNanos = nowNanos;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("maxCounter", maxCounter)
+        .add("decayPerSecond", decayPerSecond)
+        .toString();
+  }
+}
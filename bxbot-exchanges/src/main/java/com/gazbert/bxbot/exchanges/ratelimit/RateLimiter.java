@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
+import java.time.Duration;
+
+/**
+ * Client side rate limiter for the API calls an Exchange Adapter makes.
+ *
+ * <p>Exchanges lock out API keys that exceed their call limits. A rate limiter schedules the calls
+ * so they are sent just under the limit: a call that would exceed it is held back until the limiter
+ * has capacity, rather than being sent and rejected by the exchange.
+ *
+ * <p>Implementations must be thread-safe: the same limiter is shared by all the requests an adapter
+ * makes. Waiting callers are served in priority order, and in the order they asked for permits
+ * within a priority, so an order cancel is never held back by queued market data reads.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public interface RateLimiter {
+
+  /**
+   * Acquires permits for an API call, waiting until they are available.
+   *
+   * <p>If the permits cannot be acquired within the max wait time, the call returns without waiting
+   * any longer and no permits are taken. A call can be overtaken by higher priority calls that
+   * arrive whilst it waits, so it may still return false after it has started waiting.
+   *
+   * @param permits the cost of the API call. A call that costs 0 is never held back.
+   * @param priority the priority of the API call.
+   * @param maxWait the max time to wait for the permits.
+   * @return true if the permits were acquired, false if they were not available in time.
+   * @throws InterruptedException if the calling thread was interrupted whilst waiting.
+   */
+  boolean tryAcquire(int permits, RequestPriority priority, Duration maxWait)
+      throws InterruptedException;
+
+  /**
+   * Tells the limiter the exchange rejected a call for exceeding its rate limit, e.g. the limiter
+   * was configured too generously or other clients are using the same API key. The limiter assumes
+   * it has no capacity left and holds back calls until it has recovered.
+   */
+  void onRateLimitExceeded();
+
+  /**
+   * Returns a snapshot of the limiter's metrics.
+   *
+   * @return the metrics.
+   */
+  RateLimiterMetrics getMetrics();
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates the rate limiter configured for an Exchange Adapter in the exchange.yaml file.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class RateLimiterFactory {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  /**
+   * Config value for the {@link TokenBucketRateLimiter}.
+   */
+  public static final String TOKEN_BUCKET = "token-bucket";
+
+  /**
+   * Config value for the {@link KrakenCallCounterRateLimiter}.
+   */
+  public static final String KRAKEN_COUNTER = "kraken-counter";
+
+  private RateLimiterFactory() {
+  }
+
+  /**
+   * Creates a rate limiter.
+   *
+   * @param type the type of rate limiter: {@link #TOKEN_BUCKET} or {@link #KRAKEN_COUNTER}.
+   * @param burst the max burst size. Optional for the Kraken counter.
+   * @param callsPerSecond the sustained call rate. Optional for the Kraken counter.
+   * @return the rate limiter, or null if type is null, i.e. calls are not rate limited.
+   * @throws IllegalArgumentException if the type is unknown or its config is invalid.
+   */
+  public static RateLimiter createRateLimiter(String type, Integer burst, Double callsPerSecond) {
+    if (type == null) {
+      return null;
+    }
+
+    switch (type) {
+      case TOKEN_BUCKET:
+        if (burst == null || callsPerSecond == null) {
+          final String errorMsg =
+              "rateLimitBurst and rateLimitCallsPerSecond must be set for the "
+                  + TOKEN_BUCKET
+                  + " rate limiter.";
+          LOG.error(errorMsg);
+          throw new IllegalArgumentException(errorMsg);
+        }
+        return new TokenBucketRateLimiter(burst, callsPerSecond);
+
+      case KRAKEN_COUNTER:
+        return new KrakenCallCounterRateLimiter(
+            burst == null ? KrakenCallCounterRateLimiter.DEFAULT_MAX_COUNTER : burst,
+            callsPerSecond == null
+                ? KrakenCallCounterRateLimiter.DEFAULT_DECAY_PER_SECOND
+                : callsPerSecond);
+
+      default:
+        final String errorMsg =
+            "Unknown rate limiter: " + type + " - use " + TOKEN_BUCKET + " or " + KRAKEN_COUNTER;
+        LOG.error(errorMsg);
+        throw new IllegalArgumentException(errorMsg);
+    }
+  }
+}
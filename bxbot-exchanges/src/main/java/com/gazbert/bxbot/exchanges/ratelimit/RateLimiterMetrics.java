@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import com.google.common.base.MoreObjects;
+import java.time.Duration;
+
+/**
+ * Snapshot of a {@link RateLimiter}'s metrics.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class RateLimiterMetrics {
+
+  private final long callCount;
+  private final long throttledCallCount;
+  private final long rejectedCallCount;
+  private final int queueDepth;
+  private final int maxQueueDepth;
+  private final Duration totalWaitTime;
+  private final Duration maxWaitTime;
+
+  RateLimiterMetrics(
+      long callCount,
+      long throttledCallCount,
+      long rejectedCallCount,
+      int queueDepth,
+      int maxQueueDepth,
+      Duration totalWaitTime,
+      Duration maxWaitTime) {
+    this.callCount = callCount;
+    this.throttledCallCount = throttledCallCount;
+    this.rejectedCallCount = rejectedCallCount;
+    this.queueDepth = queueDepth;
+    this.maxQueueDepth = maxQueueDepth;
+    this.totalWaitTime = totalWaitTime;
+    this.maxWaitTime = maxWaitTime;
+  }
+
+  /**
+   * Returns the number of calls that were given permits.
+   *
+   * @return the call count.
+   */
+  public long getCallCount() {
+    return callCount;
+  }
+
+  /**
+   * Returns the number of calls that had to wait for permits.
+   *
+   * @return the throttled call count.
+   */
+  public long getThrottledCallCount() {
+    return throttledCallCount;
+  }
+
+  /**
+   * Returns the number of calls that could not be given permits within their max wait time.
+   *
+   * @return the rejected call count.
+   */
+  public long getRejectedCallCount() {
+    return rejectedCallCount;
+  }
+
+  /**
+   * Returns the number of calls currently waiting for permits.
+   *
+   * @return the queue depth.
+   */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /**
+   * Returns the highest number of calls that have been waiting for permits at the same time.
+   *
+   * @return the max queue depth.
+   */
+  public int getMaxQueueDepth() {
+    return maxQueueDepth;
+  }
+
+  /**
+   * Returns the total time calls have spent waiting for permits.
+   *
+   * @return the total wait time.
+   */
+  public Duration getTotalWaitTime() {
+    return totalWaitTime;
+  }
+
+  /**
+   * Returns the longest time a call has waited for permits.
+   *
+   * @return the max wait time.
+   */
+  public Duration getMaxWaitTime() {
+    return maxWaitTime;
+  }
+
+  /**
+   * Returns the mean time a call has waited for permits, including the calls that did not wait.
+   *
+   * @return the mean wait time.
+   */
+  public Duration getMeanWaitTime() {
+    return callCount == 0 ? Duration.ZERO : totalWaitTime.dividedBy(callCount);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("callCount", callCount)
+        .add("throttledCallCount", throttledCallCount)
+        .add("rejectedCallCount", rejectedCallCount)
+        .add("queueDepth", queueDepth)
+        .add("maxQueueDepth", maxQueueDepth)
+        .add("totalWaitTime", totalWaitTime)
+        .add("maxWaitTime", maxWaitTime)
+        .toString();
+  }
+}
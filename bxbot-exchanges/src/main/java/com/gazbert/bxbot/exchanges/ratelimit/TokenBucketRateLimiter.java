@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import com.google.common.base.MoreObjects;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter.
+ *
+ * <p>The bucket holds up to {@code burst} tokens and is refilled at a steady rate. Each API call
+ * takes its cost in tokens from the bucket; if there are not enough, the call waits for the bucket
+ * to refill. This suits exchanges that publish a max number of calls per time window, e.g.
+ * Bitstamp's 8000 requests per 10 minutes, or Gemini's 600 public requests per minute.
+ *
+ * <p>The bucket starts full, so the first {@code burst} calls are not held back.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public class TokenBucketRateLimiter extends AbstractRateLimiter {
+
+  private final int burst;
+  private final double tokensPerSecond;
+
+  private double tokens;
+  private long lastRefillNanos;
+
+  /**
+   * Creates a new token bucket rate limiter.
+   *
+   * @param burst the size of the bucket, i.e. the max number of calls that can be made at once.
+   * @param tokensPerSecond the rate the bucket is refilled at, i.e. the sustained calls per second.
+   * @throws IllegalArgumentException if burst or tokensPerSecond are not greater than 0.
+   */
+  public TokenBucketRateLimiter(int burst, double tokensPerSecond) {
+    this(burst, tokensPerSecond, System::nanoTime, AbstractRateLimiter::sleepNanos);
+  }
+
+  TokenBucketRateLimiter(
+      int burst, double tokensPerSecond, LongSupplier nanoClock, Sleeper sleeper) {
+    super(nanoClock, sleeper);
+    if (burst < 1) {
+      throw new IllegalArgumentException("Token bucket burst must be at least 1: " + burst);
+    }
+    if (!(tokensPerSecond > 0)) {
+      throw new IllegalArgumentException(
+          "Token bucket calls per second must be greater than 0: " + tokensPerSecond);
+    }
+    this.burst = burst;
+    this.tokensPerSecond = tokensPerSecond;
+    tokens = burst;
+    lastRefillNanos = nanoClock.getAsLong();
+  }
+
+  @Override
+  double getAvailablePermits(long nowNanos) {
+    refill(nowNanos);
+    return tokens;
+  }
+
+  @Override
+  void take(int permits) {
+    tokens -= permits;
+  }
+
+  @Override
+  int getCapacity() {
+    return burst;
+  }
+
+  @Override
+  double getPermitsPerSecond() {
+    return tokensPerSecond;
+  }
+
+  @Override
+  void drain(long nowNanos) {
+    refill(nowNanos);
+    tokens = Math.min(tokens, 0);
+  }
+
+  /**
+   * Returns the number of tokens in the bucket. This is only negative if a call cost more than
+   * the bucket can hold.
+   *
+   * @return the tokens in the bucket.
+   */
+  public synchronized double getTokens() {
+    return tokens;
+  }
+
+  private void refill(long nowNanos) {
+    tokens = Math.min(burst, tokens + nanosToSeconds(nowNanos - lastRefillNanos) * tokensPerSecond);
+    lastRefillNanos = nowNanos;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("burst", burst)
+        .add("tokensPerSecond", tokensPerSecond)
+        .toString();
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.resilience;
+
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
+import com.google.common.base.MoreObjects;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for a single exchange endpoint.
+ *
+ * <p>The breaker starts CLOSED and lets every call through. Once the configured number of
+ * consecutive calls have failed, it trips OPEN: calls are rejected without being sent to the
+ * exchange until a backoff has passed. The breaker then goes HALF_OPEN and lets a single probe call
+ * through. If the probe succeeds, the breaker closes again; if it fails, the breaker trips OPEN
+ * again.
+ *
+ * <p>The backoff doubles each time the breaker trips without a successful call in between, from
+ * the min backoff up to the max backoff. Equal jitter is applied - the breaker stays open for
+ * between half and all of the backoff - so the adapters do not all retry a struggling exchange at
+ * the same moment.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class CircuitBreaker {
+
+  private final int failureThreshold;
+  private final long minBackoffNanos;
+  private final long maxBackoffNanos;
+  private final LongSupplier nanoClock;
+  private final DoubleSupplier random;
+
+  private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+  private int consecutiveFailures;
+  private int tripCount;
+  private long openUntilNanos;
+  private boolean probeInFlight;
+  private long rejectedCallCount;
+
+  /**
+   * Creates a circuit breaker.
+   *
+   * @param failureThreshold the number of consecutive failed calls that trips the breaker.
+   * @param minBackoff how long the breaker stays open the first time it trips, before jitter.
+   * @param maxBackoff the cap on how long the breaker stays open, before jitter.
+   * @throws IllegalArgumentException if the threshold or backoffs are not valid.
+   */
+  public CircuitBreaker(int failureThreshold, Duration minBackoff, Duration maxBackoff) {
+    this(
+        failureThreshold,
+        minBackoff,
+        maxBackoff,
+        System::nanoTime,
+        () -> ThreadLocalRandom.current().nextDouble());
+  }
+
+  CircuitBreaker(
+      int failureThreshold,
+      Duration minBackoff,
+      Duration maxBackoff,
+      LongSupplier nanoClock,
+      DoubleSupplier random) {
+    validate(failureThreshold, minBackoff, maxBackoff);
+    this.failureThreshold = failureThreshold;
+    this.minBackoffNanos = minBackoff.toNanos();
+    this.maxBackoffNanos = maxBackoff.toNanos();
+    this.nanoClock = nanoClock;
+    this.random = random;
+  }
+
+  static void validate(int failureThreshold, Duration minBackoff, Duration maxBackoff) {
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException(
+          "Circuit breaker failure threshold must be at least 1: " + failureThreshold);
+    }
+    if (minBackoff.isNegative() || minBackoff.isZero() || maxBackoff.compareTo(minBackoff) < 0) {
+      throw new IllegalArgumentException(
+          "Circuit breaker min backoff must be more than 0 and no more than the max backoff: "
+              + minBackoff
+              + " / "
+              + maxBackoff);
+    }
+  }
+
+  /**
+   * Asks the breaker if a call can be sent to the endpoint. If true is returned, the caller must
+   * report the outcome with {@link #onSuccess()} or {@link #onFailure()}, or call {@link
+   * #releasePermission()} if the call was not sent after all.
+   *
+   * @return true if the call can be sent, false if it must fail fast.
+   */
+  public synchronized boolean tryAcquirePermission() {
+    if (state == CircuitBreakerState.OPEN && nanoClock.getAsLong() - openUntilNanos >= 0) {
+      state = CircuitBreakerState.HALF_OPEN;
+      probeInFlight = false;
+    }
+    if (state == CircuitBreakerState.CLOSED) {
+      return true;
+    }
+    if (state == CircuitBreakerState.HALF_OPEN && !probeInFlight) {
+      probeInFlight = true;
+      return true;
+    }
+    rejectedCallCount++;
+    return false;
+  }
+
+  /** Gives back a permission that was not used because the call was not sent to the exchange. */
+  public synchronized void releasePermission() {
+    probeInFlight = false;
+  }
+
+  /** Records a call that reached the exchange and got a response. Closes the breaker. */
+  public synchronized void onSuccess() {
+    state = CircuitBreakerState.CLOSED;
+    consecutiveFailures = 0;
+    tripCount = 0;
+    probeInFlight = false;
+  }
+
+  /** Records a call that failed with a network error. May trip the breaker. */
+  public synchronized void onFailure() {
+    if (state == CircuitBreakerState.HALF_OPEN) {
+      trip();
+    } else if (state == CircuitBreakerState.CLOSED && ++consecutiveFailures >= failureThreshold) {
+      trip();
+    }
+  }
+
+  /**
+   * Returns the breaker's state. An OPEN breaker whose backoff has passed is reported as HALF_OPEN.
+   *
+   * @return the state.
+   */
+  public synchronized CircuitBreakerState getState() {
+    if (state == CircuitBreakerState.OPEN && nanoClock.getAsLong() - openUntilNanos >= 0) {
+      return CircuitBreakerState.HALF_OPEN;
+    }
+    return state;
+  }
+
+  /**
+   * Returns how long until an OPEN breaker lets a probe call through.
+   *
+   * @return the remaining backoff; zero if the breaker is not OPEN.
+   */
+  public synchronized Duration getRemainingBackoff() {
+    if (state != CircuitBreakerState.OPEN) {
+      return Duration.ZERO;
+    }
+    return Duration.ofNanos(Math.max(0, openUntilNanos - nanoClock.getAsLong()));
+  }
+
+  /**
+   * Returns the number of calls rejected because the breaker was open.
+   *
+   * @return the rejected call count.
+   */
+  public synchronized long getRejectedCallCount() {
+    return rejectedCallCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("state", state)
+        .add("consecutiveFailures", consecutiveFailures)
+        .add("tripCount", tripCount)
+        .add("rejectedCallCount", rejectedCallCount)
+        .toString();
+  }
+
+  private void trip() {
+    // min backoff doubled for each trip since the last success, capped at the max backoff
+    long backoff = minBackoffNanos;
+    for (int i = 0; i < tripCount && backoff < maxBackoffNanos; i++) {
+      backoff = backoff > maxBackoffNanos / 2 ? maxBackoffNanos : backoff * 2;
+    }
+    final long halfBackoff = backoff / 2;
+    final long jitteredBackoff = halfBackoff + (long) (random.getAsDouble() * halfBackoff);
+    state = CircuitBreakerState.OPEN;
+    openUntilNanos = nanoClock.getAsLong() + jitteredBackoff;
+    consecutiveFailures = 0;
+    probeInFlight = false;
+    tripCount++;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.resilience;
+
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
+import com.google.common.base.MoreObjects;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The circuit breakers of an Exchange Adapter - one per exchange endpoint, created on first use.
+ *
+ * <p>Each endpoint has its own breaker so a failing endpoint does not stop the adapter from using
+ * the healthy ones.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class EndpointCircuitBreakers {
+
+  /** Default time a breaker stays open the first time it trips, before jitter. */
+  public static final Duration DEFAULT_MIN_BACKOFF = Duration.ofSeconds(5);
+
+  /** Default cap on the time a breaker stays open, before jitter. */
+  public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(5);
+
+  private final int failureThreshold;
+  private final Duration minBackoff;
+  private final Duration maxBackoff;
+  private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the circuit breakers.
+   *
+   * @param failureThreshold the number of consecutive failed calls that trips an endpoint's
+   *     breaker.
+   * @param minBackoff how long a breaker stays open the first time it trips, before jitter.
+   * @param maxBackoff the cap on how long a breaker stays open, before jitter.
+   * @throws IllegalArgumentException if the threshold or backoffs are not valid.
+   */
+  public EndpointCircuitBreakers(int failureThreshold, Duration minBackoff, Duration maxBackoff) {
+    CircuitBreaker.validate(failureThreshold, minBackoff, maxBackoff);
+    this.failureThreshold = failureThreshold;
+    this.minBackoff = minBackoff;
+    this.maxBackoff = maxBackoff;
+  }
+
+  /**
+   * Returns the circuit breaker for an endpoint.
+   *
+   * @param endpoint the endpoint.
+   * @return the endpoint's breaker.
+   */
+  public CircuitBreaker get(String endpoint) {
+    return breakers.computeIfAbsent(
+        endpoint, e -> new CircuitBreaker(failureThreshold, minBackoff, maxBackoff));
+  }
+
+  /**
+   * Returns the state of each endpoint's breaker.
+   *
+   * @return the breaker states, sorted by endpoint.
+   */
+  public Map<String, CircuitBreakerState> getStates() {
+    final Map<String, CircuitBreakerState> states = new TreeMap<>();
+    breakers.forEach((endpoint, breaker) -> states.put(endpoint, breaker.getState()));
+    return states;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("failureThreshold", failureThreshold)
+        .add("minBackoff", minBackoff)
+        .add("maxBackoff", maxBackoff)
+        .toString();
+  }
+}
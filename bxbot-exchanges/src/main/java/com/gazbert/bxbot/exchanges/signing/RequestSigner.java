@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.signing;
+
+import java.security.DigestException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signs authenticated API requests with a HMAC.
+ *
+ * <p>Signing a request used to allocate a byte array for each string fed to the MAC, a new SHA-256
+ * digest, the MAC result and a String.format call for every byte of a hex signature. The signer
+ * instead encodes text into a reusable UTF-8 buffer, hashes with a cached SHA-256 digest, writes
+ * the MAC result into a reusable array, and hex or base64 encodes it through lookup tables into a
+ * reusable char buffer. The only allocation left when signing is the returned String.
+ *
+ * <p>A signer is not thread-safe. Each thread signing requests must use its own signer.
+ *
+ * <p>A signature is built by calling {@link #reset()}, then one or more of the update methods, and
+ * then one of the sign methods.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class RequestSigner {
+
+  private static final char[] LOWER_CASE_HEX = "0123456789abcdef".toCharArray();
+  private static final char[] UPPER_CASE_HEX = "0123456789ABCDEF".toCharArray();
+  private static final char[] BASE64 =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  private final Mac mac;
+  private final byte[] macResult;
+
+  // Only created for the exchanges that hash the message before signing it.
+  private MessageDigest sha256;
+  private byte[] sha256Result;
+
+  private byte[] utf8Buffer = new byte[INITIAL_BUFFER_SIZE];
+  private char[] charBuffer = new char[INITIAL_BUFFER_SIZE];
+
+  RequestSigner(Mac mac) {
+    this.mac = mac;
+    macResult = new byte[mac.getMacLength()];
+  }
+
+  /**
+   * Creates a signer.
+   *
+   * @param keySpec the secret key and HMAC algorithm, e.g. HmacSHA512.
+   * @return a new signer.
+   * @throws NoSuchAlgorithmException if the HMAC algorithm is not installed.
+   * @throws InvalidKeyException if the secret key is invalid.
+   */
+  public static RequestSigner create(SecretKeySpec keySpec)
+      throws NoSuchAlgorithmException, InvalidKeyException {
+    final Mac mac = Mac.getInstance(keySpec.getAlgorithm());
+    mac.init(keySpec);
+    return new RequestSigner(mac);
+  }
+
+  /**
+   * Returns the HMAC algorithm.
+   *
+   * @return the HMAC algorithm, e.g. HmacSHA512.
+   */
+  public String getAlgorithm() {
+    return mac.getAlgorithm();
+  }
+
+  /**
+   * Resets the signer, ready for a new message.
+   *
+   * @return this signer.
+   */
+  public RequestSigner reset() {
+    mac.reset();
+    return this;
+  }
+
+  /**
+   * Adds UTF-8 encoded text to the message.
+   *
+   * @param text the text.
+   * @return this signer.
+   */
+  public RequestSigner update(CharSequence text) {
+    final int length = encodeUtf8(text);
+    mac.update(utf8Buffer, 0, length);
+    return this;
+  }
+
+  /**
+   * Adds the SHA-256 hash of the UTF-8 encoded text first + second to the message.
+   *
+   * @param first the start of the text to hash.
+   * @param second the rest of the text to hash.
+   * @return this signer.
+   * @throws NoSuchAlgorithmException if SHA-256 is not installed.
+   */
+  public RequestSigner updateWithSha256Of(CharSequence first, CharSequence second)
+      throws NoSuchAlgorithmException {
+    final MessageDigest digest = getSha256();
+    final int firstLength = encodeUtf8(first);
+    digest.update(utf8Buffer, 0, firstLength);
+    final int secondLength = encodeUtf8(second);
+    digest.update(utf8Buffer, 0, secondLength);
+    try {
+      mac.update(sha256Result, 0, digest.digest(sha256Result, 0, sha256Result.length));
+    } catch (DigestException e) {
+      throw new IllegalStateException("SHA-256 result buffer is too small", e);
+    }
+    return this;
+  }
+
+  /**
+   * Signs the message.
+   *
+   * @param upperCase true for upper case hex digits, false for lower case.
+   * @return the signature as a hexadecimal string.
+   */
+  public String signToHex(boolean upperCase) {
+    final int length = doFinal();
+    final char[] hexDigits = upperCase ? UPPER_CASE_HEX : LOWER_CASE_HEX;
+    final char[] chars = getCharBuffer(length * 2);
+    for (int i = 0; i < length; i++) {
+      final int value = macResult[i] & 0xff;
+      chars[i * 2] = hexDigits[value >>> 4];
+      chars[i * 2 + 1] = hexDigits[value & 0x0f];
+    }
+    return new String(chars, 0, length * 2);
+  }
+
+  /**
+   * Signs the message.
+   *
+   * @return the signature as a base64 string.
+   */
+  public String signToBase64() {
+    return toBase64(macResult, doFinal());
+  }
+
+  /**
+   * Base64 encodes UTF-8 encoded text, e.g. a JSON payload. The message is not changed.
+   *
+   * @param text the text.
+   * @return the base64 encoded text.
+   */
+  public String encodeBase64(CharSequence text) {
+    final int length = encodeUtf8(text);
+    return toBase64(utf8Buffer, length);
+  }
+
+  private int doFinal() {
+    try {
+      mac.doFinal(macResult, 0);
+      return macResult.length;
+    } catch (ShortBufferException e) {
+      throw new IllegalStateException("MAC result buffer is too small", e);
+    }
+  }
+
+  private MessageDigest getSha256() throws NoSuchAlgorithmException {
+    if (sha256 == null) {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      sha256Result = new byte[digest.getDigestLength()];
+      sha256 = digest;
+    }
+    return sha256;
+  }
+
+  /*
+   * Same output as String.getBytes(UTF_8): unpaired surrogates are replaced with '?'.
+   */
+  private int encodeUtf8(CharSequence text) {
+    final int length = text.length();
+    if (utf8Buffer.length < length * 3) {
+      utf8Buffer = new byte[Math.max(length * 3, utf8Buffer.length * 2)];
+    }
+    final byte[] bytes = utf8Buffer;
+    int position = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes[position++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[position++] = (byte) (0xc0 | c >>> 6);
+        bytes[position++] = (byte) (0x80 | c & 0x3f);
+      } else if (!Character.isSurrogate(c)) {
+        bytes[position++] = (byte) (0xe0 | c >>> 12);
+        bytes[position++] = (byte) (0x80 | c >>> 6 & 0x3f);
+        bytes[position++] = (byte) (0x80 | c & 0x3f);
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        bytes[position++] = (byte) (0xf0 | codePoint >>> 18);
+        bytes[position++] = (byte) (0x80 | codePoint >>> 12 & 0x3f);
+        bytes[position++] = (byte) (0x80 | codePoint >>> 6 & 0x3f);
+        bytes[position++] = (byte) (0x80 | codePoint & 0x3f);
+      } else {
+        bytes[position++] = '?';
+      }
+    }
+    return position;
+  }
+
+  private String toBase64(byte[] bytes, int length) {
+    final int encodedLength = (length + 2) / 3 * 4;
+    final char[] chars = getCharBuffer(encodedLength);
+    final int remainder = length % 3;
+    int position = 0;
+    int i = 0;
+    while (i < length - remainder) {
+      final int bits = (bytes[i++] & 0xff) << 16 | (bytes[i++] & 0xff) << 8 | bytes[i++] & 0xff;
+      chars[position++] = BASE64[bits >>> 18];
+      chars[position++] = BASE64[bits >>> 12 & 0x3f];
+      chars[position++] = BASE64[bits >>> 6 & 0x3f];
+      chars[position++] = BASE64[bits & 0x3f];
+    }
+    if (remainder > 0) {
+      final int bits = (bytes[i] & 0xff) << 16 | (remainder == 2 ? (bytes[i + 1] & 0xff) << 8 : 0);
+      chars[position++] = BASE64[bits >>> 18];
+      chars[position++] = BASE64[bits >>> 12 & 0x3f];
+      chars[position++] = remainder == 2 ? BASE64[bits >>> 6 & 0x3f] : '=';
+      chars[position] = '=';
+    }
+    return new String(chars, 0, encodedLength);
+  }
+
+  private char[] getCharBuffer(int size) {
+    if (charBuffer.length < size) {
+      charBuffer = new char[Math.max(size, charBuffer.length * 2)];
+    }
+    return charBuffer;
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
+import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
+import com.gazbert.bxbot.trading.api.Level3Order;
+import com.gazbert.bxbot.trading.api.Level3OrderBook;
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.google.common.base.MoreObjects;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A local, order by order (level 3) copy of a market's order book, kept up to date from a
+ * WebSocket feed.
+ *
+ * <p>Orders are indexed by id in a hash map, so an order is found, changed or removed in O(1).
+ * Each price level queues its orders in a doubly linked list in time priority: a new order joins
+ * the back of the queue, and any order can leave it, in O(1). The price levels of each side are
+ * sorted best price first, as in {@link LocalOrderBook}, and each level keeps the total quantity of
+ * its orders, so the aggregated (level 2) book is read without adding up the orders.
+ *
+ * <p>This class is thread safe: the feed updates the book whilst strategies read it.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class LocalLevel3OrderBook implements Level3OrderBook {
+
+  private final Map<String, Node> orders = new HashMap<>();
+  private final NavigableMap<BigDecimal, PriceLevel> asks = new TreeMap<>();
+  private final NavigableMap<BigDecimal, PriceLevel> bids =
+      new TreeMap<>(Comparator.reverseOrder());
+
+  /** Removes every order from the book. */
+  public synchronized void clear() {
+    orders.clear();
+    asks.clear();
+    bids.clear();
+  }
+
+  /**
+   * Adds an order to the back of the queue at its price. An order already in the book with the
+   * same id is replaced.
+   *
+   * @param orderId the exchange's order id.
+   * @param type SELL for an ask, BUY for a bid.
+   * @param price the price of the order.
+   * @param quantity the quantity of the order.
+   * @return the order.
+   */
+  public synchronized Level3Order addOrder(
+      String orderId, OrderType type, BigDecimal price, BigDecimal quantity) {
+    removeOrder(orderId);
+    final PriceLevel level = side(type).computeIfAbsent(price, p -> new PriceLevel());
+    final Node node = new Node(orderId, type, price, quantity, level);
+    level.append(node);
+    orders.put(orderId, node);
+    return node.toOrder();
+  }
+
+  /**
+   * Removes an order from the book.
+   *
+   * @param orderId the exchange's order id.
+   * @return the removed order, or null if it was not in the book.
+   */
+  public synchronized Level3Order removeOrder(String orderId) {
+    final Node node = orders.remove(orderId);
+    if (node == null) {
+      return null;
+    }
+    unlink(node);
+    return node.toOrder();
+  }
+
+  /**
+   * Changes the quantity of an order, keeping its place in the queue. A quantity of zero removes
+   * the order.
+   *
+   * @param orderId the exchange's order id.
+   * @param quantity the new quantity of the order.
+   * @return the changed order, or null if it was not in the book.
+   */
+  public synchronized Level3Order changeOrder(String orderId, BigDecimal quantity) {
+    final Node node = orders.get(orderId);
+    if (node == null) {
+      return null;
+    }
+    if (quantity.signum() <= 0) {
+      orders.remove(orderId);
+      unlink(node);
+      return new Level3Order(orderId, node.type, node.price, BigDecimal.ZERO);
+    }
+    node.level.quantity = node.level.quantity.subtract(node.quantity).add(quantity);
+    node.quantity = quantity;
+    return node.toOrder();
+  }
+
+  /**
+   * Fills some or all of an order, keeping its place in the queue. A fully filled order is
+   * removed.
+   *
+   * @param orderId the exchange's order id.
+   * @param filledQuantity the quantity filled.
+   * @return the order after the fill, or null if it was not in the book.
+   */
+  public synchronized Level3Order fillOrder(String orderId, BigDecimal filledQuantity) {
+    final Node node = orders.get(orderId);
+    if (node == null) {
+      return null;
+    }
+    return changeOrder(orderId, node.quantity.subtract(filledQuantity));
+  }
+
+  /**
+   * Copies the aggregated levels of the book to a level 2 book.
+   *
+   * @param book the level 2 book.
+   */
+  public synchronized void copyLevelsTo(LocalOrderBook book) {
+    asks.forEach((price, level) -> book.setLevel(OrderType.SELL, price, level.quantity));
+    bids.forEach((price, level) -> book.setLevel(OrderType.BUY, price, level.quantity));
+  }
+
+  @Override
+  public synchronized Level3Order getOrder(String orderId) {
+    final Node node = orders.get(orderId);
+    return node == null ? null : node.toOrder();
+  }
+
+  @Override
+  public synchronized List<Level3Order> getOrders(OrderType type, BigDecimal price) {
+    final PriceLevel level = side(type).get(price);
+    if (level == null) {
+      return Collections.emptyList();
+    }
+    final List<Level3Order> queue = new ArrayList<>(level.size);
+    for (Node node = level.head; node != null; node = node.next) {
+      queue.add(node.toOrder());
+    }
+    return queue;
+  }
+
+  @Override
+  public synchronized BigDecimal getQuantityAhead(String orderId) {
+    final Node order = orders.get(orderId);
+    if (order == null) {
+      return null;
+    }
+    BigDecimal quantityAhead = BigDecimal.ZERO;
+    for (Node node = order.level.head; node != order; node = node.next) {
+      quantityAhead = quantityAhead.add(node.quantity);
+    }
+    return quantityAhead;
+  }
+
+  @Override
+  public synchronized BigDecimal getLevelQuantity(OrderType type, BigDecimal price) {
+    final PriceLevel level = side(type).get(price);
+    return level == null ? BigDecimal.ZERO : level.quantity;
+  }
+
+  @Override
+  public synchronized int getOrderCount() {
+    return orders.size();
+  }
+
+  @Override
+  public synchronized MarketOrderBook toMarketOrderBook(String marketId, int depth) {
+    return new MarketOrderBookImpl(
+        marketId,
+        toMarketOrders(OrderType.SELL, depth),
+        toMarketOrders(OrderType.BUY, depth));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("orders", orders.size())
+        .add("askLevels", asks.size())
+        .add("bidLevels", bids.size())
+        .toString();
+  }
+
+  private List<MarketOrder> toMarketOrders(OrderType type, int depth) {
+    final NavigableMap<BigDecimal, PriceLevel> side = side(type);
+    final int size = depth == 0 ? side.size() : Math.min(depth, side.size());
+    final List<MarketOrder> marketOrders = new ArrayList<>(size);
+    for (final Map.Entry<BigDecimal, PriceLevel> level : side.entrySet()) {
+      if (marketOrders.size() == size) {
+        break;
+      }
+      final BigDecimal price = level.getKey();
+      final BigDecimal quantity = level.getValue().quantity;
+      marketOrders.add(new MarketOrderImpl(type, price, quantity, price.multiply(quantity)));
+    }
+    return marketOrders;
+  }
+
+  private void unlink(Node node) {
+    final PriceLevel level = node.level;
+    level.remove(node);
+    if (level.head == null) {
+      side(node.type).remove(node.price);
+    }
+  }
+
+  private NavigableMap<BigDecimal, PriceLevel> side(OrderType type) {
+    return type == OrderType.SELL ? asks : bids;
+  }
+
+  /** The queue of orders at a price, first in the queue at the head. */
+  private static final class PriceLevel {
+
+    private Node head;
+    private Node tail;
+    private int size;
+    private BigDecimal quantity = BigDecimal.ZERO;
+
+    void append(Node node) {
+      node.prev = tail;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      size++;
+      quantity = quantity.add(node.quantity);
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      size--;
+      quantity = quantity.subtract(node.quantity);
+    }
+  }
+
+  /** An order in a price level's queue. */
+  private static final class Node {
+
+    private final String id;
+    private final OrderType type;
+    private final BigDecimal price;
+    private final PriceLevel level;
+    private BigDecimal quantity;
+    private Node prev;
+    private Node next;
+
+    Node(String id, OrderType type, BigDecimal price, BigDecimal quantity, PriceLevel level) {
+      this.id = id;
+      this.type = type;
+      this.price = price;
+      this.quantity = quantity;
+      this.level = level;
+    }
+
+    Level3Order toOrder() {
+      return new Level3Order(id, type, price, quantity);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderBookImpl;
+import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.google.common.base.MoreObjects;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A local copy of a market's order book, kept up to date from a WebSocket feed.
+ *
+ * <p>Each side is a map of price to quantity, sorted best price first, so a level is added, changed
+ * or removed in O(log n) and the best levels are read in order.
+ *
+ * <p>This class is not thread safe: {@link MarketDataStream} guards each book with a lock.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class LocalOrderBook {
+
+  private final NavigableMap<BigDecimal, BigDecimal> asks = new TreeMap<>();
+  private final NavigableMap<BigDecimal, BigDecimal> bids =
+      new TreeMap<>(Comparator.reverseOrder());
+
+  /** Removes every level from the book. */
+  public void clear() {
+    asks.clear();
+    bids.clear();
+  }
+
+  /**
+   * Sets the quantity at a price level. A zero quantity removes the level.
+   *
+   * @param type SELL for an ask, BUY for a bid.
+   * @param price the price of the level.
+   * @param quantity the total quantity at the price.
+   */
+  public void setLevel(OrderType type, BigDecimal price, BigDecimal quantity) {
+    if (quantity.signum() == 0) {
+      side(type).remove(price);
+    } else {
+      side(type).put(price, quantity);
+    }
+  }
+
+  /**
+   * Removes a price level, if it is in the book.
+   *
+   * @param type SELL for an ask, BUY for a bid.
+   * @param price the price of the level.
+   */
+  public void removeLevel(OrderType type, BigDecimal price) {
+    side(type).remove(price);
+  }
+
+  /**
+   * Removes the levels beyond the given depth from each side. Exchanges that stream a fixed depth
+   * book expect levels that fall out of it to be dropped.
+   *
+   * @param depth the number of levels to keep on each side.
+   */
+  public void truncate(int depth) {
+    truncateSide(asks, depth);
+    truncateSide(bids, depth);
+  }
+
+  /**
+   * Returns a side of the book.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @return a read-only view of the side's price to quantity map, best price first.
+   */
+  public NavigableMap<BigDecimal, BigDecimal> getLevels(OrderType type) {
+    return Collections.unmodifiableNavigableMap(side(type));
+  }
+
+  /**
+   * Copies the best levels of the book to a Market Order Book.
+   *
+   * @param marketId the market id.
+   * @param depth the max number of levels on each side, or 0 for all of them.
+   * @return the Market Order Book.
+   */
+  public MarketOrderBook toMarketOrderBook(String marketId, int depth) {
+    return new MarketOrderBookImpl(
+        marketId,
+        toMarketOrders(OrderType.SELL, depth),
+        toMarketOrders(OrderType.BUY, depth));
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("askLevels", asks.size())
+        .add("bidLevels", bids.size())
+        .toString();
+  }
+
+  private List<MarketOrder> toMarketOrders(OrderType type, int depth) {
+    final NavigableMap<BigDecimal, BigDecimal> side = side(type);
+    final int size = depth == 0 ? side.size() : Math.min(depth, side.size());
+    final List<MarketOrder> marketOrders = new ArrayList<>(size);
+    for (final Map.Entry<BigDecimal, BigDecimal> level : side.entrySet()) {
+      if (marketOrders.size() == size) {
+        break;
+      }
+      final BigDecimal price = level.getKey();
+      final BigDecimal quantity = level.getValue();
+      marketOrders.add(new MarketOrderImpl(type, price, quantity, price.multiply(quantity)));
+    }
+    return marketOrders;
+  }
+
+  private static void truncateSide(NavigableMap<BigDecimal, BigDecimal> side, int depth) {
+    while (side.size() > depth) {
+      side.pollLastEntry();
+    }
+  }
+
+  private NavigableMap<BigDecimal, BigDecimal> side(OrderType type) {
+    return type == OrderType.SELL ? asks : bids;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import com.gazbert.bxbot.trading.api.Ticker;
+import java.util.function.Consumer;
+
+/**
+ * Where a {@link StreamProtocol} puts the market data it decodes. Implemented by {@link
+ * MarketDataStream}, which keeps the local order book and ticker of each market.
+ *
+ * <p>Order book messages carry an optional sequence number. If a protocol passes one, the sink
+ * checks it: an update that is older than the book is dropped, and an update that skips a sequence
+ * number means an update was missed, so the book is marked out of sync and a fresh snapshot is
+ * requested. Protocols whose exchange has no per market sequence numbers pass {@link #NO_SEQUENCE}
+ * and check the book themselves, e.g. with a checksum.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public interface MarketDataSink {
+
+  /** Passed as the sequence number of a message that has none. */
+  long NO_SEQUENCE = -1;
+
+  /**
+   * Replaces a market's order book with a snapshot. The book is cleared, then loaded by the given
+   * callback, and is in sync once the callback returns.
+   *
+   * @param marketId the market id.
+   * @param sequence the sequence number of the snapshot, or {@link #NO_SEQUENCE}.
+   * @param snapshot loads the levels of the snapshot into the book.
+   */
+  void onSnapshot(String marketId, long sequence, Consumer<LocalOrderBook> snapshot);
+
+  /**
+   * Applies an update to a market's order book, if the book is in sync and the update is the next
+   * one in sequence.
+   *
+   * @param marketId the market id.
+   * @param sequence the sequence number of the update, or {@link #NO_SEQUENCE}.
+   * @param update applies the changed levels to the book.
+   * @return true if the update was applied, false if it was dropped.
+   */
+  boolean onUpdate(String marketId, long sequence, Consumer<LocalOrderBook> update);
+
+  /**
+   * Replaces a market's ticker.
+   *
+   * @param marketId the market id.
+   * @param ticker the latest ticker.
+   */
+  void onTicker(String marketId, Ticker ticker);
+
+  /**
+   * Marks a market's order book out of sync, e.g. because its checksum did not match, and requests
+   * a fresh snapshot.
+   *
+   * @param marketId the market id.
+   * @param reason why the book is out of sync, for logging.
+   */
+  void onOutOfSync(String marketId, String reason);
+
+  /**
+   * Drops the connection and reconnects, e.g. because the exchange asked clients to, or because
+   * messages were missed on a feed that numbers its messages per connection.
+   *
+   * @param reason why the feed is reconnecting, for logging.
+   */
+  void reconnect(String reason);
+}
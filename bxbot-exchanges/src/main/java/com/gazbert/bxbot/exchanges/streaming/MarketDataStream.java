@@ -0,0 +1,603 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.Ticker;
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Streams market data from an exchange's WebSocket feed and keeps an always current local order
+ * book and ticker for each subscribed market.
+ *
+ * <p>The exchange specific messages are handled by a {@link StreamProtocol}. This class looks after
+ * the rest:
+ *
+ * <ul>
+ *   <li>If the connection drops, or no message has been received for the idle timeout, it is
+ *       reconnected after a jittered exponential backoff, and every market is subscribed to again.
+ *   <li>Order book updates are checked for sequence gaps - see {@link MarketDataSink}. A market
+ *       that has missed an update is resynced from a fresh snapshot.
+ *   <li>The local data of a market is only returned whilst the feed is connected and the market's
+ *       book is in sync. Otherwise null is returned, so the adapter can fall back to its REST API.
+ * </ul>
+ *
+ * <p>This class is thread safe: the feed updates the local data on the WebSocket listener thread
+ * whilst strategies read it.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public class MarketDataStream {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  /** Default delay before the first reconnect attempt. */
+  public static final Duration DEFAULT_MIN_RECONNECT_DELAY = Duration.ofSeconds(1);
+
+  /** Default cap on the delay between reconnect attempts. */
+  public static final Duration DEFAULT_MAX_RECONNECT_DELAY = Duration.ofSeconds(60);
+
+  /** Default time without a message after which the connection is assumed dead. */
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(30);
+
+  private final StreamProtocol protocol;
+  private final HttpClient httpClient;
+  private final long minReconnectDelayMillis;
+  private final long maxReconnectDelayMillis;
+  private final long idleTimeoutNanos;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, MarketState> markets = new ConcurrentHashMap<>();
+  private final Sink sink = new Sink();
+
+  private final AtomicLong connectCount = new AtomicLong();
+  private final AtomicLong messageCount = new AtomicLong();
+  private final AtomicLong sequenceGapCount = new AtomicLong();
+  private final AtomicLong resyncCount = new AtomicLong();
+
+  // Connection lifecycle - guarded by this
+  private boolean started;
+  private boolean closed;
+  private int reconnectAttempts;
+  private ScheduledFuture<?> reconnectTask;
+
+  // Sends must not overlap on a WebSocket, so they are chained - guarded by sendLock
+  private final Object sendLock = new Object();
+  private CompletableFuture<WebSocket> pendingSends = CompletableFuture.completedFuture(null);
+
+  private volatile WebSocket webSocket;
+  private volatile long lastMessageNanos;
+
+  /**
+   * Creates a stream with the default reconnect delays and idle timeout.
+   *
+   * @param protocol the exchange's feed protocol.
+   * @param httpClient the client the WebSocket is opened with.
+   */
+  public MarketDataStream(StreamProtocol protocol, HttpClient httpClient) {
+    this(
+        protocol,
+        httpClient,
+        DEFAULT_MIN_RECONNECT_DELAY,
+        DEFAULT_MAX_RECONNECT_DELAY,
+        DEFAULT_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Creates a stream.
+   *
+   * @param protocol the exchange's feed protocol.
+   * @param httpClient the client the WebSocket is opened with.
+   * @param minReconnectDelay the delay before the first reconnect attempt, before jitter. It
+   *     doubles with each failed attempt.
+   * @param maxReconnectDelay the cap on the delay between reconnect attempts, before jitter.
+   * @param idleTimeout the time without a message after which the connection is assumed dead.
+   * @throws IllegalArgumentException if a delay or the timeout is not valid.
+   */
+  public MarketDataStream(
+      StreamProtocol protocol,
+      HttpClient httpClient,
+      Duration minReconnectDelay,
+      Duration maxReconnectDelay,
+      Duration idleTimeout) {
+    if (minReconnectDelay.isNegative()
+        || minReconnectDelay.isZero()
+        || maxReconnectDelay.compareTo(minReconnectDelay) < 0
+        || idleTimeout.isNegative()
+        || idleTimeout.isZero()) {
+      throw new IllegalArgumentException(
+          "Reconnect delays and idle timeout must be more than 0, and the min reconnect delay no"
+              + " more than the max: "
+              + minReconnectDelay
+              + " / "
+              + maxReconnectDelay
+              + " / "
+              + idleTimeout);
+    }
+    this.protocol = protocol;
+    this.httpClient = httpClient;
+    this.minReconnectDelayMillis = minReconnectDelay.toMillis();
+    this.maxReconnectDelayMillis = maxReconnectDelay.toMillis();
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("bxbot-market-data-stream-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  /** Connects to the feed. Markets can be subscribed to before or after the stream is started. */
+  public synchronized void start() {
+    if (started || closed) {
+      return;
+    }
+    started = true;
+    final long checkIntervalNanos = idleTimeoutNanos / 2;
+    scheduler.scheduleWithFixedDelay(
+        this::checkIdle, checkIntervalNanos, checkIntervalNanos, TimeUnit.NANOSECONDS);
+    connect();
+  }
+
+  /**
+   * Subscribes to a market's order book and ticker. Does nothing if the market is already
+   * subscribed to.
+   *
+   * @param marketId the market id.
+   */
+  public synchronized void subscribe(String marketId) {
+    if (markets.putIfAbsent(marketId, new MarketState()) == null) {
+      LOG.info(() -> "Subscribing to market data stream for market: " + marketId);
+      final WebSocket currentWebSocket = webSocket;
+      if (currentWebSocket != null) {
+        send(currentWebSocket, protocol.createSubscribeMessages(marketId));
+      }
+    }
+  }
+
+  /**
+   * Returns the best levels of a market's local order book.
+   *
+   * @param marketId the market id.
+   * @param depth the max number of levels on each side, or 0 for all of them.
+   * @return the order book, or null if the market is not subscribed to, the feed is not connected,
+   *     or the book is not in sync.
+   */
+  public MarketOrderBook getOrderBook(String marketId, int depth) {
+    final MarketState state = markets.get(marketId);
+    if (state == null || webSocket == null) {
+      return null;
+    }
+    return state.toMarketOrderBook(marketId, depth);
+  }
+
+  /**
+   * Returns a market's latest ticker.
+   *
+   * @param marketId the market id.
+   * @return the ticker, or null if the market is not subscribed to, the feed is not connected, or
+   *     no ticker has been received since it connected.
+   */
+  public Ticker getTicker(String marketId) {
+    final MarketState state = markets.get(marketId);
+    if (state == null || webSocket == null) {
+      return null;
+    }
+    return state.ticker;
+  }
+
+  /**
+   * Returns true if a market's order book is in sync with the exchange's.
+   *
+   * @param marketId the market id.
+   * @return true if the market is subscribed to, the feed is connected, and the book is in sync.
+   */
+  public boolean isInSync(String marketId) {
+    final MarketState state = markets.get(marketId);
+    return state != null && webSocket != null && state.isInSync();
+  }
+
+  /**
+   * Returns true if the feed is connected.
+   *
+   * @return true if connected.
+   */
+  public boolean isConnected() {
+    return webSocket != null;
+  }
+
+  /**
+   * Returns the number of times the feed has connected, including the first time.
+   *
+   * @return the connect count.
+   */
+  public long getConnectCount() {
+    return connectCount.get();
+  }
+
+  /**
+   * Returns the number of messages received.
+   *
+   * @return the message count.
+   */
+  public long getMessageCount() {
+    return messageCount.get();
+  }
+
+  /**
+   * Returns the number of order book updates that skipped a sequence number.
+   *
+   * @return the sequence gap count.
+   */
+  public long getSequenceGapCount() {
+    return sequenceGapCount.get();
+  }
+
+  /**
+   * Returns the number of times a market's order book was resynced whilst the feed was connected.
+   *
+   * @return the resync count.
+   */
+  public long getResyncCount() {
+    return resyncCount.get();
+  }
+
+  /** Closes the feed. The stream cannot be restarted. */
+  public synchronized void close() {
+    closed = true;
+    scheduler.shutdownNow();
+    final WebSocket currentWebSocket = webSocket;
+    webSocket = null;
+    if (currentWebSocket != null) {
+      currentWebSocket
+          .sendClose(WebSocket.NORMAL_CLOSURE, "")
+          .whenComplete((ws, error) -> currentWebSocket.abort());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("uri", protocol.getUri())
+        .add("markets", markets.keySet())
+        .add("connected", isConnected())
+        .add("connectCount", connectCount)
+        .add("messageCount", messageCount)
+        .add("sequenceGapCount", sequenceGapCount)
+        .add("resyncCount", resyncCount)
+        .toString();
+  }
+
+  // --------------------------------------------------------------------------
+  //  Connection lifecycle
+  // --------------------------------------------------------------------------
+
+  private void connect() {
+    LOG.info(() -> "Connecting to market data stream: " + protocol.getUri());
+    httpClient
+        .newWebSocketBuilder()
+        .buildAsync(protocol.getUri(), new Listener())
+        .whenComplete(
+            (ws, error) -> {
+              if (error != null) {
+                onDisconnected(null, "Failed to connect: " + error);
+              }
+            });
+  }
+
+  private synchronized void onConnected(WebSocket connectedWebSocket) {
+    if (closed) {
+      connectedWebSocket.abort();
+      return;
+    }
+    LOG.info(() -> "Connected to market data stream: " + protocol.getUri());
+    connectCount.incrementAndGet();
+    lastMessageNanos = System.nanoTime();
+    synchronized (sendLock) {
+      pendingSends = CompletableFuture.completedFuture(null);
+    }
+    webSocket = connectedWebSocket;
+    send(connectedWebSocket, protocol.onConnected());
+    for (final Map.Entry<String, MarketState> market : markets.entrySet()) {
+      market.getValue().invalidate();
+      send(connectedWebSocket, protocol.createSubscribeMessages(market.getKey()));
+    }
+  }
+
+  /*
+   * Called when a WebSocket closes or fails, or a connect attempt fails (disconnected is null).
+   * Late callbacks from a WebSocket that has already been replaced are ignored.
+   */
+  private synchronized void onDisconnected(WebSocket disconnected, String reason) {
+    if (disconnected != null && disconnected != webSocket) {
+      return;
+    }
+    if (disconnected != null) {
+      disconnected.abort();
+      webSocket = null;
+    }
+    markets.values().forEach(MarketState::invalidate);
+    if (closed) {
+      return;
+    }
+    LOG.warn(() -> "Market data stream disconnected - " + reason);
+
+    if (reconnectTask == null || reconnectTask.isDone()) {
+      final long delayMillis = nextReconnectDelayMillis();
+      LOG.info(() -> "Reconnecting to market data stream in " + delayMillis + "ms");
+      reconnectTask = scheduler.schedule(this::reconnectNow, delayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private synchronized void reconnectNow() {
+    if (!closed && webSocket == null) {
+      connect();
+    }
+  }
+
+  /*
+   * Doubles from the min delay up to the max delay. Equal jitter - between half and all of the
+   * delay - so clients don't all reconnect to a recovering exchange at once.
+   */
+  private long nextReconnectDelayMillis() {
+    final int doublings = Math.min(reconnectAttempts++, 30);
+    final long delayMillis =
+        Math.min(maxReconnectDelayMillis, minReconnectDelayMillis << doublings);
+    final long halfDelayMillis = delayMillis / 2;
+    return halfDelayMillis + (long) (ThreadLocalRandom.current().nextDouble() * halfDelayMillis);
+  }
+
+  private synchronized void reconnect(String reason) {
+    final WebSocket currentWebSocket = webSocket;
+    if (currentWebSocket != null) {
+      onDisconnected(currentWebSocket, reason);
+    }
+  }
+
+  private void checkIdle() {
+    final WebSocket currentWebSocket = webSocket;
+    if (currentWebSocket != null && System.nanoTime() - lastMessageNanos > idleTimeoutNanos) {
+      onDisconnected(
+          currentWebSocket,
+          "No message received for " + Duration.ofNanos(idleTimeoutNanos).toMillis() + "ms");
+    }
+  }
+
+  private void onMessage(WebSocket receivedOn, String message) {
+    if (receivedOn != webSocket) {
+      return;
+    }
+    lastMessageNanos = System.nanoTime();
+    messageCount.incrementAndGet();
+    synchronized (this) {
+      reconnectAttempts = 0;
+    }
+    try {
+      protocol.decode(message, sink);
+    } catch (RuntimeException e) {
+      LOG.error("Failed to decode market data stream message: " + message, e);
+      onDisconnected(receivedOn, "Failed to decode message: " + e);
+    }
+  }
+
+  private void send(WebSocket target, List<String> messages) {
+    synchronized (sendLock) {
+      for (final String message : messages) {
+        LOG.debug(() -> "Sending market data stream message: " + message);
+        pendingSends =
+            pendingSends
+                .handle((ws, error) -> null)
+                .thenCompose(ignored -> target.sendText(message, true))
+                .whenComplete(
+                    (ws, error) -> {
+                      if (error != null) {
+                        LOG.warn(() -> "Failed to send market data stream message: " + message);
+                      }
+                    });
+      }
+    }
+  }
+
+  private void resync(String marketId, MarketState state) {
+    if (state.startResync()) {
+      final WebSocket currentWebSocket = webSocket;
+      if (currentWebSocket != null) {
+        resyncCount.incrementAndGet();
+        send(currentWebSocket, protocol.createResyncMessages(marketId));
+      }
+    }
+  }
+
+  /** Receives the messages of a WebSocket. */
+  private class Listener implements WebSocket.Listener {
+
+    private final StringBuilder partialMessage = new StringBuilder();
+
+    @Override
+    public void onOpen(WebSocket openedWebSocket) {
+      onConnected(openedWebSocket);
+      openedWebSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket receivedOn, CharSequence data, boolean last) {
+      partialMessage.append(data);
+      if (last) {
+        final String message = partialMessage.toString();
+        partialMessage.setLength(0);
+        onMessage(receivedOn, message);
+      }
+      receivedOn.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket closedWebSocket, int statusCode, String reason) {
+      onDisconnected(closedWebSocket, "Closed by exchange: " + statusCode + " " + reason);
+      return null;
+    }
+
+    @Override
+    public void onError(WebSocket failedWebSocket, Throwable error) {
+      onDisconnected(failedWebSocket, "Error: " + error);
+    }
+  }
+
+  /** Applies the decoded market data to the local state of the markets. */
+  private class Sink implements MarketDataSink {
+
+    @Override
+    public void onSnapshot(String marketId, long sequence, Consumer<LocalOrderBook> snapshot) {
+      final MarketState state = markets.get(marketId);
+      if (state != null) {
+        state.applySnapshot(sequence, snapshot);
+      }
+    }
+
+    @Override
+    public boolean onUpdate(String marketId, long sequence, Consumer<LocalOrderBook> update) {
+      final MarketState state = markets.get(marketId);
+      if (state == null) {
+        return false;
+      }
+      final UpdateResult result = state.applyUpdate(sequence, update);
+      if (result == UpdateResult.SEQUENCE_GAP) {
+        sequenceGapCount.incrementAndGet();
+        LOG.warn(() -> "Sequence gap in " + marketId + " book at " + sequence + " - resyncing");
+        resync(marketId, state);
+      }
+      return result == UpdateResult.APPLIED;
+    }
+
+    @Override
+    public void onTicker(String marketId, Ticker ticker) {
+      final MarketState state = markets.get(marketId);
+      if (state != null) {
+        state.ticker = ticker;
+      }
+    }
+
+    @Override
+    public void onOutOfSync(String marketId, String reason) {
+      final MarketState state = markets.get(marketId);
+      if (state != null) {
+        LOG.warn(() -> marketId + " order book is out of sync - " + reason + " - resyncing");
+        resync(marketId, state);
+      }
+    }
+
+    @Override
+    public void reconnect(String reason) {
+      MarketDataStream.this.reconnect(reason);
+    }
+  }
+
+  private enum UpdateResult {
+    APPLIED,
+    DROPPED,
+    SEQUENCE_GAP
+  }
+
+  /** The local order book and ticker of a market. */
+  private static final class MarketState {
+
+    private final LocalOrderBook book = new LocalOrderBook();
+    private long sequence = MarketDataSink.NO_SEQUENCE;
+    private boolean inSync;
+    private boolean resyncing;
+    private volatile Ticker ticker;
+
+    synchronized void applySnapshot(long snapshotSequence, Consumer<LocalOrderBook> snapshot) {
+      inSync = false;
+      book.clear();
+      snapshot.accept(book);
+      sequence = snapshotSequence;
+      inSync = true;
+      resyncing = false;
+    }
+
+    synchronized UpdateResult applyUpdate(long updateSequence, Consumer<LocalOrderBook> update) {
+      if (!inSync) {
+        return UpdateResult.DROPPED; // waiting for a snapshot
+      }
+      if (updateSequence != MarketDataSink.NO_SEQUENCE) {
+        if (sequence != MarketDataSink.NO_SEQUENCE) {
+          if (updateSequence <= sequence) {
+            return UpdateResult.DROPPED; // already in the book
+          }
+          if (updateSequence != sequence + 1) {
+            inSync = false;
+            return UpdateResult.SEQUENCE_GAP;
+          }
+        }
+        sequence = updateSequence;
+      }
+      update.accept(book);
+      return UpdateResult.APPLIED;
+    }
+
+    /* Returns true if the caller should request a snapshot - only one request at a time. */
+    synchronized boolean startResync() {
+      inSync = false;
+      if (resyncing) {
+        return false;
+      }
+      resyncing = true;
+      return true;
+    }
+
+    synchronized boolean isInSync() {
+      return inSync;
+    }
+
+    synchronized void invalidate() {
+      inSync = false;
+      resyncing = false;
+      sequence = MarketDataSink.NO_SEQUENCE;
+      ticker = null;
+    }
+
+    synchronized MarketOrderBook toMarketOrderBook(String marketId, int depth) {
+      return inSync ? book.toMarketOrderBook(marketId, depth) : null;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The exchange specific part of a WebSocket market data feed: where to connect, the messages to
+ * send, and how to decode the messages received.
+ *
+ * <p>A {@link MarketDataStream} calls the protocol on its WebSocket listener thread, one call at a
+ * time, so the protocol can keep per connection state, e.g. channel ids, without locking.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public interface StreamProtocol {
+
+  /**
+   * Returns the URI of the exchange's WebSocket feed.
+   *
+   * @return the feed URI.
+   */
+  URI getUri();
+
+  /**
+   * Called each time the feed has connected, before the markets are subscribed to. The protocol
+   * must drop any state it kept for the previous connection.
+   *
+   * @return the messages to send before subscribing, e.g. to configure the connection.
+   */
+  default List<String> onConnected() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Creates the messages that subscribe to a market's order book and ticker.
+   *
+   * @param marketId the market id.
+   * @return the subscribe messages.
+   */
+  List<String> createSubscribeMessages(String marketId);
+
+  /**
+   * Creates the messages that get a fresh snapshot of a market's order book after it has gone out
+   * of sync. By default, the market is subscribed to again.
+   *
+   * @param marketId the market id.
+   * @return the resync messages.
+   */
+  default List<String> createResyncMessages(String marketId) {
+    return createSubscribeMessages(marketId);
+  }
+
+  /**
+   * Decodes a message received from the exchange and passes the market data in it to the sink.
+   *
+   * @param message the message.
+   * @param sink where to put the market data.
+   * @throws RuntimeException if the message cannot be decoded. The feed is then reconnected, as
+   *     the local market data can no longer be trusted.
+   */
+  void decode(String message, MarketDataSink sink);
+}
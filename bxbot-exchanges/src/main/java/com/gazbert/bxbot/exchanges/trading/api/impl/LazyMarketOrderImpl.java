@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.trading.api.impl;
+
+import com.gazbert.bxbot.trading.api.FixedPointScale;
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.google.common.base.MoreObjects;
+import java.math.BigDecimal;
+
+/**
+ * A MarketOrder implementation that keeps the price and quantity as the raw numeric tokens sent by
+ * the exchange, and only parses them when they are first read. The total is only calculated if it
+ * is read.
+ *
+ * <p>A token that is not a number is only reported, with a NumberFormatException, when the value
+ * is read.
+ *
+ * <p>The fixed-point accessors parse the tokens straight to ticks and lots, without creating
+ * BigDecimals, so a CompactOrderBook can be built from these orders cheaply.
+ *
+ * <p>The parsed values are cached without locking: two threads reading a value for the first time
+ * may both parse it, but they get equal values.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class LazyMarketOrderImpl implements MarketOrder {
+
+  private final OrderType type;
+  private final String priceToken;
+  private final String quantityToken;
+
+  private BigDecimal price;
+  private BigDecimal quantity;
+  private BigDecimal total;
+
+  /**
+   * Creates a new lazily decoded Market Order.
+   *
+   * @param type the type of order.
+   * @param priceToken the price, as sent by the exchange.
+   * @param quantityToken the quantity, as sent by the exchange.
+   */
+  public LazyMarketOrderImpl(OrderType type, String priceToken, String quantityToken) {
+    this.type = type;
+    this.priceToken = priceToken;
+    this.quantityToken = quantityToken;
+  }
+
+  @Override
+  public OrderType getType() {
+    return type;
+  }
+
+  @Override
+  public BigDecimal getPrice() {
+    BigDecimal result = price;
+    if (result == null) {
+      result = new BigDecimal(priceToken);
+      price = result;
+    }
+    return result;
+  }
+
+  @Override
+  public BigDecimal getQuantity() {
+    BigDecimal result = quantity;
+    if (result == null) {
+      result = new BigDecimal(quantityToken);
+      quantity = result;
+    }
+    return result;
+  }
+
+  @Override
+  public BigDecimal getTotal() {
+    BigDecimal result = total;
+    if (result == null) {
+      result = getPrice().multiply(getQuantity());
+      total = result;
+    }
+    return result;
+  }
+
+  @Override
+  public long getPriceTicks(FixedPointScale scale) {
+    return scale.parsePriceTicks(priceToken);
+  }
+
+  @Override
+  public long getQuantityLots(FixedPointScale scale) {
+    return scale.parseQuantityLots(quantityToken);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("type", type)
+        .add("price", priceToken)
+        .add("quantity", quantityToken)
+        .toString();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.trading.api.impl;
+
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.OrderType;
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * One side of an order book, holding the raw price and quantity tokens of every level sent by the
+ * exchange. A level's {@link LazyMarketOrderImpl} is only created when the level is first read, so
+ * strategies that only look at the best bid and ask don't pay for the rest of the book.
+ *
+ * <p>The list is read-only. Levels are cached without locking: two threads reading a level for the
+ * first time may both create it, but they get equal orders.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class LazyMarketOrderList extends AbstractList<MarketOrder> implements RandomAccess {
+
+  private final OrderType orderType;
+  private final String[] tokens;
+  private final MarketOrder[] marketOrders;
+
+  /**
+   * Creates one side of an order book.
+   *
+   * @param orderType the type of the orders on this side of the book.
+   * @param tokens the price and quantity tokens of each level, in pairs: price 0, quantity 0, price
+   *     1, quantity 1 and so on. Only the first size pairs are used. The array is not copied.
+   * @param size the number of levels.
+   */
+  public LazyMarketOrderList(OrderType orderType, String[] tokens, int size) {
+    if (size < 0 || tokens.length < size * 2) {
+      throw new IllegalArgumentException(
+          "Need 2 tokens for each of the " + size + " levels, but got " + tokens.length);
+    }
+    this.orderType = orderType;
+    this.tokens = tokens;
+    this.marketOrders = new MarketOrder[size];
+  }
+
+  @Override
+  public MarketOrder get(int index) {
+    Objects.checkIndex(index, marketOrders.length);
+    MarketOrder marketOrder = marketOrders[index];
+    if (marketOrder == null) {
+      marketOrder = new LazyMarketOrderImpl(orderType, tokens[index * 2], tokens[index * 2 + 1]);
+      marketOrders[index] = marketOrder;
+    }
+    return marketOrder;
+  }
+
+  @Override
+  public int size() {
+    return marketOrders.length;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.trading.api.impl;
+
+import com.gazbert.bxbot.trading.api.Ticker;
+import com.google.common.base.MoreObjects;
+import java.math.BigDecimal;
+
+/**
+ * A Ticker implementation that keeps the prices and volume as the raw numeric tokens sent by the
+ * exchange, and only parses a field when it is first read.
+ *
+ * <p>A null token means the exchange does not provide the field, and the getter returns null. A
+ * token that is not a number is only reported, with a NumberFormatException, when it is read.
+ *
+ * <p>The parsed values are cached without locking: two threads reading a field for the first time
+ * may both parse it, but they get equal values.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class LazyTickerImpl implements Ticker {
+
+  private static final int LAST = 0;
+  private static final int BID = 1;
+  private static final int ASK = 2;
+  private static final int LOW = 3;
+  private static final int HIGH = 4;
+  private static final int OPEN = 5;
+  private static final int VOLUME = 6;
+  private static final int VWAP = 7;
+
+  private final String[] tokens;
+  private final BigDecimal[] values;
+  private final Long timestamp;
+
+  /**
+   * Creates a new lazily decoded Ticker. Pass null for any field the exchange does not provide.
+   *
+   * @param last the last trade price token.
+   * @param bid the highest buy order price token.
+   * @param ask the lowest sell order price token.
+   * @param low the last 24 hours price low token.
+   * @param high the last 24 hours price high token.
+   * @param open the first trade price of the day token.
+   * @param volume the last 24 hours volume token.
+   * @param vwap the last 24 hours volume weighted average token.
+   * @param timestamp the current time on the exchange in UNIX time format.
+   */
+  public LazyTickerImpl(
+      String last,
+      String bid,
+      String ask,
+      String low,
+      String high,
+      String open,
+      String volume,
+      String vwap,
+      Long timestamp) {
+    this.tokens = new String[] {last, bid, ask, low, high, open, volume, vwap};
+    this.values = new BigDecimal[tokens.length];
+    this.timestamp = timestamp;
+  }
+
+  @Override
+  public BigDecimal getLast() {
+    return getValue(LAST);
+  }
+
+  @Override
+  public BigDecimal getBid() {
+    return getValue(BID);
+  }
+
+  @Override
+  public BigDecimal getAsk() {
+    return getValue(ASK);
+  }
+
+  @Override
+  public BigDecimal getLow() {
+    return getValue(LOW);
+  }
+
+  @Override
+  public BigDecimal getHigh() {
+    return getValue(HIGH);
+  }
+
+  @Override
+  public BigDecimal getOpen() {
+    return getValue(OPEN);
+  }
+
+  @Override
+  public BigDecimal getVolume() {
+    return getValue(VOLUME);
+  }
+
+  @Override
+  public BigDecimal getVwap() {
+    return getValue(VWAP);
+  }
+
+  @Override
+  public Long getTimestamp() {
+    return timestamp;
+  }
+
+  private BigDecimal getValue(int field) {
+    BigDecimal value = values[field];
+    if (value == null && tokens[field] != null) {
+      value = new BigDecimal(tokens[field]);
+      values[field] = value;
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("last", tokens[LAST])
+        .add("bid", tokens[BID])
+        .add("ask", tokens[ASK])
+        .add("low", tokens[LOW])
+        .add("high", tokens[HIGH])
+        .add("open", tokens[OPEN])
+        .add("volume", tokens[VOLUME])
+        .add("vwap", tokens[VWAP])
+        .add("timestamp", timestamp)
+        .toString();
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import com.google.common.base.MoreObjects;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Opens connections to an Exchange's API hosts before they are needed, and keeps them warm.
+ *
+ * <p>Warming a host sends a HEAD request to its root: the DNS lookup, TCP connect and TLS handshake
+ * are done, and the connection is left in the transport's pool for the first real API call. The
+ * response status is ignored and a failure is only logged - warming is an optimisation.
+ *
+ * <p>Pooled connections are closed once idle for too long, by the client or the Exchange. Whilst
+ * the adapter is in use, the hosts are warmed again whenever no API call has been made for a keep
+ * warm interval. Once no API call has been made for {@value #MAX_IDLE_INTERVALS} intervals, the
+ * adapter is assumed to be idle or discarded, e.g. after a bot restart, and keeping warm stops
+ * until the next API call.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class ConnectionWarmer {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  static final int MAX_IDLE_INTERVALS = 10;
+
+  private final HttpTransport transport;
+  private final List<URL> hostUrls;
+  private final Duration timeout;
+  private final long keepWarmIntervalNanos;
+  private final ScheduledExecutorService scheduler;
+  private final LongSupplier nanoClock;
+
+  private volatile long lastRequestNanos;
+  private volatile boolean keepingWarm;
+  private ScheduledFuture<?> keepWarmTask;
+
+  /**
+   * Creates a connection warmer.
+   *
+   * @param transport the transport whose connection pool is warmed.
+   * @param apiUrls the Exchange's API URLs. Each distinct host is warmed once.
+   * @param timeout how long to wait for a host to respond.
+   * @param keepWarmInterval how long the adapter can go without an API call before its hosts are
+   *     warmed again. Should be less than the pooled connection idle timeout.
+   * @param scheduler runs the keep warm checks.
+   * @throws MalformedURLException if an API URL is not valid.
+   */
+  public ConnectionWarmer(
+      HttpTransport transport,
+      Collection<String> apiUrls,
+      Duration timeout,
+      Duration keepWarmInterval,
+      ScheduledExecutorService scheduler)
+      throws MalformedURLException {
+    this(transport, apiUrls, timeout, keepWarmInterval, scheduler, System::nanoTime);
+  }
+
+  ConnectionWarmer(
+      HttpTransport transport,
+      Collection<String> apiUrls,
+      Duration timeout,
+      Duration keepWarmInterval,
+      ScheduledExecutorService scheduler,
+      LongSupplier nanoClock)
+      throws MalformedURLException {
+    if (keepWarmInterval.isNegative() || keepWarmInterval.isZero()) {
+      throw new IllegalArgumentException(
+          "Keep warm interval must be more than 0: " + keepWarmInterval);
+    }
+    this.transport = transport;
+    this.hostUrls = toHostUrls(apiUrls);
+    this.timeout = timeout;
+    this.keepWarmIntervalNanos = keepWarmInterval.toNanos();
+    this.scheduler = scheduler;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Warms every host, waiting for each to respond, then starts keeping them warm.
+   *
+   * @return how long the hosts took to warm.
+   */
+  public Duration warmUp() {
+    final long startNanos = nanoClock.getAsLong();
+    warmHosts();
+    final Duration took = Duration.ofNanos(nanoClock.getAsLong() - startNanos);
+    LOG.info(() -> "Pre-warmed connections to " + hostUrls + " in " + took.toMillis() + "ms");
+    onRequestSent();
+    return took;
+  }
+
+  /** Records that an API call has been sent, i.e. the connections are in use. */
+  public void onRequestSent() {
+    lastRequestNanos = nanoClock.getAsLong();
+    if (!keepingWarm) {
+      startKeepingWarm();
+    }
+  }
+
+  /** Stops keeping the hosts warm. */
+  public synchronized void stop() {
+    keepingWarm = false;
+    if (keepWarmTask != null) {
+      keepWarmTask.cancel(false);
+      keepWarmTask = null;
+    }
+  }
+
+  /**
+   * Returns true whilst the hosts are being kept warm.
+   *
+   * @return true if keeping warm.
+   */
+  public boolean isKeepingWarm() {
+    return keepingWarm;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("hostUrls", hostUrls)
+        .add("keepWarmInterval", Duration.ofNanos(keepWarmIntervalNanos))
+        .add("keepingWarm", keepingWarm)
+        .toString();
+  }
+
+  /*
+   * Run by the scheduler every keep warm interval.
+   */
+  void keepWarm() {
+    final long idleNanos = nanoClock.getAsLong() - lastRequestNanos;
+    if (idleNanos >= MAX_IDLE_INTERVALS * keepWarmIntervalNanos) {
+      LOG.info(() -> "No API calls made for a while - no longer keeping warm: " + hostUrls);
+      stop();
+    } else if (idleNanos >= keepWarmIntervalNanos) {
+      warmHosts();
+    }
+  }
+
+  private synchronized void startKeepingWarm() {
+    if (keepingWarm) {
+      return;
+    }
+    keepingWarm = true;
+    keepWarmTask =
+        scheduler.scheduleWithFixedDelay(
+            this::keepWarm, keepWarmIntervalNanos, keepWarmIntervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void warmHosts() {
+    for (final URL hostUrl : hostUrls) {
+      try {
+        final int statusCode = transport.send(hostUrl, "HEAD", null, null, timeout).getStatusCode();
+        LOG.debug(() -> "Warmed connection to " + hostUrl + " HTTP status: " + statusCode);
+      } catch (IOException | RuntimeException e) {
+        LOG.warn(() -> "Failed to warm connection to " + hostUrl, e);
+      }
+    }
+  }
+
+  private static List<URL> toHostUrls(Collection<String> apiUrls) throws MalformedURLException {
+    final Map<String, URL> hostUrls = new LinkedHashMap<>();
+    for (final String apiUrl : apiUrls) {
+      final URL url = new URL(apiUrl);
+      final URL hostUrl = new URL(url.getProtocol(), url.getHost(), url.getPort(), "/");
+      hostUrls.putIfAbsent(hostUrl.toString(), hostUrl);
+    }
+    return Collections.unmodifiableList(new ArrayList<>(hostUrls.values()));
+  }
+}
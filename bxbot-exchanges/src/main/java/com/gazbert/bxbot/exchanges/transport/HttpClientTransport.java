@@ -0,0 +1,319 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import com.google.common.io.CountingInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * HTTP transport built on a shared {@link HttpClient}.
+ *
+ * <p>The client keeps connections to the Exchange alive between requests and negotiates HTTP/2
+ * where the Exchange supports it (falling back to HTTP/1.1), so the TCP and TLS handshakes are not
+ * repeated on every API call.
+ *
+ * <p>The transport does not cap the requests in flight: the adapter's {@link
+ * PriorityRequestDispatcher} does, so an HTTP/1.1 Exchange never gets more connections than the
+ * adapter's max connections. The JDK client has no API for sizing its connection pool - the pool
+ * size and idle timeout are read from the {@code jdk.httpclient.connectionPoolSize} and {@code
+ * jdk.httpclient.keepalive.timeout} system properties. They are shared by every client in the JVM,
+ * so they are left to be set for the whole process on the command line, and not per adapter.
+ *
+ * <p>The request timeout covers the whole response: the JDK client only applies it to the wait for
+ * the response headers, so the transport closes a body that is still being read when the time is
+ * up, e.g. because the Exchange stalled part way through sending it.
+ *
+ * <p>Responses are requested gzip or deflate compressed and are decompressed as they are streamed
+ * to the caller. The size of each response body on the wire and after decompression is tracked:
+ * see {@link #getResponseSizeMetrics()}.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public class HttpClientTransport implements HttpTransport {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  // Er, perhaps, we need to be a bit more stealth here...
+  // This was needed for some exchanges back in the day!
+  private static final String USER_AGENT =
+      "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) "
+          + "Chrome/74.0.3729.169 Safari/537.36";
+  private static final String FORM_URL_ENCODED = "application/x-www-form-urlencoded";
+  private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private final HttpClient httpClient;
+
+  private final AtomicLong responseCount = new AtomicLong();
+  private final AtomicLong compressedResponseCount = new AtomicLong();
+  private final AtomicLong wireBytes = new AtomicLong();
+  private final AtomicLong decodedBytes = new AtomicLong();
+
+  /**
+   * Creates the transport.
+   *
+   * @param connectTimeout the connect timeout.
+   */
+  public HttpClientTransport(Duration connectTimeout) {
+    httpClient =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(connectTimeout)
+            .build();
+  }
+
+  @Override
+  public Response send(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Duration timeout)
+      throws IOException {
+    return send(url, httpMethod, postData, requestHeaders, timeout, null);
+  }
+
+  @Override
+  public Response send(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Duration timeout,
+      BodyDecoder<?> decoder)
+      throws IOException {
+
+    final HttpRequest request = buildRequest(url, httpMethod, postData, requestHeaders, timeout);
+    final long deadlineNanos = System.nanoTime() + timeout.toNanos();
+    try {
+      final HttpResponse<InputStream> response =
+          httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      LOG.debug(() -> "Received " + response.version() + " response from " + url);
+
+      final String contentEncoding = response.headers().firstValue("Content-Encoding").orElse(null);
+      final AtomicBoolean bodyTimedOut = new AtomicBoolean();
+      final CompletableFuture<Void> bodyDeadline =
+          closeAtDeadline(response.body(), deadlineNanos, bodyTimedOut);
+      final CountingInputStream wireBody = new CountingInputStream(response.body());
+
+      // Closing the stream hands the connection back to the pool.
+      try (CountingInputStream body =
+          new CountingInputStream(decompress(contentEncoding, wireBody))) {
+        try {
+          if (decoder != null && response.statusCode() < 400) {
+            final Object decodedBody = decoder.decode(body);
+            // read what the decoder left, e.g. trailing whitespace, so the sizes are complete
+            body.transferTo(OutputStream.nullOutputStream());
+            return new Response(response.statusCode(), null, null, decodedBody);
+          }
+          return new Response(
+              response.statusCode(), null, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        } finally {
+          recordResponseSize(url, contentEncoding, wireBody.getCount(), body.getCount());
+        }
+      } catch (IOException e) {
+        if (bodyTimedOut.get()) {
+          final HttpTimeoutException hte =
+              new HttpTimeoutException("Timed out reading the response body from " + url);
+          hte.initCause(e);
+          throw hte;
+        }
+        throw e;
+      } finally {
+        bodyDeadline.cancel(false);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      final InterruptedIOException ioe =
+          new InterruptedIOException("Interrupted whilst calling " + url);
+      ioe.initCause(e);
+      throw ioe;
+    }
+  }
+
+  @Override
+  public ResponseSizeMetrics getResponseSizeMetrics() {
+    return new ResponseSizeMetrics(
+        responseCount.get(), compressedResponseCount.get(), wireBytes.get(), decodedBytes.get());
+  }
+
+  private void recordResponseSize(
+      URL url, String contentEncoding, long responseWireBytes, long responseDecodedBytes) {
+    responseCount.incrementAndGet();
+    if (isCompressed(contentEncoding)) {
+      compressedResponseCount.incrementAndGet();
+    }
+    wireBytes.addAndGet(responseWireBytes);
+    decodedBytes.addAndGet(responseDecodedBytes);
+    LOG.debug(
+        () ->
+            "Response from "
+                + url
+                + " Content-Encoding: "
+                + contentEncoding
+                + " wire bytes: "
+                + responseWireBytes
+                + " decoded bytes: "
+                + responseDecodedBytes);
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  private static HttpRequest buildRequest(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Duration timeout)
+      throws MalformedURLException {
+
+    final HttpRequest.Builder builder;
+    try {
+      builder = HttpRequest.newBuilder(url.toURI()).timeout(timeout);
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      final MalformedURLException mue = new MalformedURLException("Invalid URL: " + url);
+      mue.initCause(e);
+      throw mue;
+    }
+
+    builder.header("User-Agent", USER_AGENT);
+    builder.header("Accept-Encoding", ACCEPT_ENCODING);
+    boolean contentTypeSet = false;
+    if (requestHeaders != null) {
+      for (final Map.Entry<String, String> requestHeader : requestHeaders.entrySet()) {
+        builder.setHeader(requestHeader.getKey(), requestHeader.getValue());
+        contentTypeSet |= "Content-Type".equalsIgnoreCase(requestHeader.getKey());
+        LOG.debug(() -> "Setting following request header: " + requestHeader);
+      }
+    }
+
+    if ("POST".equalsIgnoreCase(httpMethod) && postData != null) {
+      // HttpURLConnection always defaulted this; some exchanges expect it.
+      if (!contentTypeSet) {
+        builder.setHeader("Content-Type", FORM_URL_ENCODED);
+      }
+      builder.POST(HttpRequest.BodyPublishers.ofString(postData, StandardCharsets.UTF_8));
+    } else {
+      builder.method(httpMethod.toUpperCase(Locale.ROOT), HttpRequest.BodyPublishers.noBody());
+    }
+    return builder.build();
+  }
+
+  /*
+   * Closes the response body if it is still open at the deadline. Closing it wakes up a read that
+   * is blocked waiting for more of the body.
+   */
+  private static CompletableFuture<Void> closeAtDeadline(
+      InputStream body, long deadlineNanos, AtomicBoolean timedOut) {
+    final long remainingNanos = Math.max(0, deadlineNanos - System.nanoTime());
+    return CompletableFuture.runAsync(
+        () -> {
+          timedOut.set(true);
+          try {
+            body.close();
+          } catch (IOException e) {
+            LOG.debug("Failed to close the response body at its deadline", e);
+          }
+        },
+        CompletableFuture.delayedExecutor(remainingNanos, TimeUnit.NANOSECONDS));
+  }
+
+  /*
+   * Wraps the response body in a stream that decompresses it as it is read. An empty body is never
+   * decompressed: e.g. a 204 can still carry a Content-Encoding header.
+   */
+  static InputStream decompress(String contentEncoding, InputStream body) throws IOException {
+    if (!isCompressed(contentEncoding)) {
+      return body;
+    }
+    final PushbackInputStream pushbackBody = new PushbackInputStream(body, 2);
+    final byte[] header = pushbackBody.readNBytes(2);
+    if (header.length == 0) {
+      return pushbackBody;
+    }
+    pushbackBody.unread(header);
+
+    final String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+    if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+      return new GZIPInputStream(pushbackBody);
+    } else if ("deflate".equals(encoding)) {
+      // Should be zlib wrapped, but some servers send a raw deflate stream.
+      return new InflaterInputStream(pushbackBody, new Inflater(!isZlibHeader(header))) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            inf.end(); // not ended by the stream because we supplied it
+          }
+        }
+      };
+    }
+    throw new IOException("Unsupported response Content-Encoding: " + contentEncoding);
+  }
+
+  private static boolean isCompressed(String contentEncoding) {
+    return contentEncoding != null
+        && !contentEncoding.isBlank()
+        && !"identity".equalsIgnoreCase(contentEncoding.trim());
+  }
+
+  /*
+   * A zlib header is the deflate method (8) in the low nibble of the 1st byte, and a 16 bit value
+   * that is a multiple of 31 - RFC 1950.
+   */
+  private static boolean isZlibHeader(byte[] header) {
+    return header.length == 2
+        && (header[0] & 0x0f) == 8
+        && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import com.google.common.base.MoreObjects;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sends HTTP requests to an Exchange on behalf of an Exchange Adapter.
+ *
+ * <p>Implementations must be thread-safe: the same transport is shared by all the requests an
+ * adapter makes, including the ones made from the async Trading API threads.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public interface HttpTransport {
+
+  /**
+   * Sends a request to the Exchange and waits for the response.
+   *
+   * <p>An HTTP error status is not a transport failure: the response is returned to the caller
+   * whatever its status code.
+   *
+   * @param url the URL to invoke.
+   * @param httpMethod the HTTP method to use, e.g. GET, POST, DELETE
+   * @param postData optional post data to send. This can be null.
+   * @param requestHeaders optional request headers. This can be null.
+   * @param timeout how long to wait for the response.
+   * @return the response from the Exchange.
+   * @throws IOException if the request could not be sent or the response could not be read.
+   */
+  Response send(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Duration timeout)
+      throws IOException;
+
+  /**
+   * Sends a request to the Exchange and decodes a successful response as it is read.
+   *
+   * <p>If the Exchange returns a 2xx/3xx status, the response body stream is handed straight to
+   * the decoder and the response holds the decoded body only - the payload is never held as a
+   * String. Error responses are returned with their body as a String, like {@link #send(URL,
+   * String, String, Map, Duration)}.
+   *
+   * <p>This default implementation reads the whole body first; transports that can stream should
+   * override it.
+   *
+   * @param url the URL to invoke.
+   * @param httpMethod the HTTP method to use, e.g. GET, POST, DELETE
+   * @param postData optional post data to send. This can be null.
+   * @param requestHeaders optional request headers. This can be null.
+   * @param timeout how long to wait for the response.
+   * @param decoder decodes the response body.
+   * @return the response from the Exchange.
+   * @throws IOException if the request could not be sent or the response could not be read.
+   */
+  default Response send(
+      URL url,
+      String httpMethod,
+      String postData,
+      Map<String, String> requestHeaders,
+      Duration timeout,
+      BodyDecoder<?> decoder)
+      throws IOException {
+    final Response response = send(url, httpMethod, postData, requestHeaders, timeout);
+    if (!response.isSuccessful()) {
+      return response;
+    }
+    try (InputStream body =
+        new ByteArrayInputStream(response.getBody().getBytes(StandardCharsets.UTF_8))) {
+      return new Response(
+          response.getStatusCode(), response.getReasonPhrase(), null, decoder.decode(body));
+    }
+  }
+
+  /**
+   * Returns the sizes of the responses received so far, before and after decompression.
+   *
+   * @return the response size metrics, or null if the transport does not track them.
+   */
+  default ResponseSizeMetrics getResponseSizeMetrics() {
+    return null;
+  }
+
+  /**
+   * Decodes a response body stream.
+   *
+   * @param <T> the decoded type.
+   */
+  @FunctionalInterface
+  interface BodyDecoder<T> {
+
+    /**
+     * Decodes the response body. The caller closes the stream.
+     *
+     * @param body the response body stream.
+     * @return the decoded body.
+     * @throws IOException if the body could not be read.
+     */
+    T decode(InputStream body) throws IOException;
+  }
+
+  /** Wrapper for holding the HTTP response. */
+  final class Response {
+
+    private final int statusCode;
+    private final String reasonPhrase;
+    private final String body;
+    private final Object decodedBody;
+
+    /**
+     * Creates a new response.
+     *
+     * @param statusCode the HTTP status code.
+     * @param reasonPhrase the reason phrase. This can be null, e.g. HTTP/2 does not have one.
+     * @param body the response body.
+     */
+    public Response(int statusCode, String reasonPhrase, String body) {
+      this(statusCode, reasonPhrase, body, null);
+    }
+
+    /**
+     * Creates a new response.
+     *
+     * @param statusCode the HTTP status code.
+     * @param reasonPhrase the reason phrase. This can be null, e.g. HTTP/2 does not have one.
+     * @param body the response body. This is null if the body was decoded as it was read.
+     * @param decodedBody the decoded response body. This can be null.
+     */
+    public Response(int statusCode, String reasonPhrase, String body, Object decodedBody) {
+      this.statusCode = statusCode;
+      this.reasonPhrase = reasonPhrase;
+      this.body = body;
+      this.decodedBody = decodedBody;
+    }
+
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    public String getReasonPhrase() {
+      return reasonPhrase;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    public Object getDecodedBody() {
+      return decodedBody;
+    }
+
+    /**
+     * Returns true if the Exchange returned a 2xx or 3xx status.
+     *
+     * @return true if the request was successful.
+     */
+    public boolean isSuccessful() {
+      return statusCode < 400;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("statusCode", statusCode)
+          .add("reasonPhrase", reasonPhrase)
+          .add("body", body)
+          .add("decodedBody", decodedBody)
+          .toString();
+    }
+  }
+}
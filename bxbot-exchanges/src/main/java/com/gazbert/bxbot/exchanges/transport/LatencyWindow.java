@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of the most recent response times of an endpoint.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class LatencyWindow {
+
+  private final long[] samples;
+  private int sampleCount;
+  private int nextSample;
+
+  /**
+   * Creates a latency window.
+   *
+   * @param size the number of response times kept.
+   */
+  public LatencyWindow(int size) {
+    samples = new long[size];
+  }
+
+  /**
+   * Adds a response time to the window, replacing the oldest one once the window is full.
+   *
+   * @param latencyNanos the response time in nanos.
+   */
+  public synchronized void record(long latencyNanos) {
+    samples[nextSample] = latencyNanos;
+    nextSample = (nextSample + 1) % samples.length;
+    if (sampleCount < samples.length) {
+      sampleCount++;
+    }
+  }
+
+  /**
+   * Returns a percentile of the response times in the window, using the nearest rank method.
+   *
+   * @param percentile the percentile, e.g. 95.
+   * @param minSamples the min number of response times needed for the percentile to be reliable.
+   * @return the percentile in nanos, or -1 if the window has fewer than minSamples response times.
+   */
+  public long percentile(double percentile, int minSamples) {
+    final long[] sorted;
+    synchronized (this) {
+      if (sampleCount < minSamples || sampleCount == 0) {
+        return -1;
+      }
+      sorted = Arrays.copyOf(samples, sampleCount);
+    }
+    Arrays.sort(sorted);
+    final int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+    return sorted[Math.max(0, Math.min(rank, sorted.length) - 1)];
+  }
+
+  /**
+   * Returns the number of response times in the window.
+   *
+   * @return the sample count.
+   */
+  public synchronized int getSampleCount() {
+    return sampleCount;
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import com.google.common.base.MoreObjects;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides the order the requests of an Exchange Adapter are sent in.
+ *
+ * <p>A request must be given a slot before it is sent, and hands it back once it has its response.
+ * The number of slots is capped overall and per {@link RequestPriority}. When a slot is free, it
+ * goes to the highest priority request waiting for it - requests of the same priority are served
+ * in the order they arrived. So a burst of order book requests never delays an order
+ * cancellation: the cancellation jumps the queue, and the market data limit keeps some slots free
+ * for it.
+ *
+ * <p>The dispatcher is thread-safe.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public class PriorityRequestDispatcher {
+
+  private final int maxInFlight;
+  private final Map<RequestPriority, Integer> maxInFlightPerPriority;
+  private final Map<RequestPriority, Integer> inFlightPerPriority;
+  private final List<Waiter> waiters = new ArrayList<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition slotsChanged = lock.newCondition();
+
+  private int inFlight;
+  private long arrivalCount;
+
+  /**
+   * Creates a dispatcher with the default per priority limits: account and market data requests
+   * can each have half of the slots, less one that is kept for trading requests.
+   *
+   * @param maxInFlight the max number of requests in flight, e.g. the max connections.
+   * @throws IllegalArgumentException if maxInFlight is less than 1.
+   */
+  public PriorityRequestDispatcher(int maxInFlight) {
+    this(maxInFlight, createDefaultLimits(maxInFlight));
+  }
+
+  /**
+   * Creates a dispatcher.
+   *
+   * @param maxInFlight the max number of requests in flight, e.g. the max connections.
+   * @param maxInFlightPerPriority the max number of requests in flight for each priority. If a
+   *     priority is missing, its requests are only limited by maxInFlight.
+   * @throws IllegalArgumentException if a limit is less than 1.
+   */
+  public PriorityRequestDispatcher(
+      int maxInFlight, Map<RequestPriority, Integer> maxInFlightPerPriority) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException(
+          "Max in flight requests must be at least 1: " + maxInFlight);
+    }
+    this.maxInFlight = maxInFlight;
+    this.maxInFlightPerPriority = new EnumMap<>(RequestPriority.class);
+    this.inFlightPerPriority = new EnumMap<>(RequestPriority.class);
+    for (final RequestPriority priority : RequestPriority.values()) {
+      final int limit = maxInFlightPerPriority.getOrDefault(priority, maxInFlight);
+      if (limit < 1) {
+        throw new IllegalArgumentException(
+            "Max in flight " + priority + " requests must be at least 1: " + limit);
+      }
+      this.maxInFlightPerPriority.put(priority, Math.min(limit, maxInFlight));
+      inFlightPerPriority.put(priority, 0);
+    }
+  }
+
+  /**
+   * Waits for a slot to send a request in. Callers must {@link #release(RequestPriority)} the slot
+   * once they have the response.
+   *
+   * @param priority the priority of the request.
+   * @param maxWait the max time to wait for a slot.
+   * @return true if the request was given a slot, false if none was free in time.
+   * @throws InterruptedException if the calling thread was interrupted whilst waiting.
+   */
+  public boolean acquire(RequestPriority priority, Duration maxWait) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      final Waiter waiter = new Waiter(priority, arrivalCount++);
+      waiters.add(waiter);
+      try {
+        long nanosLeft = maxWait.toNanos();
+        while (!isNextToBeServed(waiter)) {
+          if (nanosLeft <= 0) {
+            return false;
+          }
+          nanosLeft = slotsChanged.awaitNanos(nanosLeft);
+        }
+        inFlight++;
+        inFlightPerPriority.merge(priority, 1, Integer::sum);
+        return true;
+      } finally {
+        // another waiter may have been queued behind this one
+        waiters.remove(waiter);
+        slotsChanged.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Hands back a slot given by {@link #acquire(RequestPriority, Duration)}.
+   *
+   * @param priority the priority of the request.
+   */
+  public void release(RequestPriority priority) {
+    lock.lock();
+    try {
+      inFlight--;
+      inFlightPerPriority.merge(priority, -1, Integer::sum);
+      slotsChanged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of requests of a priority waiting for a slot.
+   *
+   * @param priority the priority.
+   * @return the number of waiting requests.
+   */
+  public int getQueueDepth(RequestPriority priority) {
+    lock.lock();
+    try {
+      return (int) waiters.stream().filter(waiter -> waiter.priority == priority).count();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of requests of a priority that have a slot.
+   *
+   * @param priority the priority.
+   * @return the number of requests in flight.
+   */
+  public int getInFlight(RequestPriority priority) {
+    lock.lock();
+    try {
+      return inFlightPerPriority.get(priority);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /*
+   * A waiter is served if a slot is free for its priority and no waiter ahead of it in the queue
+   * could take a free slot instead.
+   */
+  private boolean isNextToBeServed(Waiter waiter) {
+    if (!hasFreeSlot(waiter.priority)) {
+      return false;
+    }
+    for (final Waiter other : waiters) {
+      if (other.isAheadOf(waiter) && hasFreeSlot(other.priority)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean hasFreeSlot(RequestPriority priority) {
+    return inFlight < maxInFlight
+        && inFlightPerPriority.get(priority) < maxInFlightPerPriority.get(priority);
+  }
+
+  private static Map<RequestPriority, Integer> createDefaultLimits(int maxInFlight) {
+    final int nonTradingLimit = Math.max(1, (maxInFlight - 1) / 2);
+    final Map<RequestPriority, Integer> limits = new EnumMap<>(RequestPriority.class);
+    limits.put(RequestPriority.TRADING, maxInFlight);
+    limits.put(RequestPriority.ACCOUNT, nonTradingLimit);
+    limits.put(RequestPriority.MARKET_DATA, nonTradingLimit);
+    return limits;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("maxInFlight", maxInFlight)
+        .add("maxInFlightPerPriority", maxInFlightPerPriority)
+        .toString();
+  }
+
+  /** A request waiting for a slot. */
+  private static final class Waiter {
+
+    private final RequestPriority priority;
+    private final long arrival;
+
+    Waiter(RequestPriority priority, long arrival) {
+      this.priority = priority;
+      this.arrival = arrival;
+    }
+
+    boolean isAheadOf(Waiter other) {
+      final int byPriority = priority.compareTo(other.priority);
+      return byPriority < 0 || (byPriority == 0 && arrival < other.arrival);
+    }
+  }
+}
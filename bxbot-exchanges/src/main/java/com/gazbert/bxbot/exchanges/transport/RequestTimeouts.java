@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import com.google.common.base.MoreObjects;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read timeouts for the requests sent to the Exchange.
+ *
+ * <p>Each endpoint class - see {@link RequestPriority} - has its own read timeout, so a hung market
+ * data read does not have to wait as long as an order placement.
+ *
+ * <p>In adaptive mode, the response times of each endpoint are tracked in a rolling window and its
+ * read timeout is derived from them: a multiple of the 99th percentile, but never less than
+ * {@link #MIN_ADAPTIVE_READ_TIMEOUT} or more than the endpoint class's read timeout. A hung call
+ * then fails fast, whilst an endpoint that is always slow is given the time it normally needs.
+ * Until an endpoint has enough response times, its class's read timeout is used.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class RequestTimeouts {
+
+  /** Adaptive read timeouts are never shorter than this. */
+  public static final Duration MIN_ADAPTIVE_READ_TIMEOUT = Duration.ofSeconds(2);
+
+  static final double ADAPTIVE_PERCENTILE = 99;
+  static final int ADAPTIVE_MULTIPLIER = 3;
+  static final int WINDOW_SIZE = 100;
+  static final int MIN_SAMPLES = 20;
+
+  private final Map<RequestPriority, Duration> readTimeouts;
+  private final boolean adaptive;
+  private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the request timeouts.
+   *
+   * @param readTimeouts the read timeout of each endpoint class. In adaptive mode, these are the
+   *     max read timeouts.
+   * @param adaptive true to derive the read timeouts from the endpoints' response times.
+   * @throws IllegalArgumentException if an endpoint class has no read timeout.
+   */
+  public RequestTimeouts(Map<RequestPriority, Duration> readTimeouts, boolean adaptive) {
+    this.readTimeouts = new EnumMap<>(RequestPriority.class);
+    for (final RequestPriority priority : RequestPriority.values()) {
+      final Duration readTimeout = readTimeouts.get(priority);
+      if (readTimeout == null || readTimeout.isZero() || readTimeout.isNegative()) {
+        throw new IllegalArgumentException(
+            "Read timeout for " + priority + " requests must be more than 0: " + readTimeout);
+      }
+      this.readTimeouts.put(priority, readTimeout);
+    }
+    this.adaptive = adaptive;
+  }
+
+  /**
+   * Returns the read timeout for a request.
+   *
+   * @param priority the endpoint class of the request.
+   * @param endpoint identifies the endpoint, e.g. the URL without the query.
+   * @return the read timeout.
+   */
+  public Duration getReadTimeout(RequestPriority priority, String endpoint) {
+    final Duration maxReadTimeout = readTimeouts.get(priority);
+    final LatencyWindow window = adaptive ? latencies.get(endpoint) : null;
+    if (window == null) {
+      return maxReadTimeout;
+    }
+
+    final long percentileNanos = window.percentile(ADAPTIVE_PERCENTILE, MIN_SAMPLES);
+    if (percentileNanos < 0) {
+      return maxReadTimeout;
+    }
+    final Duration readTimeout = Duration.ofNanos(percentileNanos * ADAPTIVE_MULTIPLIER);
+    if (readTimeout.compareTo(maxReadTimeout) > 0
+        || maxReadTimeout.compareTo(MIN_ADAPTIVE_READ_TIMEOUT) < 0) {
+      return maxReadTimeout;
+    }
+    return readTimeout.compareTo(MIN_ADAPTIVE_READ_TIMEOUT) < 0
+        ? MIN_ADAPTIVE_READ_TIMEOUT
+        : readTimeout;
+  }
+
+  /**
+   * Records the response time of a request. Only used in adaptive mode.
+   *
+   * @param endpoint identifies the endpoint, e.g. the URL without the query.
+   * @param latency the time taken for the Exchange to respond.
+   */
+  public void recordLatency(String endpoint, Duration latency) {
+    if (adaptive) {
+      latencies
+          .computeIfAbsent(endpoint, key -> new LatencyWindow(WINDOW_SIZE))
+          .record(latency.toNanos());
+    }
+  }
+
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("readTimeouts", readTimeouts)
+        .add("adaptive", adaptive)
+        .toString();
+  }
+}
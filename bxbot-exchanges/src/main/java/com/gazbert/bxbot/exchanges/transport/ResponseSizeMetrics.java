@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Snapshot of the response sizes seen by an {@link HttpTransport}: the bytes that came over the
+ * wire and the bytes they decompressed to.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class ResponseSizeMetrics {
+
+  private final long responseCount;
+  private final long compressedResponseCount;
+  private final long wireBytes;
+  private final long decodedBytes;
+
+  ResponseSizeMetrics(
+      long responseCount, long compressedResponseCount, long wireBytes, long decodedBytes) {
+    this.responseCount = responseCount;
+    this.compressedResponseCount = compressedResponseCount;
+    this.wireBytes = wireBytes;
+    this.decodedBytes = decodedBytes;
+  }
+
+  /**
+   * Returns the number of responses received.
+   *
+   * @return the response count.
+   */
+  public long getResponseCount() {
+    return responseCount;
+  }
+
+  /**
+   * Returns the number of responses the Exchange sent compressed.
+   *
+   * @return the compressed response count.
+   */
+  public long getCompressedResponseCount() {
+    return compressedResponseCount;
+  }
+
+  /**
+   * Returns the number of response body bytes received over the wire.
+   *
+   * @return the wire size in bytes.
+   */
+  public long getWireBytes() {
+    return wireBytes;
+  }
+
+  /**
+   * Returns the number of response body bytes after decompression.
+   *
+   * @return the decoded size in bytes.
+   */
+  public long getDecodedBytes() {
+    return decodedBytes;
+  }
+
+  /**
+   * Returns the bandwidth compression has saved, as a percentage of the decoded size.
+   *
+   * @return the bandwidth saved percentage.
+   */
+  public double getBandwidthSavedPercent() {
+    return decodedBytes == 0 ? 0 : 100.0 * (decodedBytes - wireBytes) / decodedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("responseCount", responseCount)
+        .add("compressedResponseCount", compressedResponseCount)
+        .add("wireBytes", wireBytes)
+        .add("decodedBytes", decodedBytes)
+        .toString();
+  }
+}
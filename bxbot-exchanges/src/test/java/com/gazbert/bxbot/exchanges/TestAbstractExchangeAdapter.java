@@ -0,0 +1,1054 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
+import com.gazbert.bxbot.exchange.api.ExchangeConfig;
+import com.gazbert.bxbot.exchange.api.NetworkConfig;
+import com.gazbert.bxbot.exchange.api.PairPrecisionConfig;
+import com.gazbert.bxbot.exchanges.AbstractExchangeAdapter.ExchangeHttpResponse;
+import com.gazbert.bxbot.exchanges.config.PairPrecisionConfigImpl;
+import com.gazbert.bxbot.exchanges.hedging.HedgingMetrics;
+import com.gazbert.bxbot.exchanges.hedging.RequestHedger;
+import com.gazbert.bxbot.exchanges.ratelimit.RateLimiter;
+import com.gazbert.bxbot.exchanges.ratelimit.RateLimiterMetrics;
+import com.gazbert.bxbot.exchanges.ratelimit.TokenBucketRateLimiter;
+import com.gazbert.bxbot.exchanges.resilience.EndpointCircuitBreakers;
+import com.gazbert.bxbot.exchanges.signing.RequestSigner;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataSink;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataStream;
+import com.gazbert.bxbot.exchanges.streaming.StreamProtocol;
+import com.gazbert.bxbot.exchanges.transport.ConnectionWarmer;
+import com.gazbert.bxbot.exchanges.transport.HttpTransport;
+import com.gazbert.bxbot.exchanges.transport.PriorityRequestDispatcher;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
+import com.gazbert.bxbot.exchanges.transport.RequestTimeouts;
+import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.FixedPointScale;
+import com.gazbert.bxbot.trading.api.TradingApiException;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the base Exchange Adapter maps the HTTP transport responses and failures to the Trading
+ * API exceptions as expected, that calls are coalesced, hedged, dispatched in priority order and
+ * rate limited, and that its request signing state can be used concurrently.
+ *
+ * @author gazbert
+ */
+public class TestAbstractExchangeAdapter {
+
+  private static final String PAYLOAD = "{\"result\": \"ok\"}";
+
+  private static final int THREAD_COUNT = 8;
+  private static final int CALLS_PER_THREAD = 500;
+  private static final SecretKeySpec KEY_SPEC =
+      new SecretKeySpec("notGonnaTellYa".getBytes(StandardCharsets.UTF_8), "HmacSHA512");
+
+  private AbstractExchangeAdapter exchangeAdapter;
+  private URL url;
+
+  /** Create an adapter with some network config - the TradingEngine would normally do this. */
+  @Before
+  public void setupForEachTest() throws Exception {
+    final NetworkConfig networkConfig = EasyMock.createMock(NetworkConfig.class);
+    expect(networkConfig.getConnectionTimeout()).andReturn(15);
+    expect(networkConfig.getNonFatalErrorCodes()).andReturn(Collections.singletonList(503));
+    expect(networkConfig.getNonFatalErrorMessages())
+        .andReturn(Collections.singletonList("Connection refused"));
+    expect(networkConfig.getMaxConnections()).andReturn(5);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(30);
+    expect(networkConfig.getRateLimiter()).andReturn("token-bucket");
+    expect(networkConfig.getRateLimitBurst()).andReturn(100);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(100.0);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
+
+    final ExchangeConfig exchangeConfig = EasyMock.createMock(ExchangeConfig.class);
+    expect(exchangeConfig.getNetworkConfig()).andReturn(networkConfig);
+    EasyMock.replay(networkConfig, exchangeConfig);
+
+    exchangeAdapter = new AbstractExchangeAdapter() {};
+    exchangeAdapter.setNetworkConfig(exchangeConfig);
+    url = new URL("https://api.exchange.com/ticker");
+
+    EasyMock.verify(networkConfig, exchangeConfig);
+  }
+
+  @Test
+  public void testSuccessfulResponseIsReturnedUsingConfiguredTimeout() throws Exception {
+    final AtomicReference<Duration> timeoutUsed = new AtomicReference<>();
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          timeoutUsed.set(timeout);
+          return new HttpTransport.Response(200, "OK", PAYLOAD);
+        });
+
+    final ExchangeHttpResponse response =
+        exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals("OK", response.getReasonPhrase());
+    assertEquals(PAYLOAD, response.getPayload());
+    assertEquals(Duration.ofSeconds(15), timeoutUsed.get());
+  }
+
+  @Test
+  public void testReadTimeoutDependsOnEndpointClassAndAdaptsToResponseTimes() throws Exception {
+    final AbstractExchangeAdapter adapter =
+        new AbstractExchangeAdapter() {
+          @Override
+          RequestPriority getRequestPriority(URL url, String httpMethod) {
+            return "POST".equals(httpMethod)
+                ? RequestPriority.TRADING
+                : RequestPriority.MARKET_DATA;
+          }
+        };
+    final Map<RequestPriority, Duration> readTimeouts = new EnumMap<>(RequestPriority.class);
+    readTimeouts.put(RequestPriority.TRADING, Duration.ofSeconds(20));
+    readTimeouts.put(RequestPriority.ACCOUNT, Duration.ofSeconds(15));
+    readTimeouts.put(RequestPriority.MARKET_DATA, Duration.ofSeconds(10));
+    adapter.setRequestTimeouts(new RequestTimeouts(readTimeouts, true));
+
+    final List<Duration> timeoutsUsed = Collections.synchronizedList(new ArrayList<>());
+    adapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          timeoutsUsed.add(timeout);
+          return new HttpTransport.Response(200, "OK", PAYLOAD);
+        });
+
+    adapter.sendNetworkRequest(url, "POST", "order", null);
+    adapter.sendNetworkRequest(url, "GET", null, null);
+    assertEquals(Arrays.asList(Duration.ofSeconds(20), Duration.ofSeconds(10)), timeoutsUsed);
+
+    // the ticker is fast, so once enough response times are in, a hung call fails fast
+    for (int i = 0; i < 20; i++) {
+      adapter.sendNetworkRequest(url, "GET", null, null);
+    }
+    timeoutsUsed.clear();
+    adapter.sendNetworkRequest(new URL(url + "?pair=btcusd"), "GET", null, null);
+    assertEquals(
+        Collections.singletonList(RequestTimeouts.MIN_ADAPTIVE_READ_TIMEOUT), timeoutsUsed);
+  }
+
+  @Test
+  public void testConnectionsArePreWarmedOnlyIfEnabled() throws Exception {
+    final List<String> requestsSent = Collections.synchronizedList(new ArrayList<>());
+    final HttpTransport transport =
+        (requestUrl, method, postData, headers, timeout) -> {
+          requestsSent.add(method + " " + requestUrl);
+          return new HttpTransport.Response(200, "OK", PAYLOAD);
+        };
+    exchangeAdapter.setHttpTransport(transport);
+    exchangeAdapter.preWarmConnections("https://api.exchange.com/v1/");
+    assertTrue(requestsSent.isEmpty());
+
+    final NetworkConfig networkConfig = EasyMock.createNiceMock(NetworkConfig.class);
+    expect(networkConfig.getConnectionTimeout()).andReturn(15);
+    expect(networkConfig.getPreWarmConnections()).andReturn(true);
+    final ExchangeConfig exchangeConfig = EasyMock.createMock(ExchangeConfig.class);
+    expect(exchangeConfig.getNetworkConfig()).andReturn(networkConfig);
+    EasyMock.replay(networkConfig, exchangeConfig);
+
+    final AbstractExchangeAdapter preWarmingAdapter = new AbstractExchangeAdapter() {};
+    preWarmingAdapter.setNetworkConfig(exchangeConfig);
+    preWarmingAdapter.setHttpTransport(transport);
+    preWarmingAdapter.preWarmConnections(
+        "https://api.exchange.com/v1/", "https://api.exchange.com/v1/private/");
+    assertEquals(Collections.singletonList("HEAD https://api.exchange.com/"), requestsSent);
+
+    preWarmingAdapter.sendNetworkRequest(url, "GET", null, null);
+    assertEquals(2, requestsSent.size());
+  }
+
+  @Test
+  public void testMarketDataIsStreamedOnlyIfEnabled() {
+    final StreamProtocol protocol = createUnreachableStreamProtocol();
+    exchangeAdapter.startMarketDataStream(protocol);
+    assertNull(exchangeAdapter.getMarketDataStream());
+    assertNull(exchangeAdapter.getStreamedMarketOrders("btcusd", 10));
+    assertNull(exchangeAdapter.getStreamedTicker("btcusd"));
+
+    final NetworkConfig networkConfig = EasyMock.createNiceMock(NetworkConfig.class);
+    expect(networkConfig.getConnectionTimeout()).andReturn(15);
+    expect(networkConfig.getStreamMarketData()).andReturn(true);
+    final ExchangeConfig exchangeConfig = EasyMock.createMock(ExchangeConfig.class);
+    expect(exchangeConfig.getNetworkConfig()).andReturn(networkConfig);
+    EasyMock.replay(networkConfig, exchangeConfig);
+
+    final AbstractExchangeAdapter streamingAdapter = new AbstractExchangeAdapter() {};
+    streamingAdapter.setNetworkConfig(exchangeConfig);
+    streamingAdapter.startMarketDataStream(protocol);
+    final MarketDataStream stream = streamingAdapter.getMarketDataStream();
+    try {
+      assertNotNull(stream);
+      // not connected yet, so the adapter falls back to REST - but the market is subscribed to
+      assertNull(streamingAdapter.getStreamedMarketOrders("btcusd", 10));
+      assertNull(streamingAdapter.getStreamedTicker("ltcusd"));
+      assertTrue(stream.toString().contains("btcusd"));
+      assertTrue(stream.toString().contains("ltcusd"));
+
+      // re-init replaces the stream
+      streamingAdapter.startMarketDataStream(protocol);
+      assertNotSame(stream, streamingAdapter.getMarketDataStream());
+    } finally {
+      streamingAdapter.getMarketDataStream().close();
+    }
+  }
+
+  @Test
+  public void testCloseStopsStreamingPreWarmingAndThreadPools() throws Exception {
+    final NetworkConfig networkConfig = EasyMock.createNiceMock(NetworkConfig.class);
+    expect(networkConfig.getConnectionTimeout()).andReturn(15);
+    expect(networkConfig.getPreWarmConnections()).andReturn(true);
+    expect(networkConfig.getStreamMarketData()).andReturn(true);
+    final ExchangeConfig exchangeConfig = EasyMock.createMock(ExchangeConfig.class);
+    expect(exchangeConfig.getNetworkConfig()).andReturn(networkConfig);
+    EasyMock.replay(networkConfig, exchangeConfig);
+
+    final AbstractExchangeAdapter adapter = new AbstractExchangeAdapter() {};
+    adapter.setNetworkConfig(exchangeConfig);
+    adapter.setHttpTransport(
+        (requestUrl, method, postData, headers, timeout) ->
+            new HttpTransport.Response(200, "OK", PAYLOAD));
+    adapter.preWarmConnections("https://api.exchange.com/v1/");
+    adapter.startMarketDataStream(createUnreachableStreamProtocol());
+    final ConnectionWarmer warmer = adapter.getConnectionWarmer();
+    final ExecutorService asyncExecutor = adapter.getAsyncExecutor();
+    final ExecutorService hedgingExecutor = (ExecutorService) adapter.getHedgingExecutor();
+    final ExecutorService keepWarmScheduler = adapter.getKeepWarmScheduler();
+    assertTrue(warmer.isKeepingWarm());
+    assertNotNull(adapter.getMarketDataStream());
+
+    adapter.close();
+
+    assertFalse(warmer.isKeepingWarm());
+    assertNull(adapter.getConnectionWarmer());
+    assertNull(adapter.getMarketDataStream());
+    assertTrue(asyncExecutor.isShutdown());
+    assertTrue(hedgingExecutor.isShutdown());
+    assertTrue(keepWarmScheduler.isShutdown());
+
+    adapter.close(); // closing again is harmless
+  }
+
+  @Test
+  public void testFailingEndpointFailsFastWhilstHealthyEndpointsKeepBeingUsed() throws Exception {
+    assertTrue(exchangeAdapter.getCircuitBreakerStates().isEmpty());
+    exchangeAdapter.setCircuitBreakers(
+        new EndpointCircuitBreakers(2, Duration.ofMinutes(1), Duration.ofMinutes(5)));
+
+    final URL balanceUrl = new URL("https://api.exchange.com/balance");
+    final URL badRequestUrl = new URL("https://api.exchange.com/order");
+    final AtomicInteger tickerCallsSent = new AtomicInteger();
+    exchangeAdapter.setHttpTransport(
+        (requestUrl, method, postData, headers, timeout) -> {
+          if (requestUrl.equals(badRequestUrl)) {
+            return new HttpTransport.Response(400, "Bad Request", "{}");
+          } else if (requestUrl.equals(balanceUrl)) {
+            return new HttpTransport.Response(200, "OK", PAYLOAD);
+          }
+          tickerCallsSent.incrementAndGet();
+          throw new HttpTimeoutException("request timed out");
+        });
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+        fail("Expected ExchangeNetworkException to be thrown");
+      } catch (ExchangeNetworkException e) {
+        // expected
+      }
+    }
+    // the breaker opened after 2 failures, so the 3rd call was never sent
+    assertEquals(2, tickerCallsSent.get());
+
+    assertEquals(200, exchangeAdapter.sendNetworkRequest(balanceUrl, "GET", null, null)
+        .getStatusCode());
+
+    // an error response is not a network failure - the endpoint is up
+    for (int i = 0; i < 2; i++) {
+      try {
+        exchangeAdapter.sendNetworkRequest(badRequestUrl, "POST", "order", null);
+        fail("Expected TradingApiException to be thrown");
+      } catch (TradingApiException e) {
+        // expected
+      }
+    }
+
+    final Map<String, CircuitBreakerState> states = exchangeAdapter.getCircuitBreakerStates();
+    assertEquals(CircuitBreakerState.OPEN, states.get(url.toString()));
+    assertEquals(CircuitBreakerState.CLOSED, states.get(balanceUrl.toString()));
+    assertEquals(CircuitBreakerState.CLOSED, states.get(badRequestUrl.toString()));
+  }
+
+  @Test
+  public void testResponseIsDecodedAsItIsStreamed() throws Exception {
+    // uses the default streaming method of the transport
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) ->
+            new HttpTransport.Response(200, "OK", PAYLOAD));
+
+    final ExchangeHttpResponse response =
+        exchangeAdapter.sendNetworkRequest(url, "GET", null, null, new Gson(), JsonObject.class);
+
+    assertEquals(200, response.getStatusCode());
+    assertNull(response.getPayload());
+    assertNull(exchangeAdapter.getResponseSizeMetrics());
+    final JsonObject decoded = response.getPayloadAs(new Gson(), JsonObject.class);
+    assertEquals("ok", decoded.get("result").getAsString());
+  }
+
+  @Test
+  public void testStringPayloadIsDecodedOnDemand() {
+    final ExchangeHttpResponse response = new ExchangeHttpResponse(200, "OK", PAYLOAD);
+    final JsonObject decoded = response.getPayloadAs(new Gson(), JsonObject.class);
+    assertEquals("ok", decoded.get("result").getAsString());
+  }
+
+  @Test
+  public void testIoErrorWhilstStreamingThrowsExchangeNetworkException() throws Exception {
+    exchangeAdapter.setHttpTransport(
+        new HttpTransport() {
+          @Override
+          public Response send(
+              URL url,
+              String httpMethod,
+              String postData,
+              Map<String, String> requestHeaders,
+              Duration timeout) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public Response send(
+              URL url,
+              String httpMethod,
+              String postData,
+              Map<String, String> requestHeaders,
+              Duration timeout,
+              BodyDecoder<?> decoder)
+              throws IOException {
+            final InputStream brokenStream =
+                new InputStream() {
+                  @Override
+                  public int read() throws IOException {
+                    throw new SocketTimeoutException("Read timed out");
+                  }
+                };
+            return new Response(200, null, null, decoder.decode(brokenStream));
+          }
+        });
+
+    try {
+      exchangeAdapter.sendNetworkRequest(url, "GET", null, null, new Gson(), JsonObject.class);
+      fail("Expected ExchangeNetworkException");
+    } catch (ExchangeNetworkException e) {
+      assertTrue(e.getMessage().contains("socket timeout"));
+    }
+  }
+
+  @Test
+  public void testOrderBookDepthIsLimitedOnlyIfBookIsDeeper() {
+    final List<Integer> orders = Arrays.asList(1, 2, 3);
+
+    final int fullOrderBook = AbstractExchangeAdapter.FULL_ORDER_BOOK;
+    assertSame(orders, AbstractExchangeAdapter.limitOrderBookDepth(orders, fullOrderBook));
+    assertSame(orders, AbstractExchangeAdapter.limitOrderBookDepth(orders, 3));
+    assertEquals(Arrays.asList(1, 2), AbstractExchangeAdapter.limitOrderBookDepth(orders, 2));
+  }
+
+  @Test
+  public void testFixedPointScaleIsCreatedOnlyIfPairPrecisionIsKnown() {
+    final PairPrecisionConfig pairPrecisionConfig =
+        new PairPrecisionConfigImpl(
+            Map.of("XBTUSD", 1, "SHIBUSD", 8, "WEIRDUSD", 19), Map.of("XBTUSD", 8, "SHIBUSD", 0));
+
+    assertEquals(
+        FixedPointScale.of(1, 8),
+        AbstractExchangeAdapter.createFixedPointScale(pairPrecisionConfig, "XBTUSD"));
+    assertEquals(
+        FixedPointScale.of(8, 0),
+        AbstractExchangeAdapter.createFixedPointScale(pairPrecisionConfig, "SHIBUSD"));
+    assertNull(AbstractExchangeAdapter.createFixedPointScale(pairPrecisionConfig, "WEIRDUSD"));
+    assertNull(AbstractExchangeAdapter.createFixedPointScale(pairPrecisionConfig, "ETHUSD"));
+    assertNull(AbstractExchangeAdapter.createFixedPointScale(null, "XBTUSD"));
+  }
+
+  @Test
+  public void testDefaultTransportIsSharedBetweenRequests() {
+    final HttpTransport transport = exchangeAdapter.getHttpTransport();
+    assertSame(transport, exchangeAdapter.getHttpTransport());
+  }
+
+  @Test
+  public void testAsyncCallsCanUseAllTheConnections() throws Exception {
+    final int maxConnections = 5;
+    final CountDownLatch allRunning = new CountDownLatch(maxConnections);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService asyncExecutor = exchangeAdapter.getAsyncExecutor();
+    assertSame(asyncExecutor, exchangeAdapter.getAsyncExecutor());
+    try {
+      for (int i = 0; i < maxConnections; i++) {
+        asyncExecutor.submit(
+            () -> {
+              allRunning.countDown();
+              return release.await(5, TimeUnit.SECONDS);
+            });
+      }
+      assertTrue(allRunning.await(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void testNotFoundStatusThrowsExchangeNetworkException() throws Exception {
+    assertExchangeNetworkException(new HttpTransport.Response(404, null, ""), "It's dead Jim!");
+  }
+
+  @Test
+  public void testNonFatalStatusThrowsExchangeNetworkException() throws Exception {
+    assertExchangeNetworkException(new HttpTransport.Response(503, null, ""), "5xx timeout");
+  }
+
+  @Test
+  public void testFatalStatusThrowsTradingApiExceptionWithErrorResponse() throws Exception {
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) ->
+            new HttpTransport.Response(400, null, "{\"error\": \"Invalid nonce\"}"));
+    try {
+      exchangeAdapter.sendNetworkRequest(url, "POST", "nonce=1", null);
+      fail("Expected TradingApiException");
+    } catch (TradingApiException e) {
+      assertTrue(e.getMessage().endsWith("ErrorStream Response: {\"error\": \"Invalid nonce\"}"));
+    }
+  }
+
+  @Test
+  public void testTimeoutsThrowExchangeNetworkException() throws Exception {
+    assertExchangeNetworkException(new SocketTimeoutException("Read timed out"), "socket timeout");
+    assertExchangeNetworkException(new HttpTimeoutException("request timed out"), "socket timeout");
+  }
+
+  @Test
+  public void testUnknownHostThrowsExchangeNetworkException() throws Exception {
+    assertExchangeNetworkException(new UnknownHostException("api.exchange.com"), "dead Jim!");
+  }
+
+  @Test
+  public void testNonFatalErrorMessageThrowsExchangeNetworkException() throws Exception {
+    // HttpClient wraps the low level exception
+    final IOException wrapped = new IOException(new ConnectException("Connection refused"));
+    assertExchangeNetworkException(wrapped, "refused or reset");
+  }
+
+  @Test(expected = TradingApiException.class)
+  public void testUnexpectedIoErrorThrowsTradingApiException() throws Exception {
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          throw new IOException("Something bad happened");
+        });
+    exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+  }
+
+  @Test(expected = TradingApiException.class)
+  public void testMalformedUrlThrowsTradingApiException() throws Exception {
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          throw new MalformedURLException("Invalid URL");
+        });
+    exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+  }
+
+  @Test
+  public void testConcurrentIdenticalMarketDataRequestsShareOneCall() throws Exception {
+    final AbstractExchangeAdapter marketDataAdapter =
+        new AbstractExchangeAdapter() {
+          @Override
+          RequestPriority getRequestPriority(URL url, String httpMethod) {
+            return RequestPriority.MARKET_DATA;
+          }
+        };
+    final AtomicInteger callsMade = new AtomicInteger();
+    final CountDownLatch callStarted = new CountDownLatch(1);
+    final CountDownLatch releaseCall = new CountDownLatch(1);
+    marketDataAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          callsMade.incrementAndGet();
+          callStarted.countDown();
+          try {
+            releaseCall.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return new HttpTransport.Response(200, "OK", PAYLOAD);
+        });
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    try {
+      final List<Future<ExchangeHttpResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        responses.add(
+            executorService.submit(
+                () -> marketDataAdapter.sendNetworkRequest(url, "GET", null, null)));
+        if (i == 0) {
+          assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+        }
+      }
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (marketDataAdapter.getCoalescedRequestCount() < THREAD_COUNT - 1) {
+        assertTrue("Requests were not coalesced", System.nanoTime() < deadline);
+        Thread.sleep(5);
+      }
+      releaseCall.countDown();
+
+      final ExchangeHttpResponse firstResponse = responses.get(0).get(5, TimeUnit.SECONDS);
+      for (final Future<ExchangeHttpResponse> response : responses) {
+        assertSame(firstResponse, response.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, callsMade.get());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testSlowMarketDataRequestIsHedgedAndFirstResponseWins() throws Exception {
+    assertNull(exchangeAdapter.getHedgingMetrics());
+
+    final AbstractExchangeAdapter marketDataAdapter =
+        new AbstractExchangeAdapter() {
+          @Override
+          RequestPriority getRequestPriority(URL url, String httpMethod) {
+            return RequestPriority.MARKET_DATA;
+          }
+        };
+    marketDataAdapter.setRequestHedger(
+        new RequestHedger(50.0, 100.0, marketDataAdapter.getHedgingExecutor()));
+
+    final int warmUpCalls = 20;
+    final AtomicInteger callsMade = new AtomicInteger();
+    final CountDownLatch hedgeAnswered = new CountDownLatch(1);
+    marketDataAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          final int call = callsMade.incrementAndGet();
+          try {
+            if (call <= warmUpCalls) {
+              // long enough for the slow request to start before its hedge is sent
+              Thread.sleep(20);
+              return new HttpTransport.Response(200, "OK", PAYLOAD);
+            } else if (call == warmUpCalls + 1) {
+              // the slow request - it answers after the hedge
+              hedgeAnswered.await(5, TimeUnit.SECONDS);
+              return new HttpTransport.Response(200, "OK", "slow");
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return new HttpTransport.Response(200, "OK", "hedge");
+        });
+
+    for (int i = 0; i < warmUpCalls; i++) {
+      marketDataAdapter.sendNetworkRequest(url, "GET", null, null);
+    }
+    assertEquals(0, marketDataAdapter.getHedgingMetrics().getHedgedRequestCount());
+
+    try {
+      final ExchangeHttpResponse response =
+          marketDataAdapter.sendNetworkRequest(url, "GET", null, null);
+      assertEquals("hedge", response.getPayload());
+    } finally {
+      hedgeAnswered.countDown();
+    }
+
+    final HedgingMetrics metrics = marketDataAdapter.getHedgingMetrics();
+    assertEquals(warmUpCalls + 1, metrics.getRequestCount());
+    assertEquals(1, metrics.getHedgedRequestCount());
+    assertEquals(1, metrics.getHedgeWinCount());
+    assertEquals(warmUpCalls + 2, callsMade.get());
+  }
+
+  @Test
+  public void testAuthenticatedRequestsAreNeverCoalesced() throws Exception {
+    final AtomicInteger callsMade = new AtomicInteger();
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          callsMade.incrementAndGet();
+          return new HttpTransport.Response(200, "OK", PAYLOAD);
+        });
+
+    runConcurrently(
+        () -> {
+          exchangeAdapter.sendNetworkRequest(url, "POST", "nonce=1", null);
+          return null;
+        });
+
+    assertEquals(THREAD_COUNT, callsMade.get());
+    assertEquals(0, exchangeAdapter.getCoalescedRequestCount());
+  }
+
+  @Test
+  public void testDispatcherIsSizedFromMaxConnections() {
+    assertEquals(
+        "PriorityRequestDispatcher{maxInFlight=5, "
+            + "maxInFlightPerPriority={TRADING=5, ACCOUNT=2, MARKET_DATA=2}}",
+        exchangeAdapter.getRequestDispatcher().toString());
+  }
+
+  @Test
+  public void testDispatchSlotIsHandedBackWhenRequestFails() throws Exception {
+    final PriorityRequestDispatcher dispatcher = new PriorityRequestDispatcher(1);
+    exchangeAdapter.setRequestDispatcher(dispatcher);
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          assertEquals(1, dispatcher.getInFlight(RequestPriority.ACCOUNT));
+          throw new IOException("Something bad happened");
+        });
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+        fail("Expected TradingApiException");
+      } catch (TradingApiException e) {
+        assertEquals(0, dispatcher.getInFlight(RequestPriority.ACCOUNT));
+      }
+    }
+  }
+
+  @Test
+  public void testInterruptWhilstWaitingForDispatchSlotThrowsTradingApiException()
+      throws Exception {
+    Thread.currentThread().interrupt();
+    try {
+      exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+      fail("Expected TradingApiException");
+    } catch (TradingApiException e) {
+      assertTrue(Thread.interrupted()); // also clears the flag for the next test
+    }
+  }
+
+  @Test
+  public void testCallsAreCountedByConfiguredRateLimiter() throws Exception {
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) ->
+            new HttpTransport.Response(200, "OK", PAYLOAD));
+
+    exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+    exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+
+    final RateLimiterMetrics metrics = exchangeAdapter.getRateLimiterMetrics();
+    assertNotNull(metrics);
+    assertEquals(2, metrics.getCallCount());
+    assertEquals(0, metrics.getRejectedCallCount());
+  }
+
+  @Test
+  public void testRateLimiterIsGivenCallCostPriorityAndConnectionTimeout() throws Exception {
+    final StubRateLimiter rateLimiter = new StubRateLimiter(true);
+    final AbstractExchangeAdapter weightedAdapter =
+        new AbstractExchangeAdapter() {
+          @Override
+          int getRateLimitCost(URL url) {
+            return 2;
+          }
+        };
+    weightedAdapter.setRateLimiter(rateLimiter);
+    weightedAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) ->
+            new HttpTransport.Response(200, "OK", PAYLOAD));
+
+    weightedAdapter.sendNetworkRequest(url, "GET", null, null);
+
+    assertEquals(2, rateLimiter.permitsRequested.get());
+    assertEquals(RequestPriority.ACCOUNT, rateLimiter.priorityRequested.get());
+    assertEquals(Duration.ofSeconds(30), rateLimiter.maxWaitRequested.get());
+  }
+
+  @Test
+  public void testCallIsNotSentWhenRateLimiterHasNoPermitsInTime() throws Exception {
+    exchangeAdapter.setRateLimiter(new StubRateLimiter(false));
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          throw new AssertionError("Call should not have been sent");
+        });
+    assertExchangeNetworkException("rate limit exceeded");
+  }
+
+  @Test
+  public void testInterruptWhilstWaitingForRateLimiterThrowsTradingApiException()
+      throws Exception {
+    exchangeAdapter.setRateLimiter(new StubRateLimiter(null));
+    try {
+      exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+      fail("Expected TradingApiException");
+    } catch (TradingApiException e) {
+      assertTrue(Thread.interrupted()); // also clears the flag for the next test
+    }
+  }
+
+  @Test
+  public void testTooManyRequestsStatusDrainsRateLimiter() throws Exception {
+    final StubRateLimiter rateLimiter = new StubRateLimiter(true);
+    exchangeAdapter.setRateLimiter(rateLimiter);
+    assertExchangeNetworkException(new HttpTransport.Response(429, null, ""), "rate limit");
+    assertEquals(1, rateLimiter.rateLimitExceededCount.get());
+  }
+
+  @Test
+  public void testCancelQueuedBehindMarketDataBurstIsSentFirst() throws Exception {
+    final NetworkConfig networkConfig = EasyMock.createNiceMock(NetworkConfig.class);
+    expect(networkConfig.getConnectionTimeout()).andReturn(15);
+    final ExchangeConfig exchangeConfig = EasyMock.createMock(ExchangeConfig.class);
+    expect(exchangeConfig.getNetworkConfig()).andReturn(networkConfig);
+    EasyMock.replay(networkConfig, exchangeConfig);
+
+    final AbstractExchangeAdapter adapter =
+        new AbstractExchangeAdapter() {
+          @Override
+          RequestPriority getRequestPriority(URL url, String httpMethod) {
+            return "DELETE".equals(httpMethod)
+                ? RequestPriority.TRADING
+                : RequestPriority.MARKET_DATA;
+          }
+        };
+    adapter.setNetworkConfig(exchangeConfig);
+    final RateLimiter rateLimiter = new TokenBucketRateLimiter(1, 2.0);
+    rateLimiter.onRateLimitExceeded(); // every call has to queue for a permit
+    adapter.setRateLimiter(rateLimiter);
+    final List<String> requestsSent = Collections.synchronizedList(new ArrayList<>());
+    adapter.setHttpTransport(
+        (requestUrl, method, postData, headers, timeout) -> {
+          requestsSent.add(method + " " + requestUrl);
+          return new HttpTransport.Response(200, "OK", PAYLOAD);
+        });
+
+    final int marketDataCalls = 4;
+    final ExecutorService executorService = Executors.newFixedThreadPool(marketDataCalls + 1);
+    try {
+      final List<Future<ExchangeHttpResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < marketDataCalls; i++) {
+        final URL depthUrl = new URL(url + "?depth=" + i);
+        responses.add(
+            executorService.submit(() -> adapter.sendNetworkRequest(depthUrl, "GET", null, null)));
+      }
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (rateLimiter.getMetrics().getQueueDepth() < marketDataCalls) {
+        assertTrue("Market data calls were not queued", System.nanoTime() < deadline);
+        Thread.sleep(5);
+      }
+
+      responses.add(
+          executorService.submit(() -> adapter.sendNetworkRequest(url, "DELETE", null, null)));
+      for (final Future<ExchangeHttpResponse> response : responses) {
+        assertEquals(200, response.get(10, TimeUnit.SECONDS).getStatusCode());
+      }
+      assertEquals(marketDataCalls + 1, requestsSent.size());
+      assertEquals("DELETE " + url, requestsSent.get(0));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCallsAreNotRateLimitedWhenNoRateLimiterIsConfigured() throws Exception {
+    exchangeAdapter.setRateLimiter(null);
+    exchangeAdapter.onRateLimitExceeded();
+    assertNull(exchangeAdapter.getRateLimiterMetrics());
+  }
+
+  @Test
+  public void testNoncesAreUniqueAndIncreasingWhenFetchedConcurrently() throws Exception {
+    final long initialNonce = System.currentTimeMillis();
+    exchangeAdapter.initNonce(initialNonce);
+    final Set<Long> noncesIssued = ConcurrentHashMap.newKeySet();
+
+    runConcurrently(
+        () -> {
+          long previousNonce = initialNonce;
+          for (int i = 0; i < CALLS_PER_THREAD; i++) {
+            final long nonce = exchangeAdapter.nextNonce();
+            assertTrue(nonce > previousNonce);
+            noncesIssued.add(nonce);
+            previousNonce = nonce;
+          }
+          return null;
+        });
+
+    assertEquals(THREAD_COUNT * CALLS_PER_THREAD, noncesIssued.size());
+    assertEquals(initialNonce + THREAD_COUNT * CALLS_PER_THREAD, exchangeAdapter.nextNonce() - 1);
+  }
+
+  @Test
+  public void testRequestsSignedConcurrentlyReachTheExchangeInNonceOrder() throws Exception {
+    final int requestsPerThread = 25;
+    final List<Long> noncesSent = Collections.synchronizedList(new ArrayList<>());
+    exchangeAdapter.setRateLimiter(null);
+    exchangeAdapter.setHttpTransport(
+        (requestUrl, method, postData, headers, timeout) -> {
+          noncesSent.add(Long.parseLong(postData));
+          Thread.yield(); // give a request sent out of order the chance to overtake this one
+          return new HttpTransport.Response(200, "OK", PAYLOAD);
+        });
+    exchangeAdapter.initNonce(System.currentTimeMillis());
+
+    runConcurrently(
+        () -> {
+          for (int i = 0; i < requestsPerThread; i++) {
+            try (AbstractExchangeAdapter.NonceLease nonceLease =
+                exchangeAdapter.leaseNonce(url, "POST")) {
+              final String postData = Long.toString(nonceLease.getNonce());
+              exchangeAdapter.sendNetworkRequest(url, "POST", postData, null);
+            }
+          }
+          return null;
+        });
+
+    assertEquals(THREAD_COUNT * requestsPerThread, noncesSent.size());
+    final List<Long> noncesInOrder = new ArrayList<>(noncesSent);
+    Collections.sort(noncesInOrder);
+    assertEquals(noncesInOrder, noncesSent);
+  }
+
+  @Test
+  public void testEachThreadGetsItsOwnRequestSigner() throws Exception {
+    assertFalse(exchangeAdapter.isRequestSignerInitialized());
+    exchangeAdapter.initRequestSigner(KEY_SPEC);
+    assertTrue(exchangeAdapter.isRequestSignerInitialized());
+
+    final RequestSigner requestSigner = exchangeAdapter.getRequestSigner();
+    assertSame(requestSigner, exchangeAdapter.getRequestSigner());
+    assertEquals("HmacSHA512", requestSigner.getAlgorithm());
+
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      final RequestSigner otherThreadRequestSigner =
+          executorService.submit(exchangeAdapter::getRequestSigner).get();
+      assertNotSame(requestSigner, otherThreadRequestSigner);
+      assertEquals("HmacSHA512", otherThreadRequestSigner.getAlgorithm());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testMessagesSignedConcurrentlyHaveTheExpectedSignature() throws Exception {
+    exchangeAdapter.initRequestSigner(KEY_SPEC);
+    final Mac referenceMac = Mac.getInstance("HmacSHA512");
+    referenceMac.init(KEY_SPEC);
+
+    runConcurrently(
+        () -> {
+          for (int i = 0; i < CALLS_PER_THREAD; i++) {
+            final String message = Thread.currentThread().getName() + "-" + i;
+            final String signature =
+                exchangeAdapter.getRequestSigner().reset().update(message).signToBase64();
+            synchronized (referenceMac) {
+              assertEquals(
+                  Base64.getEncoder()
+                      .encodeToString(
+                          referenceMac.doFinal(message.getBytes(StandardCharsets.UTF_8))),
+                  signature);
+            }
+          }
+          return null;
+        });
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGettingRequestSignerBeforeInitialisationThrowsIllegalStateException() {
+    exchangeAdapter.getRequestSigner();
+  }
+
+  @Test(expected = NoSuchAlgorithmException.class)
+  public void testInitialisingRequestSignerWithUnknownAlgorithmFailsFast() throws Exception {
+    exchangeAdapter.initRequestSigner(
+        new SecretKeySpec("notGonnaTellYa".getBytes(StandardCharsets.UTF_8), "HmacFoo"));
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  private static StreamProtocol createUnreachableStreamProtocol() {
+    return new StreamProtocol() {
+      @Override
+      public URI getUri() {
+        return URI.create("ws://127.0.0.1:1/ws"); // nothing listening
+      }
+
+      @Override
+      public List<String> createSubscribeMessages(String marketId) {
+        return List.of("subscribe:" + marketId);
+      }
+
+      @Override
+      public void decode(String message, MarketDataSink sink) {
+        // no messages
+      }
+    };
+  }
+
+  /*
+   * Runs the task on several threads at the same time and rethrows the first failure.
+   */
+  private static void runConcurrently(Callable<Void> task) throws Exception {
+    final CountDownLatch startingGun = new CountDownLatch(1);
+    final ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    try {
+      final List<Future<Void>> results = new ArrayList<>();
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        results.add(
+            executorService.submit(
+                () -> {
+                  startingGun.await();
+                  return task.call();
+                }));
+      }
+      startingGun.countDown();
+      for (final Future<Void> result : results) {
+        result.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /*
+   * Rate limiter that grants or refuses every call; null means the caller is interrupted.
+   */
+  private static class StubRateLimiter implements RateLimiter {
+
+    private final Boolean acquire;
+    private final AtomicInteger permitsRequested = new AtomicInteger();
+    private final AtomicReference<RequestPriority> priorityRequested = new AtomicReference<>();
+    private final AtomicReference<Duration> maxWaitRequested = new AtomicReference<>();
+    private final AtomicInteger rateLimitExceededCount = new AtomicInteger();
+
+    StubRateLimiter(Boolean acquire) {
+      this.acquire = acquire;
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, RequestPriority priority, Duration maxWait)
+        throws InterruptedException {
+      permitsRequested.set(permits);
+      priorityRequested.set(priority);
+      maxWaitRequested.set(maxWait);
+      if (acquire == null) {
+        throw new InterruptedException();
+      }
+      return acquire;
+    }
+
+    @Override
+    public void onRateLimitExceeded() {
+      rateLimitExceededCount.incrementAndGet();
+    }
+
+    @Override
+    public RateLimiterMetrics getMetrics() {
+      return null;
+    }
+  }
+
+  private void assertExchangeNetworkException(HttpTransport.Response response, String expected)
+      throws Exception {
+    exchangeAdapter.setHttpTransport((url, method, postData, headers, timeout) -> response);
+    assertExchangeNetworkException(expected);
+  }
+
+  private void assertExchangeNetworkException(IOException failure, String expected)
+      throws Exception {
+    exchangeAdapter.setHttpTransport(
+        (url, method, postData, headers, timeout) -> {
+          throw failure;
+        });
+    assertExchangeNetworkException(expected);
+  }
+
+  private void assertExchangeNetworkException(String expected) throws Exception {
+    try {
+      exchangeAdapter.sendNetworkRequest(url, "GET", null, null);
+      fail("Expected ExchangeNetworkException");
+    } catch (ExchangeNetworkException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(expected));
+    }
+  }
+}
@@ -36,6 +36,7 @@ import static org.junit.Assert.assertTrue;
 import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.NetworkConfig;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
@@ -55,6 +56,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -149,6 +151,23 @@ public class TestBitfinexExchangeAdapter extends AbstractExchangeAdapterTest {
     expect(networkConfig.getConnectionTimeout()).andReturn(30);
     expect(networkConfig.getNonFatalErrorCodes()).andReturn(nonFatalNetworkErrorCodes);
     expect(networkConfig.getNonFatalErrorMessages()).andReturn(nonFatalNetworkErrorMessages);
+    expect(networkConfig.getMaxConnections()).andReturn(null);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(null);
+    expect(networkConfig.getRateLimiter()).andReturn(null);
+    expect(networkConfig.getRateLimitBurst()).andReturn(null);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(null);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
 
     exchangeConfig = PowerMock.createMock(ExchangeConfig.class);
     expect(exchangeConfig.getAuthenticationConfig()).andReturn(authenticationConfig);
@@ -448,6 +467,34 @@ public class TestBitfinexExchangeAdapter extends AbstractExchangeAdapterTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testGettingMarketOrdersWithDepthUsesLimitParams() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(BOOK_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final BitfinexExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            BitfinexExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            BOOK + "/" + MARKET_ID + "?limit_bids=20&limit_asks=20")
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final MarketOrderBook marketOrderBook = exchangeAdapter.getMarketOrders(MARKET_ID, 20);
+
+    // canned response is the full book, so it's truncated too
+    assertEquals(20, marketOrderBook.getBuyOrders().size());
+    assertEquals(20, marketOrderBook.getSellOrders().size());
+
+    PowerMock.verifyAll();
+  }
+
   @Test(expected = ExchangeNetworkException.class)
   public void testGettingMarketOrdersHandlesExchangeNetworkException() throws Exception {
     final BitfinexExchangeAdapter exchangeAdapter =
@@ -488,6 +535,37 @@ public class TestBitfinexExchangeAdapter extends AbstractExchangeAdapterTest {
   //  Get Your Open Orders tests
   // --------------------------------------------------------------------------
 
+  @Test
+  public void testGettingAllOpenOrdersSuccessfully() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(ORDERS_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final BitfinexExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            BitfinexExchangeAdapter.class, MOCKED_SEND_AUTHENTICATED_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_AUTHENTICATED_REQUEST_TO_EXCHANGE_METHOD,
+            eq(ORDERS),
+            eq(null))
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    // one call to the exchange returns the orders for every market
+    assertTrue(exchangeAdapter.isAllOpenOrdersSupported());
+    final List<OpenOrder> openOrders = exchangeAdapter.getAllOpenOrders();
+
+    assertEquals(
+        Arrays.asList("btcusd", "btcusd", "ethusd", "ltcusd"),
+        openOrders.stream().map(OpenOrder::getMarketId).sorted().collect(Collectors.toList()));
+
+    PowerMock.verifyAll();
+  }
+
   @Test
   public void testGettingYourOpenOrdersSuccessfully() throws Exception {
     final byte[] encoded = Files.readAllBytes(Paths.get(ORDERS_JSON_RESPONSE));
@@ -982,6 +1060,29 @@ public class TestBitfinexExchangeAdapter extends AbstractExchangeAdapterTest {
   //  Non Exchange visiting tests
   // --------------------------------------------------------------------------
 
+  @Test
+  public void testOrderPlacementAndCancellationArePrioritised() throws Exception {
+    final BitfinexExchangeAdapter exchangeAdapter = new BitfinexExchangeAdapter();
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "order/new"), "POST"));
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(
+            new URL(AUTHENTICATED_API_URL + "order/cancel"), "POST"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(
+            new URL(PUBLIC_API_BASE_URL + "book/" + MARKET_ID), "GET"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(
+            new URL(PUBLIC_API_BASE_URL + "pubticker/" + MARKET_ID), "GET"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "balances"), "POST"));
+  }
+
   @Test
   public void testGettingImplNameIsAsExpected() {
     PowerMock.replayAll();
@@ -0,0 +1,261 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.exchanges.BitfinexExchangeAdapter.BitfinexStreamProtocol;
+import com.gazbert.bxbot.exchanges.streaming.LocalOrderBook;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataSink;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.gazbert.bxbot.trading.api.Ticker;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Bitfinex WebSocket feed protocol decodes the feed as expected.
+ *
+ * @author gazbert
+ */
+public class TestBitfinexStreamProtocol {
+
+  private static final String MARKET_ID = "btcusd";
+  private static final String BOOK_SUBSCRIBED =
+      "{\"event\":\"subscribed\",\"channel\":\"book\",\"chanId\":17,\"symbol\":\"tBTCUSD\","
+          + "\"prec\":\"P0\",\"freq\":\"F0\",\"len\":\"100\",\"pair\":\"BTCUSD\"}";
+  private static final String TICKER_SUBSCRIBED =
+      "{\"event\":\"subscribed\",\"channel\":\"ticker\",\"chanId\":18,\"symbol\":\"tBTCUSD\","
+          + "\"pair\":\"BTCUSD\"}";
+  private static final String BOOK_SNAPSHOT =
+      "[17,[[7254.7,3,3.3],[7254.6,2,1.2],[7255.1,1,-0.5],[7255.2,4,-2.25]],1]";
+
+  private BitfinexStreamProtocol protocol;
+  private RecordingSink sink;
+
+  /** Connect and subscribe to the BTC/USD book and ticker. */
+  @Before
+  public void setupProtocol() {
+    protocol = new BitfinexStreamProtocol(BitfinexStreamProtocol.STREAM_URI);
+    sink = new RecordingSink();
+    protocol.onConnected();
+    protocol.createSubscribeMessages(MARKET_ID);
+    protocol.decode("{\"event\":\"info\",\"version\":2,\"platform\":{\"status\":1}}", sink);
+    protocol.decode("{\"event\":\"conf\",\"status\":\"OK\",\"flags\":65536}", sink);
+    protocol.decode(BOOK_SUBSCRIBED, sink);
+    protocol.decode(TICKER_SUBSCRIBED, sink);
+  }
+
+  @Test
+  public void testSequenceNumbersAreSwitchedOnWhenConnected() {
+    assertEquals("wss://api-pub.bitfinex.com/ws/2", protocol.getUri().toString());
+    assertEquals(List.of("{\"event\":\"conf\",\"flags\":65536}"), protocol.onConnected());
+  }
+
+  @Test
+  public void testBookAndTickerAreSubscribedTo() {
+    assertEquals(
+        List.of(
+            "{\"event\":\"subscribe\",\"channel\":\"book\",\"symbol\":\"tBTCUSD\","
+                + "\"prec\":\"P0\",\"len\":\"100\"}",
+            "{\"event\":\"subscribe\",\"channel\":\"ticker\",\"symbol\":\"tBTCUSD\"}"),
+        protocol.createSubscribeMessages(MARKET_ID));
+  }
+
+  @Test
+  public void testBookSnapshotIsDecoded() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+
+    assertEquals(1, sink.snapshots);
+    assertEquals(MARKET_ID, sink.marketId);
+    assertEquals(
+        List.of(new BigDecimal("7254.7"), new BigDecimal("7254.6")),
+        new ArrayList<>(sink.book.getLevels(OrderType.BUY).keySet()));
+    assertEquals(
+        new BigDecimal("3.3"), sink.book.getLevels(OrderType.BUY).get(new BigDecimal("7254.7")));
+    assertEquals(
+        List.of(new BigDecimal("7255.1"), new BigDecimal("7255.2")),
+        new ArrayList<>(sink.book.getLevels(OrderType.SELL).keySet()));
+    assertEquals(
+        new BigDecimal("2.25"), sink.book.getLevels(OrderType.SELL).get(new BigDecimal("7255.2")));
+  }
+
+  @Test
+  public void testBookUpdatesAreDecoded() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+    protocol.decode("[17,[7254.7,4,5.5],2]", sink);
+    protocol.decode("[17,[7255.1,0,-1],3]", sink);
+    protocol.decode("[17,[7254.6,0,1],4]", sink);
+    protocol.decode("[17,[7255.0,1,-0.1],5]", sink);
+
+    assertEquals(4, sink.updates);
+    assertEquals(1, sink.book.getLevels(OrderType.BUY).size());
+    assertEquals(
+        new BigDecimal("5.5"), sink.book.getLevels(OrderType.BUY).get(new BigDecimal("7254.7")));
+    assertEquals(
+        List.of(new BigDecimal("7255.0"), new BigDecimal("7255.2")),
+        new ArrayList<>(sink.book.getLevels(OrderType.SELL).keySet()));
+    assertTrue(sink.reconnects.isEmpty());
+  }
+
+  @Test
+  public void testTickerIsDecoded() {
+    protocol.decode(
+        "[18,[7254.7,10.5,7255.1,9.2,-24.1,-0.0033,7254.9,5123.45,7350,7100.5],1]", sink);
+
+    assertEquals(MARKET_ID, sink.marketId);
+    assertEquals(new BigDecimal("7254.9"), sink.ticker.getLast());
+    assertEquals(new BigDecimal("7254.7"), sink.ticker.getBid());
+    assertEquals(new BigDecimal("7255.1"), sink.ticker.getAsk());
+    assertEquals(new BigDecimal("7100.5"), sink.ticker.getLow());
+    assertEquals(new BigDecimal("7350"), sink.ticker.getHigh());
+    assertEquals(new BigDecimal("5123.45"), sink.ticker.getVolume());
+    assertNull(sink.ticker.getOpen());
+    assertNull(sink.ticker.getVwap());
+  }
+
+  @Test
+  public void testHeartbeatsAreSkippedButSequenced() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+    protocol.decode("[17,\"hb\",2]", sink);
+    protocol.decode("[18,\"hb\",3]", sink);
+    protocol.decode("[17,[7254.7,4,5.5],4]", sink);
+
+    assertEquals(1, sink.updates);
+    assertTrue(sink.reconnects.isEmpty());
+  }
+
+  @Test
+  public void testSequenceGapReconnects() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+    protocol.decode("[17,[7254.7,4,5.5],3]", sink);
+
+    assertEquals(List.of("Sequence gap: expected 2 but got 3"), sink.reconnects);
+    assertEquals(0, sink.updates);
+
+    // sequence numbers restart on the new connection
+    protocol.onConnected();
+    protocol.decode(BOOK_SUBSCRIBED, sink);
+    protocol.decode("[17,[[7254.7,3,3.3]],1]", sink);
+    assertEquals(2, sink.snapshots);
+    assertEquals(1, sink.reconnects.size());
+  }
+
+  @Test
+  public void testBookIsResyncedByResubscribing() {
+    assertEquals(
+        List.of(
+            "{\"event\":\"unsubscribe\",\"chanId\":17}",
+            "{\"event\":\"subscribe\",\"channel\":\"book\",\"symbol\":\"tBTCUSD\","
+                + "\"prec\":\"P0\",\"len\":\"100\"}"),
+        protocol.createResyncMessages(MARKET_ID));
+
+    // updates still in flight on the old channel are ignored
+    protocol.decode("[17,[7254.7,4,5.5],1]", sink);
+    assertEquals(0, sink.updates);
+
+    // resubscribing before the book channel is known
+    assertEquals(1, protocol.createResyncMessages(MARKET_ID).size());
+
+    protocol.decode("{\"event\":\"unsubscribed\",\"status\":\"OK\",\"chanId\":17}", sink);
+    protocol.decode(BOOK_SUBSCRIBED.replace("17", "21"), sink);
+    protocol.decode("[21,[[7254.7,3,3.3]],2]", sink);
+    assertEquals(1, sink.snapshots);
+  }
+
+  @Test
+  public void testReconnectsWhenBitfinexAsksTo() {
+    protocol.decode("{\"event\":\"info\",\"code\":20060,\"msg\":\"Maintenance\"}", sink);
+    assertTrue(sink.reconnects.isEmpty());
+
+    protocol.decode("{\"event\":\"info\",\"code\":20051,\"msg\":\"Stop/Restart\"}", sink);
+    protocol.decode("{\"event\":\"info\",\"code\":20061,\"msg\":\"Maintenance ended\"}", sink);
+    assertEquals(2, sink.reconnects.size());
+  }
+
+  @Test
+  public void testErrorsAndMessagesForUnknownChannelsAreIgnored() {
+    protocol.decode("{\"event\":\"error\",\"msg\":\"symbol: invalid\",\"code\":10300}", sink);
+    protocol.decode(
+        "{\"event\":\"subscribed\",\"channel\":\"book\",\"chanId\":99,\"symbol\":\"tXRPUSD\"}",
+        sink);
+    protocol.decode("[99,[[0.5,1,100]],1]", sink);
+
+    assertEquals(0, sink.snapshots);
+    assertNull(sink.marketId);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testMessageThatIsNotJsonCannotBeDecoded() {
+    protocol.decode("[17,[7254.7,", sink);
+  }
+
+  /** Applies the decoded feed to a book. */
+  private static class RecordingSink implements MarketDataSink {
+
+    private final LocalOrderBook book = new LocalOrderBook();
+    private final List<String> reconnects = new ArrayList<>();
+    private String marketId;
+    private Ticker ticker;
+    private int snapshots;
+    private int updates;
+
+    @Override
+    public void onSnapshot(String marketId, long sequence, Consumer<LocalOrderBook> snapshot) {
+      this.marketId = marketId;
+      snapshots++;
+      book.clear();
+      snapshot.accept(book);
+    }
+
+    @Override
+    public boolean onUpdate(String marketId, long sequence, Consumer<LocalOrderBook> update) {
+      this.marketId = marketId;
+      updates++;
+      update.accept(book);
+      return true;
+    }
+
+    @Override
+    public void onTicker(String marketId, Ticker ticker) {
+      this.marketId = marketId;
+      this.ticker = ticker;
+    }
+
+    @Override
+    public void onOutOfSync(String marketId, String reason) {
+      throw new AssertionError("Bitfinex books are resynced by reconnecting");
+    }
+
+    @Override
+    public void reconnect(String reason) {
+      reconnects.add(reason);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.NetworkConfig;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
@@ -44,6 +45,7 @@ import com.gazbert.bxbot.trading.api.OpenOrder;
 import com.gazbert.bxbot.trading.api.OrderType;
 import com.gazbert.bxbot.trading.api.Ticker;
 import com.gazbert.bxbot.trading.api.TradingApiException;
+import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.URL;
@@ -114,6 +116,8 @@ public class TestBitstampExchangeAdapter extends AbstractExchangeAdapter {
       "sendAuthenticatedRequestToExchange";
   private static final String MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD =
       "sendPublicRequestToExchange";
+  private static final String MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD =
+      "sendPublicStreamingRequestToExchange";
   private static final String MOCKED_CREATE_REQUEST_HEADER_MAP_METHOD = "createHeaderParamMap";
   private static final String MOCKED_MAKE_NETWORK_REQUEST_METHOD = "makeNetworkRequest";
 
@@ -148,6 +152,23 @@ public class TestBitstampExchangeAdapter extends AbstractExchangeAdapter {
     expect(networkConfig.getConnectionTimeout()).andReturn(30);
     expect(networkConfig.getNonFatalErrorCodes()).andReturn(nonFatalNetworkErrorCodes);
     expect(networkConfig.getNonFatalErrorMessages()).andReturn(nonFatalNetworkErrorMessages);
+    expect(networkConfig.getMaxConnections()).andReturn(null);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(null);
+    expect(networkConfig.getRateLimiter()).andReturn(null);
+    expect(networkConfig.getRateLimitBurst()).andReturn(null);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(null);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
 
     exchangeConfig = PowerMock.createMock(ExchangeConfig.class);
     expect(exchangeConfig.getAuthenticationConfig()).andReturn(authenticationConfig);
@@ -399,11 +420,13 @@ public class TestBitstampExchangeAdapter extends AbstractExchangeAdapter {
 
     final BitstampExchangeAdapter exchangeAdapter =
         PowerMock.createPartialMockAndInvokeDefaultConstructor(
-            BitstampExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+            BitstampExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD);
     PowerMock.expectPrivate(
             exchangeAdapter,
-            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
-            eq(ORDER_BOOK + MARKET_ID))
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
+            eq(ORDER_BOOK + MARKET_ID),
+            anyObject(Type.class))
         .andReturn(exchangeResponse);
 
     PowerMock.replayAll();
@@ -437,15 +460,56 @@ public class TestBitstampExchangeAdapter extends AbstractExchangeAdapter {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testGettingMarketOrdersWithDepthTruncatesOrderBook() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(ORDER_BOOK_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final BitstampExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            BitstampExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
+            eq(ORDER_BOOK + MARKET_ID),
+            anyObject(Type.class))
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final MarketOrderBook marketOrderBook = exchangeAdapter.getMarketOrders(MARKET_ID, 10);
+
+    assertEquals(10, marketOrderBook.getBuyOrders().size());
+    assertEquals(
+        0, marketOrderBook.getBuyOrders().get(0).getPrice().compareTo(new BigDecimal("230.34")));
+    assertEquals(10, marketOrderBook.getSellOrders().size());
+    assertEquals(
+        0, marketOrderBook.getSellOrders().get(0).getPrice().compareTo(new BigDecimal("230.90")));
+
+    PowerMock.verifyAll();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGettingMarketOrdersWithZeroDepthIsRejected() throws Exception {
+    final BitstampExchangeAdapter exchangeAdapter = new BitstampExchangeAdapter();
+    exchangeAdapter.getMarketOrders(MARKET_ID, 0);
+  }
+
   @Test(expected = ExchangeNetworkException.class)
   public void testGettingMarketOrdersHandlesExchangeNetworkException() throws Exception {
     final BitstampExchangeAdapter exchangeAdapter =
         PowerMock.createPartialMockAndInvokeDefaultConstructor(
-            BitstampExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+            BitstampExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD);
     PowerMock.expectPrivate(
             exchangeAdapter,
-            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
-            eq(ORDER_BOOK + MARKET_ID))
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
+            eq(ORDER_BOOK + MARKET_ID),
+            anyObject(Type.class))
         .andThrow(
             new ExchangeNetworkException(
                 "Traveling through hyperspace ain’t like dusting crops, farm boy."));
@@ -461,11 +525,13 @@ public class TestBitstampExchangeAdapter extends AbstractExchangeAdapter {
   public void testGettingMarketOrdersHandlesUnexpectedException() throws Exception {
     final BitstampExchangeAdapter exchangeAdapter =
         PowerMock.createPartialMockAndInvokeDefaultConstructor(
-            BitstampExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+            BitstampExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD);
     PowerMock.expectPrivate(
             exchangeAdapter,
-            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
-            eq(ORDER_BOOK + MARKET_ID))
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
+            eq(ORDER_BOOK + MARKET_ID),
+            anyObject(Type.class))
         .andThrow(
             new IllegalArgumentException(
                 "Uh, we had a slight weapons malfunction, but uh... "
@@ -941,6 +1007,32 @@ public class TestBitstampExchangeAdapter extends AbstractExchangeAdapter {
   //  Non Exchange visiting tests
   // --------------------------------------------------------------------------
 
+  @Test
+  public void testOrderPlacementAndCancellationArePrioritised() throws Exception {
+    final BitstampExchangeAdapter exchangeAdapter = new BitstampExchangeAdapter();
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(
+            new URL(API_BASE_URL + "buy/" + MARKET_ID + "/"), "POST"));
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(
+            new URL(API_BASE_URL + "sell/" + MARKET_ID + "/"), "POST"));
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(new URL(API_BASE_URL + "cancel_order/"), "POST"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(
+            new URL(API_BASE_URL + "order_book/" + MARKET_ID), "GET"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(new URL(API_BASE_URL + "ticker/" + MARKET_ID), "GET"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(API_BASE_URL + "balance/"), "POST"));
+  }
+
   @Test
   public void testGettingImplNameIsAsExpected() {
     PowerMock.replayAll();
@@ -29,6 +29,7 @@ import static org.easymock.EasyMock.anyString;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -39,6 +40,7 @@ import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.NetworkConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
@@ -67,6 +69,7 @@ import org.powermock.api.easymock.PowerMock;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
 /**
  * Tests the behaviour of the COINBASE PRO Exchange Adapter.
@@ -87,6 +90,8 @@ import org.powermock.modules.junit4.PowerMockRunner;
 public class TestCoinbaseProExchangeAdapter extends AbstractExchangeAdapterTest {
 
   private static final String BOOK_JSON_RESPONSE = "./src/test/exchange-data/coinbasepro/book.json";
+  private static final String LEVEL3_BOOK_JSON_RESPONSE =
+      "./src/test/exchange-data/coinbasepro/book-level3.json";
   private static final String ORDERS_JSON_RESPONSE =
       "./src/test/exchange-data/coinbasepro/orders.json";
   private static final String ACCOUNTS_JSON_RESPONSE =
@@ -157,6 +162,23 @@ public class TestCoinbaseProExchangeAdapter extends AbstractExchangeAdapterTest
     expect(networkConfig.getConnectionTimeout()).andReturn(30);
     expect(networkConfig.getNonFatalErrorCodes()).andReturn(nonFatalNetworkErrorCodes);
     expect(networkConfig.getNonFatalErrorMessages()).andReturn(nonFatalNetworkErrorMessages);
+    expect(networkConfig.getMaxConnections()).andReturn(null);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(null);
+    expect(networkConfig.getRateLimiter()).andReturn(null);
+    expect(networkConfig.getRateLimitBurst()).andReturn(null);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(null);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
 
     otherConfig = PowerMock.createMock(OtherConfig.class);
     expect(otherConfig.getItem("buy-fee")).andReturn("0.25");
@@ -556,6 +578,43 @@ public class TestCoinbaseProExchangeAdapter extends AbstractExchangeAdapterTest
     PowerMock.verifyAll();
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGettingMarketOrdersWithDepthOfOneUsesLevelOne() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(BOOK_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final Map<String, String> requestParamMap = PowerMock.createMock(Map.class);
+    expect(requestParamMap.put("level", "1")).andStubReturn(null);
+
+    final CoinbaseProExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            CoinbaseProExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD);
+
+    PowerMock.expectPrivate(exchangeAdapter, MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD)
+        .andReturn(requestParamMap);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            eq(BOOK),
+            eq(requestParamMap))
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final MarketOrderBook marketOrderBook = exchangeAdapter.getMarketOrders(MARKET_ID, 1);
+
+    assertEquals(1, marketOrderBook.getBuyOrders().size());
+    assertEquals(1, marketOrderBook.getSellOrders().size());
+
+    PowerMock.verifyAll();
+  }
+
   @Test(expected = ExchangeNetworkException.class)
   public void testGettingMarketOrdersHandlesExchangeNetworkException() throws Exception {
     final CoinbaseProExchangeAdapter exchangeAdapter =
@@ -601,6 +660,80 @@ public class TestCoinbaseProExchangeAdapter extends AbstractExchangeAdapterTest
     PowerMock.verifyAll();
   }
 
+  // --------------------------------------------------------------------------
+  //  Level 3 Order Book tests
+  // --------------------------------------------------------------------------
+
+  @Test
+  public void testLevel3OrderBookIsNotAvailableIfMarketDataIsNotStreamed() {
+    PowerMock.replayAll();
+
+    final CoinbaseProExchangeAdapter exchangeAdapter = new CoinbaseProExchangeAdapter();
+    exchangeAdapter.init(exchangeConfig);
+    assertFalse(exchangeAdapter.isLevel3Supported());
+    assertNull(exchangeAdapter.getLevel3OrderBook(MARKET_ID));
+
+    PowerMock.verifyAll();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testLevel3OrderBookSnapshotIsFetchedUsingLevelThree() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(LEVEL3_BOOK_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final Map<String, String> requestParamMap = PowerMock.createMock(Map.class);
+    expect(requestParamMap.put("level", "3")).andStubReturn(null);
+
+    final CoinbaseProExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            CoinbaseProExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD);
+
+    PowerMock.expectPrivate(exchangeAdapter, MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD)
+        .andReturn(requestParamMap);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            eq(BOOK),
+            eq(requestParamMap))
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final String snapshot =
+        Whitebox.invokeMethod(exchangeAdapter, "getLevel3OrderBookSnapshot", MARKET_ID);
+    assertEquals(exchangeResponse.getPayload(), snapshot);
+
+    PowerMock.verifyAll();
+  }
+
+  @Test(expected = TradingApiException.class)
+  public void testLevel3OrderBookSnapshotHandlesErrorResponse() throws Exception {
+    final CoinbaseProExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            CoinbaseProExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            eq(BOOK),
+            anyObject(Map.class))
+        .andReturn(
+            new AbstractExchangeAdapter.ExchangeHttpResponse(
+                404, "Not Found", "{\"message\":\"NotFound\"}"));
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    Whitebox.invokeMethod(exchangeAdapter, "getLevel3OrderBookSnapshot", MARKET_ID);
+    PowerMock.verifyAll();
+  }
+
   // --------------------------------------------------------------------------
   //  Get Latest Market Price tests
   // --------------------------------------------------------------------------
@@ -878,6 +1011,28 @@ public class TestCoinbaseProExchangeAdapter extends AbstractExchangeAdapterTest
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testOrderPlacementAndCancellationArePrioritised() throws Exception {
+    final CoinbaseProExchangeAdapter exchangeAdapter = new CoinbaseProExchangeAdapter();
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "orders"), "POST"));
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(
+            new URL(AUTHENTICATED_API_URL + "orders/" + ORDER_ID_TO_CANCEL), "DELETE"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "orders"), "GET"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(
+            new URL(PUBLIC_API_BASE_URL + "products/" + MARKET_ID + "/book"), "GET"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "accounts"), "GET"));
+  }
+
   @Test
   public void testGettingImplNameIsAsExpected() {
     PowerMock.replayAll();
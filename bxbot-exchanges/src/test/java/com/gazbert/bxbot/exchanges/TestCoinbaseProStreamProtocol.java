@@ -0,0 +1,314 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.gazbert.bxbot.exchanges.CoinbaseProExchangeAdapter.CoinbaseProStreamProtocol;
+import com.gazbert.bxbot.exchanges.streaming.LocalOrderBook;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataSink;
+import com.gazbert.bxbot.trading.api.Level3Order;
+import com.gazbert.bxbot.trading.api.Level3OrderBook;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.gazbert.bxbot.trading.api.Ticker;
+import com.gazbert.bxbot.trading.api.TradingApiException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the CoinbasePro WebSocket feed protocol rebuilds the order by order book as expected.
+ *
+ * <p>The recorded full channel messages are replayed onto the recorded level 3 snapshot.
+ *
+ * @author gazbert
+ */
+public class TestCoinbaseProStreamProtocol {
+
+  private static final String LEVEL3_BOOK_JSON =
+      "./src/test/exchange-data/coinbasepro/book-level3.json";
+  private static final String FULL_CHANNEL_MESSAGES =
+      "./src/test/exchange-data/coinbasepro/full-channel.jsonl";
+
+  private static final String MARKET_ID = "BTC-USD";
+  private static final String FIRST_BID_ID = "7a1c2f4e-5b3d-4c8a-9e61-0d2f8b7c3a11";
+  private static final String SECOND_BID_ID = "3e9d8c7b-1a2f-4d6e-8b5c-4f3e2d1c0b22";
+  private static final String NEW_BID_ID = "1c2d3e4f-5a6b-4c7d-9e8f-0a1b2c3d4e88";
+  private static final String CHANGED_ASK_ID = "5d4c3b2a-1f0e-4d9c-8b7a-6f5e4d3c2b55";
+  private static final String NEW_ASK_ID = "4f5a6b7c-8d9e-4fa0-b1c2-3d4e5f6a7b11";
+
+  private String snapshot;
+  private List<String> messages;
+  private int snapshotFetches;
+  private CoinbaseProStreamProtocol protocol;
+  private SequencingSink sink;
+
+  /** Load the recorded feed and create the protocol. */
+  @Before
+  public void setupProtocol() throws Exception {
+    snapshot = Files.readString(Paths.get(LEVEL3_BOOK_JSON), StandardCharsets.UTF_8);
+    messages = Files.readAllLines(Paths.get(FULL_CHANNEL_MESSAGES), StandardCharsets.UTF_8);
+    protocol =
+        new CoinbaseProStreamProtocol(
+            CoinbaseProStreamProtocol.STREAM_URI,
+            marketId -> {
+              assertEquals(MARKET_ID, marketId);
+              snapshotFetches++;
+              return snapshot;
+            });
+    sink = new SequencingSink();
+  }
+
+  @Test
+  public void testFullChannelAndTickerAreSubscribedTo() {
+    assertEquals("wss://ws-feed.pro.coinbase.com", protocol.getUri().toString());
+    assertTrue(protocol.onConnected().isEmpty());
+    assertEquals(
+        List.of(
+            "{\"type\":\"subscribe\",\"product_ids\":[\"BTC-USD\"],"
+                + "\"channels\":[\"full\",\"ticker\"]}"),
+        protocol.createSubscribeMessages(MARKET_ID));
+    assertTrue(protocol.createResyncMessages(MARKET_ID).isEmpty());
+    assertEquals(0, snapshotFetches);
+  }
+
+  @Test
+  public void testSnapshotIsFetchedWithTheFirstMessageAndOlderMessagesAreDropped() {
+    protocol.createSubscribeMessages(MARKET_ID);
+    replay(0, 3);
+
+    assertEquals(1, snapshotFetches);
+    assertEquals(3000, sink.sequence);
+    assertEquals(0, sink.updates);
+
+    final Level3OrderBook book = protocol.getBook(MARKET_ID);
+    assertEquals(6, book.getOrderCount());
+    assertEquals(
+        List.of(FIRST_BID_ID, SECOND_BID_ID), orderIds(book, OrderType.BUY, "9500.00"));
+    assertEquals(new BigDecimal("1.50000000"), book.getLevelQuantity(OrderType.BUY, price("9500")));
+    assertLevelsMatch(book);
+  }
+
+  @Test
+  public void testRecordedMessagesAreAppliedOrderByOrder() {
+    protocol.createSubscribeMessages(MARKET_ID);
+    replay(0, messages.size());
+
+    assertEquals(1, snapshotFetches);
+    assertEquals(3011, sink.sequence);
+    assertEquals(0, sink.gaps);
+    assertTrue(sink.reconnects.isEmpty());
+
+    final Level3OrderBook book = protocol.getBook(MARKET_ID);
+    assertEquals(6, book.getOrderCount());
+
+    // first bid filled by 2 matches, the new bid joined the back of the queue
+    assertNull(book.getOrder(FIRST_BID_ID));
+    assertEquals(List.of(SECOND_BID_ID, NEW_BID_ID), orderIds(book, OrderType.BUY, "9500.00"));
+    assertEquals(new BigDecimal("1.00000000"), book.getQuantityAhead(NEW_BID_ID));
+    assertEquals(new BigDecimal("1.30000000"), book.getLevelQuantity(OrderType.BUY, price("9500")));
+
+    // first ask cancelled, second ask changed in place
+    assertEquals(List.of(CHANGED_ASK_ID), orderIds(book, OrderType.SELL, "9501.00"));
+    assertEquals(new BigDecimal("0.50000000"), book.getOrder(CHANGED_ASK_ID).getQuantity());
+    assertEquals(BigDecimal.ZERO, book.getQuantityAhead(CHANGED_ASK_ID));
+
+    final Level3Order newAsk = book.getOrder(NEW_ASK_ID);
+    assertSame(OrderType.SELL, newAsk.getType());
+    assertEquals(new BigDecimal("9501.50"), newAsk.getPrice());
+    assertEquals(new BigDecimal("2.00000000"), newAsk.getQuantity());
+
+    final MarketOrderBook levels = book.toMarketOrderBook(MARKET_ID, 0);
+    assertEquals(3, levels.getSellOrders().size());
+    assertEquals(new BigDecimal("9501.00"), levels.getSellOrders().get(0).getPrice());
+    assertEquals(new BigDecimal("9501.50"), levels.getSellOrders().get(1).getPrice());
+    assertEquals(2, levels.getBuyOrders().size());
+    assertEquals(new BigDecimal("9500.00"), levels.getBuyOrders().get(0).getPrice());
+    assertLevelsMatch(book);
+  }
+
+  @Test
+  public void testTickerIsDecoded() {
+    protocol.createSubscribeMessages(MARKET_ID);
+    replay(0, messages.size());
+
+    final Ticker ticker = sink.ticker;
+    assertEquals(new BigDecimal("9500.00"), ticker.getLast());
+    assertEquals(new BigDecimal("9500.00"), ticker.getBid());
+    assertEquals(new BigDecimal("9501.00"), ticker.getAsk());
+    assertEquals(new BigDecimal("9300.00"), ticker.getLow());
+    assertEquals(new BigDecimal("9600.00"), ticker.getHigh());
+    assertEquals(new BigDecimal("9350.00"), ticker.getOpen());
+    assertEquals(new BigDecimal("12345.67890000"), ticker.getVolume());
+    assertNull(ticker.getVwap());
+    assertEquals(
+        Instant.parse("2020-03-01T10:00:00.002100Z").toEpochMilli(),
+        ticker.getTimestamp().longValue());
+  }
+
+  @Test
+  public void testSequenceGapRefetchesTheSnapshot() {
+    protocol.createSubscribeMessages(MARKET_ID);
+    replay(0, 5);
+    assertEquals(NEW_BID_ID, protocol.getBook(MARKET_ID).getOrder(NEW_BID_ID).getId());
+
+    // 3003 missed - the next message is dropped and the book reloaded with the one after it
+    replay(6, 7);
+    assertEquals(1, sink.gaps);
+    assertEquals(1, snapshotFetches);
+    snapshot = snapshot.replace("\"sequence\": 3000", "\"sequence\": 3004");
+    replay(7, 8);
+    assertEquals(2, snapshotFetches);
+    assertEquals(1, sink.gaps);
+    assertEquals(3005, sink.sequence);
+
+    final Level3OrderBook book = protocol.getBook(MARKET_ID);
+    assertNull(book.getOrder(NEW_BID_ID));
+    assertEquals(new BigDecimal("0.20000000"), book.getOrder(FIRST_BID_ID).getQuantity());
+    assertEquals(6, book.getOrderCount());
+    assertLevelsMatch(book);
+  }
+
+  @Test
+  public void testFailedSnapshotFetchThrowsSoTheFeedReconnects() {
+    protocol =
+        new CoinbaseProStreamProtocol(
+            CoinbaseProStreamProtocol.STREAM_URI,
+            marketId -> {
+              throw new TradingApiException("Failed to get level 3 order book");
+            });
+    protocol.createSubscribeMessages(MARKET_ID);
+    try {
+      protocol.decode(messages.get(1), sink);
+      fail("Expected IllegalStateException to be thrown");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getCause() instanceof TradingApiException);
+    }
+    assertEquals(0, sink.snapshots);
+  }
+
+  @Test
+  public void testMessagesForUnsubscribedMarketsAreIgnored() {
+    replay(0, messages.size());
+    protocol.decode("{\"type\":\"error\",\"message\":\"Failed to subscribe\"}", sink);
+
+    assertEquals(0, snapshotFetches);
+    assertEquals(0, sink.snapshots);
+    assertNull(protocol.getBook(MARKET_ID));
+  }
+
+  private void replay(int from, int to) {
+    for (final String message : messages.subList(from, to)) {
+      protocol.decode(message, sink);
+    }
+  }
+
+  private void assertLevelsMatch(Level3OrderBook book) {
+    for (final OrderType type : OrderType.values()) {
+      sink.book
+          .getLevels(type)
+          .forEach((price, quantity) -> assertEquals(book.getLevelQuantity(type, price), quantity));
+    }
+    final MarketOrderBook levels = book.toMarketOrderBook(MARKET_ID, 0);
+    assertEquals(levels.getSellOrders().size(), sink.book.getLevels(OrderType.SELL).size());
+    assertEquals(levels.getBuyOrders().size(), sink.book.getLevels(OrderType.BUY).size());
+  }
+
+  private static List<String> orderIds(Level3OrderBook book, OrderType type, String price) {
+    return book.getOrders(type, price(price)).stream()
+        .map(Level3Order::getId)
+        .collect(Collectors.toList());
+  }
+
+  private static BigDecimal price(String price) {
+    return new BigDecimal(price);
+  }
+
+  /** Checks the sequence numbers like the market data stream does. */
+  private class SequencingSink implements MarketDataSink {
+
+    private final LocalOrderBook book = new LocalOrderBook();
+    private final List<String> reconnects = new ArrayList<>();
+    private long sequence = NO_SEQUENCE;
+    private boolean inSync;
+    private Ticker ticker;
+    private int snapshots;
+    private int updates;
+    private int gaps;
+
+    @Override
+    public void onSnapshot(String marketId, long sequence, Consumer<LocalOrderBook> snapshot) {
+      snapshots++;
+      book.clear();
+      snapshot.accept(book);
+      this.sequence = sequence;
+      inSync = true;
+    }
+
+    @Override
+    public boolean onUpdate(String marketId, long sequence, Consumer<LocalOrderBook> update) {
+      if (!inSync || sequence <= this.sequence) {
+        return false;
+      }
+      if (sequence != this.sequence + 1) {
+        gaps++;
+        inSync = false;
+        protocol.createResyncMessages(marketId);
+        return false;
+      }
+      this.sequence = sequence;
+      updates++;
+      update.accept(book);
+      return true;
+    }
+
+    @Override
+    public void onTicker(String marketId, Ticker ticker) {
+      this.ticker = ticker;
+    }
+
+    @Override
+    public void onOutOfSync(String marketId, String reason) {
+      fail("Unexpected out of sync: " + reason);
+    }
+
+    @Override
+    public void reconnect(String reason) {
+      reconnects.add(reason);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.NetworkConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
@@ -54,6 +55,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -145,6 +148,23 @@ public class TestGeminiExchangeAdapter extends AbstractExchangeAdapterTest {
     expect(networkConfig.getConnectionTimeout()).andReturn(30);
     expect(networkConfig.getNonFatalErrorCodes()).andReturn(nonFatalNetworkErrorCodes);
     expect(networkConfig.getNonFatalErrorMessages()).andReturn(nonFatalNetworkErrorMessages);
+    expect(networkConfig.getMaxConnections()).andReturn(null);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(null);
+    expect(networkConfig.getRateLimiter()).andReturn(null);
+    expect(networkConfig.getRateLimitBurst()).andReturn(null);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(null);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
 
     final OtherConfig otherConfig = PowerMock.createMock(OtherConfig.class);
     expect(otherConfig.getItem("buy-fee")).andReturn("0.25");
@@ -209,6 +229,62 @@ public class TestGeminiExchangeAdapter extends AbstractExchangeAdapterTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testGettingMarketOrdersAsynchronouslySuccessfully() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(BOOK_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final GeminiExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            GeminiExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            BOOK + "/" + ETH_BTC_MARKET_ID)
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final MarketOrderBook marketOrderBook =
+        exchangeAdapter.async().getMarketOrders(ETH_BTC_MARKET_ID).get(5, TimeUnit.SECONDS);
+    assertEquals(ETH_BTC_MARKET_ID, marketOrderBook.getMarketId());
+    assertEquals(50, marketOrderBook.getBuyOrders().size());
+    assertEquals(50, marketOrderBook.getSellOrders().size());
+
+    PowerMock.verifyAll();
+  }
+
+  @Test
+  public void testGettingMarketOrdersWithDepthUsesLimitParams() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(BOOK_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final GeminiExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            GeminiExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            BOOK + "/" + ETH_BTC_MARKET_ID + "?limit_bids=5&limit_asks=5")
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final MarketOrderBook marketOrderBook = exchangeAdapter.getMarketOrders(ETH_BTC_MARKET_ID, 5);
+
+    // canned response is the full book, so it's truncated too
+    assertEquals(5, marketOrderBook.getBuyOrders().size());
+    assertEquals(5, marketOrderBook.getSellOrders().size());
+
+    PowerMock.verifyAll();
+  }
+
   @Test(expected = ExchangeNetworkException.class)
   public void testGettingMarketOrdersHandlesExchangeNetworkException() throws Exception {
     final GeminiExchangeAdapter exchangeAdapter =
@@ -643,6 +719,37 @@ public class TestGeminiExchangeAdapter extends AbstractExchangeAdapterTest {
   //  Get Your Open Orders tests
   // --------------------------------------------------------------------------
 
+  @Test
+  public void testGettingAllOpenOrdersSuccessfully() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(ORDERS_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final GeminiExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            GeminiExchangeAdapter.class, MOCKED_SEND_AUTHENTICATED_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_AUTHENTICATED_REQUEST_TO_EXCHANGE_METHOD,
+            eq(ORDERS),
+            eq(null))
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    // one call to the exchange returns the orders for every market
+    assertTrue(exchangeAdapter.isAllOpenOrdersSupported());
+    final List<OpenOrder> openOrders = exchangeAdapter.getAllOpenOrders();
+
+    assertEquals(
+        Arrays.asList("btcusd", "ethbtc", "ethbtc", "ethusd"),
+        openOrders.stream().map(OpenOrder::getMarketId).sorted().collect(Collectors.toList()));
+
+    PowerMock.verifyAll();
+  }
+
   @Test
   public void testGettingYourOpenOrdersSuccessfully() throws Exception {
     final byte[] encoded = Files.readAllBytes(Paths.get(ORDERS_JSON_RESPONSE));
@@ -731,6 +838,29 @@ public class TestGeminiExchangeAdapter extends AbstractExchangeAdapterTest {
   //  Non Exchange visiting tests
   // --------------------------------------------------------------------------
 
+  @Test
+  public void testOrderPlacementAndCancellationArePrioritised() throws Exception {
+    final GeminiExchangeAdapter exchangeAdapter = new GeminiExchangeAdapter();
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "order/new"), "POST"));
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(
+            new URL(AUTHENTICATED_API_URL + "order/cancel"), "POST"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(
+            new URL(PUBLIC_API_BASE_URL + "book/" + BTC_USD_MARKET_ID), "GET"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(
+            new URL(PUBLIC_API_BASE_URL + "pubticker/" + BTC_USD_MARKET_ID), "GET"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "orders"), "POST"));
+  }
+
   @Test
   public void testGettingImplNameIsAsExpected() {
     PowerMock.replayAll();
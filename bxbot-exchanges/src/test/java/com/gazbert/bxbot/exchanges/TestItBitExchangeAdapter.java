@@ -38,6 +38,7 @@ import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.NetworkConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
@@ -158,6 +159,23 @@ public class TestItBitExchangeAdapter extends AbstractExchangeAdapterTest {
     expect(networkConfig.getConnectionTimeout()).andReturn(30);
     expect(networkConfig.getNonFatalErrorCodes()).andReturn(nonFatalNetworkErrorCodes);
     expect(networkConfig.getNonFatalErrorMessages()).andReturn(nonFatalNetworkErrorMessages);
+    expect(networkConfig.getMaxConnections()).andReturn(null);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(null);
+    expect(networkConfig.getRateLimiter()).andReturn(null);
+    expect(networkConfig.getRateLimitBurst()).andReturn(null);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(null);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
 
     otherConfig = PowerMock.createMock(OtherConfig.class);
     expect(otherConfig.getItem("buy-fee")).andReturn("0.5");
@@ -573,6 +591,31 @@ public class TestItBitExchangeAdapter extends AbstractExchangeAdapterTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testGettingMarketOrdersWithDepthTruncatesOrderBook() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(ORDER_BOOK_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final ItBitExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            ItBitExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD, ORDER_BOOK)
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+
+    exchangeAdapter.init(exchangeConfig);
+    final MarketOrderBook marketOrderBook = exchangeAdapter.getMarketOrders(MARKET_ID, 25);
+
+    assertEquals(25, marketOrderBook.getBuyOrders().size());
+    assertEquals(25, marketOrderBook.getSellOrders().size());
+
+    PowerMock.verifyAll();
+  }
+
   @Test(expected = ExchangeNetworkException.class)
   public void testGettingMarketOrdersHandlesExchangeNetworkException() throws Exception {
     final ItBitExchangeAdapter exchangeAdapter =
@@ -856,6 +899,29 @@ public class TestItBitExchangeAdapter extends AbstractExchangeAdapterTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testOrderPlacementAndCancellationArePrioritised() throws Exception {
+    final ItBitExchangeAdapter exchangeAdapter = new ItBitExchangeAdapter();
+    final String ordersUrl = AUTHENTICATED_API_URL + "wallets/" + WALLET_ID + "/orders";
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(new URL(ordersUrl), "POST"));
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(
+            new URL(ordersUrl + "/" + ORDER_ID_TO_CANCEL), "DELETE"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(ordersUrl), "GET"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(
+            new URL(PUBLIC_API_BASE_URL + "markets/" + MARKET_ID + "/ticker"), "GET"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + "wallets"), "GET"));
+  }
+
   @Test
   public void testGettingImplNameIsAsExpected() {
     PowerMock.replayAll();
@@ -34,6 +34,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import com.gazbert.bxbot.exchange.api.AuthenticationConfig;
 import com.gazbert.bxbot.exchange.api.ExchangeAdapter;
@@ -41,25 +42,42 @@ import com.gazbert.bxbot.exchange.api.ExchangeConfig;
 import com.gazbert.bxbot.exchange.api.NetworkConfig;
 import com.gazbert.bxbot.exchange.api.OtherConfig;
 import com.gazbert.bxbot.exchanges.AbstractExchangeAdapter.ExchangeHttpResponse;
+import com.gazbert.bxbot.exchanges.ratelimit.KrakenCallCounterRateLimiter;
+import com.gazbert.bxbot.exchanges.transport.RequestPriority;
 import com.gazbert.bxbot.trading.api.BalanceInfo;
 import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.FixedPointScale;
 import com.gazbert.bxbot.trading.api.MarketOrderBook;
 import com.gazbert.bxbot.trading.api.OpenOrder;
 import com.gazbert.bxbot.trading.api.OrderType;
 import com.gazbert.bxbot.trading.api.Ticker;
 import com.gazbert.bxbot.trading.api.TradingApiException;
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -67,6 +85,7 @@ import org.powermock.api.easymock.PowerMock;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
 /**
  * Tests the behaviour of the Kraken Exchange Adapter.
@@ -134,6 +153,8 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
       "sendAuthenticatedRequestToExchange";
   private static final String MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD =
       "sendPublicRequestToExchange";
+  private static final String MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD =
+      "sendPublicStreamingRequestToExchange";
   private static final String MOCKED_CREATE_REQUEST_HEADER_MAP_METHOD = "createHeaderParamMap";
   private static final String MOCKED_MAKE_NETWORK_REQUEST_METHOD = "makeNetworkRequest";
 
@@ -172,6 +193,23 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
     expect(networkConfig.getConnectionTimeout()).andReturn(30);
     expect(networkConfig.getNonFatalErrorCodes()).andReturn(nonFatalNetworkErrorCodes);
     expect(networkConfig.getNonFatalErrorMessages()).andReturn(nonFatalNetworkErrorMessages);
+    expect(networkConfig.getMaxConnections()).andReturn(null);
+    expect(networkConfig.getConnectionIdleTimeout()).andReturn(null);
+    expect(networkConfig.getRateLimiter()).andReturn(null);
+    expect(networkConfig.getRateLimitBurst()).andReturn(null);
+    expect(networkConfig.getRateLimitCallsPerSecond()).andReturn(null);
+    expect(networkConfig.getHedgeLatencyPercentile()).andReturn(null);
+    expect(networkConfig.getHedgeMaxExtraLoadPercent()).andReturn(null);
+    expect(networkConfig.getConnectTimeout()).andReturn(null);
+    expect(networkConfig.getTradingReadTimeout()).andReturn(null);
+    expect(networkConfig.getAccountReadTimeout()).andReturn(null);
+    expect(networkConfig.getMarketDataReadTimeout()).andReturn(null);
+    expect(networkConfig.getAdaptiveTimeouts()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerFailureThreshold()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMinBackoff()).andReturn(null);
+    expect(networkConfig.getCircuitBreakerMaxBackoff()).andReturn(null);
+    expect(networkConfig.getPreWarmConnections()).andReturn(null);
+    expect(networkConfig.getStreamMarketData()).andReturn(null);
 
     OtherConfig otherConfig = PowerMock.createMock(OtherConfig.class);
     expect(otherConfig.getItem("buy-fee")).andReturn("0.1");
@@ -207,6 +245,7 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
         PowerMock.createPartialMockAndInvokeDefaultConstructor(
             KrakenExchangeAdapter.class,
             MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
             MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD);
 
     mockAssetPairsPublicRequest(exchangeAdapter);
@@ -214,9 +253,10 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
         .andReturn(requestParamMap);
     PowerMock.expectPrivate(
             exchangeAdapter,
-            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
             eq(DEPTH),
-            eq(requestParamMap))
+            eq(requestParamMap),
+            anyObject(Type.class))
         .andReturn(exchangeResponse);
 
     PowerMock.replayAll();
@@ -237,6 +277,13 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
     assertEquals(0, marketOrderBook.getBuyOrders().get(0).getQuantity().compareTo(buyQuantity));
     assertEquals(0, marketOrderBook.getBuyOrders().get(0).getTotal().compareTo(buyTotal));
 
+    // XBTUSD has 1 pair decimal and 8 lot decimals in AssetPairs.json
+    final FixedPointScale scale = exchangeAdapter.getFixedPointScale(MARKET_ID);
+    assertEquals(FixedPointScale.of(1, 8), scale);
+    assertEquals(6626, marketOrderBook.getBuyOrders().get(0).getPriceTicks(scale));
+    assertEquals(585_100_000, marketOrderBook.getBuyOrders().get(0).getQuantityLots(scale));
+    assertNull(exchangeAdapter.getFixedPointScale("UNKNOWNPAIR"));
+
     final BigDecimal sellPrice = new BigDecimal("664.53600");
     final BigDecimal sellQuantity = new BigDecimal("0.888");
     final BigDecimal sellTotal = sellPrice.multiply(sellQuantity);
@@ -265,6 +312,7 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
         PowerMock.createPartialMockAndInvokeDefaultConstructor(
             KrakenExchangeAdapter.class,
             MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
             MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD);
 
     mockAssetPairsPublicRequest(exchangeAdapter);
@@ -272,9 +320,10 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
         .andReturn(requestParamMap);
     PowerMock.expectPrivate(
             exchangeAdapter,
-            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
             eq(DEPTH),
-            eq(requestParamMap))
+            eq(requestParamMap),
+            anyObject(Type.class))
         .andReturn(exchangeResponse);
 
     PowerMock.replayAll();
@@ -284,18 +333,63 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testGettingMarketOrdersWithDepthUsesCountParam() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(DEPTH_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final Map<String, String> requestParamMap = PowerMock.createMock(Map.class);
+    expect(requestParamMap.put("pair", MARKET_ID)).andStubReturn(null);
+    expect(requestParamMap.put("count", "10")).andReturn(null);
+
+    final KrakenExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            KrakenExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD);
+
+    mockAssetPairsPublicRequest(exchangeAdapter);
+    PowerMock.expectPrivate(exchangeAdapter, MOCKED_CREATE_REQUEST_PARAM_MAP_METHOD)
+        .andReturn(requestParamMap);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
+            eq(DEPTH),
+            eq(requestParamMap),
+            anyObject(Type.class))
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final MarketOrderBook marketOrderBook = exchangeAdapter.getMarketOrders(MARKET_ID, 10);
+
+    // canned response has 100 orders, so it's truncated too
+    assertEquals(10, marketOrderBook.getBuyOrders().size());
+    assertEquals(10, marketOrderBook.getSellOrders().size());
+
+    PowerMock.verifyAll();
+  }
+
   @Test(expected = ExchangeNetworkException.class)
   public void testGettingMarketOrdersHandlesExchangeNetworkException() throws Exception {
     final KrakenExchangeAdapter exchangeAdapter =
         PowerMock.createPartialMockAndInvokeDefaultConstructor(
-            KrakenExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+            KrakenExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD);
 
     mockAssetPairsPublicRequest(exchangeAdapter);
     PowerMock.expectPrivate(
             exchangeAdapter,
-            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
             eq(DEPTH),
-            anyObject(Map.class))
+            anyObject(Map.class),
+            anyObject(Type.class))
         .andThrow(
             new ExchangeNetworkException("You're not giving orders. You're in my world now."));
 
@@ -310,14 +404,17 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
   public void testGettingMarketOrdersHandlesUnexpectedException() throws Exception {
     final KrakenExchangeAdapter exchangeAdapter =
         PowerMock.createPartialMockAndInvokeDefaultConstructor(
-            KrakenExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+            KrakenExchangeAdapter.class,
+            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD);
 
     mockAssetPairsPublicRequest(exchangeAdapter);
     PowerMock.expectPrivate(
             exchangeAdapter,
-            MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD,
+            MOCKED_SEND_PUBLIC_STREAMING_REQUEST_TO_EXCHANGE_METHOD,
             eq(DEPTH),
-            anyObject(Map.class))
+            anyObject(Map.class),
+            anyObject(Type.class))
         .andThrow(
             new IllegalArgumentException(
                 "Down time is the worst, isn’t it? "
@@ -334,6 +431,37 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
   //  Get Your Open Orders tests
   // --------------------------------------------------------------------------
 
+  @Test
+  public void testGettingAllOpenOrdersSuccessfully() throws Exception {
+    final byte[] encoded = Files.readAllBytes(Paths.get(OPEN_ORDERS_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final KrakenExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            KrakenExchangeAdapter.class, MOCKED_SEND_AUTHENTICATED_REQUEST_TO_EXCHANGE_METHOD);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_SEND_AUTHENTICATED_REQUEST_TO_EXCHANGE_METHOD,
+            eq(OPEN_ORDERS),
+            eq(null))
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    // one call to the exchange returns the orders for every market
+    assertTrue(exchangeAdapter.isAllOpenOrdersSupported());
+    final List<OpenOrder> openOrders = exchangeAdapter.getAllOpenOrders();
+
+    assertEquals(
+        Arrays.asList("XBTEUR", "XBTUSD", "XBTUSD"),
+        openOrders.stream().map(OpenOrder::getMarketId).sorted().collect(Collectors.toList()));
+
+    PowerMock.verifyAll();
+  }
+
   @Test
   public void testGettingYourOpenOrdersSuccessfully() throws Exception {
     final byte[] encoded = Files.readAllBytes(Paths.get(OPEN_ORDERS_JSON_RESPONSE));
@@ -1068,6 +1196,23 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
   //  Non Exchange visiting tests
   // --------------------------------------------------------------------------
 
+  @Test
+  public void testOrderPlacementAndCancellationArePrioritised() throws Exception {
+    final KrakenExchangeAdapter exchangeAdapter = new KrakenExchangeAdapter();
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + ADD_ORDER), "POST"));
+    assertEquals(
+        RequestPriority.TRADING,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + CANCEL_ORDER), "POST"));
+    assertEquals(
+        RequestPriority.MARKET_DATA,
+        exchangeAdapter.getRequestPriority(new URL(PUBLIC_API_BASE_URL + DEPTH), "GET"));
+    assertEquals(
+        RequestPriority.ACCOUNT,
+        exchangeAdapter.getRequestPriority(new URL(AUTHENTICATED_API_URL + BALANCE), "POST"));
+  }
+
   @Test
   public void testGettingImplNameIsAsExpected() {
     PowerMock.replayAll();
@@ -1118,6 +1263,22 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testWebSocketPairNamesAreLoadedFromAssetPairs() throws Exception {
+    final KrakenExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            KrakenExchangeAdapter.class, MOCKED_SEND_PUBLIC_REQUEST_TO_EXCHANGE_METHOD);
+    mockAssetPairsPublicRequest(exchangeAdapter);
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final Map<String, String> pairNames =
+        Whitebox.getInternalState(exchangeAdapter, "webSocketPairNames");
+    assertEquals("XBT/USD", pairNames.get(MARKET_ID));
+    assertEquals(252, pairNames.size()); // dark pools have no feed
+    PowerMock.verifyAll();
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testExchangeAdapterThrowsExceptionIfPublicKeyConfigIsMissing() {
     PowerMock.reset(authenticationConfig);
@@ -1337,6 +1498,134 @@ public class TestKrakenExchangeAdapter extends AbstractExchangeAdapterTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testAuthenticatedRequestsSentConcurrentlyAreSignedAndSentInNonceOrder()
+      throws Exception {
+    final int threadCount = 8;
+    final int requestsPerThread = 25;
+    final byte[] encoded = Files.readAllBytes(Paths.get(BALANCE_JSON_RESPONSE));
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", new String(encoded, StandardCharsets.UTF_8));
+
+    final KrakenExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            KrakenExchangeAdapter.class, MOCKED_MAKE_NETWORK_REQUEST_METHOD);
+    mockAssetPairsNetworkRequest(exchangeAdapter);
+
+    // post data -> API-Sign header sent with it
+    final Map<String, String> signaturesSent = new ConcurrentHashMap<>();
+    final List<Long> noncesSent = Collections.synchronizedList(new ArrayList<>());
+    final URL url = new URL(AUTHENTICATED_API_URL + BALANCE);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_MAKE_NETWORK_REQUEST_METHOD,
+            eq(url),
+            eq("POST"),
+            anyString(),
+            anyObject())
+        .andAnswer(
+            () -> {
+              final Object[] args = EasyMock.getCurrentArguments();
+              final Map<String, String> headers = (Map<String, String>) args[3];
+              signaturesSent.put((String) args[2], headers.get("API-Sign"));
+              noncesSent.add(Long.parseLong(((String) args[2]).substring("nonce=".length())));
+              return exchangeResponse;
+            })
+        .times(threadCount * requestsPerThread);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    try {
+      final List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        results.add(
+            executorService.submit(
+                () -> {
+                  for (int j = 0; j < requestsPerThread; j++) {
+                    exchangeAdapter.getBalanceInfo();
+                  }
+                  return null;
+                }));
+      }
+      for (final Future<?> result : results) {
+        result.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    // every request got its own nonce and a signature that matches it, and reached the exchange
+    // in nonce order
+    assertEquals(threadCount * requestsPerThread, signaturesSent.size());
+    final List<Long> noncesInOrder = new ArrayList<>(noncesSent);
+    Collections.sort(noncesInOrder);
+    assertEquals(noncesInOrder, noncesSent);
+    final Mac mac = Mac.getInstance("HmacSHA512");
+    mac.init(new SecretKeySpec(Base64.getDecoder().decode(SECRET), "HmacSHA512"));
+    for (final Map.Entry<String, String> signatureSent : signaturesSent.entrySet()) {
+      final String postData = signatureSent.getKey();
+      final String nonce = postData.substring("nonce=".length());
+      final MessageDigest md = MessageDigest.getInstance("SHA-256");
+      mac.update(url.getPath().getBytes(StandardCharsets.UTF_8));
+      mac.update(md.digest((nonce + postData).getBytes(StandardCharsets.UTF_8)));
+      assertEquals(
+          Base64.getEncoder().encodeToString(mac.doFinal()), signatureSent.getValue());
+    }
+
+    PowerMock.verifyAll();
+  }
+
+  @Test
+  public void testRateLimitCostMatchesKrakenApiCallCounter() throws Exception {
+    final KrakenExchangeAdapter exchangeAdapter = new KrakenExchangeAdapter();
+    assertEquals(0, exchangeAdapter.getRateLimitCost(new URL(PUBLIC_API_BASE_URL + DEPTH)));
+    assertEquals(1, exchangeAdapter.getRateLimitCost(new URL(AUTHENTICATED_API_URL + BALANCE)));
+    assertEquals(
+        2, exchangeAdapter.getRateLimitCost(new URL(AUTHENTICATED_API_URL + "TradesHistory")));
+    assertEquals(
+        2, exchangeAdapter.getRateLimitCost(new URL(AUTHENTICATED_API_URL + "QueryLedgers")));
+    assertEquals(0, exchangeAdapter.getRateLimitCost(new URL(AUTHENTICATED_API_URL + ADD_ORDER)));
+  }
+
+  @Test
+  public void testRateLimitExceededErrorDrainsRateLimiter() throws Exception {
+    final AbstractExchangeAdapter.ExchangeHttpResponse exchangeResponse =
+        new AbstractExchangeAdapter.ExchangeHttpResponse(
+            200, "OK", "{\"error\":[\"EAPI:Rate limit exceeded\"]}");
+
+    final KrakenExchangeAdapter exchangeAdapter =
+        PowerMock.createPartialMockAndInvokeDefaultConstructor(
+            KrakenExchangeAdapter.class, MOCKED_MAKE_NETWORK_REQUEST_METHOD);
+    mockAssetPairsNetworkRequest(exchangeAdapter);
+    PowerMock.expectPrivate(
+            exchangeAdapter,
+            MOCKED_MAKE_NETWORK_REQUEST_METHOD,
+            eq(new URL(AUTHENTICATED_API_URL + BALANCE)),
+            eq("POST"),
+            anyString(),
+            anyObject())
+        .andReturn(exchangeResponse);
+
+    PowerMock.replayAll();
+    exchangeAdapter.init(exchangeConfig);
+    final KrakenCallCounterRateLimiter rateLimiter = new KrakenCallCounterRateLimiter(20, 0.5);
+    exchangeAdapter.setRateLimiter(rateLimiter);
+
+    try {
+      exchangeAdapter.getBalanceInfo();
+      fail("Expected TradingApiException");
+    } catch (TradingApiException e) {
+      // counter is at the max, so the next call will be held back
+      assertTrue(rateLimiter.getCounter() >= 20);
+    }
+
+    PowerMock.verifyAll();
+  }
+
   @Test(expected = ExchangeNetworkException.class)
   @SuppressWarnings("unchecked")
   public void testSendingAuthenticatedRequestToExchangeHandlesExchangeNetworkException()
@@ -0,0 +1,286 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.exchanges.KrakenExchangeAdapter.KrakenStreamProtocol;
+import com.gazbert.bxbot.exchanges.streaming.LocalOrderBook;
+import com.gazbert.bxbot.exchanges.streaming.MarketDataSink;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.gazbert.bxbot.trading.api.Ticker;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Kraken WebSocket feed protocol decodes the feed and verifies the book checksums as
+ * expected.
+ *
+ * <p>The book is the checksum example from the Kraken WebSocket API docs.
+ *
+ * @author gazbert
+ */
+public class TestKrakenStreamProtocol {
+
+  private static final String MARKET_ID = "ETHXBT";
+  private static final String PAIR = "ETH/XBT";
+  private static final String BOOK_SUBSCRIBE =
+      "{\"event\":\"subscribe\",\"pair\":[\"ETH/XBT\"],"
+          + "\"subscription\":{\"name\":\"book\",\"depth\":100}}";
+  private static final String BOOK_SNAPSHOT =
+      "[1234,{\"as\":["
+          + levels("0.05005", "0.05010", "0.05015", "0.05020", "0.05025")
+          + ","
+          + levels("0.05030", "0.05035", "0.05040", "0.05045", "0.05050")
+          + "],\"bs\":["
+          + levels("0.05000", "0.04995", "0.04990", "0.04980", "0.04975")
+          + ","
+          + levels("0.04970", "0.04965", "0.04960", "0.04955", "0.04950")
+          + "]},\"book-100\",\"ETH/XBT\"]";
+  private static final long SNAPSHOT_CHECKSUM = 974947235L;
+
+  private KrakenStreamProtocol protocol;
+  private RecordingSink sink;
+
+  /** Create the protocol for the ETH/XBT market. */
+  @Before
+  public void setupProtocol() {
+    protocol =
+        new KrakenStreamProtocol(KrakenStreamProtocol.STREAM_URI, Map.of(MARKET_ID, PAIR));
+    sink = new RecordingSink();
+  }
+
+  @Test
+  public void testBookAndTickerAreSubscribedTo() {
+    assertEquals("wss://ws.kraken.com", protocol.getUri().toString());
+    assertTrue(protocol.onConnected().isEmpty());
+    assertEquals(
+        List.of(
+            BOOK_SUBSCRIBE,
+            "{\"event\":\"subscribe\",\"pair\":[\"ETH/XBT\"],"
+                + "\"subscription\":{\"name\":\"ticker\"}}"),
+        protocol.createSubscribeMessages(MARKET_ID));
+  }
+
+  @Test
+  public void testMarketWithoutAPairNameIsNotSubscribedTo() {
+    assertTrue(protocol.createSubscribeMessages("XBTUSD").isEmpty());
+    assertTrue(protocol.createResyncMessages("XBTUSD").isEmpty());
+  }
+
+  @Test
+  public void testBookIsResyncedByResubscribing() {
+    assertEquals(
+        List.of(BOOK_SUBSCRIBE.replace("\"subscribe\"", "\"unsubscribe\""), BOOK_SUBSCRIBE),
+        protocol.createResyncMessages(MARKET_ID));
+  }
+
+  @Test
+  public void testBookSnapshotIsDecoded() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+
+    assertEquals(1, sink.snapshots);
+    assertEquals(MARKET_ID, sink.marketId);
+    assertEquals(10, sink.book.getLevels(OrderType.SELL).size());
+    assertEquals(new BigDecimal("0.05005"), sink.book.getLevels(OrderType.SELL).firstKey());
+    assertEquals(10, sink.book.getLevels(OrderType.BUY).size());
+    assertEquals(new BigDecimal("0.05000"), sink.book.getLevels(OrderType.BUY).firstKey());
+    assertEquals(SNAPSHOT_CHECKSUM, KrakenStreamProtocol.checksum(sink.book));
+  }
+
+  @Test
+  public void testBookUpdatesAreAppliedAndChecksumsVerified() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+
+    // best ask taken, new ask added at the back
+    protocol.decode(
+        "[1234,{\"a\":[[\"0.05005\",\"0.00000000\",\"1582905487.684110\"],"
+            + "[\"0.05055\",\"0.00000600\",\"1582905487.684110\"]],"
+            + "\"c\":\"386424919\"},\"book-100\",\"ETH/XBT\"]",
+        sink);
+    assertEquals(new BigDecimal("0.05010"), sink.book.getLevels(OrderType.SELL).firstKey());
+    assertEquals(new BigDecimal("0.05055"), sink.book.getLevels(OrderType.SELL).lastKey());
+
+    // ask and bid updated in the same message - only the last payload has the checksum
+    protocol.decode(
+        "[1234,{\"a\":[[\"0.05010\",\"0.00001000\",\"1582905487.684110\",\"r\"]]},"
+            + "{\"b\":[[\"0.05001\",\"0.00000100\",\"1582905487.684110\"]],"
+            + "\"c\":\"1607831852\"},\"book-100\",\"ETH/XBT\"]",
+        sink);
+    assertEquals(new BigDecimal("0.05001"), sink.book.getLevels(OrderType.BUY).firstKey());
+    assertEquals(11, sink.book.getLevels(OrderType.BUY).size());
+    assertEquals(
+        new BigDecimal("0.00001000"),
+        sink.book.getLevels(OrderType.SELL).get(new BigDecimal("0.05010")));
+
+    assertEquals(2, sink.updates);
+    assertTrue(sink.outOfSync.isEmpty());
+  }
+
+  @Test
+  public void testChecksumMismatchReportsBookOutOfSync() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+    protocol.decode(
+        "[1234,{\"b\":[[\"0.05000\",\"0.00000400\",\"1582905487.684110\"]],"
+            + "\"c\":\"974947235\"},\"book-100\",\"ETH/XBT\"]",
+        sink);
+
+    assertEquals(List.of(MARKET_ID + ": Checksum mismatch"), sink.outOfSync);
+  }
+
+  @Test
+  public void testDroppedUpdateIsNotChecked() {
+    protocol.decode(BOOK_SNAPSHOT, sink);
+    sink.dropUpdates = true;
+    protocol.decode(
+        "[1234,{\"b\":[[\"0.05000\",\"0.00000400\",\"1582905487.684110\"]],"
+            + "\"c\":\"1\"},\"book-100\",\"ETH/XBT\"]",
+        sink);
+
+    assertTrue(sink.outOfSync.isEmpty());
+  }
+
+  @Test
+  public void testBookIsTruncatedToTheSubscribedDepth() {
+    final StringBuilder asks = new StringBuilder();
+    for (int i = 0; i < KrakenStreamProtocol.BOOK_DEPTH; i++) {
+      final String price = String.format(Locale.ROOT, "%.5f", 0.06 + i * 0.00005);
+      asks.append(i == 0 ? "" : ",").append(levels(price));
+    }
+    protocol.decode("[1234,{\"as\":[" + asks + "],\"bs\":[]},\"book-100\",\"ETH/XBT\"]", sink);
+    protocol.decode(
+        "[1234,{\"a\":[[\"0.05000\",\"0.00000100\",\"1582905487.684110\"]]},"
+            + "\"book-100\",\"ETH/XBT\"]",
+        sink);
+
+    assertEquals(KrakenStreamProtocol.BOOK_DEPTH, sink.book.getLevels(OrderType.SELL).size());
+    assertEquals(new BigDecimal("0.05000"), sink.book.getLevels(OrderType.SELL).firstKey());
+    assertEquals(new BigDecimal("0.06490"), sink.book.getLevels(OrderType.SELL).lastKey());
+    assertTrue(sink.outOfSync.isEmpty());
+  }
+
+  @Test
+  public void testTickerIsDecoded() {
+    protocol.decode(
+        "[1235,{\"a\":[\"0.05010\",1,\"1.000\"],\"b\":[\"0.05000\",2,\"2.000\"],"
+            + "\"c\":[\"0.05005\",\"0.5\"],\"v\":[\"100.1\",\"250.25\"],"
+            + "\"p\":[\"0.05001\",\"0.05002\"],\"t\":[10,20],\"l\":[\"0.04900\",\"0.04800\"],"
+            + "\"h\":[\"0.05100\",\"0.05200\"],\"o\":[\"0.04950\",\"0.04940\"]},"
+            + "\"ticker\",\"ETH/XBT\"]",
+        sink);
+
+    assertEquals(MARKET_ID, sink.marketId);
+    assertEquals(new BigDecimal("0.05005"), sink.ticker.getLast());
+    assertEquals(new BigDecimal("0.05000"), sink.ticker.getBid());
+    assertEquals(new BigDecimal("0.05010"), sink.ticker.getAsk());
+    assertEquals(new BigDecimal("0.04800"), sink.ticker.getLow());
+    assertEquals(new BigDecimal("0.05200"), sink.ticker.getHigh());
+    assertEquals(new BigDecimal("0.04950"), sink.ticker.getOpen());
+    assertEquals(new BigDecimal("250.25"), sink.ticker.getVolume());
+    assertEquals(new BigDecimal("0.05002"), sink.ticker.getVwap());
+    assertNull(sink.ticker.getTimestamp());
+  }
+
+  @Test
+  public void testEventsAndMessagesForUnknownPairsAreIgnored() {
+    protocol.decode("{\"event\":\"heartbeat\"}", sink);
+    protocol.decode(
+        "{\"connectionID\":1,\"event\":\"systemStatus\",\"status\":\"online\",\"version\":\"1\"}",
+        sink);
+    protocol.decode(
+        "{\"event\":\"subscriptionStatus\",\"status\":\"subscribed\",\"pair\":\"ETH/XBT\"}", sink);
+    protocol.decode(
+        "{\"errorMessage\":\"Currency pair not supported\",\"event\":\"subscriptionStatus\","
+            + "\"status\":\"error\",\"pair\":\"XBT/FOO\"}",
+        sink);
+    protocol.decode(BOOK_SNAPSHOT.replace(PAIR, "XBT/USD"), sink);
+
+    assertEquals(0, sink.snapshots);
+    assertNull(sink.marketId);
+  }
+
+  private static String levels(String... prices) {
+    final StringBuilder levels = new StringBuilder();
+    for (final String price : prices) {
+      levels.append(levels.length() == 0 ? "" : ",");
+      levels.append("[\"").append(price).append("\",\"0.00000500\",\"1582905487.684110\"]");
+    }
+    return levels.toString();
+  }
+
+  /** Applies the decoded feed to a book. */
+  private static class RecordingSink implements MarketDataSink {
+
+    private final LocalOrderBook book = new LocalOrderBook();
+    private final List<String> outOfSync = new ArrayList<>();
+    private String marketId;
+    private Ticker ticker;
+    private int snapshots;
+    private int updates;
+    private boolean dropUpdates;
+
+    @Override
+    public void onSnapshot(String marketId, long sequence, Consumer<LocalOrderBook> snapshot) {
+      this.marketId = marketId;
+      snapshots++;
+      book.clear();
+      snapshot.accept(book);
+    }
+
+    @Override
+    public boolean onUpdate(String marketId, long sequence, Consumer<LocalOrderBook> update) {
+      if (dropUpdates) {
+        return false;
+      }
+      this.marketId = marketId;
+      updates++;
+      update.accept(book);
+      return true;
+    }
+
+    @Override
+    public void onTicker(String marketId, Ticker ticker) {
+      this.marketId = marketId;
+      this.ticker = ticker;
+    }
+
+    @Override
+    public void onOutOfSync(String marketId, String reason) {
+      outOfSync.add(marketId + ": " + reason);
+    }
+
+    @Override
+    public void reconnect(String reason) {
+      throw new AssertionError("Kraken books are resynced by resubscribing");
+    }
+  }
+}
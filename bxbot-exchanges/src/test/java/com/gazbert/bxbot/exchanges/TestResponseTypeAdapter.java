@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.gazbert.bxbot.exchanges.trading.api.impl.MarketOrderImpl;
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.OrderType;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the Response Type Adapter helpers behave as expected.
+ *
+ * @author gazbert
+ */
+public class TestResponseTypeAdapter {
+
+  private static final int BOOK_DEPTH = 1000;
+
+  private final Gson gson =
+      new GsonBuilder().registerTypeAdapter(TestBook.class, new TestBookTypeAdapter()).create();
+
+  @Test
+  public void testReadsPriceLevelArraysAndSkipsExtraValues() {
+    final TestBook book =
+        gson.fromJson(
+            "{\"bids\":[[\"521.86\",\"0.5\",1442080762],[519.58,2]],\"seq\":1}", TestBook.class);
+
+    assertEquals(2, book.bids.size());
+    assertMarketOrder(book.bids.get(0), OrderType.BUY, "521.86", "0.5", "260.930");
+    assertMarketOrder(book.bids.get(1), OrderType.BUY, "519.58", "2", "1039.16");
+  }
+
+  @Test
+  public void testReadsPriceLevelObjectsAndSkipsOtherFields() {
+    final TestBook book =
+        gson.fromJson(
+            "{\"asks\":[{\"timestamp\":\"1442080762.0\",\"amount\":\"0.25\",\"price\":\"522.1\"}]}",
+            TestBook.class);
+
+    assertEquals(1, book.asks.size());
+    assertMarketOrder(book.asks.get(0), OrderType.SELL, "522.1", "0.25", "130.525");
+  }
+
+  @Test
+  public void testJsonNullDecodesToNullResponseAndEmptyBookSide() {
+    assertNull(gson.fromJson("null", TestBook.class));
+
+    final TestBook book = gson.fromJson("{\"bids\":null,\"asks\":null}", TestBook.class);
+    assertTrue(book.bids.isEmpty());
+    assertTrue(book.asks.isEmpty());
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void testPriceLevelWithoutQuantityIsRejected() {
+    gson.fromJson("{\"asks\":[{\"price\":\"522.1\"}]}", TestBook.class);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testResponsesAreNeverSerialized() {
+    gson.toJson(new TestBook(), TestBook.class, new StringWriter());
+  }
+
+  /*
+   * Compares the bytes allocated by the calling thread when decoding a 1000 level order book with
+   * the type adapter, and with reflective binding into lists of BigDecimals that are then copied
+   * into MarketOrders - the way the adapters used to do it.
+   */
+  @Test
+  public void testTypeAdapterAllocatesLessThanReflectiveDecodeAndCopy() {
+    final com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(
+        threadMxBean.isThreadAllocatedMemorySupported()
+            && threadMxBean.isThreadAllocatedMemoryEnabled());
+
+    final String json = createOrderBookJson();
+    final Gson reflectiveGson = new Gson();
+    final int iterations = 20;
+    final long threadId = Thread.currentThread().getId();
+    long adapterBytes = 0;
+    long reflectiveBytes = 0;
+    long adapterNanos = 0;
+    long reflectiveNanos = 0;
+    for (int run = 0; run < 2; run++) { // 1st run warms up
+      final long adapterStart = threadMxBean.getThreadAllocatedBytes(threadId);
+      final long adapterStartNanos = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        assertEquals(BOOK_DEPTH, gson.fromJson(json, TestBook.class).bids.size());
+      }
+      final long reflectiveStart = threadMxBean.getThreadAllocatedBytes(threadId);
+      final long reflectiveStartNanos = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        final ReflectiveBook book = reflectiveGson.fromJson(json, ReflectiveBook.class);
+        final List<MarketOrder> bids = new ArrayList<>();
+        for (final List<BigDecimal> level : book.bids) {
+          bids.add(
+              new MarketOrderImpl(
+                  OrderType.BUY, level.get(0), level.get(1), level.get(0).multiply(level.get(1))));
+        }
+        assertEquals(BOOK_DEPTH, bids.size());
+      }
+      final long end = threadMxBean.getThreadAllocatedBytes(threadId);
+      final long endNanos = System.nanoTime();
+      adapterBytes = (reflectiveStart - adapterStart) / iterations;
+      reflectiveBytes = (end - reflectiveStart) / iterations;
+      adapterNanos = (reflectiveStartNanos - adapterStartNanos) / iterations;
+      reflectiveNanos = (endNanos - reflectiveStartNanos) / iterations;
+    }
+
+    // decode times are reported, not asserted - they are too noisy on a shared build box
+    assertTrue(
+        String.format(
+            "Per book: type adapter allocated %d bytes in %d ns, reflective allocated %d bytes in"
+                + " %d ns",
+            adapterBytes, adapterNanos, reflectiveBytes, reflectiveNanos),
+        adapterBytes < reflectiveBytes);
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  private static void assertMarketOrder(
+      MarketOrder marketOrder, OrderType type, String price, String quantity, String total) {
+    assertEquals(type, marketOrder.getType());
+    assertEquals(new BigDecimal(price), marketOrder.getPrice());
+    assertEquals(new BigDecimal(quantity), marketOrder.getQuantity());
+    assertEquals(new BigDecimal(total), marketOrder.getTotal());
+  }
+
+  private static String createOrderBookJson() {
+    final StringBuilder json = new StringBuilder("{\"bids\":[");
+    for (int i = 0; i < BOOK_DEPTH; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("[\"")
+          .append(52_186 + i)
+          .append(".25\",\"0.")
+          .append(1_000 + i)
+          .append("\",1442080762]");
+    }
+    return json.append("]}").toString();
+  }
+
+  /** Order book decoded by the test book type adapter. */
+  private static class TestBook {
+    List<MarketOrder> bids;
+    List<MarketOrder> asks;
+  }
+
+  /** Order book decoded reflectively by Gson. */
+  private static class ReflectiveBook {
+    List<List<BigDecimal>> bids;
+  }
+
+  /** Decodes bids as price level arrays and asks as price level objects. */
+  private static class TestBookTypeAdapter extends ResponseTypeAdapter<TestBook> {
+
+    @Override
+    TestBook readResponse(JsonReader in) throws IOException {
+      final TestBook book = new TestBook();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "bids":
+            book.bids = readPriceLevelArrays(in, OrderType.BUY);
+            break;
+          case "asks":
+            book.asks = readPriceLevelObjects(in, OrderType.SELL);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return book;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.TradingApiException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests Single Flight coalesces identical calls in flight at the same time.
+ *
+ * @author gazbert
+ */
+public class TestSingleFlight {
+
+  private static final int CALLER_COUNT = 4;
+
+  private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+  private final ExecutorService executorService = Executors.newFixedThreadPool(CALLER_COUNT);
+  private final AtomicInteger callsMade = new AtomicInteger();
+  private final CountDownLatch callStarted = new CountDownLatch(1);
+  private final CountDownLatch releaseCall = new CountDownLatch(1);
+
+  /** Stops any callers still waiting. */
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentIdenticalCallsShareOneCall() throws Exception {
+    final List<Future<String>> results =
+        startCallers(
+            "order_book/btcusd",
+            () -> {
+              awaitRelease();
+              return "order book";
+            });
+
+    releaseCall.countDown();
+    for (final Future<String> result : results) {
+      assertEquals("order book", result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, callsMade.get());
+    assertEquals(CALLER_COUNT - 1, singleFlight.getCoalescedCount());
+  }
+
+  @Test
+  public void testFailureIsSharedWithEveryCaller() throws Exception {
+    final ExchangeNetworkException failure = new ExchangeNetworkException("503");
+    final List<Future<String>> results =
+        startCallers(
+            "ticker/btcusd",
+            () -> {
+              awaitRelease();
+              throw failure;
+            });
+
+    releaseCall.countDown();
+    for (final Future<String> result : results) {
+      try {
+        result.get(5, TimeUnit.SECONDS);
+        fail("Expected ExchangeNetworkException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof ExchangeNetworkException);
+        assertEquals("503", e.getCause().getMessage());
+      }
+    }
+    assertEquals(1, callsMade.get());
+  }
+
+  @Test
+  public void testTradingApiExceptionIsSharedAsTradingApiException() throws Exception {
+    final List<Future<String>> results =
+        startCallers(
+            "ticker/btcusd",
+            () -> {
+              awaitRelease();
+              throw new TradingApiException("400");
+            });
+
+    releaseCall.countDown();
+    for (final Future<String> result : results) {
+      try {
+        result.get(5, TimeUnit.SECONDS);
+        fail("Expected TradingApiException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof TradingApiException);
+      }
+    }
+  }
+
+  @Test
+  public void testUnexpectedFailureIsSharedWithEveryCaller() throws Exception {
+    final List<Future<String>> results =
+        startCallers(
+            "ticker/btcusd",
+            () -> {
+              awaitRelease();
+              throw new IllegalArgumentException("bad json");
+            });
+
+    releaseCall.countDown();
+    for (final Future<String> result : results) {
+      try {
+        result.get(5, TimeUnit.SECONDS);
+        fail("Expected RuntimeException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof RuntimeException);
+        assertEquals("bad json", e.getCause().getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testCallsForDifferentKeysAreNotCoalesced() throws Exception {
+    assertEquals("btcusd", singleFlight.execute("btcusd", () -> "btcusd"));
+    assertEquals("ethusd", singleFlight.execute("ethusd", () -> "ethusd"));
+    assertEquals(0, singleFlight.getCoalescedCount());
+  }
+
+  @Test
+  public void testResultsAreNotCachedOnceCallHasFinished() throws Exception {
+    final SingleFlight.Call<String> call = () -> "ticker-" + callsMade.incrementAndGet();
+    assertEquals("ticker-1", singleFlight.execute("btcusd", call));
+    assertEquals("ticker-2", singleFlight.execute("btcusd", call));
+  }
+
+  @Test
+  public void testInterruptWhilstWaitingForCallInFlightThrowsTradingApiException()
+      throws Exception {
+    final Future<String> leader =
+        executorService.submit(
+            () ->
+                singleFlight.execute(
+                    "btcusd",
+                    () -> {
+                      callStarted.countDown();
+                      awaitRelease();
+                      return "ticker";
+                    }));
+    assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+
+    Thread.currentThread().interrupt();
+    try {
+      singleFlight.execute("btcusd", () -> "not called");
+      fail("Expected TradingApiException");
+    } catch (TradingApiException e) {
+      assertTrue(Thread.interrupted()); // also clears the flag for the next test
+    }
+    releaseCall.countDown();
+    assertSame("ticker", leader.get(5, TimeUnit.SECONDS));
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  /*
+   * Starts the callers and waits until they have all joined the one call in flight.
+   */
+  private List<Future<String>> startCallers(String key, SingleFlight.Call<String> call)
+      throws Exception {
+    final SingleFlight.Call<String> countedCall =
+        () -> {
+          callsMade.incrementAndGet();
+          callStarted.countDown();
+          return call.call();
+        };
+    final List<Future<String>> results = new ArrayList<>();
+    results.add(executorService.submit(() -> singleFlight.execute(key, countedCall)));
+    assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+    for (int i = 1; i < CALLER_COUNT; i++) {
+      results.add(executorService.submit(() -> singleFlight.execute(key, countedCall)));
+    }
+
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (singleFlight.getCoalescedCount() < CALLER_COUNT - 1) {
+      assertTrue("Callers did not join the call in flight", System.nanoTime() < deadline);
+      Thread.sleep(5);
+    }
+    return results;
+  }
+
+  private void awaitRelease() throws TradingApiException {
+    try {
+      releaseCall.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TradingApiException("Interrupted", e);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.hedging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.gazbert.bxbot.trading.api.ExchangeNetworkException;
+import com.gazbert.bxbot.trading.api.TradingApiException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Request Hedger behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestRequestHedger {
+
+  private static final String ENDPOINT = "https://api.exchange.com/order_book";
+  private static final int MIN_SAMPLES = 3;
+
+  // Long enough for the original call to start before the hedge is sent.
+  private static final long WARM_UP_CALL_MILLIS = 20;
+
+  private ExecutorService executorService;
+  private AtomicInteger callsMade;
+  private CountDownLatch releaseSlowCall;
+
+  /** Creates the thread pool the requests race on. */
+  @Before
+  public void setupForEachTest() {
+    executorService = Executors.newCachedThreadPool();
+    callsMade = new AtomicInteger();
+    releaseSlowCall = new CountDownLatch(1);
+  }
+
+  /** Releases any slow call still waiting and stops the thread pool. */
+  @After
+  public void tearDownAfterEachTest() {
+    releaseSlowCall.countDown();
+    executorService.shutdownNow();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPercentileMustBeLessThan100() {
+    new RequestHedger(100, 5, executorService);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxExtraLoadMustBeMoreThan0() {
+    new RequestHedger(95, 0, executorService);
+  }
+
+  @Test
+  public void testCallsAreMadeOnCallerThreadUntilEnoughResponseTimesRecorded() throws Exception {
+    final RequestHedger hedger = createHedger(100);
+    final Thread callingThread = Thread.currentThread();
+    for (int i = 0; i < MIN_SAMPLES; i++) {
+      assertEquals(
+          "ok",
+          hedger.execute(
+              ENDPOINT,
+              () -> {
+                assertSame(callingThread, Thread.currentThread());
+                return "ok";
+              }));
+    }
+
+    final HedgingMetrics metrics = hedger.getMetrics();
+    assertEquals(MIN_SAMPLES, metrics.getRequestCount());
+    assertEquals(0, metrics.getHedgedRequestCount());
+    assertEquals(0.0, metrics.getExtraLoadPercent(), 0.0);
+  }
+
+  @Test
+  public void testSlowCallIsHedgedAndFirstResponseWins() throws Exception {
+    final RequestHedger hedger = createHedger(100);
+    warmUp(hedger, WARM_UP_CALL_MILLIS);
+
+    // 1st call is slow and waits for the hedge to answer
+    final String result =
+        hedger.execute(ENDPOINT, () -> callsMade.incrementAndGet() == 1 ? slowCall() : "hedge");
+
+    assertEquals("hedge", result);
+    assertEquals(2, callsMade.get());
+    final HedgingMetrics metrics = hedger.getMetrics();
+    assertEquals(MIN_SAMPLES + 1, metrics.getRequestCount());
+    assertEquals(1, metrics.getHedgedRequestCount());
+    assertEquals(1, metrics.getHedgeWinCount());
+    assertEquals(0, metrics.getBudgetExhaustedCount());
+    assertEquals(25.0, metrics.getExtraLoadPercent(), 0.0);
+    assertEquals(
+        "HedgingMetrics{requestCount=4, hedgedRequestCount=1, hedgeWinCount=1, "
+            + "budgetExhaustedCount=0}",
+        metrics.toString());
+  }
+
+  @Test
+  public void testFastCallIsNotHedged() throws Exception {
+    final RequestHedger hedger = createHedger(100);
+    warmUp(hedger, 200);
+
+    assertEquals("fast", hedger.execute(ENDPOINT, () -> "fast"));
+    assertEquals(0, hedger.getMetrics().getHedgedRequestCount());
+  }
+
+  @Test
+  public void testSlowCallIsNotHedgedOnceExtraLoadCapReached() throws Exception {
+    final RequestHedger hedger = createHedger(10);
+    warmUp(hedger, WARM_UP_CALL_MILLIS);
+
+    // 1 hedge in 4 calls would be 25% extra load
+    final String result =
+        hedger.execute(
+            ENDPOINT,
+            () -> {
+              callsMade.incrementAndGet();
+              sleep(100);
+              return "slow";
+            });
+
+    assertEquals("slow", result);
+    assertEquals(1, callsMade.get());
+    final HedgingMetrics metrics = hedger.getMetrics();
+    assertEquals(0, metrics.getHedgedRequestCount());
+    assertEquals(1, metrics.getBudgetExhaustedCount());
+  }
+
+  @Test
+  public void testSlowCallWinsIfHedgeFails() throws Exception {
+    final RequestHedger hedger = createHedger(100);
+    warmUp(hedger, WARM_UP_CALL_MILLIS);
+
+    final String result =
+        hedger.execute(
+            ENDPOINT,
+            () -> {
+              if (callsMade.incrementAndGet() == 1) {
+                sleep(100);
+                return "slow";
+              }
+              throw new ExchangeNetworkException("Hedge failed");
+            });
+
+    assertEquals("slow", result);
+    assertEquals(1, hedger.getMetrics().getHedgedRequestCount());
+    assertEquals(0, hedger.getMetrics().getHedgeWinCount());
+  }
+
+  @Test
+  public void testCallFailsIfSlowCallAndHedgeBothFail() throws Exception {
+    final RequestHedger hedger = createHedger(100);
+    warmUp(hedger, WARM_UP_CALL_MILLIS);
+
+    try {
+      hedger.execute(
+          ENDPOINT,
+          () -> {
+            if (callsMade.incrementAndGet() == 1) {
+              sleep(100);
+            }
+            throw new ExchangeNetworkException("Failed");
+          });
+      fail("Expected ExchangeNetworkException to be thrown");
+    } catch (ExchangeNetworkException e) {
+      assertEquals("Failed", e.getMessage());
+    }
+    assertEquals(2, callsMade.get());
+  }
+
+  @Test
+  public void testFailureIsRethrownIfCallFailsBeforeItIsHedged() throws Exception {
+    final RequestHedger hedger = createHedger(100);
+    warmUp(hedger, 200);
+
+    try {
+      hedger.execute(
+          ENDPOINT,
+          () -> {
+            callsMade.incrementAndGet();
+            throw new TradingApiException("Bad request");
+          });
+      fail("Expected TradingApiException to be thrown");
+    } catch (TradingApiException e) {
+      assertEquals("Bad request", e.getMessage());
+    }
+    assertEquals(1, callsMade.get());
+    assertEquals(0, hedger.getMetrics().getHedgedRequestCount());
+  }
+
+  @Test
+  public void testResponseTimesAreTrackedPerEndpoint() throws Exception {
+    final RequestHedger hedger = createHedger(100);
+    warmUp(hedger, WARM_UP_CALL_MILLIS);
+
+    final Thread callingThread = Thread.currentThread();
+    hedger.execute(
+        "https://api.exchange.com/ticker",
+        () -> {
+          assertSame(callingThread, Thread.currentThread());
+          return "ok";
+        });
+    assertEquals(0, hedger.getMetrics().getHedgedRequestCount());
+  }
+
+  @Test
+  public void testToStringShowsConfig() {
+    assertTrue(
+        createHedger(100)
+            .toString()
+            .startsWith("RequestHedger{latencyPercentile=50.0, maxExtraLoadPercent=100.0"));
+  }
+
+  private RequestHedger createHedger(double maxExtraLoadPercent) {
+    return new RequestHedger(50, maxExtraLoadPercent, executorService, 10, MIN_SAMPLES);
+  }
+
+  private static void warmUp(RequestHedger hedger, long callMillis) throws Exception {
+    for (int i = 0; i < MIN_SAMPLES; i++) {
+      hedger.execute(
+          ENDPOINT,
+          () -> {
+            sleep(callMillis);
+            return "warm";
+          });
+    }
+  }
+
+  private String slowCall() {
+    try {
+      releaseSlowCall.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return "slow";
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import static com.gazbert.bxbot.exchanges.transport.RequestPriority.ACCOUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Kraken Call Counter Rate Limiter behaves as expected. Uses a fake clock that is moved
+ * forward whenever a call sleeps.
+ *
+ * @author gazbert
+ */
+public class TestKrakenCallCounterRateLimiter {
+
+  private static final Duration MAX_WAIT = Duration.ofSeconds(30);
+
+  private long nowNanos;
+  private List<Long> sleeps;
+  private KrakenCallCounterRateLimiter rateLimiter;
+
+  /** Creates a limiter for an Intermediate tier account: max 20, decays 0.5 per second. */
+  @Before
+  public void setupForEachTest() {
+    nowNanos = 0;
+    sleeps = new ArrayList<>();
+    rateLimiter =
+        new KrakenCallCounterRateLimiter(
+            20,
+            0.5,
+            () -> nowNanos,
+            nanos -> {
+              sleeps.add(nanos);
+              nowNanos += nanos;
+            });
+  }
+
+  @Test
+  public void testCounterIsIncreasedByCallCost() throws Exception {
+    assertTrue(rateLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    assertTrue(rateLimiter.tryAcquire(2, ACCOUNT, MAX_WAIT)); // e.g. Ledgers
+    assertEquals(3.0, rateLimiter.getCounter(), 0.0);
+    assertTrue(sleeps.isEmpty());
+  }
+
+  @Test
+  public void testCounterDecaysOverTime() throws Exception {
+    assertTrue(rateLimiter.tryAcquire(10, ACCOUNT, MAX_WAIT));
+    nowNanos += TimeUnit.SECONDS.toNanos(4);
+    assertTrue(rateLimiter.tryAcquire(0, ACCOUNT, MAX_WAIT));
+    assertEquals(8.0, rateLimiter.getCounter(), 0.0);
+
+    nowNanos += TimeUnit.SECONDS.toNanos(60);
+    assertTrue(rateLimiter.tryAcquire(0, ACCOUNT, MAX_WAIT));
+    assertEquals(0.0, rateLimiter.getCounter(), 0.0); // never goes below 0
+  }
+
+  @Test
+  public void testCallIsHeldBackUntilCounterHasDecayedBelowMax() throws Exception {
+    assertTrue(rateLimiter.tryAcquire(20, ACCOUNT, MAX_WAIT));
+    assertTrue(rateLimiter.tryAcquire(2, ACCOUNT, MAX_WAIT));
+
+    // counter must decay by 2 at 0.5 per second
+    assertEquals(1, sleeps.size());
+    assertEquals(TimeUnit.SECONDS.toNanos(4), (long) sleeps.get(0));
+    assertEquals(1, rateLimiter.getMetrics().getThrottledCallCount());
+    assertEquals(Duration.ofSeconds(4), rateLimiter.getMetrics().getMaxWaitTime());
+  }
+
+  @Test
+  public void testCallIsRejectedIfCounterWillNotDecayInTime() throws Exception {
+    assertTrue(rateLimiter.tryAcquire(20, ACCOUNT, MAX_WAIT));
+    assertFalse(rateLimiter.tryAcquire(1, ACCOUNT, Duration.ofSeconds(1)));
+    assertEquals(20.0, rateLimiter.getCounter(), 0.0);
+    assertEquals(1, rateLimiter.getMetrics().getRejectedCallCount());
+  }
+
+  @Test
+  public void testRateLimitExceededSetsCounterToMax() throws Exception {
+    rateLimiter.onRateLimitExceeded();
+    assertEquals(20.0, rateLimiter.getCounter(), 0.0);
+    assertTrue(rateLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    assertEquals(TimeUnit.SECONDS.toNanos(2), (long) sleeps.get(0));
+  }
+
+  @Test
+  public void testRealClockIsUsedByDefault() throws Exception {
+    final KrakenCallCounterRateLimiter defaultLimiter =
+        new KrakenCallCounterRateLimiter(
+            KrakenCallCounterRateLimiter.DEFAULT_MAX_COUNTER,
+            KrakenCallCounterRateLimiter.DEFAULT_DECAY_PER_SECOND);
+    assertTrue(defaultLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    assertEquals(1, defaultLimiter.getMetrics().getCallCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxCounterMustBeAtLeastOne() {
+    new KrakenCallCounterRateLimiter(0, 0.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecayPerSecondMustBeGreaterThanZero() {
+    new KrakenCallCounterRateLimiter(20, -1.0);
+  }
+}
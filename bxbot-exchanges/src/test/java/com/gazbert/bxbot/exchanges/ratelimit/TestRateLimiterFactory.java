@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the Rate Limiter Factory creates the configured rate limiters.
+ *
+ * @author gazbert
+ */
+public class TestRateLimiterFactory {
+
+  @Test
+  public void testNoRateLimiterIsCreatedIfNotConfigured() {
+    assertNull(RateLimiterFactory.createRateLimiter(null, 10, 1.0));
+  }
+
+  @Test
+  public void testTokenBucketIsCreated() {
+    final RateLimiter rateLimiter =
+        RateLimiterFactory.createRateLimiter(RateLimiterFactory.TOKEN_BUCKET, 8, 1.0);
+    assertTrue(rateLimiter instanceof TokenBucketRateLimiter);
+    assertEquals(
+        "TokenBucketRateLimiter{burst=8, tokensPerSecond=1.0}", rateLimiter.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTokenBucketMustHaveBurst() {
+    RateLimiterFactory.createRateLimiter(RateLimiterFactory.TOKEN_BUCKET, null, 1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTokenBucketMustHaveCallsPerSecond() {
+    RateLimiterFactory.createRateLimiter(RateLimiterFactory.TOKEN_BUCKET, 8, null);
+  }
+
+  @Test
+  public void testKrakenCounterDefaultsToStarterTier() {
+    final RateLimiter rateLimiter =
+        RateLimiterFactory.createRateLimiter(RateLimiterFactory.KRAKEN_COUNTER, null, null);
+    assertTrue(rateLimiter instanceof KrakenCallCounterRateLimiter);
+    assertEquals(
+        "KrakenCallCounterRateLimiter{maxCounter=15, decayPerSecond=0.33}",
+        rateLimiter.toString());
+  }
+
+  @Test
+  public void testKrakenCounterIsCreatedForConfiguredTier() {
+    final RateLimiter rateLimiter =
+        RateLimiterFactory.createRateLimiter(RateLimiterFactory.KRAKEN_COUNTER, 20, 1.0);
+    assertEquals(
+        "KrakenCallCounterRateLimiter{maxCounter=20, decayPerSecond=1.0}", rateLimiter.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownRateLimiterIsRejected() {
+    RateLimiterFactory.createRateLimiter("leaky-bucket", 8, 1.0);
+  }
+}
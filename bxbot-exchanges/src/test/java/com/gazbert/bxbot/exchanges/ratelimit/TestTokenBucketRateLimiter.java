@@ -0,0 +1,311 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.ratelimit;
+
+import static com.gazbert.bxbot.exchanges.transport.RequestPriority.ACCOUNT;
+import static com.gazbert.bxbot.exchanges.transport.RequestPriority.MARKET_DATA;
+import static com.gazbert.bxbot.exchanges.transport.RequestPriority.TRADING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Token Bucket Rate Limiter behaves as expected. Uses a fake clock that is moved forward
+ * whenever a call sleeps.
+ *
+ * @author gazbert
+ */
+public class TestTokenBucketRateLimiter {
+
+  private static final Duration MAX_WAIT = Duration.ofSeconds(30);
+
+  private long nowNanos;
+  private List<Long> sleeps;
+  private TokenBucketRateLimiter rateLimiter;
+
+  /** Creates a limiter with a bucket of 3 tokens, refilled at 2 tokens per second. */
+  @Before
+  public void setupForEachTest() {
+    nowNanos = 1_000_000L;
+    sleeps = new ArrayList<>();
+    rateLimiter =
+        new TokenBucketRateLimiter(
+            3,
+            2.0,
+            () -> nowNanos,
+            nanos -> {
+              sleeps.add(nanos);
+              nowNanos += nanos;
+            });
+  }
+
+  @Test
+  public void testMetricsAreEmptyBeforeFirstCall() {
+    final RateLimiterMetrics metrics = rateLimiter.getMetrics();
+    assertEquals(0, metrics.getCallCount());
+    assertEquals(0, metrics.getThrottledCallCount());
+    assertEquals(0, metrics.getRejectedCallCount());
+    assertEquals(Duration.ZERO, metrics.getMeanWaitTime());
+    assertEquals(
+        "RateLimiterMetrics{callCount=0, throttledCallCount=0, rejectedCallCount=0, queueDepth=0,"
+            + " maxQueueDepth=0, totalWaitTime=PT0S, maxWaitTime=PT0S}",
+        metrics.toString());
+  }
+
+  @Test
+  public void testBurstIsNotHeldBack() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertTrue(rateLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    }
+    assertTrue(sleeps.isEmpty());
+    assertEquals(0.0, rateLimiter.getTokens(), 0.0);
+  }
+
+  @Test
+  public void testCallsAfterBurstAreSpacedAtRefillRate() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      assertTrue(rateLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    }
+    assertEquals(2, sleeps.size());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), (long) sleeps.get(0));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), (long) sleeps.get(1));
+
+    final RateLimiterMetrics metrics = rateLimiter.getMetrics();
+    assertEquals(5, metrics.getCallCount());
+    assertEquals(2, metrics.getThrottledCallCount());
+    assertEquals(Duration.ofSeconds(1), metrics.getTotalWaitTime());
+    assertEquals(Duration.ofMillis(500), metrics.getMaxWaitTime());
+    assertEquals(Duration.ofMillis(200), metrics.getMeanWaitTime());
+    assertEquals(0, metrics.getQueueDepth());
+    assertEquals(1, metrics.getMaxQueueDepth());
+  }
+
+  @Test
+  public void testBucketIsRefilledUpToBurst() throws Exception {
+    assertTrue(rateLimiter.tryAcquire(3, ACCOUNT, MAX_WAIT));
+    nowNanos += TimeUnit.SECONDS.toNanos(60);
+    assertEquals(0.0, rateLimiter.getTokens(), 0.0); // only refilled when a call is made
+    assertTrue(rateLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    assertEquals(2.0, rateLimiter.getTokens(), 0.0);
+  }
+
+  @Test
+  public void testCallIsRejectedWithoutWaitingIfWaitWouldExceedMaxWait() throws Exception {
+    assertTrue(rateLimiter.tryAcquire(3, ACCOUNT, MAX_WAIT));
+    assertFalse(rateLimiter.tryAcquire(3, ACCOUNT, Duration.ofSeconds(1)));
+    assertTrue(sleeps.isEmpty());
+    assertEquals(0.0, rateLimiter.getTokens(), 0.0); // nothing reserved
+    assertEquals(1, rateLimiter.getMetrics().getRejectedCallCount());
+  }
+
+  @Test
+  public void testCallThatCostsNothingIsNeverHeldBack() throws Exception {
+    assertTrue(rateLimiter.tryAcquire(3, ACCOUNT, MAX_WAIT));
+    assertTrue(rateLimiter.tryAcquire(0, ACCOUNT, Duration.ZERO));
+    assertTrue(sleeps.isEmpty());
+  }
+
+  @Test
+  public void testRateLimitExceededDrainsBucket() throws Exception {
+    rateLimiter.onRateLimitExceeded();
+    assertTrue(rateLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), (long) sleeps.get(0));
+  }
+
+  @Test
+  public void testWaitingCallsAreQueuedInOrder() throws Exception {
+    final FakeClock clock = new FakeClock();
+    final TokenBucketRateLimiter queuingLimiter =
+        new TokenBucketRateLimiter(1, 1.0, clock::nanoTime, clock::sleep);
+    assertTrue(queuingLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Boolean> first =
+          executorService.submit(() -> queuingLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+      clock.awaitSleepers(1);
+      final Future<Boolean> second =
+          executorService.submit(() -> queuingLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+      clock.awaitSleepers(2);
+
+      assertEquals(2, queuingLimiter.getMetrics().getQueueDepth());
+      // 2nd waiter has to wait for the 1st waiter's token too
+      assertEquals(
+          Arrays.asList(TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(2)), clock.sleeps);
+
+      clock.advance(Duration.ofSeconds(1));
+      assertTrue(first.get(5, TimeUnit.SECONDS));
+      assertFalse(second.isDone());
+
+      clock.advance(Duration.ofSeconds(1));
+      assertTrue(second.get(5, TimeUnit.SECONDS));
+      assertEquals(0, queuingLimiter.getMetrics().getQueueDepth());
+      assertEquals(2, queuingLimiter.getMetrics().getMaxQueueDepth());
+      assertEquals(2, queuingLimiter.getMetrics().getThrottledCallCount());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTradingCallIsServedAheadOfQueuedMarketDataCalls() throws Exception {
+    final FakeClock clock = new FakeClock();
+    final TokenBucketRateLimiter queuingLimiter =
+        new TokenBucketRateLimiter(1, 1.0, clock::nanoTime, clock::sleep);
+    assertTrue(queuingLimiter.tryAcquire(1, MARKET_DATA, MAX_WAIT));
+
+    final int marketDataCalls = 3;
+    final ExecutorService executorService = Executors.newFixedThreadPool(marketDataCalls + 1);
+    try {
+      final List<Future<Boolean>> marketData = new ArrayList<>();
+      for (int i = 0; i < marketDataCalls; i++) {
+        marketData.add(
+            executorService.submit(() -> queuingLimiter.tryAcquire(1, MARKET_DATA, MAX_WAIT)));
+        clock.awaitSleepers(i + 1);
+      }
+      final Future<Boolean> trading =
+          executorService.submit(() -> queuingLimiter.tryAcquire(1, TRADING, MAX_WAIT));
+      clock.awaitSleepers(marketDataCalls + 1);
+
+      // the trading call only waits for the next token, not the market data calls' tokens
+      assertEquals(TimeUnit.SECONDS.toNanos(1), (long) clock.sleeps.get(marketDataCalls));
+
+      clock.advance(Duration.ofSeconds(1));
+      assertTrue(trading.get(5, TimeUnit.SECONDS));
+      for (final Future<Boolean> call : marketData) {
+        assertFalse(call.isDone());
+      }
+
+      clock.advance(Duration.ofSeconds(1));
+      assertTrue(marketData.get(0).get(5, TimeUnit.SECONDS));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWaitingCallIsRejectedIfOvertakenPastMaxWait() throws Exception {
+    final FakeClock clock = new FakeClock();
+    final TokenBucketRateLimiter queuingLimiter =
+        new TokenBucketRateLimiter(1, 1.0, clock::nanoTime, clock::sleep);
+    assertTrue(queuingLimiter.tryAcquire(1, MARKET_DATA, MAX_WAIT));
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Boolean> marketData =
+          executorService.submit(
+              () -> queuingLimiter.tryAcquire(1, MARKET_DATA, Duration.ofMillis(1500)));
+      clock.awaitSleepers(1);
+      final Future<Boolean> trading =
+          executorService.submit(() -> queuingLimiter.tryAcquire(1, TRADING, MAX_WAIT));
+      clock.awaitSleepers(2);
+
+      clock.advance(Duration.ofSeconds(1));
+      assertTrue(trading.get(5, TimeUnit.SECONDS));
+      assertFalse(marketData.get(5, TimeUnit.SECONDS));
+      assertEquals(1, queuingLimiter.getMetrics().getRejectedCallCount());
+      assertEquals(0.0, queuingLimiter.getTokens(), 0.0); // nothing taken by the rejected call
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRealClockIsUsedByDefault() throws Exception {
+    final TokenBucketRateLimiter defaultLimiter = new TokenBucketRateLimiter(1, 1000.0);
+    assertTrue(defaultLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    assertTrue(defaultLimiter.tryAcquire(1, ACCOUNT, MAX_WAIT));
+    assertEquals(2, defaultLimiter.getMetrics().getCallCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativePermitsAreRejected() throws Exception {
+    rateLimiter.tryAcquire(-1, ACCOUNT, MAX_WAIT);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBurstMustBeAtLeastOne() {
+    new TokenBucketRateLimiter(0, 1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCallsPerSecondMustBeGreaterThanZero() {
+    new TokenBucketRateLimiter(1, 0.0);
+  }
+
+  /*
+   * Clock that is only moved forward by the test. A sleeping call wakes up once the clock has
+   * passed its wake up time.
+   */
+  private static class FakeClock {
+
+    private final List<Long> sleeps = Collections.synchronizedList(new ArrayList<>());
+    private long nowNanos;
+    private int sleeperCount;
+
+    synchronized long nanoTime() {
+      return nowNanos;
+    }
+
+    synchronized void sleep(long nanos) throws InterruptedException {
+      sleeps.add(nanos);
+      final long wakeNanos = nowNanos + nanos;
+      sleeperCount++;
+      notifyAll();
+      try {
+        while (nowNanos < wakeNanos) {
+          wait();
+        }
+      } finally {
+        sleeperCount--;
+      }
+    }
+
+    synchronized void advance(Duration duration) {
+      nowNanos += duration.toNanos();
+      notifyAll();
+    }
+
+    synchronized void awaitSleepers(int count) throws InterruptedException {
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (sleeperCount < count) {
+        assertTrue("Calls did not start waiting", System.nanoTime() < deadline);
+        wait(100);
+      }
+    }
+  }
+}
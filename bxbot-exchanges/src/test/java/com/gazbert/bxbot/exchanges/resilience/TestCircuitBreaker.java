@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Circuit Breaker behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestCircuitBreaker {
+
+  private static final int FAILURE_THRESHOLD = 3;
+  private static final Duration MIN_BACKOFF = Duration.ofSeconds(5);
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+  private AtomicLong nanoClock;
+  private double random;
+  private CircuitBreaker circuitBreaker;
+
+  /** Creates a breaker with a fake clock and no jitter. */
+  @Before
+  public void setupForEachTest() {
+    nanoClock = new AtomicLong();
+    random = 1.0;
+    circuitBreaker =
+        new CircuitBreaker(
+            FAILURE_THRESHOLD, MIN_BACKOFF, MAX_BACKOFF, nanoClock::get, () -> random);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFailureThresholdMustBeAtLeast1() {
+    new CircuitBreaker(0, MIN_BACKOFF, MAX_BACKOFF);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMinBackoffMustBeMoreThanZero() {
+    new CircuitBreaker(FAILURE_THRESHOLD, Duration.ZERO, MAX_BACKOFF);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxBackoffMustNotBeLessThanMinBackoff() {
+    new CircuitBreaker(FAILURE_THRESHOLD, MAX_BACKOFF, MIN_BACKOFF);
+  }
+
+  @Test
+  public void testBreakerOpensAfterConsecutiveFailures() {
+    failCalls(FAILURE_THRESHOLD - 1);
+    assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+
+    failCalls(1);
+    assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+    assertEquals(MIN_BACKOFF, circuitBreaker.getRemainingBackoff());
+
+    assertFalse(circuitBreaker.tryAcquirePermission());
+    assertEquals(1, circuitBreaker.getRejectedCallCount());
+  }
+
+  @Test
+  public void testSuccessResetsConsecutiveFailures() {
+    failCalls(FAILURE_THRESHOLD - 1);
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onSuccess();
+
+    failCalls(FAILURE_THRESHOLD - 1);
+    assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testOnlyOneProbeIsLetThroughWhenHalfOpen() {
+    failCalls(FAILURE_THRESHOLD);
+    advance(MIN_BACKOFF);
+    assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+
+    circuitBreaker.onSuccess();
+    assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void testReleasedProbeLetsAnotherProbeThrough() {
+    failCalls(FAILURE_THRESHOLD);
+    advance(MIN_BACKOFF);
+
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.releasePermission();
+    assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void testFailedProbeReopensBreakerWithDoubledBackoffUpToMax() {
+    failCalls(FAILURE_THRESHOLD);
+    assertEquals(Duration.ofSeconds(5), circuitBreaker.getRemainingBackoff());
+
+    Duration expectedBackoff = Duration.ofSeconds(10);
+    for (int i = 0; i < 4; i++) {
+      advance(circuitBreaker.getRemainingBackoff());
+      assertTrue(circuitBreaker.tryAcquirePermission());
+      circuitBreaker.onFailure();
+
+      assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+      assertEquals(expectedBackoff, circuitBreaker.getRemainingBackoff());
+      expectedBackoff = min(expectedBackoff.multipliedBy(2), MAX_BACKOFF);
+    }
+  }
+
+  @Test
+  public void testSuccessfulProbeResetsBackoff() {
+    failCalls(FAILURE_THRESHOLD);
+    advance(MIN_BACKOFF);
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onFailure();
+    advance(circuitBreaker.getRemainingBackoff());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onSuccess();
+
+    failCalls(FAILURE_THRESHOLD);
+    assertEquals(MIN_BACKOFF, circuitBreaker.getRemainingBackoff());
+  }
+
+  @Test
+  public void testJitterKeepsBreakerOpenForBetweenHalfAndAllOfBackoff() {
+    random = 0.0;
+    failCalls(FAILURE_THRESHOLD);
+    assertEquals(MIN_BACKOFF.dividedBy(2), circuitBreaker.getRemainingBackoff());
+
+    advance(circuitBreaker.getRemainingBackoff());
+    random = 0.5;
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onFailure();
+    assertEquals(Duration.ofMillis(7500), circuitBreaker.getRemainingBackoff());
+  }
+
+  private void failCalls(int count) {
+    for (int i = 0; i < count; i++) {
+      assertTrue(circuitBreaker.tryAcquirePermission());
+      circuitBreaker.onFailure();
+    }
+  }
+
+  private void advance(Duration duration) {
+    nanoClock.addAndGet(duration.toNanos());
+  }
+
+  private static Duration min(Duration a, Duration b) {
+    return a.compareTo(b) <= 0 ? a : b;
+  }
+}
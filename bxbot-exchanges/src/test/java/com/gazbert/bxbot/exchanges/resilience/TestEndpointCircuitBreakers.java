@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.exchange.api.CircuitBreakerState;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests the Endpoint Circuit Breakers behave as expected.
+ *
+ * @author gazbert
+ */
+public class TestEndpointCircuitBreakers {
+
+  private static final String TICKER_ENDPOINT = "https://api.exchange.com/ticker";
+  private static final String BALANCE_ENDPOINT = "https://api.exchange.com/balance";
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidConfigIsRejectedUpFront() {
+    new EndpointCircuitBreakers(0, Duration.ofSeconds(5), Duration.ofSeconds(30));
+  }
+
+  @Test
+  public void testEachEndpointHasItsOwnBreaker() {
+    final EndpointCircuitBreakers breakers =
+        new EndpointCircuitBreakers(1, Duration.ofSeconds(5), Duration.ofSeconds(30));
+    assertTrue(breakers.getStates().isEmpty());
+
+    final CircuitBreaker tickerBreaker = breakers.get(TICKER_ENDPOINT);
+    assertSame(tickerBreaker, breakers.get(TICKER_ENDPOINT));
+    assertNotSame(tickerBreaker, breakers.get(BALANCE_ENDPOINT));
+
+    assertTrue(tickerBreaker.tryAcquirePermission());
+    tickerBreaker.onFailure();
+
+    final Map<String, CircuitBreakerState> expectedStates = new LinkedHashMap<>();
+    expectedStates.put(BALANCE_ENDPOINT, CircuitBreakerState.CLOSED);
+    expectedStates.put(TICKER_ENDPOINT, CircuitBreakerState.OPEN);
+    assertEquals(expectedStates, breakers.getStates());
+    assertTrue(breakers.get(BALANCE_ENDPOINT).tryAcquirePermission());
+  }
+}
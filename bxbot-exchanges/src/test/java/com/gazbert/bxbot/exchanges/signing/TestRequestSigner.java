@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.signing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+/**
+ * Tests the Request Signer behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestRequestSigner {
+
+  private static final SecretKeySpec HMAC_SHA384_KEY =
+      new SecretKeySpec("notGonnaTellYa".getBytes(StandardCharsets.UTF_8), "HmacSHA384");
+  private static final SecretKeySpec HMAC_SHA512_KEY =
+      new SecretKeySpec("notGonnaTellYa".getBytes(StandardCharsets.UTF_8), "HmacSHA512");
+  private static final String PAYLOAD =
+      "{\"request\":\"/v1/order/new\",\"nonce\":\"1471609201093\","
+          + "\"symbol\":\"btcusd\",\"amount\":\"0.01\",\"price\":\"1000.00\","
+          + "\"side\":\"buy\",\"type\":\"exchange limit\"}";
+
+  @Test
+  public void testSignsToLowerAndUpperCaseHex() throws Exception {
+    final RequestSigner requestSigner = RequestSigner.create(HMAC_SHA384_KEY);
+    final String expectedSignature = toHexTheOldWay(referenceMac(HMAC_SHA384_KEY, PAYLOAD));
+
+    assertEquals(expectedSignature, requestSigner.reset().update(PAYLOAD).signToHex(false));
+    assertEquals(
+        expectedSignature.toUpperCase(), requestSigner.reset().update(PAYLOAD).signToHex(true));
+  }
+
+  @Test
+  public void testSignsToBase64() throws Exception {
+    final RequestSigner requestSigner = RequestSigner.create(HMAC_SHA512_KEY);
+    assertEquals(
+        Base64.getEncoder().encodeToString(referenceMac(HMAC_SHA512_KEY, PAYLOAD)),
+        requestSigner.reset().update(PAYLOAD.substring(0, 10)).update(PAYLOAD.substring(10))
+            .signToBase64());
+  }
+
+  @Test
+  public void testSignsWithSha256HashOfMessage() throws Exception {
+    final String path = "/0/private/Balance";
+    final String nonce = "1471609201093";
+    final String postData = "nonce=1471609201093";
+
+    final Mac mac = Mac.getInstance("HmacSHA512");
+    mac.init(HMAC_SHA512_KEY);
+    mac.update(path.getBytes(StandardCharsets.UTF_8));
+    mac.update(
+        MessageDigest.getInstance("SHA-256")
+            .digest((nonce + postData).getBytes(StandardCharsets.UTF_8)));
+    final String expectedSignature = Base64.getEncoder().encodeToString(mac.doFinal());
+
+    final RequestSigner requestSigner = RequestSigner.create(HMAC_SHA512_KEY);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(
+          expectedSignature,
+          requestSigner
+              .reset()
+              .update(path)
+              .updateWithSha256Of(nonce, new StringBuilder(postData))
+              .signToBase64());
+    }
+  }
+
+  @Test
+  public void testBase64EncodesTextTheSameAsTheJdk() throws Exception {
+    final RequestSigner requestSigner = RequestSigner.create(HMAC_SHA384_KEY);
+    final String[] texts = {
+      "",
+      "a",
+      "ab",
+      "abc",
+      "abcd",
+      "abcde",
+      PAYLOAD,
+      "£100 ½ €",
+      "🚀 to the moon",
+      "unpaired " + (char) 0xd83d + " surrogate " + (char) 0xde80,
+      "x".repeat(5000)
+    };
+    for (final String text : texts) {
+      assertEquals(
+          Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8)),
+          requestSigner.encodeBase64(text));
+    }
+  }
+
+  @Test
+  public void testLargeMessageThenSmallMessageAreSignedCorrectly() throws Exception {
+    final RequestSigner requestSigner = RequestSigner.create(HMAC_SHA512_KEY);
+    final String largePayload = PAYLOAD.repeat(100);
+    assertEquals(
+        Base64.getEncoder().encodeToString(referenceMac(HMAC_SHA512_KEY, largePayload)),
+        requestSigner.reset().update(largePayload).signToBase64());
+    assertEquals(
+        Base64.getEncoder().encodeToString(referenceMac(HMAC_SHA512_KEY, PAYLOAD)),
+        requestSigner.reset().update(PAYLOAD).signToBase64());
+  }
+
+  /*
+   * Compares the bytes allocated by the calling thread when signing a Gemini style request - base64
+   * encode the payload then hex encode the HMAC of it - with the signer, and the way the adapters
+   * used to do it.
+   */
+  @Test
+  public void testSigningAllocatesLessThanEncodingWithGetBytesAndStringFormat() throws Exception {
+    final com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(
+        threadMxBean.isThreadAllocatedMemorySupported()
+            && threadMxBean.isThreadAllocatedMemoryEnabled());
+
+    final RequestSigner requestSigner = RequestSigner.create(HMAC_SHA384_KEY);
+    final Mac mac = Mac.getInstance("HmacSHA384");
+    mac.init(HMAC_SHA384_KEY);
+
+    final int iterations = 1000;
+    final long threadId = Thread.currentThread().getId();
+    long signerBytes = 0;
+    long oldWayBytes = 0;
+    for (int run = 0; run < 2; run++) { // 1st run warms up
+      final long signerStart = threadMxBean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < iterations; i++) {
+        final String base64Payload = requestSigner.encodeBase64(PAYLOAD);
+        requestSigner.reset().update(base64Payload).signToHex(false);
+      }
+      final long oldWayStart = threadMxBean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < iterations; i++) {
+        final String base64Payload =
+            Base64.getEncoder().encodeToString(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+        mac.reset();
+        mac.update(base64Payload.getBytes(StandardCharsets.UTF_8));
+        toHexTheOldWay(mac.doFinal());
+      }
+      final long end = threadMxBean.getThreadAllocatedBytes(threadId);
+      signerBytes = oldWayStart - signerStart;
+      oldWayBytes = end - oldWayStart;
+    }
+
+    assertTrue(
+        "Signer allocated " + signerBytes + " bytes, old way allocated " + oldWayBytes + " bytes",
+        signerBytes * 4 < oldWayBytes);
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  private static byte[] referenceMac(SecretKeySpec keySpec, String message) throws Exception {
+    final Mac mac = Mac.getInstance(keySpec.getAlgorithm());
+    mac.init(keySpec);
+    return mac.doFinal(message.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String toHexTheOldWay(byte[] bytes) {
+    final StringBuilder hexString = new StringBuilder();
+    for (final byte aByte : bytes) {
+      hexString.append(String.format("%02x", aByte & 0xff));
+    }
+    return hexString.toString();
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minimal RFC 6455 WebSocket server on a free local port for testing market data streams
+ * against. It records the text messages clients send and lets tests push text messages, in one or
+ * more frames, and drop connections.
+ *
+ * @author gazbert
+ */
+final class StubWebSocketServer implements Closeable {
+
+  private static final long TIMEOUT_SECONDS = 5;
+  private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+  private static final int OPCODE_CONTINUATION = 0x0;
+  private static final int OPCODE_TEXT = 0x1;
+  private static final int OPCODE_CLOSE = 0x8;
+  private static final int OPCODE_PING = 0x9;
+  private static final int OPCODE_PONG = 0xA;
+
+  private final ServerSocket serverSocket;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final BlockingQueue<Connection> newConnections = new LinkedBlockingQueue<>();
+  private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+  StubWebSocketServer() throws IOException {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    executor.execute(this::acceptConnections);
+  }
+
+  URI getUri() {
+    return URI.create("ws://127.0.0.1:" + serverSocket.getLocalPort() + "/ws");
+  }
+
+  /** Waits for the next client to connect and complete the handshake. */
+  Connection awaitConnection() throws InterruptedException {
+    final Connection connection = newConnections.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    if (connection == null) {
+      throw new AssertionError("No client connected");
+    }
+    return connection;
+  }
+
+  /** Returns true if a client connects within the given time. */
+  boolean connectsWithin(long millis) throws InterruptedException {
+    return newConnections.poll(millis, TimeUnit.MILLISECONDS) != null;
+  }
+
+  int getConnectionCount() {
+    return connections.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    for (final Connection connection : connections) {
+      connection.drop();
+    }
+    executor.shutdownNow();
+  }
+
+  private void acceptConnections() {
+    while (!serverSocket.isClosed()) {
+      try {
+        final Connection connection = new Connection(serverSocket.accept());
+        executor.execute(connection::run);
+      } catch (IOException e) {
+        return; // closed
+      }
+    }
+  }
+
+  /** A client connection. */
+  final class Connection {
+
+    private final Socket socket;
+    private final BlockingQueue<String> receivedMessages = new LinkedBlockingQueue<>();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final Object writeLock = new Object();
+
+    private Connection(Socket socket) {
+      this.socket = socket;
+    }
+
+    /** Waits for the next text message the client sends. */
+    String awaitMessage() throws InterruptedException {
+      final String message = receivedMessages.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      if (message == null) {
+        throw new AssertionError("No message received");
+      }
+      return message;
+    }
+
+    /** Waits for the client to close the connection. */
+    boolean awaitClosed() throws InterruptedException {
+      return closed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    void send(String message) throws IOException {
+      sendFragmented(message, 1);
+    }
+
+    /** Sends a text message split over the given number of frames. */
+    void sendFragmented(String message, int frames) throws IOException {
+      final byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+      final int frameSize = (payload.length + frames - 1) / frames;
+      synchronized (writeLock) {
+        for (int frame = 0; frame < frames; frame++) {
+          final int from = Math.min(frame * frameSize, payload.length);
+          final int to = Math.min(from + frameSize, payload.length);
+          final boolean last = frame == frames - 1;
+          writeFrame(frame == 0 ? OPCODE_TEXT : OPCODE_CONTINUATION, last, payload, from, to);
+        }
+      }
+    }
+
+    /** Drops the connection without a close handshake. */
+    void drop() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // already closed
+      }
+      closed.countDown();
+    }
+
+    private void run() {
+      try {
+        final DataInputStream in = new DataInputStream(socket.getInputStream());
+        handshake(in);
+        connections.add(this);
+        newConnections.add(this);
+
+        final ByteArrayOutputStream message = new ByteArrayOutputStream();
+        while (true) {
+          final int firstByte = in.readUnsignedByte();
+          final int secondByte = in.readUnsignedByte();
+          final boolean last = (firstByte & 0x80) != 0;
+          final int opcode = firstByte & 0x0F;
+          final byte[] payload = readPayload(in, secondByte);
+          if (opcode == OPCODE_CLOSE) {
+            synchronized (writeLock) {
+              writeFrame(OPCODE_CLOSE, true, payload, 0, payload.length);
+            }
+            break;
+          } else if (opcode == OPCODE_PING) {
+            synchronized (writeLock) {
+              writeFrame(OPCODE_PONG, true, payload, 0, payload.length);
+            }
+          } else if (opcode == OPCODE_TEXT || opcode == OPCODE_CONTINUATION) {
+            message.write(payload);
+            if (last) {
+              receivedMessages.add(message.toString(StandardCharsets.UTF_8));
+              message.reset();
+            }
+          }
+        }
+      } catch (Exception e) {
+        // dropped by the client or the test
+      }
+      drop();
+    }
+
+    private void handshake(DataInputStream in) throws Exception {
+      String key = null;
+      for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+        if (line.toLowerCase(Locale.ROOT).startsWith("sec-websocket-key:")) {
+          key = line.substring(line.indexOf(':') + 1).trim();
+        }
+      }
+      final byte[] digest =
+          MessageDigest.getInstance("SHA-1")
+              .digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+      final String response =
+          "HTTP/1.1 101 Switching Protocols\r\n"
+              + "Upgrade: websocket\r\n"
+              + "Connection: Upgrade\r\n"
+              + "Sec-WebSocket-Accept: "
+              + Base64.getEncoder().encodeToString(digest)
+              + "\r\n\r\n";
+      synchronized (writeLock) {
+        socket.getOutputStream().write(response.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+      }
+    }
+
+    private String readLine(DataInputStream in) throws IOException {
+      final StringBuilder line = new StringBuilder();
+      for (int c = in.read(); c != '\n'; c = in.read()) {
+        if (c == -1) {
+          throw new IOException("Connection closed during handshake");
+        }
+        if (c != '\r') {
+          line.append((char) c);
+        }
+      }
+      return line.toString();
+    }
+
+    /* Client frames are always masked. */
+    private byte[] readPayload(DataInputStream in, int secondByte) throws IOException {
+      long length = secondByte & 0x7F;
+      if (length == 126) {
+        length = in.readUnsignedShort();
+      } else if (length == 127) {
+        length = in.readLong();
+      }
+      final byte[] mask = new byte[4];
+      if ((secondByte & 0x80) != 0) {
+        in.readFully(mask);
+      }
+      final byte[] payload = new byte[(int) length];
+      in.readFully(payload);
+      for (int i = 0; i < payload.length; i++) {
+        payload[i] ^= mask[i % 4];
+      }
+      return payload;
+    }
+
+    /* Server frames are never masked. */
+    private void writeFrame(int opcode, boolean last, byte[] payload, int from, int to)
+        throws IOException {
+      final OutputStream out = socket.getOutputStream();
+      final int length = to - from;
+      out.write((last ? 0x80 : 0) | opcode);
+      if (length < 126) {
+        out.write(length);
+      } else if (length <= 0xFFFF) {
+        out.write(126);
+        out.write(length >>> 8);
+        out.write(length & 0xFF);
+      } else {
+        out.write(127);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+          out.write((int) ((long) length >>> shift) & 0xFF);
+        }
+      }
+      out.write(payload, from, length);
+      out.flush();
+    }
+  }
+}
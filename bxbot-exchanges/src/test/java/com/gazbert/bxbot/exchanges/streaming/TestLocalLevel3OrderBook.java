@@ -0,0 +1,176 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.trading.api.Level3Order;
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OrderType;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests a Local Level 3 Order Book behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestLocalLevel3OrderBook {
+
+  private static final String MARKET_ID = "BTC-USD";
+  private static final BigDecimal ASK = new BigDecimal("101");
+  private static final BigDecimal BID = new BigDecimal("100");
+
+  private LocalLevel3OrderBook book;
+
+  /** Create a book with a queue of 3 bids at 100, a bid at 99, and 2 asks. */
+  @Before
+  public void setupBook() {
+    book = new LocalLevel3OrderBook();
+    book.addOrder("bid-1", OrderType.BUY, BID, new BigDecimal("1"));
+    book.addOrder("bid-2", OrderType.BUY, BID, new BigDecimal("2"));
+    book.addOrder("bid-3", OrderType.BUY, BID, new BigDecimal("3"));
+    book.addOrder("bid-4", OrderType.BUY, new BigDecimal("99"), new BigDecimal("4"));
+    book.addOrder("ask-1", OrderType.SELL, new BigDecimal("102"), new BigDecimal("5"));
+    book.addOrder("ask-2", OrderType.SELL, ASK, new BigDecimal("6"));
+  }
+
+  @Test
+  public void testOrdersAreQueuedInTimePriority() {
+    assertEquals(List.of("bid-1", "bid-2", "bid-3"), orderIds(OrderType.BUY, BID));
+    assertEquals(BigDecimal.ZERO, book.getQuantityAhead("bid-1"));
+    assertEquals(new BigDecimal("3"), book.getQuantityAhead("bid-3"));
+    assertEquals(new BigDecimal("6"), book.getLevelQuantity(OrderType.BUY, BID));
+    assertEquals(6, book.getOrderCount());
+
+    final Level3Order order = book.getOrder("bid-2");
+    assertEquals("bid-2", order.getId());
+    assertSame(OrderType.BUY, order.getType());
+    assertEquals(BID, order.getPrice());
+    assertEquals(new BigDecimal("2"), order.getQuantity());
+    assertTrue(order.toString().contains("bid-2"));
+  }
+
+  @Test
+  public void testRemovedOrderLeavesTheQueue() {
+    assertEquals(new BigDecimal("2"), book.removeOrder("bid-2").getQuantity());
+    assertNull(book.removeOrder("bid-2"));
+
+    assertNull(book.getOrder("bid-2"));
+    assertEquals(List.of("bid-1", "bid-3"), orderIds(OrderType.BUY, BID));
+    assertEquals(new BigDecimal("1"), book.getQuantityAhead("bid-3"));
+    assertEquals(new BigDecimal("4"), book.getLevelQuantity(OrderType.BUY, BID));
+
+    book.removeOrder("bid-1");
+    book.removeOrder("bid-3");
+    assertTrue(book.getOrders(OrderType.BUY, BID).isEmpty());
+    assertEquals(BigDecimal.ZERO, book.getLevelQuantity(OrderType.BUY, BID));
+    final MarketOrder bestBid = book.toMarketOrderBook(MARKET_ID, 0).getBuyOrders().get(0);
+    assertEquals(new BigDecimal("99"), bestBid.getPrice());
+  }
+
+  @Test
+  public void testChangedOrFilledOrderKeepsItsPlace() {
+    final Level3Order changed = book.changeOrder("bid-1", new BigDecimal("1.5"));
+    final Level3Order filled = book.fillOrder("bid-2", new BigDecimal("1.5"));
+
+    assertEquals(new BigDecimal("1.5"), changed.getQuantity());
+    assertEquals(new BigDecimal("0.5"), filled.getQuantity());
+
+    assertEquals(List.of("bid-1", "bid-2", "bid-3"), orderIds(OrderType.BUY, BID));
+    assertEquals(new BigDecimal("2.0"), book.getQuantityAhead("bid-3"));
+    assertEquals(new BigDecimal("5.0"), book.getLevelQuantity(OrderType.BUY, BID));
+
+    // a full fill removes the order
+    assertEquals(BigDecimal.ZERO, book.fillOrder("bid-1", new BigDecimal("1.5")).getQuantity());
+    assertNull(book.getOrder("bid-1"));
+    assertEquals(new BigDecimal("0.5"), book.getQuantityAhead("bid-3"));
+
+    assertNull(book.changeOrder("unknown", BigDecimal.ONE));
+    assertNull(book.fillOrder("unknown", BigDecimal.ONE));
+    assertNull(book.getQuantityAhead("unknown"));
+  }
+
+  @Test
+  public void testAddingAnOrderAgainMovesItToTheBack() {
+    book.addOrder("bid-1", OrderType.BUY, BID, new BigDecimal("7"));
+
+    assertEquals(List.of("bid-2", "bid-3", "bid-1"), orderIds(OrderType.BUY, BID));
+    assertEquals(new BigDecimal("12"), book.getLevelQuantity(OrderType.BUY, BID));
+    assertEquals(6, book.getOrderCount());
+  }
+
+  @Test
+  public void testLevelsAreAggregatedBestPriceFirst() {
+    final MarketOrderBook levels = book.toMarketOrderBook(MARKET_ID, 1);
+    assertEquals(MARKET_ID, levels.getMarketId());
+    assertEquals(1, levels.getBuyOrders().size());
+    assertEquals(1, levels.getSellOrders().size());
+
+    final MarketOrder bestBid = levels.getBuyOrders().get(0);
+    assertSame(OrderType.BUY, bestBid.getType());
+    assertEquals(BID, bestBid.getPrice());
+    assertEquals(new BigDecimal("6"), bestBid.getQuantity());
+    assertEquals(new BigDecimal("600"), bestBid.getTotal());
+    assertEquals(ASK, levels.getSellOrders().get(0).getPrice());
+
+    final MarketOrderBook allLevels = book.toMarketOrderBook(MARKET_ID, 0);
+    assertEquals(2, allLevels.getBuyOrders().size());
+    assertEquals(2, allLevels.getSellOrders().size());
+  }
+
+  @Test
+  public void testLevelsAreCopiedToALevel2Book() {
+    final LocalOrderBook levels = new LocalOrderBook();
+    book.copyLevelsTo(levels);
+
+    assertEquals(new BigDecimal("6"), levels.getLevels(OrderType.BUY).get(BID));
+    assertEquals(new BigDecimal("4"), levels.getLevels(OrderType.BUY).get(new BigDecimal("99")));
+    assertEquals(ASK, levels.getLevels(OrderType.SELL).firstKey());
+    assertEquals(2, levels.getLevels(OrderType.SELL).size());
+  }
+
+  @Test
+  public void testClearRemovesEveryOrder() {
+    book.clear();
+
+    assertEquals(0, book.getOrderCount());
+    assertNull(book.getOrder("ask-1"));
+    assertTrue(book.toMarketOrderBook(MARKET_ID, 0).getSellOrders().isEmpty());
+    assertTrue(book.toString().contains("orders=0"));
+  }
+
+  private List<String> orderIds(OrderType type, BigDecimal price) {
+    return book.getOrders(type, price).stream()
+        .map(Level3Order::getId)
+        .collect(Collectors.toList());
+  }
+}
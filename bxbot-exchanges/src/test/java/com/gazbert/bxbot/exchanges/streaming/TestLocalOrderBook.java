@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OrderType;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests a Local Order Book behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestLocalOrderBook {
+
+  private static final String MARKET_ID = "btcusd";
+
+  private LocalOrderBook book;
+
+  /** Create a book with 3 levels on each side, added out of order. */
+  @Before
+  public void setupBook() {
+    book = new LocalOrderBook();
+    book.setLevel(OrderType.SELL, new BigDecimal("101.5"), new BigDecimal("2"));
+    book.setLevel(OrderType.SELL, new BigDecimal("101"), new BigDecimal("1"));
+    book.setLevel(OrderType.SELL, new BigDecimal("102"), new BigDecimal("3"));
+    book.setLevel(OrderType.BUY, new BigDecimal("99.5"), new BigDecimal("5"));
+    book.setLevel(OrderType.BUY, new BigDecimal("100"), new BigDecimal("4"));
+    book.setLevel(OrderType.BUY, new BigDecimal("99"), new BigDecimal("6"));
+  }
+
+  @Test
+  public void testLevelsAreSortedBestPriceFirst() {
+    assertEquals(
+        Arrays.asList(new BigDecimal("101"), new BigDecimal("101.5"), new BigDecimal("102")),
+        Arrays.asList(book.getLevels(OrderType.SELL).keySet().toArray()));
+    assertEquals(
+        Arrays.asList(new BigDecimal("100"), new BigDecimal("99.5"), new BigDecimal("99")),
+        Arrays.asList(book.getLevels(OrderType.BUY).keySet().toArray()));
+  }
+
+  @Test
+  public void testSettingALevelReplacesItsQuantity() {
+    book.setLevel(OrderType.SELL, new BigDecimal("101.50"), new BigDecimal("7"));
+
+    assertEquals(3, book.getLevels(OrderType.SELL).size());
+    assertEquals(new BigDecimal("7"), book.getLevels(OrderType.SELL).get(new BigDecimal("101.5")));
+  }
+
+  @Test
+  public void testZeroQuantityOrRemoveDeletesALevel() {
+    book.setLevel(OrderType.SELL, new BigDecimal("101"), BigDecimal.ZERO);
+    book.removeLevel(OrderType.BUY, new BigDecimal("100"));
+    book.removeLevel(OrderType.BUY, new BigDecimal("42"));
+
+    assertEquals(new BigDecimal("101.5"), book.getLevels(OrderType.SELL).firstKey());
+    assertEquals(new BigDecimal("99.5"), book.getLevels(OrderType.BUY).firstKey());
+    assertEquals(2, book.getLevels(OrderType.BUY).size());
+  }
+
+  @Test
+  public void testTruncateDropsTheWorstLevels() {
+    book.truncate(2);
+
+    assertEquals(new BigDecimal("101.5"), book.getLevels(OrderType.SELL).lastKey());
+    assertEquals(new BigDecimal("99.5"), book.getLevels(OrderType.BUY).lastKey());
+    assertEquals(2, book.getLevels(OrderType.BUY).size());
+
+    book.truncate(5);
+    assertEquals(2, book.getLevels(OrderType.SELL).size());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testLevelsAreReadOnly() {
+    book.getLevels(OrderType.BUY).clear();
+  }
+
+  @Test
+  public void testClearRemovesEveryLevel() {
+    book.clear();
+
+    assertTrue(book.getLevels(OrderType.SELL).isEmpty());
+    assertTrue(book.getLevels(OrderType.BUY).isEmpty());
+    assertEquals(0, book.toMarketOrderBook(MARKET_ID, 0).getBuyOrders().size());
+  }
+
+  @Test
+  public void testMarketOrderBookHasTheBestLevelsUpToDepth() {
+    final MarketOrderBook orderBook = book.toMarketOrderBook(MARKET_ID, 2);
+
+    assertEquals(MARKET_ID, orderBook.getMarketId());
+    assertEquals(2, orderBook.getSellOrders().size());
+    assertEquals(2, orderBook.getBuyOrders().size());
+
+    final MarketOrder bestAsk = orderBook.getSellOrders().get(0);
+    assertEquals(OrderType.SELL, bestAsk.getType());
+    assertEquals(new BigDecimal("101"), bestAsk.getPrice());
+    assertEquals(new BigDecimal("1"), bestAsk.getQuantity());
+    assertEquals(new BigDecimal("101"), bestAsk.getTotal());
+
+    final MarketOrder secondBid = orderBook.getBuyOrders().get(1);
+    assertEquals(OrderType.BUY, secondBid.getType());
+    assertEquals(new BigDecimal("99.5"), secondBid.getPrice());
+    assertEquals(new BigDecimal("5"), secondBid.getQuantity());
+  }
+
+  @Test
+  public void testMarketOrderBookHasEveryLevelIfDepthIsZeroOrMoreThanTheBook() {
+    assertEquals(3, book.toMarketOrderBook(MARKET_ID, 0).getSellOrders().size());
+    assertEquals(3, book.toMarketOrderBook(MARKET_ID, 10).getBuyOrders().size());
+  }
+
+  @Test
+  public void testMarketOrderBookIsACopy() {
+    final MarketOrderBook orderBook = book.toMarketOrderBook(MARKET_ID, 0);
+    book.clear();
+
+    assertEquals(3, orderBook.getSellOrders().size());
+  }
+
+  @Test
+  public void testToString() {
+    assertEquals("LocalOrderBook{askLevels=3, bidLevels=3}", book.toString());
+  }
+}
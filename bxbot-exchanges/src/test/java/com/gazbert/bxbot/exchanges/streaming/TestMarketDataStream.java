@@ -0,0 +1,433 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.exchanges.trading.api.impl.TickerImpl;
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.MarketOrderBook;
+import com.gazbert.bxbot.trading.api.OrderType;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests a Market Data Stream behaves as expected against a local stub WebSocket server.
+ *
+ * <p>The stub exchange speaks a simple text protocol: {@code snapshot|market|sequence|levels},
+ * {@code update|market|sequence|levels}, {@code ticker|market|last}, {@code outofsync|market} and
+ * {@code reconnect}, where levels are {@code b:price:quantity} or {@code a:price:quantity}
+ * separated by commas.
+ *
+ * @author gazbert
+ */
+public class TestMarketDataStream {
+
+  private static final String MARKET_ID = "btcusd";
+  private static final Duration MIN_RECONNECT_DELAY = Duration.ofMillis(50);
+  private static final Duration MAX_RECONNECT_DELAY = Duration.ofMillis(200);
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  private StubWebSocketServer stubExchange;
+  private MarketDataStream stream;
+
+  /** Start a stub exchange on a free local port. */
+  @Before
+  public void setupStubExchange() throws Exception {
+    stubExchange = new StubWebSocketServer();
+  }
+
+  /** Close the stream and stop the stub exchange. */
+  @After
+  public void stopStubExchange() throws Exception {
+    if (stream != null) {
+      stream.close();
+    }
+    stubExchange.close();
+  }
+
+  @Test
+  public void testSubscribesAndKeepsLocalBookAndTickerUpToDate() throws Exception {
+    stream = createStream(Duration.ofSeconds(30));
+    stream.subscribe(MARKET_ID);
+    stream.start();
+
+    final StubWebSocketServer.Connection connection = stubExchange.awaitConnection();
+    assertEquals("hello", connection.awaitMessage());
+    assertEquals("subscribe:" + MARKET_ID, connection.awaitMessage());
+    awaitTrue(stream::isConnected);
+    assertNull(stream.getOrderBook(MARKET_ID, 0));
+    assertNull(stream.getTicker(MARKET_ID));
+
+    connection.send("snapshot|btcusd|10|a:101:1,a:102:2,b:100:3,b:99:4");
+    awaitTrue(() -> stream.getOrderBook(MARKET_ID, 0) != null);
+    MarketOrderBook orderBook = stream.getOrderBook(MARKET_ID, 1);
+    assertEquals(MARKET_ID, orderBook.getMarketId());
+    assertEquals(1, orderBook.getSellOrders().size());
+    assertEquals(new BigDecimal("101"), orderBook.getSellOrders().get(0).getPrice());
+    assertEquals(new BigDecimal("100"), orderBook.getBuyOrders().get(0).getPrice());
+
+    connection.send("update|btcusd|11|a:101:0,b:100.5:1");
+    connection.send("ticker|btcusd|100.75");
+    awaitTrue(() -> stream.getTicker(MARKET_ID) != null);
+    orderBook = stream.getOrderBook(MARKET_ID, 0);
+    assertEquals(1, orderBook.getSellOrders().size());
+    assertEquals(new BigDecimal("102"), orderBook.getSellOrders().get(0).getPrice());
+    assertEquals(3, orderBook.getBuyOrders().size());
+    assertEquals(new BigDecimal("100.5"), orderBook.getBuyOrders().get(0).getPrice());
+    assertEquals(new BigDecimal("100.75"), stream.getTicker(MARKET_ID).getLast());
+
+    assertNull(stream.getOrderBook("ltcusd", 0));
+    assertNull(stream.getTicker("ltcusd"));
+    assertEquals(1, stream.getConnectCount());
+    assertEquals(3, stream.getMessageCount());
+    assertEquals(0, stream.getSequenceGapCount());
+  }
+
+  @Test
+  public void testMarketSubscribedToWhilstConnectedIsSubscribedToStraightAway() throws Exception {
+    stream = createStream(Duration.ofSeconds(30));
+    stream.start();
+    final StubWebSocketServer.Connection connection = stubExchange.awaitConnection();
+    assertEquals("hello", connection.awaitMessage());
+    awaitTrue(stream::isConnected);
+
+    stream.subscribe(MARKET_ID);
+    stream.subscribe(MARKET_ID);
+    stream.subscribe("ltcusd");
+
+    assertEquals("subscribe:" + MARKET_ID, connection.awaitMessage());
+    assertEquals("subscribe:ltcusd", connection.awaitMessage());
+  }
+
+  @Test
+  public void testSequenceGapResyncsTheBookFromASnapshot() throws Exception {
+    final StubWebSocketServer.Connection connection = startSubscribedStream();
+    connection.send("snapshot|btcusd|10|a:101:1,b:100:3");
+    connection.send("update|btcusd|11|b:100:4");
+    awaitTrue(() -> stream.getMessageCount() == 2);
+    assertEquals(new BigDecimal("4"), bestBid().getQuantity());
+
+    connection.send("update|btcusd|13|b:100:5");
+    assertEquals("resync:" + MARKET_ID, connection.awaitMessage());
+    assertNull(stream.getOrderBook(MARKET_ID, 0));
+    assertEquals(1, stream.getSequenceGapCount());
+    assertEquals(1, stream.getResyncCount());
+
+    // updates are dropped until the snapshot arrives - and only 1 resync is requested
+    connection.send("update|btcusd|15|b:100:6");
+    awaitTrue(() -> stream.getMessageCount() == 4);
+    assertNull(stream.getOrderBook(MARKET_ID, 0));
+    assertEquals(1, stream.getResyncCount());
+
+    connection.send("snapshot|btcusd|20|a:101:1,b:100:7");
+    connection.send("update|btcusd|19|b:100:1"); // already in the snapshot
+    connection.send("update|btcusd|21|a:101:2");
+    awaitTrue(() -> stream.getMessageCount() == 7);
+    assertEquals(new BigDecimal("7"), bestBid().getQuantity());
+    final MarketOrder bestAsk = stream.getOrderBook(MARKET_ID, 0).getSellOrders().get(0);
+    assertEquals(new BigDecimal("2"), bestAsk.getQuantity());
+    assertEquals(1, stream.getSequenceGapCount());
+  }
+
+  @Test
+  public void testBookThatIsOutOfSyncIsResynced() throws Exception {
+    final StubWebSocketServer.Connection connection = startSubscribedStream();
+    connection.send("snapshot|btcusd|1|b:100:3");
+    awaitTrue(() -> stream.getOrderBook(MARKET_ID, 0) != null);
+
+    connection.send("outofsync|btcusd");
+    assertEquals("resync:" + MARKET_ID, connection.awaitMessage());
+    assertNull(stream.getOrderBook(MARKET_ID, 0));
+    assertEquals(0, stream.getSequenceGapCount());
+    assertEquals(1, stream.getResyncCount());
+
+    connection.send("snapshot|btcusd|2|b:100:8");
+    awaitTrue(() -> stream.getOrderBook(MARKET_ID, 0) != null);
+    assertEquals(new BigDecimal("8"), bestBid().getQuantity());
+  }
+
+  @Test
+  public void testReconnectsAndResubscribesWhenConnectionDrops() throws Exception {
+    final StubWebSocketServer.Connection connection = startSubscribedStream();
+    connection.send("snapshot|btcusd|1|b:100:3");
+    connection.send("ticker|btcusd|100");
+    awaitTrue(() -> stream.getTicker(MARKET_ID) != null);
+
+    connection.drop();
+    final StubWebSocketServer.Connection reconnection = stubExchange.awaitConnection();
+    assertEquals("hello", reconnection.awaitMessage());
+    assertEquals("subscribe:" + MARKET_ID, reconnection.awaitMessage());
+    assertEquals(2, stream.getConnectCount());
+
+    // stale data is not returned after reconnecting
+    assertNull(stream.getOrderBook(MARKET_ID, 0));
+    assertNull(stream.getTicker(MARKET_ID));
+
+    reconnection.send("snapshot|btcusd|1|b:100:9");
+    awaitTrue(() -> stream.getOrderBook(MARKET_ID, 0) != null);
+    assertEquals(new BigDecimal("9"), bestBid().getQuantity());
+  }
+
+  @Test
+  public void testReconnectsWhenNoMessageIsReceivedForTheIdleTimeout() throws Exception {
+    stream = createStream(Duration.ofMillis(300));
+    stream.subscribe(MARKET_ID);
+    stream.start();
+    stubExchange.awaitConnection();
+
+    final StubWebSocketServer.Connection reconnection = stubExchange.awaitConnection();
+    assertEquals("hello", reconnection.awaitMessage());
+    assertEquals("subscribe:" + MARKET_ID, reconnection.awaitMessage());
+  }
+
+  @Test
+  public void testReconnectsWhenMessageCannotBeDecoded() throws Exception {
+    final StubWebSocketServer.Connection connection = startSubscribedStream();
+    connection.send("garbage");
+
+    assertTrue(connection.awaitClosed());
+    final StubWebSocketServer.Connection reconnection = stubExchange.awaitConnection();
+    assertEquals("hello", reconnection.awaitMessage());
+  }
+
+  @Test
+  public void testReconnectsWhenProtocolAsksTo() throws Exception {
+    final StubWebSocketServer.Connection connection = startSubscribedStream();
+    connection.send("reconnect");
+
+    assertTrue(connection.awaitClosed());
+    final StubWebSocketServer.Connection reconnection = stubExchange.awaitConnection();
+    assertEquals("hello", reconnection.awaitMessage());
+    assertEquals("subscribe:" + MARKET_ID, reconnection.awaitMessage());
+  }
+
+  @Test
+  public void testFragmentedMessagesAreReassembled() throws Exception {
+    final StubWebSocketServer.Connection connection = startSubscribedStream();
+    connection.sendFragmented("snapshot|btcusd|1|a:101:1,b:100:3,b:99:4,b:98:5", 4);
+
+    awaitTrue(() -> stream.getOrderBook(MARKET_ID, 0) != null);
+    assertEquals(3, stream.getOrderBook(MARKET_ID, 0).getBuyOrders().size());
+    assertEquals(1, stream.getMessageCount());
+  }
+
+  @Test
+  public void testCloseDisconnectsAndStopsReconnecting() throws Exception {
+    final StubWebSocketServer.Connection connection = startSubscribedStream();
+    connection.send("snapshot|btcusd|1|b:100:3");
+    awaitTrue(() -> stream.getOrderBook(MARKET_ID, 0) != null);
+
+    stream.close();
+
+    assertTrue(connection.awaitClosed());
+    assertFalse(stream.isConnected());
+    assertNull(stream.getOrderBook(MARKET_ID, 0));
+    assertFalse(stubExchange.connectsWithin(500));
+
+    stream.start(); // cannot be restarted
+    assertFalse(stubExchange.connectsWithin(200));
+  }
+
+  @Test
+  public void testProtocolSendsNothingOnConnectAndResubscribesToResyncByDefault() {
+    final StreamProtocol protocol =
+        new StreamProtocol() {
+          @Override
+          public URI getUri() {
+            return stubExchange.getUri();
+          }
+
+          @Override
+          public List<String> createSubscribeMessages(String marketId) {
+            return List.of("subscribe:" + marketId);
+          }
+
+          @Override
+          public void decode(String message, MarketDataSink sink) {
+            // no messages
+          }
+        };
+
+    assertTrue(protocol.onConnected().isEmpty());
+    assertEquals(List.of("subscribe:" + MARKET_ID), protocol.createResyncMessages(MARKET_ID));
+  }
+
+  @Test
+  public void testToString() throws Exception {
+    startSubscribedStream();
+
+    assertEquals(
+        "MarketDataStream{uri="
+            + stubExchange.getUri()
+            + ", markets=[btcusd], connected=true, connectCount=1, messageCount=0,"
+            + " sequenceGapCount=0, resyncCount=0}",
+        stream.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMinReconnectDelayMustBeMoreThanZero() {
+    new MarketDataStream(
+        new StubProtocol(stubExchange.getUri()),
+        HttpClient.newHttpClient(),
+        Duration.ZERO,
+        MAX_RECONNECT_DELAY,
+        Duration.ofSeconds(30));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxReconnectDelayMustNotBeLessThanMinDelay() {
+    new MarketDataStream(
+        new StubProtocol(stubExchange.getUri()),
+        HttpClient.newHttpClient(),
+        MAX_RECONNECT_DELAY,
+        MIN_RECONNECT_DELAY,
+        Duration.ofSeconds(30));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIdleTimeoutMustBeMoreThanZero() {
+    new MarketDataStream(
+        new StubProtocol(stubExchange.getUri()),
+        HttpClient.newHttpClient(),
+        MIN_RECONNECT_DELAY,
+        MAX_RECONNECT_DELAY,
+        Duration.ofSeconds(-1));
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  private MarketDataStream createStream(Duration idleTimeout) {
+    return new MarketDataStream(
+        new StubProtocol(stubExchange.getUri()),
+        HttpClient.newHttpClient(),
+        MIN_RECONNECT_DELAY,
+        MAX_RECONNECT_DELAY,
+        idleTimeout);
+  }
+
+  private StubWebSocketServer.Connection startSubscribedStream() throws Exception {
+    stream = createStream(Duration.ofSeconds(30));
+    stream.subscribe(MARKET_ID);
+    stream.start();
+    final StubWebSocketServer.Connection connection = stubExchange.awaitConnection();
+    assertEquals("hello", connection.awaitMessage());
+    assertEquals("subscribe:" + MARKET_ID, connection.awaitMessage());
+    awaitTrue(stream::isConnected);
+    return connection;
+  }
+
+  private MarketOrder bestBid() {
+    return stream.getOrderBook(MARKET_ID, 0).getBuyOrders().get(0);
+  }
+
+  private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Timed out waiting for condition");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  /** Decodes the stub exchange's text protocol. */
+  private static class StubProtocol implements StreamProtocol {
+
+    private final URI uri;
+
+    StubProtocol(URI uri) {
+      this.uri = uri;
+    }
+
+    @Override
+    public URI getUri() {
+      return uri;
+    }
+
+    @Override
+    public List<String> onConnected() {
+      return List.of("hello");
+    }
+
+    @Override
+    public List<String> createSubscribeMessages(String marketId) {
+      return List.of("subscribe:" + marketId);
+    }
+
+    @Override
+    public List<String> createResyncMessages(String marketId) {
+      return List.of("resync:" + marketId);
+    }
+
+    @Override
+    public void decode(String message, MarketDataSink sink) {
+      final String[] fields = message.split("\\|");
+      switch (fields[0]) {
+        case "snapshot":
+          sink.onSnapshot(fields[1], Long.parseLong(fields[2]), book -> apply(book, fields[3]));
+          break;
+        case "update":
+          sink.onUpdate(fields[1], Long.parseLong(fields[2]), book -> apply(book, fields[3]));
+          break;
+        case "ticker":
+          final BigDecimal last = new BigDecimal(fields[2]);
+          sink.onTicker(
+              fields[1], new TickerImpl(last, null, null, null, null, null, null, null, null));
+          break;
+        case "outofsync":
+          sink.onOutOfSync(fields[1], "checksum mismatch");
+          break;
+        case "reconnect":
+          sink.reconnect("asked to by exchange");
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown message: " + message);
+      }
+    }
+
+    private static void apply(LocalOrderBook book, String levels) {
+      for (final String level : levels.split(",")) {
+        final String[] fields = level.split(":");
+        book.setLevel(
+            "b".equals(fields[0]) ? OrderType.BUY : OrderType.SELL,
+            new BigDecimal(fields[1]),
+            new BigDecimal(fields[2]));
+      }
+    }
+  }
+}
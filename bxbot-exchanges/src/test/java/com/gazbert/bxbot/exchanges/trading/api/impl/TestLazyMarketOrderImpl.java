@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.trading.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.gazbert.bxbot.trading.api.FixedPointScale;
+import com.gazbert.bxbot.trading.api.OrderType;
+import java.math.BigDecimal;
+import org.junit.Test;
+
+/**
+ * Tests the lazily decoded Market Order impl behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestLazyMarketOrderImpl {
+
+  private static final BigDecimal PRICE = new BigDecimal("671.91");
+  private static final BigDecimal QUANTITY = new BigDecimal("0.01345453");
+  private static final BigDecimal TOTAL = PRICE.multiply(QUANTITY);
+
+  @Test
+  public void testMarketOrderIsDecodedAsExpected() {
+    final LazyMarketOrderImpl marketOrder =
+        new LazyMarketOrderImpl(OrderType.SELL, "671.91", "0.01345453");
+
+    assertEquals(OrderType.SELL, marketOrder.getType());
+    assertEquals(PRICE, marketOrder.getPrice());
+    assertEquals(QUANTITY, marketOrder.getQuantity());
+    assertEquals(TOTAL, marketOrder.getTotal());
+  }
+
+  @Test
+  public void testValuesAreParsedOnceAndCached() {
+    final LazyMarketOrderImpl marketOrder =
+        new LazyMarketOrderImpl(OrderType.BUY, "671.91", "0.01345453");
+
+    assertSame(marketOrder.getPrice(), marketOrder.getPrice());
+    assertSame(marketOrder.getQuantity(), marketOrder.getQuantity());
+    assertSame(marketOrder.getTotal(), marketOrder.getTotal());
+  }
+
+  @Test
+  public void testTokensAreParsedStraightToTicksAndLots() {
+    final LazyMarketOrderImpl marketOrder =
+        new LazyMarketOrderImpl(OrderType.BUY, "671.91000", "0.01345453");
+    final FixedPointScale scale = FixedPointScale.of(2, 8);
+
+    assertEquals(67_191, marketOrder.getPriceTicks(scale));
+    assertEquals(1_345_453, marketOrder.getQuantityLots(scale));
+  }
+
+  @Test
+  public void testBadTokenIsOnlyReportedWhenRead() {
+    final LazyMarketOrderImpl marketOrder =
+        new LazyMarketOrderImpl(OrderType.BUY, "671.91", "not-a-number");
+
+    assertEquals(PRICE, marketOrder.getPrice());
+    assertTrue(marketOrder.toString().contains("not-a-number"));
+    try {
+      marketOrder.getQuantity();
+      throw new AssertionError("Expected NumberFormatException");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+  }
+}
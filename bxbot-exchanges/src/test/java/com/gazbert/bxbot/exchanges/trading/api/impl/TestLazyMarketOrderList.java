@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.trading.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.gazbert.bxbot.trading.api.MarketOrder;
+import com.gazbert.bxbot.trading.api.OrderType;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the lazily decoded order book side behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestLazyMarketOrderList {
+
+  @Test
+  public void testLevelsAreCreatedWhenReadAndCached() {
+    final String[] tokens = {"672.00", "1.5", "671.91", "0.25", null, null};
+    final LazyMarketOrderList marketOrders = new LazyMarketOrderList(OrderType.BUY, tokens, 2);
+
+    assertEquals(2, marketOrders.size());
+    final MarketOrder best = marketOrders.get(0);
+    assertSame(best, marketOrders.get(0));
+    assertEquals(OrderType.BUY, best.getType());
+    assertEquals(new BigDecimal("672.00"), best.getPrice());
+    assertEquals(new BigDecimal("1.5"), best.getQuantity());
+    assertEquals(new BigDecimal("0.25"), marketOrders.get(1).getQuantity());
+  }
+
+  @Test
+  public void testDeepLevelsAreNotParsedUnlessRead() {
+    final String[] tokens = {"672.00", "1.5", "garbage", "garbage"};
+    final List<MarketOrder> topOfBook =
+        new LazyMarketOrderList(OrderType.SELL, tokens, 2).subList(0, 1);
+
+    assertEquals(1, topOfBook.size());
+    assertEquals(new BigDecimal("1008.000"), topOfBook.get(0).getTotal());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testReadingPastLastLevelIsRejected() {
+    new LazyMarketOrderList(OrderType.SELL, new String[] {"672.00", "1.5"}, 1).get(1);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testListIsReadOnly() {
+    new LazyMarketOrderList(OrderType.SELL, new String[0], 0)
+        .add(new LazyMarketOrderImpl(OrderType.SELL, "1", "1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooFewTokensAreRejected() {
+    new LazyMarketOrderList(OrderType.SELL, new String[] {"672.00"}, 1);
+  }
+}
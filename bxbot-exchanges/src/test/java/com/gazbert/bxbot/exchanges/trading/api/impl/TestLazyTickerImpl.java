@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.trading.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import org.junit.Test;
+
+/**
+ * Tests the lazily decoded Ticker impl behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestLazyTickerImpl {
+
+  private static final Long TIMESTAMP = 1513439945L;
+
+  @Test
+  public void testTickerIsDecodedAsExpected() {
+    final LazyTickerImpl ticker =
+        new LazyTickerImpl(
+            "18789.58",
+            "18778.25",
+            "18783.33",
+            "17111.00",
+            "18790.76",
+            "17477.98",
+            "10231.12911572",
+            "17756.56",
+            TIMESTAMP);
+
+    assertEquals(new BigDecimal("18789.58"), ticker.getLast());
+    assertEquals(new BigDecimal("18778.25"), ticker.getBid());
+    assertEquals(new BigDecimal("18783.33"), ticker.getAsk());
+    assertEquals(new BigDecimal("17111.00"), ticker.getLow());
+    assertEquals(new BigDecimal("18790.76"), ticker.getHigh());
+    assertEquals(new BigDecimal("17477.98"), ticker.getOpen());
+    assertEquals(new BigDecimal("10231.12911572"), ticker.getVolume());
+    assertEquals(new BigDecimal("17756.56"), ticker.getVwap());
+    assertEquals(TIMESTAMP, ticker.getTimestamp());
+    assertSame(ticker.getLast(), ticker.getLast());
+  }
+
+  @Test
+  public void testFieldsNotProvidedAreNull() {
+    final LazyTickerImpl ticker =
+        new LazyTickerImpl(null, null, null, null, null, null, null, null, null);
+    assertNull(ticker.getLast());
+    assertNull(ticker.getBid());
+    assertNull(ticker.getAsk());
+    assertNull(ticker.getLow());
+    assertNull(ticker.getHigh());
+    assertNull(ticker.getOpen());
+    assertNull(ticker.getVolume());
+    assertNull(ticker.getVwap());
+    assertNull(ticker.getTimestamp());
+  }
+
+  @Test
+  public void testOnlyFieldsReadAreParsed() {
+    final LazyTickerImpl ticker =
+        new LazyTickerImpl("18789.58", "bad", "bad", "bad", "bad", "bad", "bad", "bad", TIMESTAMP);
+
+    assertEquals(new BigDecimal("18789.58"), ticker.getLast());
+    assertTrue(ticker.toString().contains("vwap=bad"));
+    try {
+      ticker.getVwap();
+      throw new AssertionError("Expected NumberFormatException");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+  }
+}
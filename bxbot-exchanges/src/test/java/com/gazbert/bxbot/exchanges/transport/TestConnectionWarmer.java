@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Connection Warmer behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestConnectionWarmer {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+  // Long enough for the scheduler never to run during a test - the tests run the checks.
+  private static final Duration KEEP_WARM_INTERVAL = Duration.ofHours(1);
+
+  private ScheduledExecutorService scheduler;
+  private AtomicLong nanoClock;
+  private List<String> requestsSent;
+  private HttpTransport transport;
+
+  /** Creates a transport that records the requests sent, and a fake clock. */
+  @Before
+  public void setupForEachTest() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    nanoClock = new AtomicLong();
+    requestsSent = new CopyOnWriteArrayList<>();
+    transport =
+        (url, method, postData, headers, timeout) -> {
+          requestsSent.add(method + " " + url);
+          return new HttpTransport.Response(404, null, "");
+        };
+  }
+
+  /** Stops the keep warm scheduler. */
+  @After
+  public void tearDownAfterEachTest() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testEachHostIsWarmedOnce() throws Exception {
+    final ConnectionWarmer warmer =
+        createWarmer(
+            Arrays.asList(
+                "https://api.kraken.com/0/public",
+                "https://api.kraken.com/0/private",
+                "https://api-pub.bitfinex.com:8443/v2"));
+
+    warmer.warmUp();
+
+    assertEquals(
+        Arrays.asList("HEAD https://api.kraken.com/", "HEAD https://api-pub.bitfinex.com:8443/"),
+        requestsSent);
+    assertTrue(warmer.isKeepingWarm());
+    assertTrue(warmer.toString().contains("keepingWarm=true"));
+  }
+
+  @Test
+  public void testFailedWarmUpIsNotFatal() throws Exception {
+    transport =
+        (url, method, postData, headers, timeout) -> {
+          requestsSent.add(method + " " + url);
+          throw new IOException("Connection refused");
+        };
+    final ConnectionWarmer warmer =
+        createWarmer(Arrays.asList("https://api.gemini.com/v1", "https://www.bitstamp.net/api"));
+
+    warmer.warmUp();
+
+    assertEquals(2, requestsSent.size());
+    assertTrue(warmer.isKeepingWarm());
+  }
+
+  @Test
+  public void testHostsAreOnlyWarmedAgainWhenIdle() throws Exception {
+    final ConnectionWarmer warmer =
+        createWarmer(Collections.singletonList("https://api.pro.coinbase.com/"));
+    warmer.warmUp();
+    requestsSent.clear();
+
+    advance(KEEP_WARM_INTERVAL.dividedBy(2));
+    warmer.keepWarm();
+    assertTrue(requestsSent.isEmpty());
+
+    warmer.onRequestSent();
+    advance(KEEP_WARM_INTERVAL.minusSeconds(1));
+    warmer.keepWarm();
+    assertTrue(requestsSent.isEmpty());
+
+    advance(Duration.ofSeconds(1));
+    warmer.keepWarm();
+    assertEquals(
+        Collections.singletonList("HEAD https://api.pro.coinbase.com/"), requestsSent);
+  }
+
+  @Test
+  public void testKeepingWarmStopsWhenAdapterIsIdleAndRestartsOnNextRequest() throws Exception {
+    final ConnectionWarmer warmer =
+        createWarmer(Collections.singletonList("https://api.itbit.com/v1"));
+    warmer.warmUp();
+
+    advance(KEEP_WARM_INTERVAL.multipliedBy(ConnectionWarmer.MAX_IDLE_INTERVALS));
+    warmer.keepWarm();
+    assertFalse(warmer.isKeepingWarm());
+
+    warmer.onRequestSent();
+    assertTrue(warmer.isKeepingWarm());
+
+    warmer.stop();
+    assertFalse(warmer.isKeepingWarm());
+  }
+
+  @Test(expected = MalformedURLException.class)
+  public void testInvalidApiUrlIsRejected() throws Exception {
+    createWarmer(Collections.singletonList("not a url"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKeepWarmIntervalMustBeMoreThanZero() throws Exception {
+    new ConnectionWarmer(
+        transport,
+        Collections.singletonList("https://api.kraken.com/0/public"),
+        TIMEOUT,
+        Duration.ZERO,
+        scheduler);
+  }
+
+  private ConnectionWarmer createWarmer(List<String> apiUrls) throws MalformedURLException {
+    return new ConnectionWarmer(
+        transport, apiUrls, TIMEOUT, KEEP_WARM_INTERVAL, scheduler, nanoClock::get);
+  }
+
+  private void advance(Duration duration) {
+    nanoClock.addAndGet(duration.toNanos());
+  }
+}
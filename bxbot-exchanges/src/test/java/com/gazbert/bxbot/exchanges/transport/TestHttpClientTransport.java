@@ -0,0 +1,397 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the HttpClient transport behaves as expected against a local stub exchange.
+ *
+ * @author gazbert
+ */
+public class TestHttpClientTransport {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+  private static final String TICKER_JSON = "{\"last\": \"18789.58\"}";
+  private static final String ORDER_BOOK_JSON =
+      "{\"bids\": [" + "[\"18789.58\", \"0.5\"], ".repeat(100) + "[\"18789.57\", \"0.1\"]]}";
+
+  private HttpServer stubExchange;
+  private final List<String> requests = new CopyOnWriteArrayList<>();
+  private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+  private final CountDownLatch releaseSlowRequest = new CountDownLatch(1);
+
+  /** Start a stub exchange on a free local port. */
+  @Before
+  public void setupStubExchange() throws Exception {
+    stubExchange = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    stubExchange.setExecutor(Executors.newCachedThreadPool());
+    stubExchange.createContext("/ticker", exchange -> respond(exchange, 200, TICKER_JSON));
+    stubExchange.createContext("/error", exchange -> respond(exchange, 503, "Service down"));
+    stubExchange.createContext(
+        "/gzip", exchange -> respond(exchange, 200, "gzip", gzip(ORDER_BOOK_JSON)));
+    stubExchange.createContext(
+        "/deflate", exchange -> respond(exchange, 200, "deflate", deflate(ORDER_BOOK_JSON, false)));
+    stubExchange.createContext(
+        "/raw-deflate",
+        exchange -> respond(exchange, 200, "deflate", deflate(ORDER_BOOK_JSON, true)));
+    stubExchange.createContext(
+        "/gzip-error", exchange -> respond(exchange, 503, "gzip", gzip("Service down")));
+    stubExchange.createContext(
+        "/brotli", exchange -> respond(exchange, 200, "br", new byte[] {1, 2, 3}));
+    stubExchange.createContext(
+        "/slow",
+        exchange -> {
+          try {
+            releaseSlowRequest.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          respond(exchange, 200, TICKER_JSON);
+        });
+    stubExchange.createContext(
+        "/stalled-body",
+        exchange -> {
+          final byte[] body = ORDER_BOOK_JSON.getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            releaseSlowRequest.await(10, TimeUnit.SECONDS);
+            out.write(body, body.length / 2, body.length - body.length / 2);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    stubExchange.start();
+  }
+
+  /** Stop the stub exchange. */
+  @After
+  public void stopStubExchange() {
+    releaseSlowRequest.countDown();
+    stubExchange.stop(0);
+  }
+
+  @Test
+  public void testGetReturnsResponseFromExchange() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    // the JDK connection pool settings are JVM-wide, so they are left to the command line
+    assertNull(System.getProperty("jdk.httpclient.connectionPoolSize"));
+    assertNull(System.getProperty("jdk.httpclient.keepalive.timeout"));
+
+    final HttpTransport.Response response =
+        transport.send(url("/ticker"), "GET", null, null, TIMEOUT);
+
+    assertEquals(200, response.getStatusCode());
+    assertNull(response.getReasonPhrase());
+    assertEquals(TICKER_JSON, response.getBody());
+    assertTrue(requests.get(0).startsWith("GET /ticker"));
+    assertTrue(requests.get(0).contains("User-agent=Mozilla/5.0"));
+  }
+
+  @Test
+  public void testPostSendsBodyAndHeaders() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+
+    transport.send(
+        url("/ticker"),
+        "POST",
+        "nonce=1&pair=XBTUSD",
+        Collections.singletonMap("API-Key", "key"),
+        TIMEOUT);
+
+    final String request = requests.get(0);
+    assertTrue(request.startsWith("POST /ticker"));
+    assertTrue(request.contains("Api-key=key"));
+    // HttpURLConnection used to default the content type for POSTs; some exchanges expect it.
+    assertTrue(request.contains("Content-type=application/x-www-form-urlencoded"));
+    assertTrue(request.endsWith("body=nonce=1&pair=XBTUSD"));
+  }
+
+  @Test
+  public void testDeleteIsSentWithoutBody() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    transport.send(
+        url("/ticker"),
+        "delete",
+        null,
+        Collections.singletonMap("Content-Type", "application/json"),
+        TIMEOUT);
+    assertTrue(requests.get(0).startsWith("DELETE /ticker"));
+    assertTrue(requests.get(0).endsWith("body="));
+  }
+
+  @Test
+  public void testErrorStatusIsReturnedNotThrown() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    final HttpTransport.Response response =
+        transport.send(url("/error"), "GET", null, null, TIMEOUT);
+    assertEquals(503, response.getStatusCode());
+    assertEquals("Service down", response.getBody());
+    assertTrue(response.toString().contains("statusCode=503"));
+  }
+
+  @Test
+  public void testSuccessfulResponseIsStreamedToDecoder() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    final HttpTransport.Response response =
+        transport.send(
+            url("/ticker"),
+            "GET",
+            null,
+            null,
+            TIMEOUT,
+            body -> new String(body.readAllBytes(), StandardCharsets.UTF_8).length());
+
+    assertEquals(200, response.getStatusCode());
+    assertNull(response.getBody());
+    assertEquals(TICKER_JSON.length(), response.getDecodedBody());
+    assertTrue(response.isSuccessful());
+  }
+
+  @Test
+  public void testErrorResponseIsNotPassedToDecoder() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    final HttpTransport.Response response =
+        transport.send(
+            url("/error"),
+            "GET",
+            null,
+            null,
+            TIMEOUT,
+            body -> {
+              throw new AssertionError("Error response should not be decoded");
+            });
+
+    assertEquals(503, response.getStatusCode());
+    assertEquals("Service down", response.getBody());
+    assertNull(response.getDecodedBody());
+    assertFalse(response.isSuccessful());
+  }
+
+  @Test
+  public void testCompressedResponsesAreRequested() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    transport.send(url("/ticker"), "GET", null, null, TIMEOUT);
+    assertTrue(requests.get(0).contains("Accept-encoding=gzip, deflate"));
+  }
+
+  @Test
+  public void testGzipResponseIsDecompressedAndSizesAreTracked() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+
+    final HttpTransport.Response response =
+        transport.send(url("/gzip"), "GET", null, null, TIMEOUT);
+    assertEquals(ORDER_BOOK_JSON, response.getBody());
+
+    transport.send(url("/ticker"), "GET", null, null, TIMEOUT);
+
+    final ResponseSizeMetrics metrics = transport.getResponseSizeMetrics();
+    assertEquals(2, metrics.getResponseCount());
+    assertEquals(1, metrics.getCompressedResponseCount());
+    assertEquals(
+        gzip(ORDER_BOOK_JSON).length + TICKER_JSON.length(), metrics.getWireBytes());
+    assertEquals(ORDER_BOOK_JSON.length() + TICKER_JSON.length(), metrics.getDecodedBytes());
+    assertTrue(metrics.getBandwidthSavedPercent() > 50);
+    assertTrue(metrics.toString().contains("compressedResponseCount=1"));
+  }
+
+  @Test
+  public void testDeflateResponseIsStreamedToDecoderDecompressed() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    for (final String path : new String[] {"/deflate", "/raw-deflate"}) {
+      final HttpTransport.Response response =
+          transport.send(
+              url(path),
+              "GET",
+              null,
+              null,
+              TIMEOUT,
+              body -> new String(body.readAllBytes(), StandardCharsets.UTF_8));
+      assertEquals(ORDER_BOOK_JSON, response.getDecodedBody());
+    }
+
+    final ResponseSizeMetrics metrics = transport.getResponseSizeMetrics();
+    assertEquals(2, metrics.getCompressedResponseCount());
+    assertEquals(
+        deflate(ORDER_BOOK_JSON, false).length + deflate(ORDER_BOOK_JSON, true).length,
+        metrics.getWireBytes());
+    assertEquals(2L * ORDER_BOOK_JSON.length(), metrics.getDecodedBytes());
+  }
+
+  @Test
+  public void testCompressedErrorResponseIsDecompressed() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    final HttpTransport.Response response =
+        transport.send(url("/gzip-error"), "GET", null, null, TIMEOUT);
+    assertEquals(503, response.getStatusCode());
+    assertEquals("Service down", response.getBody());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnsupportedContentEncodingIsRejected() throws Exception {
+    new HttpClientTransport(TIMEOUT)
+        .send(url("/brotli"), "GET", null, null, TIMEOUT);
+  }
+
+  @Test
+  public void testEmptyCompressedBodyIsNotDecompressed() throws Exception {
+    final InputStream body =
+        HttpClientTransport.decompress("gzip", new ByteArrayInputStream(new byte[0]));
+    assertEquals(-1, body.read());
+  }
+
+  @Test
+  public void testConnectionIsKeptAliveBetweenRequests() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    for (int i = 0; i < 3; i++) {
+      transport.send(url("/ticker"), "GET", null, null, TIMEOUT);
+    }
+    assertEquals(3, clientPorts.size());
+    assertEquals(1, clientPorts.stream().distinct().count());
+  }
+
+  @Test(expected = HttpTimeoutException.class)
+  public void testSlowResponseTimesOut() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    transport.send(url("/slow"), "GET", null, null, Duration.ofMillis(200));
+  }
+
+  @Test
+  public void testResponseBodyThatStallsTimesOut() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    final Duration timeout = Duration.ofMillis(500);
+    final HttpTransport.BodyDecoder<String> decoder =
+        body -> new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    for (final HttpTransport.BodyDecoder<?> bodyDecoder : Arrays.asList(null, decoder)) {
+      final long start = System.nanoTime();
+      try {
+        transport.send(url("/stalled-body"), "GET", null, null, timeout, bodyDecoder);
+        fail("Expected HttpTimeoutException");
+      } catch (HttpTimeoutException e) {
+        assertTrue(e.getMessage().startsWith("Timed out reading the response body"));
+      }
+      assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(TIMEOUT) < 0);
+    }
+  }
+
+  @Test(expected = MalformedURLException.class)
+  public void testInvalidUrlIsRejected() throws Exception {
+    final HttpClientTransport transport = new HttpClientTransport(TIMEOUT);
+    transport.send(new URL("http://localhost/bad path"), "GET", null, null, TIMEOUT);
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  private URL url(String path) throws MalformedURLException {
+    return new URL(
+        "http://"
+            + stubExchange.getAddress().getHostString()
+            + ":"
+            + stubExchange.getAddress().getPort()
+            + path);
+  }
+
+  private void respond(HttpExchange exchange, int status, String body) throws IOException {
+    respond(exchange, status, null, body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void respond(HttpExchange exchange, int status, String contentEncoding, byte[] bytes)
+      throws IOException {
+    final StringBuilder request = new StringBuilder();
+    request.append(exchange.getRequestMethod()).append(' ').append(exchange.getRequestURI());
+    for (final Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+      request.append(' ').append(header.getKey()).append('=').append(header.getValue().get(0));
+    }
+    request
+        .append(" body=")
+        .append(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+    requests.add(request.toString());
+    clientPorts.add(exchange.getRemoteAddress().getPort());
+
+    if (contentEncoding != null) {
+      exchange.getResponseHeaders().set("Content-Encoding", contentEncoding);
+    }
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static byte[] gzip(String body) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] deflate(String body, boolean raw) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+    try (OutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+    } finally {
+      deflater.end();
+    }
+    return bytes.toByteArray();
+  }
+}
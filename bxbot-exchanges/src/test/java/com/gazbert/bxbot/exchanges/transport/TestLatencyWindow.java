@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the Latency Window behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestLatencyWindow {
+
+  @Test
+  public void testPercentileIsNotAvailableUntilMinSamplesRecorded() {
+    final LatencyWindow window = new LatencyWindow(10);
+    assertEquals(-1, window.percentile(50, 1));
+
+    window.record(100);
+    window.record(200);
+    assertEquals(-1, window.percentile(50, 3));
+    assertEquals(100, window.percentile(50, 2));
+  }
+
+  @Test
+  public void testPercentileUsesNearestRank() {
+    final LatencyWindow window = new LatencyWindow(100);
+    for (int i = 100; i >= 1; i--) {
+      window.record(i);
+    }
+    assertEquals(100, window.getSampleCount());
+    assertEquals(1, window.percentile(0.1, 1));
+    assertEquals(50, window.percentile(50, 1));
+    assertEquals(95, window.percentile(95, 1));
+    assertEquals(99, window.percentile(99, 1));
+    assertEquals(100, window.percentile(99.9, 1));
+  }
+
+  @Test
+  public void testOldestSamplesAreReplacedOnceWindowIsFull() {
+    final LatencyWindow window = new LatencyWindow(3);
+    window.record(1000);
+    window.record(1000);
+    window.record(1000);
+    assertEquals(1000, window.percentile(50, 3));
+
+    window.record(10);
+    window.record(20);
+    assertEquals(3, window.getSampleCount());
+    assertEquals(20, window.percentile(50, 3));
+    assertEquals(1000, window.percentile(99, 3));
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the Priority Request Dispatcher hands out slots in priority order.
+ *
+ * @author gazbert
+ */
+public class TestPriorityRequestDispatcher {
+
+  private static final Duration MAX_WAIT = Duration.ofSeconds(10);
+
+  private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+  /** Stops any requests still waiting for a slot. */
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testTradingRequestJumpsAheadOfQueuedMarketDataRequests() throws Exception {
+    final PriorityRequestDispatcher dispatcher = new PriorityRequestDispatcher(1);
+    assertTrue(dispatcher.acquire(RequestPriority.MARKET_DATA, MAX_WAIT));
+
+    final Future<Boolean> marketData =
+        executorService.submit(() -> dispatcher.acquire(RequestPriority.MARKET_DATA, MAX_WAIT));
+    waitUntil(() -> dispatcher.getQueueDepth(RequestPriority.MARKET_DATA) == 1);
+    final Future<Boolean> cancelOrder =
+        executorService.submit(() -> dispatcher.acquire(RequestPriority.TRADING, MAX_WAIT));
+    waitUntil(() -> dispatcher.getQueueDepth(RequestPriority.TRADING) == 1);
+
+    dispatcher.release(RequestPriority.MARKET_DATA);
+    assertTrue(cancelOrder.get(5, TimeUnit.SECONDS));
+    assertEquals(1, dispatcher.getInFlight(RequestPriority.TRADING));
+    assertFalse(marketData.isDone());
+
+    dispatcher.release(RequestPriority.TRADING);
+    assertTrue(marketData.get(5, TimeUnit.SECONDS));
+    assertEquals(1, dispatcher.getInFlight(RequestPriority.MARKET_DATA));
+  }
+
+  @Test
+  public void testRequestsOfSamePriorityAreServedInOrder() throws Exception {
+    final PriorityRequestDispatcher dispatcher = new PriorityRequestDispatcher(1);
+    assertTrue(dispatcher.acquire(RequestPriority.ACCOUNT, MAX_WAIT));
+
+    final Future<Boolean> first =
+        executorService.submit(() -> dispatcher.acquire(RequestPriority.ACCOUNT, MAX_WAIT));
+    waitUntil(() -> dispatcher.getQueueDepth(RequestPriority.ACCOUNT) == 1);
+    final Future<Boolean> second =
+        executorService.submit(() -> dispatcher.acquire(RequestPriority.ACCOUNT, MAX_WAIT));
+    waitUntil(() -> dispatcher.getQueueDepth(RequestPriority.ACCOUNT) == 2);
+
+    dispatcher.release(RequestPriority.ACCOUNT);
+    assertTrue(first.get(5, TimeUnit.SECONDS));
+    assertFalse(second.isDone());
+
+    dispatcher.release(RequestPriority.ACCOUNT);
+    assertTrue(second.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testBurstOfMarketDataRequestsLeavesSlotsFreeForTrading() throws Exception {
+    // 5 slots: market data and account requests can have 2 each
+    final PriorityRequestDispatcher dispatcher = new PriorityRequestDispatcher(5);
+    assertTrue(dispatcher.acquire(RequestPriority.MARKET_DATA, MAX_WAIT));
+    assertTrue(dispatcher.acquire(RequestPriority.MARKET_DATA, MAX_WAIT));
+    assertFalse(dispatcher.acquire(RequestPriority.MARKET_DATA, Duration.ZERO));
+    assertTrue(dispatcher.acquire(RequestPriority.ACCOUNT, Duration.ZERO));
+    assertTrue(dispatcher.acquire(RequestPriority.ACCOUNT, Duration.ZERO));
+    assertFalse(dispatcher.acquire(RequestPriority.ACCOUNT, Duration.ZERO));
+
+    assertTrue(dispatcher.acquire(RequestPriority.TRADING, Duration.ZERO));
+    assertFalse(dispatcher.acquire(RequestPriority.TRADING, Duration.ZERO)); // all 5 in use
+  }
+
+  @Test
+  public void testLowerPriorityRequestIsServedIfHigherPriorityRequestIsAtItsLimit()
+      throws Exception {
+    final PriorityRequestDispatcher dispatcher =
+        new PriorityRequestDispatcher(3, Collections.singletonMap(RequestPriority.ACCOUNT, 1));
+    assertTrue(dispatcher.acquire(RequestPriority.ACCOUNT, MAX_WAIT));
+
+    final Future<Boolean> account =
+        executorService.submit(() -> dispatcher.acquire(RequestPriority.ACCOUNT, MAX_WAIT));
+    waitUntil(() -> dispatcher.getQueueDepth(RequestPriority.ACCOUNT) == 1);
+
+    assertTrue(dispatcher.acquire(RequestPriority.MARKET_DATA, Duration.ZERO));
+    assertFalse(account.isDone());
+  }
+
+  @Test
+  public void testRequestGivesUpIfNoSlotIsFreeInTime() throws Exception {
+    final PriorityRequestDispatcher dispatcher = new PriorityRequestDispatcher(1);
+    assertTrue(dispatcher.acquire(RequestPriority.TRADING, MAX_WAIT));
+    assertFalse(dispatcher.acquire(RequestPriority.TRADING, Duration.ofMillis(50)));
+    assertEquals(0, dispatcher.getQueueDepth(RequestPriority.TRADING));
+    assertEquals(1, dispatcher.getInFlight(RequestPriority.TRADING));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxInFlightMustBeAtLeastOne() {
+    new PriorityRequestDispatcher(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPriorityLimitMustBeAtLeastOne() {
+    new PriorityRequestDispatcher(5, Collections.singletonMap(RequestPriority.TRADING, 0));
+  }
+
+  @Test
+  public void testToStringShowsLimits() {
+    assertEquals(
+        "PriorityRequestDispatcher{maxInFlight=10, "
+            + "maxInFlightPerPriority={TRADING=10, ACCOUNT=4, MARKET_DATA=4}}",
+        new PriorityRequestDispatcher(10).toString());
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Timed out waiting for condition");
+      }
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.exchanges.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Request Timeouts behave as expected.
+ *
+ * @author gazbert
+ */
+public class TestRequestTimeouts {
+
+  private static final String ORDER_BOOK = "https://api.exchange.com/order_book";
+  private static final String TICKER = "https://api.exchange.com/ticker";
+
+  private Map<RequestPriority, Duration> readTimeouts;
+
+  /** Sets a different read timeout for each endpoint class. */
+  @Before
+  public void setupForEachTest() {
+    readTimeouts = new EnumMap<>(RequestPriority.class);
+    readTimeouts.put(RequestPriority.TRADING, Duration.ofSeconds(20));
+    readTimeouts.put(RequestPriority.ACCOUNT, Duration.ofSeconds(15));
+    readTimeouts.put(RequestPriority.MARKET_DATA, Duration.ofSeconds(10));
+  }
+
+  @Test
+  public void testEachEndpointClassHasItsOwnReadTimeout() {
+    final RequestTimeouts requestTimeouts = new RequestTimeouts(readTimeouts, false);
+    assertFalse(requestTimeouts.isAdaptive());
+    assertEquals(
+        Duration.ofSeconds(20), requestTimeouts.getReadTimeout(RequestPriority.TRADING, TICKER));
+    assertEquals(
+        Duration.ofSeconds(15), requestTimeouts.getReadTimeout(RequestPriority.ACCOUNT, TICKER));
+    assertEquals(
+        Duration.ofSeconds(10),
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, TICKER));
+  }
+
+  @Test
+  public void testReadTimeoutsDoNotAdaptUnlessEnabled() {
+    final RequestTimeouts requestTimeouts = new RequestTimeouts(readTimeouts, false);
+    record(requestTimeouts, ORDER_BOOK, Duration.ofMillis(100), RequestTimeouts.MIN_SAMPLES);
+    assertEquals(
+        Duration.ofSeconds(10),
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, ORDER_BOOK));
+  }
+
+  @Test
+  public void testMaxReadTimeoutIsUsedUntilEnoughResponseTimesRecorded() {
+    final RequestTimeouts requestTimeouts = new RequestTimeouts(readTimeouts, true);
+    assertTrue(requestTimeouts.isAdaptive());
+    record(requestTimeouts, ORDER_BOOK, Duration.ofMillis(100), RequestTimeouts.MIN_SAMPLES - 1);
+    assertEquals(
+        Duration.ofSeconds(10),
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, ORDER_BOOK));
+
+    record(requestTimeouts, ORDER_BOOK, Duration.ofMillis(100), 1);
+    assertEquals(
+        RequestTimeouts.MIN_ADAPTIVE_READ_TIMEOUT,
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, ORDER_BOOK));
+  }
+
+  @Test
+  public void testAdaptiveReadTimeoutIsMultipleOfEndpointResponseTimes() {
+    final RequestTimeouts requestTimeouts = new RequestTimeouts(readTimeouts, true);
+    record(requestTimeouts, ORDER_BOOK, Duration.ofMillis(1000), RequestTimeouts.MIN_SAMPLES);
+    record(requestTimeouts, TICKER, Duration.ofMillis(100), RequestTimeouts.MIN_SAMPLES);
+
+    // slow-but-normal endpoint keeps the time it needs; fast endpoint fails fast
+    assertEquals(
+        Duration.ofSeconds(3),
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, ORDER_BOOK));
+    assertEquals(
+        RequestTimeouts.MIN_ADAPTIVE_READ_TIMEOUT,
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, TICKER));
+  }
+
+  @Test
+  public void testAdaptiveReadTimeoutIsCappedAtEndpointClassReadTimeout() {
+    final RequestTimeouts requestTimeouts = new RequestTimeouts(readTimeouts, true);
+    record(requestTimeouts, ORDER_BOOK, Duration.ofSeconds(5), RequestTimeouts.MIN_SAMPLES);
+    assertEquals(
+        Duration.ofSeconds(10),
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, ORDER_BOOK));
+  }
+
+  @Test
+  public void testReadTimeoutBelowAdaptiveMinIsNotRaised() {
+    readTimeouts.put(RequestPriority.MARKET_DATA, Duration.ofSeconds(1));
+    final RequestTimeouts requestTimeouts = new RequestTimeouts(readTimeouts, true);
+    record(requestTimeouts, ORDER_BOOK, Duration.ofMillis(10), RequestTimeouts.MIN_SAMPLES);
+    assertEquals(
+        Duration.ofSeconds(1),
+        requestTimeouts.getReadTimeout(RequestPriority.MARKET_DATA, ORDER_BOOK));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEveryEndpointClassMustHaveReadTimeout() {
+    readTimeouts.remove(RequestPriority.ACCOUNT);
+    new RequestTimeouts(readTimeouts, false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadTimeoutMustBeMoreThanZero() {
+    readTimeouts.put(RequestPriority.TRADING, Duration.ZERO);
+    new RequestTimeouts(readTimeouts, true);
+  }
+
+  @Test
+  public void testToStringShowsConfig() {
+    assertEquals(
+        "RequestTimeouts{readTimeouts={TRADING=PT20S, ACCOUNT=PT15S, MARKET_DATA=PT10S}, "
+            + "adaptive=true}",
+        new RequestTimeouts(readTimeouts, true).toString());
+  }
+
+  private static void record(
+      RequestTimeouts requestTimeouts, String endpoint, Duration latency, int count) {
+    for (int i = 0; i < count; i++) {
+      requestTimeouts.recordLatency(endpoint, latency);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous version of BX-bot's Trading API.
+ *
+ * <p>Each method mirrors its {@link TradingApi} counterpart, but returns straight away with a
+ * {@link CompletableFuture}. This allows a Trading Strategy to send several requests for a market
+ * at the same time and combine the results, e.g.
+ *
+ * <pre>
+ *   final AsyncTradingApi asyncApi = tradingApi.async();
+ *   final CompletableFuture&lt;MarketOrderBook&gt; orderBook = asyncApi.getMarketOrders(marketId);
+ *   final CompletableFuture&lt;List&lt;OpenOrder&gt;&gt; myOrders =
+ *       asyncApi.getYourOpenOrders(marketId);
+ *   CompletableFuture.allOf(orderBook, myOrders).join();
+ * </pre>
+ *
+ * <p>If the call fails, the future is completed exceptionally with the {@link
+ * ExchangeNetworkException} or {@link TradingApiException} the blocking call would have thrown.
+ * When using {@link CompletableFuture#get()} or {@link CompletableFuture#join()}, it will be the
+ * cause of the ExecutionException or CompletionException.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public interface AsyncTradingApi {
+
+  /**
+   * Fetches latest <em>market</em> orders for a given market.
+   *
+   * @param marketId the id of the market.
+   * @return the market order book.
+   * @see TradingApi#getMarketOrders(String)
+   */
+  CompletableFuture<MarketOrderBook> getMarketOrders(String marketId);
+
+  /**
+   * Fetches the top {@code depth} latest <em>market</em> orders for a given market.
+   *
+   * @param marketId the id of the market.
+   * @param depth the max number of BUY and SELL orders to return. Must be at least 1.
+   * @return the market order book.
+   * @see TradingApi#getMarketOrders(String, int)
+   */
+  CompletableFuture<MarketOrderBook> getMarketOrders(String marketId, int depth);
+
+  /**
+   * Fetches <em>your</em> current open orders, i.e. the orders placed by the bot.
+   *
+   * @param marketId the id of the market.
+   * @return your current open orders.
+   * @see TradingApi#getYourOpenOrders(String)
+   */
+  CompletableFuture<List<OpenOrder>> getYourOpenOrders(String marketId);
+
+  /**
+   * Fetches <em>your</em> current open orders for every market in a single call to the exchange.
+   *
+   * @return your current open orders for all markets.
+   * @see TradingApi#getAllOpenOrders()
+   */
+  CompletableFuture<List<OpenOrder>> getAllOpenOrders();
+
+  /**
+   * Places an order on the exchange.
+   *
+   * @param marketId the id of the market.
+   * @param orderType Value must be {@link OrderType#BUY} or {@link OrderType#SELL}.
+   * @param quantity amount of units you are buying/selling in this order.
+   * @param price the price per unit you are buying/selling at.
+   * @return the id of the order.
+   * @see TradingApi#createOrder(String, OrderType, BigDecimal, BigDecimal)
+   */
+  CompletableFuture<String> createOrder(
+      String marketId, OrderType orderType, BigDecimal quantity, BigDecimal price);
+
+  /**
+   * Cancels your existing order on the exchange.
+   *
+   * @param orderId your order Id.
+   * @param marketId the id of the market the order was placed on.
+   * @return true if order cancelled ok, false otherwise.
+   * @see TradingApi#cancelOrder(String, String)
+   */
+  CompletableFuture<Boolean> cancelOrder(String orderId, String marketId);
+
+  /**
+   * Fetches the latest price for a given market.
+   *
+   * @param marketId the id of the market.
+   * @return the latest market price.
+   * @see TradingApi#getLatestMarketPrice(String)
+   */
+  CompletableFuture<BigDecimal> getLatestMarketPrice(String marketId);
+
+  /**
+   * Fetches the balance of your wallets on the exchange.
+   *
+   * @return your wallet balance info.
+   * @see TradingApi#getBalanceInfo()
+   */
+  CompletableFuture<BalanceInfo> getBalanceInfo();
+
+  /**
+   * Returns the exchange BUY order fee for a given market id.
+   *
+   * @param marketId the id of the market.
+   * @return the % of the BUY order that will be taken by the exchange.
+   * @see TradingApi#getPercentageOfBuyOrderTakenForExchangeFee(String)
+   */
+  CompletableFuture<BigDecimal> getPercentageOfBuyOrderTakenForExchangeFee(String marketId);
+
+  /**
+   * Returns the exchange SELL order fee for a given market id.
+   *
+   * @param marketId the id of the market.
+   * @return the % of the SELL order that will be taken by the exchange.
+   * @see TradingApi#getPercentageOfSellOrderTakenForExchangeFee(String)
+   */
+  CompletableFuture<BigDecimal> getPercentageOfSellOrderTakenForExchangeFee(String marketId);
+
+  /**
+   * Returns the exchange Ticker a given market id.
+   *
+   * @param marketId the id of the market.
+   * @return the exchange Ticker for a given market.
+   * @see TradingApi#getTicker(String)
+   */
+  CompletableFuture<Ticker> getTicker(String marketId);
+}
@@ -53,4 +53,20 @@ public interface BalanceInfo {
    * @return map of balances on hold.
    */
   Map<String, BigDecimal> getBalancesOnHold();
+
+  /**
+   * Returns the available balance of a market's base currency in the market's quantity lots, e.g.
+   * the BTC you could sell on the BTC/USD market.
+   *
+   * <p>The default implementation converts the entry in {@link #getBalancesAvailable()}.
+   *
+   * @param currency the currency id in UPPERCASE, e.g. BTC.
+   * @param scale the fixed-point scales of the market.
+   * @return the available balance in lots, or 0 if there is no balance for the currency.
+   * @since 1.2
+   */
+  default long getBalanceAvailableLots(String currency, FixedPointScale scale) {
+    final BigDecimal balance = getBalancesAvailable().get(currency);
+    return balance == null ? 0 : scale.toQuantityLots(balance);
+  }
 }
@@ -0,0 +1,555 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import com.google.common.base.MoreObjects;
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A Market Order Book held in primitive arrays, for strategies that need more than the best bid
+ * and ask.
+ *
+ * <p>Each side of the book is a pair of sorted parallel arrays of price ticks and quantity lots -
+ * see {@link FixedPointScale} - plus cumulative quantity and cumulative notional arrays that are
+ * built once when the book is created. The analytics then never walk a list of MarketOrders:
+ * {@link #priceToFill(OrderType, long)}, {@link #vwapToFill(OrderType, long)} and {@link
+ * #depthWithin(OrderType, int)} are O(log n) binary searches, and {@link #imbalance(int)} and
+ * {@link #getSpreadTicks()} are O(1).
+ *
+ * <p>The book sides are identified by order type, like {@link MarketOrder#getType()}: SELL is the
+ * asks and BUY is the bids. So to price a BUY order of a given size, ask the SELL side.
+ *
+ * <p>The book is also a {@link MarketOrderBook}: {@link #getSellOrders()} and {@link
+ * #getBuyOrders()} are read-only views that create a MarketOrder for a level when it is read. An
+ * existing book is converted with {@link #of(MarketOrderBook, FixedPointScale)}, and exchange
+ * response decoders can build one directly with a {@link Builder}.
+ *
+ * <p>This class is immutable and thread safe.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class CompactOrderBook implements MarketOrderBook {
+
+  /**
+   * Returned by {@link #priceToFill(OrderType, long)} if the book is not deep enough.
+   */
+  public static final long INSUFFICIENT_DEPTH = -1;
+
+  private static final int BASIS_POINTS = 10_000;
+
+  private final String marketId;
+  private final FixedPointScale scale;
+  private final Side asks;
+  private final Side bids;
+
+  private CompactOrderBook(String marketId, FixedPointScale scale, Side asks, Side bids) {
+    this.marketId = marketId;
+    this.scale = scale;
+    this.asks = asks;
+    this.bids = bids;
+  }
+
+  /**
+   * Creates a builder for a book.
+   *
+   * @param marketId the market id.
+   * @param scale the fixed-point scales of the market's prices and quantities.
+   * @return the builder.
+   */
+  public static Builder builder(String marketId, FixedPointScale scale) {
+    return new Builder(marketId, scale);
+  }
+
+  /**
+   * Converts a Market Order Book. Prices and quantities with more decimal places than the given
+   * scales are rounded half-even to the nearest tick or lot.
+   *
+   * @param orderBook the order book.
+   * @param scale the fixed-point scales of the market's prices and quantities.
+   * @return the order book itself if it is already a CompactOrderBook with the same scales, else a
+   *     new CompactOrderBook.
+   * @throws IllegalArgumentException if a side of the order book is not sorted best price first.
+   */
+  public static CompactOrderBook of(MarketOrderBook orderBook, FixedPointScale scale) {
+    if (orderBook instanceof CompactOrderBook
+        && ((CompactOrderBook) orderBook).scale.equals(scale)) {
+      return (CompactOrderBook) orderBook;
+    }
+    final Builder builder = builder(orderBook.getMarketId(), scale);
+    for (final MarketOrder marketOrder : orderBook.getSellOrders()) {
+      builder.addLevel(
+          OrderType.SELL, marketOrder.getPriceTicks(scale), marketOrder.getQuantityLots(scale));
+    }
+    for (final MarketOrder marketOrder : orderBook.getBuyOrders()) {
+      builder.addLevel(
+          OrderType.BUY, marketOrder.getPriceTicks(scale), marketOrder.getQuantityLots(scale));
+    }
+    return builder.build();
+  }
+
+  @Override
+  public String getMarketId() {
+    return marketId;
+  }
+
+  /**
+   * Returns the fixed-point scales of the book's prices and quantities.
+   *
+   * @return the scales.
+   */
+  public FixedPointScale getFixedPointScale() {
+    return scale;
+  }
+
+  @Override
+  public List<MarketOrder> getSellOrders() {
+    return asks.marketOrders;
+  }
+
+  @Override
+  public List<MarketOrder> getBuyOrders() {
+    return bids.marketOrders;
+  }
+
+  /**
+   * Returns the number of price levels on a side of the book.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @return the number of levels.
+   */
+  public int getLevels(OrderType type) {
+    return side(type).size;
+  }
+
+  /**
+   * Returns the price of a level.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @param level the level, 0 being the best price.
+   * @return the price in ticks.
+   * @throws IndexOutOfBoundsException if the side does not have the level.
+   */
+  public long getPriceTicks(OrderType type, int level) {
+    final Side side = side(type);
+    return side.prices[Objects.checkIndex(level, side.size)];
+  }
+
+  /**
+   * Returns the quantity of a level.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @param level the level, 0 being the best price.
+   * @return the quantity in lots.
+   * @throws IndexOutOfBoundsException if the side does not have the level.
+   */
+  public long getQuantityLots(OrderType type, int level) {
+    final Side side = side(type);
+    return side.quantities[Objects.checkIndex(level, side.size)];
+  }
+
+  /**
+   * Returns the total quantity of the best levels on a side of the book.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @param levels the number of levels. If the side has fewer levels, all of them are used.
+   * @return the quantity in lots.
+   * @throws IllegalArgumentException if levels is negative.
+   */
+  public long getCumulativeQuantityLots(OrderType type, int levels) {
+    if (levels < 0) {
+      throw new IllegalArgumentException("Levels must not be negative: " + levels);
+    }
+    final Side side = side(type);
+    return side.cumulativeQuantity(Math.min(levels, side.size));
+  }
+
+  /**
+   * Returns the spread: the best ask price minus the best bid price.
+   *
+   * @return the spread in price ticks. It is negative if the book is crossed.
+   * @throws IllegalStateException if a side of the book is empty.
+   */
+  public long getSpreadTicks() {
+    if (asks.size == 0 || bids.size == 0) {
+      throw new IllegalStateException("No spread - a side of the " + marketId + " book is empty");
+    }
+    return asks.prices[0] - bids.prices[0];
+  }
+
+  /**
+   * Returns the worst price reached when filling a quantity from a side of the book, i.e. the limit
+   * price needed to fill it straight away.
+   *
+   * @param type the side to take from: SELL for the asks, BUY for the bids.
+   * @param quantityLots the quantity to fill, in lots.
+   * @return the price in ticks, or {@link #INSUFFICIENT_DEPTH} if the side does not hold the
+   *     quantity.
+   * @throws IllegalArgumentException if the quantity is not positive.
+   */
+  public long priceToFill(OrderType type, long quantityLots) {
+    final Side side = side(type);
+    final int level = side.levelToFill(quantityLots);
+    return level < side.size ? side.prices[level] : INSUFFICIENT_DEPTH;
+  }
+
+  /**
+   * Returns the volume-weighted average price of filling a quantity from a side of the book.
+   *
+   * @param type the side to take from: SELL for the asks, BUY for the bids.
+   * @param quantityLots the quantity to fill, in lots.
+   * @return the average price in ticks, or NaN if the side does not hold the quantity. The
+   *     cumulative notionals are doubles, so this is an estimate for sizing trades rather than an
+   *     exact amount.
+   * @throws IllegalArgumentException if the quantity is not positive.
+   */
+  public double vwapToFill(OrderType type, long quantityLots) {
+    final Side side = side(type);
+    final int level = side.levelToFill(quantityLots);
+    if (level == side.size) {
+      return Double.NaN;
+    }
+    final long filledBefore = side.cumulativeQuantity(level);
+    final double notionalBefore = level == 0 ? 0 : side.cumulativeNotionals[level - 1];
+    final double notional =
+        notionalBefore + (double) side.prices[level] * (quantityLots - filledBefore);
+    return notional / quantityLots;
+  }
+
+  /**
+   * Returns the quantity on a side of the book priced within a number of basis points of the
+   * side's best price.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @param basisPoints the distance from the best price, in hundredths of a percent.
+   * @return the quantity in lots, or 0 if the side is empty.
+   * @throws IllegalArgumentException if basisPoints is negative.
+   */
+  public long depthWithin(OrderType type, int basisPoints) {
+    if (basisPoints < 0) {
+      throw new IllegalArgumentException("Basis points must not be negative: " + basisPoints);
+    }
+    final Side side = side(type);
+    if (side.size == 0) {
+      return 0;
+    }
+    final long bestPrice = side.prices[0];
+    final long offset = Math.multiplyExact(bestPrice, (long) basisPoints) / BASIS_POINTS;
+    final long limit = side.ascending ? bestPrice + offset : bestPrice - offset;
+    return side.cumulativeQuantity(side.levelsWithin(limit));
+  }
+
+  /**
+   * Returns the quantity imbalance of the best levels: (bid quantity - ask quantity) / (bid
+   * quantity + ask quantity).
+   *
+   * @param levels the number of levels to use from each side.
+   * @return the imbalance, from -1 (only asks) to 1 (only bids). 0 if both sides are empty.
+   * @throws IllegalArgumentException if levels is less than 1.
+   */
+  public double imbalance(int levels) {
+    if (levels < 1) {
+      throw new IllegalArgumentException("Levels must be at least 1: " + levels);
+    }
+    final long bidQuantity = bids.cumulativeQuantity(Math.min(levels, bids.size));
+    final long askQuantity = asks.cumulativeQuantity(Math.min(levels, asks.size));
+    final double total = (double) bidQuantity + askQuantity;
+    return total == 0 ? 0 : (bidQuantity - askQuantity) / total;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("marketId", marketId)
+        .add("scale", scale)
+        .add("askLevels", asks.size)
+        .add("bidLevels", bids.size)
+        .toString();
+  }
+
+  private Side side(OrderType type) {
+    return type == OrderType.SELL ? asks : bids;
+  }
+
+  /** Builds a CompactOrderBook. Levels are added best price first. Not thread safe. */
+  public static final class Builder {
+
+    private static final int INITIAL_LEVELS = 64;
+
+    private final String marketId;
+    private final FixedPointScale scale;
+    private final SideBuilder asks = new SideBuilder();
+    private final SideBuilder bids = new SideBuilder();
+
+    private Builder(String marketId, FixedPointScale scale) {
+      this.marketId = marketId;
+      this.scale = Objects.requireNonNull(scale, "scale");
+    }
+
+    /**
+     * Adds a price level.
+     *
+     * @param type SELL for an ask, BUY for a bid.
+     * @param priceTicks the price in ticks.
+     * @param quantityLots the quantity in lots.
+     * @return this builder.
+     * @throws IllegalArgumentException if the quantity is negative.
+     */
+    public Builder addLevel(OrderType type, long priceTicks, long quantityLots) {
+      if (quantityLots < 0) {
+        throw new IllegalArgumentException("Quantity must not be negative: " + quantityLots);
+      }
+      (type == OrderType.SELL ? asks : bids).add(priceTicks, quantityLots);
+      return this;
+    }
+
+    /**
+     * Adds a price level, rounding the price and quantity half-even to the book's scales.
+     *
+     * @param type SELL for an ask, BUY for a bid.
+     * @param price the price.
+     * @param quantity the quantity.
+     * @return this builder.
+     * @throws IllegalArgumentException if the quantity is negative.
+     */
+    public Builder addLevel(OrderType type, BigDecimal price, BigDecimal quantity) {
+      return addLevel(type, scale.toPriceTicks(price), scale.toQuantityLots(quantity));
+    }
+
+    /**
+     * Adds a price level from the raw decimal tokens of an exchange response, rounding the price
+     * and quantity half-even to the book's scales. No BigDecimals are created for plain decimals.
+     *
+     * @param type SELL for an ask, BUY for a bid.
+     * @param price the price token.
+     * @param quantity the quantity token.
+     * @return this builder.
+     * @throws NumberFormatException if a token is not a valid number.
+     * @throws IllegalArgumentException if the quantity is negative.
+     */
+    public Builder addLevel(OrderType type, String price, String quantity) {
+      return addLevel(type, scale.parsePriceTicks(price), scale.parseQuantityLots(quantity));
+    }
+
+    /**
+     * Builds the book and its cumulative depth arrays.
+     *
+     * @return the book.
+     * @throws IllegalArgumentException if the asks are not price ascending or the bids are not
+     *     price descending.
+     * @throws ArithmeticException if the cumulative quantity of a side does not fit in a long.
+     */
+    public CompactOrderBook build() {
+      return new CompactOrderBook(
+          marketId, scale, asks.build(OrderType.SELL, scale), bids.build(OrderType.BUY, scale));
+    }
+
+    /** The growable arrays of one side of the book. */
+    private static final class SideBuilder {
+
+      private long[] prices = new long[INITIAL_LEVELS];
+      private long[] quantities = new long[INITIAL_LEVELS];
+      private int size;
+
+      void add(long price, long quantity) {
+        if (size == prices.length) {
+          prices = Arrays.copyOf(prices, size * 2);
+          quantities = Arrays.copyOf(quantities, size * 2);
+        }
+        prices[size] = price;
+        quantities[size] = quantity;
+        size++;
+      }
+
+      Side build(OrderType type, FixedPointScale scale) {
+        return new Side(
+            type, scale, Arrays.copyOf(prices, size), Arrays.copyOf(quantities, size));
+      }
+    }
+  }
+
+  /** One side of the book. */
+  private static final class Side {
+
+    private final boolean ascending;
+    private final long[] prices;
+    private final long[] quantities;
+    private final long[] cumulativeQuantities;
+    private final double[] cumulativeNotionals;
+    private final int size;
+    private final List<MarketOrder> marketOrders;
+
+    Side(OrderType type, FixedPointScale scale, long[] prices, long[] quantities) {
+      this.ascending = type == OrderType.SELL;
+      this.prices = prices;
+      this.quantities = quantities;
+      this.size = prices.length;
+      this.cumulativeQuantities = new long[size];
+      this.cumulativeNotionals = new double[size];
+
+      long quantity = 0;
+      double notional = 0;
+      for (int i = 0; i < size; i++) {
+        if (i > 0 && !isSorted(prices[i - 1], prices[i])) {
+          throw new IllegalArgumentException(
+              (ascending ? "Asks must be price ascending" : "Bids must be price descending")
+                  + " - level "
+                  + i
+                  + " is out of order");
+        }
+        quantity = Math.addExact(quantity, quantities[i]);
+        notional += (double) prices[i] * quantities[i];
+        cumulativeQuantities[i] = quantity;
+        cumulativeNotionals[i] = notional;
+      }
+      this.marketOrders = new LevelList(type, scale, this);
+    }
+
+    long cumulativeQuantity(int levels) {
+      return levels == 0 ? 0 : cumulativeQuantities[levels - 1];
+    }
+
+    /* Returns the first level where the cumulative quantity reaches the given quantity. */
+    int levelToFill(long quantity) {
+      if (quantity <= 0) {
+        throw new IllegalArgumentException("Quantity to fill must be positive: " + quantity);
+      }
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (cumulativeQuantities[mid] < quantity) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /* Returns the number of levels priced at or better than the given limit. */
+    int levelsWithin(long limit) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (isSorted(prices[mid], limit)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private boolean isSorted(long better, long worse) {
+      return ascending ? better <= worse : better >= worse;
+    }
+  }
+
+  /** Read-only MarketOrder view of a side of the book. */
+  private static final class LevelList extends AbstractList<MarketOrder> implements RandomAccess {
+
+    private final OrderType type;
+    private final FixedPointScale scale;
+    private final Side side;
+
+    LevelList(OrderType type, FixedPointScale scale, Side side) {
+      this.type = type;
+      this.scale = scale;
+      this.side = side;
+    }
+
+    @Override
+    public MarketOrder get(int index) {
+      Objects.checkIndex(index, side.size);
+      return new Level(type, scale, side.prices[index], side.quantities[index]);
+    }
+
+    @Override
+    public int size() {
+      return side.size;
+    }
+  }
+
+  /** A price level of the book as a MarketOrder. */
+  private static final class Level implements MarketOrder {
+
+    private final OrderType type;
+    private final FixedPointScale scale;
+    private final long priceTicks;
+    private final long quantityLots;
+
+    Level(OrderType type, FixedPointScale scale, long priceTicks, long quantityLots) {
+      this.type = type;
+      this.scale = scale;
+      this.priceTicks = priceTicks;
+      this.quantityLots = quantityLots;
+    }
+
+    @Override
+    public OrderType getType() {
+      return type;
+    }
+
+    @Override
+    public BigDecimal getPrice() {
+      return scale.toPrice(priceTicks);
+    }
+
+    @Override
+    public BigDecimal getQuantity() {
+      return scale.toQuantity(quantityLots);
+    }
+
+    @Override
+    public BigDecimal getTotal() {
+      return scale.toTotal(priceTicks, quantityLots);
+    }
+
+    @Override
+    public long getPriceTicks(FixedPointScale scale) {
+      return scale.equals(this.scale) ? priceTicks : MarketOrder.super.getPriceTicks(scale);
+    }
+
+    @Override
+    public long getQuantityLots(FixedPointScale scale) {
+      return scale.equals(this.scale) ? quantityLots : MarketOrder.super.getQuantityLots(scale);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("type", type)
+          .add("price", getPrice())
+          .add("quantity", getQuantity())
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link AsyncTradingApi} that runs the blocking {@link TradingApi} calls on an {@link
+ * Executor}.
+ *
+ * <p>If the executor runs tasks on the calling thread, e.g. <code>Runnable::run</code>, this is a
+ * blocking bridge: the call completes before the future is returned. This is what {@link
+ * TradingApi#async()} gives you by default, so Exchange Adapters that know nothing about the async
+ * API keep working.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public class ExecutorAsyncTradingApi implements AsyncTradingApi {
+
+  private final TradingApi tradingApi;
+  private final Executor executor;
+
+  /**
+   * Creates the async API.
+   *
+   * @param tradingApi the blocking Trading API to call.
+   * @param executor the executor to make the calls on.
+   */
+  public ExecutorAsyncTradingApi(TradingApi tradingApi, Executor executor) {
+    this.tradingApi = tradingApi;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns the executor the blocking Trading API calls are made on.
+   *
+   * @return the executor.
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  @Override
+  public CompletableFuture<MarketOrderBook> getMarketOrders(String marketId) {
+    return supply(() -> tradingApi.getMarketOrders(marketId));
+  }
+
+  @Override
+  public CompletableFuture<MarketOrderBook> getMarketOrders(String marketId, int depth) {
+    return supply(() -> tradingApi.getMarketOrders(marketId, depth));
+  }
+
+  @Override
+  public CompletableFuture<List<OpenOrder>> getYourOpenOrders(String marketId) {
+    return supply(() -> tradingApi.getYourOpenOrders(marketId));
+  }
+
+  @Override
+  public CompletableFuture<List<OpenOrder>> getAllOpenOrders() {
+    return supply(tradingApi::getAllOpenOrders);
+  }
+
+  @Override
+  public CompletableFuture<String> createOrder(
+      String marketId, OrderType orderType, BigDecimal quantity, BigDecimal price) {
+    return supply(() -> tradingApi.createOrder(marketId, orderType, quantity, price));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> cancelOrder(String orderId, String marketId) {
+    return supply(() -> tradingApi.cancelOrder(orderId, marketId));
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> getLatestMarketPrice(String marketId) {
+    return supply(() -> tradingApi.getLatestMarketPrice(marketId));
+  }
+
+  @Override
+  public CompletableFuture<BalanceInfo> getBalanceInfo() {
+    return supply(tradingApi::getBalanceInfo);
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> getPercentageOfBuyOrderTakenForExchangeFee(
+      String marketId) {
+    return supply(() -> tradingApi.getPercentageOfBuyOrderTakenForExchangeFee(marketId));
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> getPercentageOfSellOrderTakenForExchangeFee(
+      String marketId) {
+    return supply(() -> tradingApi.getPercentageOfSellOrderTakenForExchangeFee(marketId));
+  }
+
+  @Override
+  public CompletableFuture<Ticker> getTicker(String marketId) {
+    return supply(() -> tradingApi.getTicker(marketId));
+  }
+
+  /*
+   * Can't use CompletableFuture.supplyAsync() - it wraps the checked Trading API exceptions in a
+   * CompletionException. We want the future to fail with the original exception.
+   */
+  private <T> CompletableFuture<T> supply(TradingApiCall<T> call) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      executor.execute(
+          () -> {
+            try {
+              future.complete(call.call());
+            } catch (Throwable t) {
+              future.completeExceptionally(t);
+            }
+          });
+    } catch (RuntimeException e) {
+      // e.g. the executor has been shutdown
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /** A blocking Trading API call. */
+  @FunctionalInterface
+  private interface TradingApiCall<T> {
+    T call() throws ExchangeNetworkException, TradingApiException;
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import com.google.common.base.MoreObjects;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * The fixed-point scales of a market: the number of decimal places of its prices and of its
+ * quantities.
+ *
+ * <p>A price scaled by the price scale is a whole number of price ticks, and a quantity scaled by
+ * the quantity scale is a whole number of quantity lots. Both fit in a long, so they can be
+ * compared and added without creating BigDecimals, e.g. a price of 9450.5 on a market with a price
+ * scale of 1 is 94505 ticks.
+ *
+ * <p>Strategies get the scale of a market from {@link TradingApi#getFixedPointScale(String)}, then
+ * use the primitive accessors, e.g. {@link MarketOrder#getPriceTicks(FixedPointScale)}. The
+ * BigDecimal accessors are still there and are unaffected.
+ *
+ * <p>This class is immutable and thread safe.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class FixedPointScale {
+
+  /** The biggest scale allowed: 10^18 is the biggest power of ten that fits in a long. */
+  public static final int MAX_SCALE = 18;
+
+  private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final int priceScale;
+  private final int quantityScale;
+
+  private FixedPointScale(int priceScale, int quantityScale) {
+    this.priceScale = priceScale;
+    this.quantityScale = quantityScale;
+  }
+
+  /**
+   * Creates the fixed-point scales for a market.
+   *
+   * @param priceScale the number of decimal places of the market's prices.
+   * @param quantityScale the number of decimal places of the market's quantities.
+   * @return the fixed-point scales.
+   * @throws IllegalArgumentException if a scale is negative or bigger than {@link #MAX_SCALE}.
+   */
+  public static FixedPointScale of(int priceScale, int quantityScale) {
+    checkScale("Price", priceScale);
+    checkScale("Quantity", quantityScale);
+    return new FixedPointScale(priceScale, quantityScale);
+  }
+
+  /**
+   * Returns the number of decimal places of the market's prices.
+   *
+   * @return the price scale.
+   */
+  public int getPriceScale() {
+    return priceScale;
+  }
+
+  /**
+   * Returns the number of decimal places of the market's quantities.
+   *
+   * @return the quantity scale.
+   */
+  public int getQuantityScale() {
+    return quantityScale;
+  }
+
+  /**
+   * Converts a price to price ticks. A price with more decimal places than the price scale is
+   * rounded half-even to the nearest tick.
+   *
+   * @param price the price.
+   * @return the price in ticks.
+   * @throws ArithmeticException if the price in ticks does not fit in a long.
+   */
+  public long toPriceTicks(BigDecimal price) {
+    return toScaledLong(price, priceScale);
+  }
+
+  /**
+   * Parses a decimal price, e.g. a price token from an exchange response, straight to price ticks.
+   * The result is the same as {@link #toPriceTicks(BigDecimal)}, but plain decimals are parsed
+   * without creating a BigDecimal.
+   *
+   * @param price the price.
+   * @return the price in ticks.
+   * @throws NumberFormatException if the price is not a valid number.
+   * @throws ArithmeticException if the price in ticks does not fit in a long.
+   */
+  public long parsePriceTicks(String price) {
+    return parseScaledLong(price, priceScale);
+  }
+
+  /**
+   * Converts price ticks to a price.
+   *
+   * @param priceTicks the price in ticks.
+   * @return the price, with the price scale.
+   */
+  public BigDecimal toPrice(long priceTicks) {
+    return BigDecimal.valueOf(priceTicks, priceScale);
+  }
+
+  /**
+   * Converts a quantity to quantity lots. A quantity with more decimal places than the quantity
+   * scale is rounded half-even to the nearest lot.
+   *
+   * @param quantity the quantity.
+   * @return the quantity in lots.
+   * @throws ArithmeticException if the quantity in lots does not fit in a long.
+   */
+  public long toQuantityLots(BigDecimal quantity) {
+    return toScaledLong(quantity, quantityScale);
+  }
+
+  /**
+   * Parses a decimal quantity straight to quantity lots. The result is the same as {@link
+   * #toQuantityLots(BigDecimal)}, but plain decimals are parsed without creating a BigDecimal.
+   *
+   * @param quantity the quantity.
+   * @return the quantity in lots.
+   * @throws NumberFormatException if the quantity is not a valid number.
+   * @throws ArithmeticException if the quantity in lots does not fit in a long.
+   */
+  public long parseQuantityLots(String quantity) {
+    return parseScaledLong(quantity, quantityScale);
+  }
+
+  /**
+   * Converts quantity lots to a quantity.
+   *
+   * @param quantityLots the quantity in lots.
+   * @return the quantity, with the quantity scale.
+   */
+  public BigDecimal toQuantity(long quantityLots) {
+    return BigDecimal.valueOf(quantityLots, quantityScale);
+  }
+
+  /**
+   * Returns the exact total value (price * quantity) of an order.
+   *
+   * @param priceTicks the price in ticks.
+   * @param quantityLots the quantity in lots.
+   * @return the total, with a scale of the price scale plus the quantity scale.
+   */
+  public BigDecimal toTotal(long priceTicks, long quantityLots) {
+    final int totalScale = priceScale + quantityScale;
+    final long high = Math.multiplyHigh(priceTicks, quantityLots);
+    final long low = priceTicks * quantityLots;
+    if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+      return BigDecimal.valueOf(low, totalScale);
+    }
+    // the product overflows a long - rare, but the total must still be exact
+    final BigInteger total =
+        BigInteger.valueOf(priceTicks).multiply(BigInteger.valueOf(quantityLots));
+    return new BigDecimal(total, totalScale);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final FixedPointScale that = (FixedPointScale) o;
+    return priceScale == that.priceScale && quantityScale == that.quantityScale;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * priceScale + quantityScale;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("priceScale", priceScale)
+        .add("quantityScale", quantityScale)
+        .toString();
+  }
+
+  private static long toScaledLong(BigDecimal value, int scale) {
+    return value.movePointRight(scale).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+  }
+
+  /*
+   * Handles the common case of an optional sign, digits and an optional point. Anything else -
+   * exponents, more than 18 digits, or non-zero digits that need rounding - goes the BigDecimal
+   * way, which also reports bad numbers.
+   */
+  private static long parseScaledLong(String value, int scale) {
+    final int length = value.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+      negative = value.charAt(0) == '-';
+      i = 1;
+    }
+
+    long result = 0;
+    int digits = 0;
+    int fractionDigits = -1; // -1 until the point is found
+    for (; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else if (c < '0' || c > '9' || digits == MAX_SCALE) {
+        return toScaledLong(new BigDecimal(value), scale);
+      } else if (fractionDigits == scale) {
+        // trailing zeros past the scale don't change the value; anything else needs rounding
+        if (c != '0') {
+          return toScaledLong(new BigDecimal(value), scale);
+        }
+      } else {
+        result = result * 10 + (c - '0');
+        digits++;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      }
+    }
+    if (digits == 0) {
+      return toScaledLong(new BigDecimal(value), scale);
+    }
+
+    result = Math.multiplyExact(result, POWERS_OF_TEN[scale - Math.max(fractionDigits, 0)]);
+    return negative ? -result : result;
+  }
+
+  private static void checkScale(String name, int scale) {
+    if (scale < 0 || scale > MAX_SCALE) {
+      throw new IllegalArgumentException(
+          name + " scale must be between 0 and " + MAX_SCALE + ": " + scale);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import com.google.common.base.MoreObjects;
+import java.math.BigDecimal;
+
+/**
+ * An order resting in a {@link Level3OrderBook}.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public final class Level3Order {
+
+  private final String id;
+  private final OrderType type;
+  private final BigDecimal price;
+  private final BigDecimal quantity;
+
+  /**
+   * Creates an order.
+   *
+   * @param id the exchange's order id.
+   * @param type SELL for an ask, BUY for a bid.
+   * @param price the price of the order.
+   * @param quantity the quantity of the order still to be filled.
+   */
+  public Level3Order(String id, OrderType type, BigDecimal price, BigDecimal quantity) {
+    this.id = id;
+    this.type = type;
+    this.price = price;
+    this.quantity = quantity;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public OrderType getType() {
+    return type;
+  }
+
+  public BigDecimal getPrice() {
+    return price;
+  }
+
+  public BigDecimal getQuantity() {
+    return quantity;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("id", id)
+        .add("type", type)
+        .add("price", price)
+        .add("quantity", quantity)
+        .toString();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A read-only, order by order (level 3) view of a market's order book, kept up to date from an
+ * exchange's WebSocket feed. Orders at the same price are queued in time priority, so strategies
+ * can see where an order sits in the queue, as well as the aggregated (level 2) book.
+ *
+ * <p>See {@link TradingApi#getLevel3OrderBook(String)}.
+ *
+ * @author gazbert
+ * @since 1.2
+ */
+public interface Level3OrderBook {
+
+  /**
+   * Returns an order in the book.
+   *
+   * @param orderId the exchange's order id.
+   * @return the order, or null if it is not in the book.
+   */
+  Level3Order getOrder(String orderId);
+
+  /**
+   * Returns the orders at a price level, first in the queue first.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @param price the price of the level.
+   * @return the orders, empty if there are none at the price.
+   */
+  List<Level3Order> getOrders(OrderType type, BigDecimal price);
+
+  /**
+   * Returns the total quantity of the orders queued ahead of an order at its price, i.e. the
+   * quantity that has to trade at the price before the order starts to fill.
+   *
+   * @param orderId the exchange's order id.
+   * @return the quantity ahead, or null if the order is not in the book.
+   */
+  BigDecimal getQuantityAhead(String orderId);
+
+  /**
+   * Returns the total quantity of the orders at a price level.
+   *
+   * @param type SELL for the asks, BUY for the bids.
+   * @param price the price of the level.
+   * @return the total quantity, zero if there are no orders at the price.
+   */
+  BigDecimal getLevelQuantity(OrderType type, BigDecimal price);
+
+  /**
+   * Returns the number of orders in the book.
+   *
+   * @return the order count.
+   */
+  int getOrderCount();
+
+  /**
+   * Aggregates the best levels of the book into a (level 2) Market Order Book.
+   *
+   * @param marketId the market id.
+   * @param depth the max number of levels on each side, or 0 for all of them.
+   * @return the Market Order Book.
+   */
+  MarketOrderBook toMarketOrderBook(String marketId, int depth);
+}
@@ -63,4 +63,30 @@ public interface MarketOrder {
    * @return Total value of order (price * quantity).
    */
   BigDecimal getTotal();
+
+  /**
+   * Returns the price of the order in price ticks.
+   *
+   * <p>The default implementation converts {@link #getPrice()}.
+   *
+   * @param scale the fixed-point scales of the market.
+   * @return the price of the order in ticks.
+   * @since 1.2
+   */
+  default long getPriceTicks(FixedPointScale scale) {
+    return scale.toPriceTicks(getPrice());
+  }
+
+  /**
+   * Returns the quantity of the order in quantity lots.
+   *
+   * <p>The default implementation converts {@link #getQuantity()}.
+   *
+   * @param scale the fixed-point scales of the market.
+   * @return the quantity of the order in lots.
+   * @since 1.2
+   */
+  default long getQuantityLots(FixedPointScale scale) {
+    return scale.toQuantityLots(getQuantity());
+  }
 }
@@ -93,4 +93,30 @@ public interface OpenOrder {
    * @return the Total value of order (price * quantity).
    */
   BigDecimal getTotal();
+
+  /**
+   * Returns the price per unit for this order in price ticks.
+   *
+   * <p>The default implementation converts {@link #getPrice()}.
+   *
+   * @param scale the fixed-point scales of the market.
+   * @return the price per unit for this order in ticks.
+   * @since 1.2
+   */
+  default long getPriceTicks(FixedPointScale scale) {
+    return scale.toPriceTicks(getPrice());
+  }
+
+  /**
+   * Returns the Quantity remaining for this order in quantity lots.
+   *
+   * <p>The default implementation converts {@link #getQuantity()}.
+   *
+   * @param scale the fixed-point scales of the market.
+   * @return the Quantity remaining for this order in lots.
+   * @since 1.2
+   */
+  default long getQuantityLots(FixedPointScale scale) {
+    return scale.toQuantityLots(getQuantity());
+  }
 }
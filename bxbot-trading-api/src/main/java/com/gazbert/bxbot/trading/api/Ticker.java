@@ -101,4 +101,46 @@ public interface Ticker {
    * @return the current time on the exchange if provided, null otherwise.
    */
   Long getTimestamp();
+
+  /**
+   * Returns the last trade price in price ticks.
+   *
+   * <p>The default implementation converts {@link #getLast()}.
+   *
+   * @param scale the fixed-point scales of the market.
+   * @return the last trade price in ticks.
+   * @throws NullPointerException if the exchange does not provide the last trade price.
+   * @since 1.2
+   */
+  default long getLastTicks(FixedPointScale scale) {
+    return scale.toPriceTicks(getLast());
+  }
+
+  /**
+   * Returns the highest buy order price in price ticks.
+   *
+   * <p>The default implementation converts {@link #getBid()}.
+   *
+   * @param scale the fixed-point scales of the market.
+   * @return the highest buy order price in ticks.
+   * @throws NullPointerException if the exchange does not provide the highest buy order price.
+   * @since 1.2
+   */
+  default long getBidTicks(FixedPointScale scale) {
+    return scale.toPriceTicks(getBid());
+  }
+
+  /**
+   * Returns the lowest sell order price in price ticks.
+   *
+   * <p>The default implementation converts {@link #getAsk()}.
+   *
+   * @param scale the fixed-point scales of the market.
+   * @return the lowest sell order price in ticks.
+   * @throws NullPointerException if the exchange does not provide the lowest sell order price.
+   * @since 1.2
+   */
+  default long getAskTicks(FixedPointScale scale) {
+    return scale.toPriceTicks(getAsk());
+  }
 }
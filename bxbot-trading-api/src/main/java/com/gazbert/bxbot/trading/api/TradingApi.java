@@ -24,6 +24,7 @@
 package com.gazbert.bxbot.trading.api;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -80,6 +81,56 @@ public interface TradingApi {
   MarketOrderBook getMarketOrders(String marketId)
       throws ExchangeNetworkException, TradingApiException;
 
+  /**
+   * Fetches the top {@code depth} latest <em>market</em> orders for a given market, i.e. at most
+   * {@code depth} BUY orders and {@code depth} SELL orders, best prices first.
+   *
+   * <p>Use this if your Trading Strategy only looks at the top of the order book: Exchange Adapters
+   * pass the depth to the exchange where it supports it, saving bandwidth and parsing time.
+   *
+   * <p>The default implementation fetches the full order book and truncates it.
+   *
+   * @param marketId the id of the market.
+   * @param depth the max number of BUY and SELL orders to return. Must be at least 1.
+   * @return the market order book.
+   * @throws IllegalArgumentException if depth is less than 1.
+   * @throws ExchangeNetworkException if a network error occurred trying to connect to the exchange.
+   *     This is implementation specific for each Exchange Adapter - see the documentation for the
+   *     adapter you are using. You could retry the API call, or exit from your Trading Strategy and
+   *     let the Trading Engine execute your Trading Strategy at the next trade cycle.
+   * @throws TradingApiException if the API call failed for any reason other than a network error.
+   *     This means something bad as happened; you would probably want to wrap this exception in a
+   *     StrategyException and let the Trading Engine shutdown the bot immediately to prevent
+   *     unexpected losses.
+   * @since 1.2
+   */
+  default MarketOrderBook getMarketOrders(String marketId, int depth)
+      throws TradingApiException, ExchangeNetworkException {
+    if (depth < 1) {
+      throw new IllegalArgumentException("Order book depth must be at least 1: " + depth);
+    }
+
+    final MarketOrderBook orderBook = getMarketOrders(marketId);
+    final List<MarketOrder> sellOrders = truncate(orderBook.getSellOrders(), depth);
+    final List<MarketOrder> buyOrders = truncate(orderBook.getBuyOrders(), depth);
+    return new MarketOrderBook() {
+      @Override
+      public String getMarketId() {
+        return orderBook.getMarketId();
+      }
+
+      @Override
+      public List<MarketOrder> getSellOrders() {
+        return sellOrders;
+      }
+
+      @Override
+      public List<MarketOrder> getBuyOrders() {
+        return buyOrders;
+      }
+    };
+  }
+
   /**
    * Fetches <em>your</em> current open orders, i.e. the orders placed by the bot.
    *
@@ -98,6 +149,97 @@ public interface TradingApi {
   List<OpenOrder> getYourOpenOrders(String marketId)
       throws ExchangeNetworkException, TradingApiException;
 
+  /**
+   * Tells you if the exchange can return your open orders for every market in a single call - see
+   * {@link #getAllOpenOrders()}.
+   *
+   * <p>The default implementation returns false.
+   *
+   * @return true if getAllOpenOrders is supported, false otherwise.
+   * @since 1.2
+   */
+  default boolean isAllOpenOrdersSupported() {
+    return false;
+  }
+
+  /**
+   * Fetches <em>your</em> current open orders for every market in a single call to the exchange.
+   * Each order's {@link OpenOrder#getMarketId()} is the id of the market it was placed on, as
+   * returned by the exchange.
+   *
+   * <p>If your bot trades on several markets, this saves making the same call to the exchange for
+   * each market. Check {@link #isAllOpenOrdersSupported()} before calling it.
+   *
+   * <p>The default implementation throws an UnsupportedOperationException.
+   *
+   * @return your current open orders for all markets.
+   * @throws UnsupportedOperationException if the exchange does not support it.
+   * @throws ExchangeNetworkException if a network error occurred trying to connect to the exchange.
+   *     This is implementation specific for each Exchange Adapter - see the documentation for the
+   *     adapter you are using. You could retry the API call, or exit from your Trading Strategy and
+   *     let the Trading Engine execute your Trading Strategy at the next trade cycle.
+   * @throws TradingApiException if the API call failed for any reason other than a network error.
+   *     This means something bad as happened; you would probably want to wrap this exception in a
+   *     StrategyException and let the Trading Engine shutdown the bot immediately to prevent
+   *     unexpected losses.
+   * @since 1.2
+   */
+  default List<OpenOrder> getAllOpenOrders() throws ExchangeNetworkException, TradingApiException {
+    throw new UnsupportedOperationException(
+        getImplName() + " cannot fetch the open orders for all markets in a single call");
+  }
+
+  /**
+   * Tells you if the exchange adapter keeps an order by order (level 3) book of each market - see
+   * {@link #getLevel3OrderBook(String)}.
+   *
+   * <p>The default implementation returns false.
+   *
+   * @return true if getLevel3OrderBook is supported, false otherwise.
+   * @since 1.2
+   */
+  default boolean isLevel3Supported() {
+    return false;
+  }
+
+  /**
+   * Returns a market's order by order (level 3) book. The exchange adapter keeps it up to date from
+   * the exchange's market data feed, so no call is made to the exchange: the book is read live and
+   * the same instance can change whilst you use it.
+   *
+   * <p>Unlike the aggregated book returned by {@link #getMarketOrders(String)}, it has each order
+   * queued at a price, e.g. so you can see how much is ahead of one of your orders. Check {@link
+   * #isLevel3Supported()} before calling it.
+   *
+   * <p>The default implementation throws an UnsupportedOperationException.
+   *
+   * @param marketId the id of the market.
+   * @return the book, or null if it is not available right now, e.g. whilst the adapter is syncing
+   *     it with the exchange - use {@link #getMarketOrders(String)} instead.
+   * @throws UnsupportedOperationException if the exchange adapter does not support it.
+   * @since 1.2
+   */
+  default Level3OrderBook getLevel3OrderBook(String marketId) {
+    throw new UnsupportedOperationException(
+        getImplName() + " does not keep an order by order book of each market");
+  }
+
+  /**
+   * Returns the fixed-point scales of a market, for use with the primitive accessors of the
+   * returned market orders, open orders and tickers, e.g. {@link
+   * MarketOrder#getPriceTicks(FixedPointScale)}.
+   *
+   * <p>The default implementation returns null.
+   *
+   * @param marketId the id of the market.
+   * @return the fixed-point scales of the market if the exchange provides the market's precision,
+   *     null otherwise.
+   * @since 1.2
+   */
+  default FixedPointScale getFixedPointScale(String marketId) {
+    return null;
+  }
+
   /**
    * Places an order on the exchange.
    *
@@ -284,4 +426,25 @@ public interface TradingApi {
       }
     };
   }
+
+  /**
+   * Returns the asynchronous version of this API.
+   *
+   * <p>The default implementation is a blocking bridge: each call is made on the calling thread and
+   * the future is already complete when it is returned. Exchange Adapters can override this to
+   * make the calls without blocking the caller.
+   *
+   * @return the async Trading API.
+   * @since 1.2
+   */
+  default AsyncTradingApi async() {
+    return new ExecutorAsyncTradingApi(this, Runnable::run);
+  }
+
+  /*
+   * Copies the top orders so the rest of the book can be garbage collected.
+   */
+  private static List<MarketOrder> truncate(List<MarketOrder> orders, int depth) {
+    return new ArrayList<>(orders.subList(0, Math.min(depth, orders.size())));
+  }
 }
@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the Compact Order Book behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestCompactOrderBook {
+
+  private static final String MARKET_ID = "btcusd";
+  private static final FixedPointScale SCALE = FixedPointScale.of(2, 8);
+  private static final long ONE_BTC = 100_000_000L;
+
+  /*
+   * Asks: 100.00 x 1, 100.50 x 2, 102.00 x 3
+   * Bids:  99.90 x 4,  99.00 x 1,  90.00 x 5
+   */
+  private static CompactOrderBook createOrderBook() {
+    return CompactOrderBook.builder(MARKET_ID, SCALE)
+        .addLevel(OrderType.SELL, 10_000, ONE_BTC)
+        .addLevel(OrderType.SELL, new BigDecimal("100.5"), new BigDecimal("2"))
+        .addLevel(OrderType.SELL, "102.00", "3.0")
+        .addLevel(OrderType.BUY, 9_990, 4 * ONE_BTC)
+        .addLevel(OrderType.BUY, 9_900, ONE_BTC)
+        .addLevel(OrderType.BUY, 9_000, 5 * ONE_BTC)
+        .build();
+  }
+
+  @Test
+  public void testLevelsAreStoredAsTicksAndLots() {
+    final CompactOrderBook orderBook = createOrderBook();
+
+    assertEquals(MARKET_ID, orderBook.getMarketId());
+    assertSame(SCALE, orderBook.getFixedPointScale());
+    assertEquals(3, orderBook.getLevels(OrderType.SELL));
+    assertEquals(3, orderBook.getLevels(OrderType.BUY));
+    assertEquals(10_050, orderBook.getPriceTicks(OrderType.SELL, 1));
+    assertEquals(2 * ONE_BTC, orderBook.getQuantityLots(OrderType.SELL, 1));
+    assertEquals(9_000, orderBook.getPriceTicks(OrderType.BUY, 2));
+    assertEquals(5 * ONE_BTC, orderBook.getQuantityLots(OrderType.BUY, 2));
+    assertTrue(orderBook.toString().contains("askLevels=3"));
+  }
+
+  @Test
+  public void testLevelsCanBeReadAsMarketOrders() {
+    final CompactOrderBook orderBook = createOrderBook();
+
+    final List<MarketOrder> sellOrders = orderBook.getSellOrders();
+    assertEquals(3, sellOrders.size());
+    final MarketOrder bestAsk = sellOrders.get(0);
+    assertEquals(OrderType.SELL, bestAsk.getType());
+    assertEquals(new BigDecimal("100.00"), bestAsk.getPrice());
+    assertEquals(new BigDecimal("1.00000000"), bestAsk.getQuantity());
+    assertEquals(new BigDecimal("100.0000000000"), bestAsk.getTotal());
+    assertEquals(10_000, bestAsk.getPriceTicks(SCALE));
+    assertEquals(ONE_BTC, bestAsk.getQuantityLots(SCALE));
+    assertEquals(1_000, bestAsk.getPriceTicks(FixedPointScale.of(1, 0)));
+    assertEquals(1, bestAsk.getQuantityLots(FixedPointScale.of(1, 0)));
+    assertTrue(bestAsk.toString().contains("price=100.00"));
+
+    final MarketOrder bestBid = orderBook.getBuyOrders().get(0);
+    assertEquals(OrderType.BUY, bestBid.getType());
+    assertEquals(new BigDecimal("99.90"), bestBid.getPrice());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testReadingMissingLevelIsRejected() {
+    createOrderBook().getSellOrders().get(3);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testReadingMissingLevelPriceIsRejected() {
+    createOrderBook().getPriceTicks(OrderType.BUY, -1);
+  }
+
+  @Test
+  public void testSpreadAndCumulativeQuantities() {
+    final CompactOrderBook orderBook = createOrderBook();
+
+    assertEquals(10, orderBook.getSpreadTicks());
+    assertEquals(0, orderBook.getCumulativeQuantityLots(OrderType.SELL, 0));
+    assertEquals(3 * ONE_BTC, orderBook.getCumulativeQuantityLots(OrderType.SELL, 2));
+    assertEquals(10 * ONE_BTC, orderBook.getCumulativeQuantityLots(OrderType.BUY, 100));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSpreadOfOneSidedBookIsRejected() {
+    CompactOrderBook.builder(MARKET_ID, SCALE)
+        .addLevel(OrderType.SELL, 10_000, ONE_BTC)
+        .build()
+        .getSpreadTicks();
+  }
+
+  @Test
+  public void testPriceToFill() {
+    final CompactOrderBook orderBook = createOrderBook();
+
+    assertEquals(10_000, orderBook.priceToFill(OrderType.SELL, 1));
+    assertEquals(10_000, orderBook.priceToFill(OrderType.SELL, ONE_BTC));
+    assertEquals(10_050, orderBook.priceToFill(OrderType.SELL, ONE_BTC + 1));
+    assertEquals(10_200, orderBook.priceToFill(OrderType.SELL, 6 * ONE_BTC));
+    final long tooMuch = 6 * ONE_BTC + 1;
+    final long price = orderBook.priceToFill(OrderType.SELL, tooMuch);
+    assertEquals(CompactOrderBook.INSUFFICIENT_DEPTH, price);
+    assertEquals(9_900, orderBook.priceToFill(OrderType.BUY, 5 * ONE_BTC));
+  }
+
+  @Test
+  public void testVwapToFill() {
+    final CompactOrderBook orderBook = createOrderBook();
+
+    assertEquals(10_000, orderBook.vwapToFill(OrderType.SELL, ONE_BTC / 2), 1e-9);
+    // 1 @ 100.00 + 2 @ 100.50 + 1 @ 102.00
+    assertEquals(10_075, orderBook.vwapToFill(OrderType.SELL, 4 * ONE_BTC), 1e-9);
+    // 4 @ 99.90 + 1 @ 99.00
+    assertEquals(9_972, orderBook.vwapToFill(OrderType.BUY, 5 * ONE_BTC), 1e-9);
+    assertTrue(Double.isNaN(orderBook.vwapToFill(OrderType.BUY, 11 * ONE_BTC)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFillingNothingIsRejected() {
+    createOrderBook().priceToFill(OrderType.SELL, 0);
+  }
+
+  @Test
+  public void testDepthWithinBasisPoints() {
+    final CompactOrderBook orderBook = createOrderBook();
+
+    assertEquals(ONE_BTC, orderBook.depthWithin(OrderType.SELL, 0));
+    assertEquals(ONE_BTC, orderBook.depthWithin(OrderType.SELL, 49));
+    assertEquals(3 * ONE_BTC, orderBook.depthWithin(OrderType.SELL, 50));
+    assertEquals(6 * ONE_BTC, orderBook.depthWithin(OrderType.SELL, 10_000));
+    // 99.90 - 1% = 98.90
+    assertEquals(5 * ONE_BTC, orderBook.depthWithin(OrderType.BUY, 100));
+    assertEquals(
+        0, CompactOrderBook.builder(MARKET_ID, SCALE).build().depthWithin(OrderType.BUY, 100));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBasisPointsAreRejected() {
+    createOrderBook().depthWithin(OrderType.BUY, -1);
+  }
+
+  @Test
+  public void testImbalance() {
+    final CompactOrderBook orderBook = createOrderBook();
+
+    // bids 4 vs asks 1
+    assertEquals(0.6, orderBook.imbalance(1), 1e-12);
+    // bids 10 vs asks 6
+    assertEquals(0.25, orderBook.imbalance(10), 1e-12);
+    assertEquals(0, CompactOrderBook.builder(MARKET_ID, SCALE).build().imbalance(1), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testImbalanceOfNoLevelsIsRejected() {
+    createOrderBook().imbalance(0);
+  }
+
+  @Test
+  public void testSidesGrowPastInitialCapacity() {
+    final CompactOrderBook.Builder builder = CompactOrderBook.builder(MARKET_ID, SCALE);
+    for (int i = 0; i < 1000; i++) {
+      builder.addLevel(OrderType.SELL, 10_000 + i, ONE_BTC);
+      builder.addLevel(OrderType.BUY, 9_999 - i, ONE_BTC);
+    }
+    final CompactOrderBook orderBook = builder.build();
+
+    assertEquals(1000, orderBook.getLevels(OrderType.SELL));
+    assertEquals(10_999, orderBook.getPriceTicks(OrderType.SELL, 999));
+    assertEquals(10_500, orderBook.priceToFill(OrderType.SELL, 501 * ONE_BTC));
+    assertEquals(9_000, orderBook.getPriceTicks(OrderType.BUY, 999));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedAsksAreRejected() {
+    CompactOrderBook.builder(MARKET_ID, SCALE)
+        .addLevel(OrderType.SELL, 10_050, ONE_BTC)
+        .addLevel(OrderType.SELL, 10_000, ONE_BTC)
+        .build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedBidsAreRejected() {
+    CompactOrderBook.builder(MARKET_ID, SCALE)
+        .addLevel(OrderType.BUY, 9_900, ONE_BTC)
+        .addLevel(OrderType.BUY, 9_990, ONE_BTC)
+        .build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeQuantityIsRejected() {
+    CompactOrderBook.builder(MARKET_ID, SCALE).addLevel(OrderType.BUY, 9_900, -1);
+  }
+
+  @Test
+  public void testConvertingMarketOrderBook() {
+    final CompactOrderBook orderBook = createOrderBook();
+    final MarketOrderBook marketOrderBook =
+        new MarketOrderBook() {
+          @Override
+          public String getMarketId() {
+            return MARKET_ID;
+          }
+
+          @Override
+          public List<MarketOrder> getSellOrders() {
+            return Arrays.asList(orderBook.getSellOrders().get(0));
+          }
+
+          @Override
+          public List<MarketOrder> getBuyOrders() {
+            return Collections.emptyList();
+          }
+        };
+
+    final CompactOrderBook converted = CompactOrderBook.of(marketOrderBook, SCALE);
+    assertEquals(MARKET_ID, converted.getMarketId());
+    assertEquals(1, converted.getLevels(OrderType.SELL));
+    assertEquals(0, converted.getLevels(OrderType.BUY));
+    assertEquals(10_000, converted.getPriceTicks(OrderType.SELL, 0));
+
+    // rounded half-even to the coarser scale
+    final CompactOrderBook coarse = CompactOrderBook.of(orderBook, FixedPointScale.of(0, 0));
+    assertEquals(100, coarse.getPriceTicks(OrderType.SELL, 1));
+    assertEquals(100, coarse.getPriceTicks(OrderType.BUY, 0));
+
+    assertSame(orderBook, CompactOrderBook.of(orderBook, FixedPointScale.of(2, 8)));
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Executor Async Trading API behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestExecutorAsyncTradingApi {
+
+  private static final String MARKET_ID = "btcusd";
+  private static final String ORDER_ID = "order-123";
+  private static final BigDecimal PRICE = new BigDecimal("9000.12");
+  private static final BigDecimal QUANTITY = new BigDecimal("0.01");
+
+  private ExecutorService executorService;
+
+  @Before
+  public void setupForEachTest() {
+    executorService = Executors.newFixedThreadPool(3);
+  }
+
+  @After
+  public void tearDownAfterEachTest() throws Exception {
+    executorService.shutdownNow();
+    executorService.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testCallsAreMadeConcurrentlyOnExecutor() throws Exception {
+    // Each call blocks until all 3 are in flight - only works if they are made at the same time.
+    final CountDownLatch allInFlight = new CountDownLatch(3);
+    final StubTradingApi tradingApi = new StubTradingApi(allInFlight);
+    final AsyncTradingApi asyncApi = new ExecutorAsyncTradingApi(tradingApi, executorService);
+
+    final CompletableFuture<MarketOrderBook> orderBook = asyncApi.getMarketOrders(MARKET_ID);
+    final CompletableFuture<List<OpenOrder>> openOrders = asyncApi.getYourOpenOrders(MARKET_ID);
+    final CompletableFuture<Ticker> ticker = asyncApi.getTicker(MARKET_ID);
+    CompletableFuture.allOf(orderBook, openOrders, ticker).get(5, TimeUnit.SECONDS);
+
+    assertTrue(openOrders.get().isEmpty());
+    assertNotSame(Thread.currentThread(), tradingApi.lastCallingThread);
+  }
+
+  @Test
+  public void testCallResultsArePassedBack() throws Exception {
+    final AsyncTradingApi asyncApi =
+        new ExecutorAsyncTradingApi(new StubTradingApi(new CountDownLatch(0)), executorService);
+
+    assertEquals(ORDER_ID, asyncApi.createOrder(MARKET_ID, OrderType.BUY, QUANTITY, PRICE).get());
+    assertTrue(asyncApi.cancelOrder(ORDER_ID, MARKET_ID).get());
+    assertSame(PRICE, asyncApi.getLatestMarketPrice(MARKET_ID).get());
+    assertSame(PRICE, asyncApi.getPercentageOfBuyOrderTakenForExchangeFee(MARKET_ID).get());
+    assertSame(PRICE, asyncApi.getPercentageOfSellOrderTakenForExchangeFee(MARKET_ID).get());
+  }
+
+  @Test
+  public void testFutureFailsWithOriginalTradingApiException() throws Exception {
+    final AsyncTradingApi asyncApi =
+        new ExecutorAsyncTradingApi(new StubTradingApi(new CountDownLatch(0)), executorService);
+    try {
+      asyncApi.getBalanceInfo().get();
+      fail("Expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof ExchangeNetworkException);
+    }
+  }
+
+  @Test
+  public void testFutureFailsIfExecutorRejectsCall() {
+    executorService.shutdown();
+
+    final CompletableFuture<BigDecimal> future =
+        new ExecutorAsyncTradingApi(new StubTradingApi(new CountDownLatch(0)), executorService)
+            .getLatestMarketPrice(MARKET_ID);
+    assertTrue(future.isCompletedExceptionally());
+    assertFalse(future.isCancelled());
+  }
+
+  /** Stub Trading API. Market data calls wait on a latch. */
+  private static class StubTradingApi implements TradingApi {
+
+    private final CountDownLatch latch;
+    private volatile Thread lastCallingThread;
+
+    StubTradingApi(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public String getImplName() {
+      return "stub";
+    }
+
+    @Override
+    public MarketOrderBook getMarketOrders(String marketId) throws ExchangeNetworkException {
+      awaitLatch();
+      return null;
+    }
+
+    @Override
+    public List<OpenOrder> getYourOpenOrders(String marketId) throws ExchangeNetworkException {
+      awaitLatch();
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Ticker getTicker(String marketId) throws ExchangeNetworkException {
+      awaitLatch();
+      return null;
+    }
+
+    @Override
+    public String createOrder(
+        String marketId, OrderType orderType, BigDecimal quantity, BigDecimal price) {
+      return ORDER_ID;
+    }
+
+    @Override
+    public boolean cancelOrder(String orderId, String marketId) {
+      return true;
+    }
+
+    @Override
+    public BigDecimal getLatestMarketPrice(String marketId) {
+      return PRICE;
+    }
+
+    @Override
+    public BalanceInfo getBalanceInfo() throws ExchangeNetworkException {
+      throw new ExchangeNetworkException("Connection reset");
+    }
+
+    @Override
+    public BigDecimal getPercentageOfBuyOrderTakenForExchangeFee(String marketId) {
+      return PRICE;
+    }
+
+    @Override
+    public BigDecimal getPercentageOfSellOrderTakenForExchangeFee(String marketId) {
+      return PRICE;
+    }
+
+    private void awaitLatch() throws ExchangeNetworkException {
+      lastCallingThread = Thread.currentThread();
+      latch.countDown();
+      try {
+        if (!latch.await(5, TimeUnit.SECONDS)) {
+          throw new ExchangeNetworkException("Calls were not made concurrently!");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ExchangeNetworkException("Interrupted!", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests FixedPointScale and the fixed-point accessors of the Trading API behave as expected.
+ *
+ * @author gazbert
+ */
+public class TestFixedPointScale {
+
+  private static final FixedPointScale BTC_USD = FixedPointScale.of(2, 8);
+
+  @Test
+  public void testPricesAndQuantitiesConvertBothWays() {
+    assertEquals(945_050, BTC_USD.toPriceTicks(new BigDecimal("9450.5")));
+    assertEquals(new BigDecimal("9450.50"), BTC_USD.toPrice(945_050));
+
+    assertEquals(1_234_567, BTC_USD.toQuantityLots(new BigDecimal("0.01234567")));
+    assertEquals(new BigDecimal("0.01234567"), BTC_USD.toQuantity(1_234_567));
+
+    assertEquals(-5, BTC_USD.toPriceTicks(new BigDecimal("-0.05")));
+    assertEquals(2, BTC_USD.getPriceScale());
+    assertEquals(8, BTC_USD.getQuantityScale());
+  }
+
+  @Test
+  public void testExtraDecimalPlacesAreRoundedHalfEven() {
+    assertEquals(945_050, BTC_USD.toPriceTicks(new BigDecimal("9450.505")));
+    assertEquals(945_052, BTC_USD.toPriceTicks(new BigDecimal("9450.515")));
+    assertEquals(945_051, BTC_USD.toPriceTicks(new BigDecimal("9450.5051")));
+  }
+
+  @Test
+  public void testParsingTokensMatchesBigDecimalConversion() {
+    final String[] tokens = {
+      "9450.5", "9450.50", "9450.505", "9450.515", "9450.5051", "9450.51000000", "-0.05", "+12",
+      "12.", ".5", "0", "1E+3", "12345678901234567.8", "0.00000000000000000001"
+    };
+    for (final String token : tokens) {
+      final long expected = BTC_USD.toPriceTicks(new BigDecimal(token));
+      assertEquals(token, expected, BTC_USD.parsePriceTicks(token));
+    }
+    assertEquals(585_100_000, BTC_USD.parseQuantityLots("5.851"));
+    assertEquals(88_800_000, BTC_USD.parseQuantityLots("0.888000000000"));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testParsingBadTokenIsRejected() {
+    BTC_USD.parsePriceTicks("12.3.4");
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testParsingTokenWithoutDigitsIsRejected() {
+    BTC_USD.parseQuantityLots("-.");
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testParsedTicksThatDoNotFitInLongAreRejected() {
+    FixedPointScale.of(18, 0).parsePriceTicks("10");
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testTicksThatDoNotFitInLongAreRejected() {
+    FixedPointScale.of(18, 0).toPriceTicks(new BigDecimal("10"));
+  }
+
+  @Test
+  public void testTotalIsExactEvenIfItOverflowsLong() {
+    assertEquals(new BigDecimal("116.6727543350"), BTC_USD.toTotal(945_050, 1_234_567));
+
+    final FixedPointScale scale = FixedPointScale.of(0, 0);
+    assertEquals(
+        new BigDecimal(Long.MAX_VALUE).multiply(new BigDecimal(Long.MAX_VALUE)),
+        scale.toTotal(Long.MAX_VALUE, Long.MAX_VALUE));
+    assertEquals(
+        new BigDecimal(Long.MIN_VALUE).multiply(new BigDecimal(3)),
+        scale.toTotal(Long.MIN_VALUE, 3));
+    assertEquals(new BigDecimal(-6), scale.toTotal(-2, 3));
+  }
+
+  @Test
+  public void testScalesMustBeBetweenZeroAndMax() {
+    FixedPointScale.of(0, FixedPointScale.MAX_SCALE);
+    for (final int[] scales : new int[][] {{-1, 0}, {0, -1}, {19, 0}, {0, 19}}) {
+      try {
+        FixedPointScale.of(scales[0], scales[1]);
+        throw new AssertionError("Expected IllegalArgumentException for " + scales[0]);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testEqualsHashCodeAndToString() {
+    assertEquals(FixedPointScale.of(2, 8), BTC_USD);
+    assertEquals(FixedPointScale.of(2, 8).hashCode(), BTC_USD.hashCode());
+    assertNotEquals(FixedPointScale.of(8, 2), BTC_USD);
+    assertNotEquals(BTC_USD, null);
+    assertNotEquals(BTC_USD, "2,8");
+    assertEquals("FixedPointScale{priceScale=2, quantityScale=8}", BTC_USD.toString());
+  }
+
+  @Test
+  public void testDefaultAccessorsConvertTheBigDecimalValues() {
+    final BigDecimal price = new BigDecimal("9450.5");
+    final BigDecimal quantity = new BigDecimal("0.5");
+    final MarketOrder marketOrder =
+        new MarketOrder() {
+          @Override
+          public OrderType getType() {
+            return OrderType.BUY;
+          }
+
+          @Override
+          public BigDecimal getPrice() {
+            return price;
+          }
+
+          @Override
+          public BigDecimal getQuantity() {
+            return quantity;
+          }
+
+          @Override
+          public BigDecimal getTotal() {
+            return price.multiply(quantity);
+          }
+        };
+    assertEquals(945_050, marketOrder.getPriceTicks(BTC_USD));
+    assertEquals(50_000_000, marketOrder.getQuantityLots(BTC_USD));
+
+    final BalanceInfo balanceInfo =
+        new BalanceInfo() {
+          @Override
+          public Map<String, BigDecimal> getBalancesAvailable() {
+            return Collections.singletonMap("BTC", quantity);
+          }
+
+          @Override
+          public Map<String, BigDecimal> getBalancesOnHold() {
+            return Collections.emptyMap();
+          }
+        };
+    assertEquals(50_000_000, balanceInfo.getBalanceAvailableLots("BTC", BTC_USD));
+    assertEquals(0, balanceInfo.getBalanceAvailableLots("USD", BTC_USD));
+
+    final OpenOrder openOrder = createOpenOrder(price, quantity);
+    assertEquals(945_050, openOrder.getPriceTicks(BTC_USD));
+    assertEquals(50_000_000, openOrder.getQuantityLots(BTC_USD));
+
+    final Ticker ticker =
+        createTicker(
+            new BigDecimal("9450.49"), new BigDecimal("9450.5"), new BigDecimal("9450.51"));
+    assertEquals(945_049, ticker.getBidTicks(BTC_USD));
+    assertEquals(945_050, ticker.getLastTicks(BTC_USD));
+    assertEquals(945_051, ticker.getAskTicks(BTC_USD));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testTickerAccessorThrowsNullPointerExceptionIfExchangeDoesNotProvideValue() {
+    createTicker(null, null, null).getLastTicks(BTC_USD);
+  }
+
+  // --------------------------------------------------------------------------
+  //  Util methods
+  // --------------------------------------------------------------------------
+
+  private static OpenOrder createOpenOrder(BigDecimal price, BigDecimal quantity) {
+    return new OpenOrder() {
+      @Override
+      public String getId() {
+        return "order-1";
+      }
+
+      @Override
+      public Date getCreationDate() {
+        return new Date();
+      }
+
+      @Override
+      public String getMarketId() {
+        return "btcusd";
+      }
+
+      @Override
+      public OrderType getType() {
+        return OrderType.SELL;
+      }
+
+      @Override
+      public BigDecimal getPrice() {
+        return price;
+      }
+
+      @Override
+      public BigDecimal getQuantity() {
+        return quantity;
+      }
+
+      @Override
+      public BigDecimal getOriginalQuantity() {
+        return quantity;
+      }
+
+      @Override
+      public BigDecimal getTotal() {
+        return price.multiply(quantity);
+      }
+    };
+  }
+
+  private static Ticker createTicker(BigDecimal bid, BigDecimal last, BigDecimal ask) {
+    return new Ticker() {
+      @Override
+      public BigDecimal getLast() {
+        return last;
+      }
+
+      @Override
+      public BigDecimal getBid() {
+        return bid;
+      }
+
+      @Override
+      public BigDecimal getAsk() {
+        return ask;
+      }
+
+      @Override
+      public BigDecimal getLow() {
+        return null;
+      }
+
+      @Override
+      public BigDecimal getHigh() {
+        return null;
+      }
+
+      @Override
+      public BigDecimal getOpen() {
+        return null;
+      }
+
+      @Override
+      public BigDecimal getVolume() {
+        return null;
+      }
+
+      @Override
+      public BigDecimal getVwap() {
+        return null;
+      }
+
+      @Override
+      public Long getTimestamp() {
+        return null;
+      }
+    };
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2021 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.trading.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import org.junit.Test;
+
+/**
+ * Tests a Level 3 Order behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestLevel3Order {
+
+  private static final String ORDER_ID = "d50ec984-77a8-460a-b958-66f114b0de9b";
+  private static final BigDecimal PRICE = new BigDecimal("9450.12");
+  private static final BigDecimal QUANTITY = new BigDecimal("0.25");
+
+  @Test
+  public void testOrderIsCreatedAsExpected() {
+    final Level3Order order = new Level3Order(ORDER_ID, OrderType.BUY, PRICE, QUANTITY);
+
+    assertEquals(ORDER_ID, order.getId());
+    assertEquals(OrderType.BUY, order.getType());
+    assertEquals(PRICE, order.getPrice());
+    assertEquals(QUANTITY, order.getQuantity());
+  }
+
+  @Test
+  public void testToStringShowsOrder() {
+    final Level3Order order = new Level3Order(ORDER_ID, OrderType.SELL, PRICE, QUANTITY);
+
+    final String description = order.toString();
+    assertTrue(description.contains("id=" + ORDER_ID));
+    assertTrue(description.contains("type=SELL"));
+    assertTrue(description.contains("price=9450.12"));
+    assertTrue(description.contains("quantity=0.25"));
+  }
+}
@@ -24,11 +24,15 @@
 package com.gazbert.bxbot.trading.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.junit.Test;
 
 /**
@@ -61,6 +65,56 @@ public class TestTradingApi {
     assertNull(ticker.getTimestamp());
   }
 
+  @Test
+  public void testGetFixedPointScaleReturnsNullByDefault() {
+    final MyApiImpl myApi = new MyApiImpl();
+    assertNull(myApi.getFixedPointScale("market-123"));
+  }
+
+  @Test
+  public void testGetMarketOrdersWithDepthTruncatesFullOrderBook() throws Exception {
+    final MyApiImpl myApi = new MyApiImpl();
+
+    final MarketOrderBook orderBook = myApi.getMarketOrders("market-123", 2);
+
+    assertEquals("market-123", orderBook.getMarketId());
+    assertEquals(2, orderBook.getBuyOrders().size());
+    assertEquals(new BigDecimal("100"), orderBook.getBuyOrders().get(0).getPrice());
+    assertEquals(new BigDecimal("99"), orderBook.getBuyOrders().get(1).getPrice());
+    assertEquals(1, orderBook.getSellOrders().size()); // fewer orders than depth
+    assertEquals(new BigDecimal("101"), orderBook.getSellOrders().get(0).getPrice());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetMarketOrdersWithZeroDepthIsRejected() throws Exception {
+    new MyApiImpl().getMarketOrders("market-123", 0);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetAllOpenOrdersIsNotSupportedByDefault() throws Exception {
+    final MyApiImpl myApi = new MyApiImpl();
+    assertFalse(myApi.isAllOpenOrdersSupported());
+    myApi.getAllOpenOrders();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetLevel3OrderBookIsNotSupportedByDefault() {
+    final MyApiImpl myApi = new MyApiImpl();
+    assertFalse(myApi.isLevel3Supported());
+    myApi.getLevel3OrderBook("market-123");
+  }
+
+  @Test
+  public void testAsyncIsBlockingBridgeByDefault() throws Exception {
+    final MyApiImpl myApi = new MyApiImpl();
+    final AsyncTradingApi asyncApi = myApi.async();
+    assertNotNull(asyncApi);
+
+    final CompletableFuture<Boolean> cancelled = asyncApi.cancelOrder("order-123", "market-123");
+    assertTrue(cancelled.isDone());
+    assertFalse(cancelled.get());
+  }
+
   /** Test class. */
   class MyApiImpl implements TradingApi {
 
@@ -71,7 +125,25 @@ public class TestTradingApi {
 
     @Override
     public MarketOrderBook getMarketOrders(String marketId) {
-      return null;
+      return new MarketOrderBook() {
+        @Override
+        public String getMarketId() {
+          return marketId;
+        }
+
+        @Override
+        public List<MarketOrder> getSellOrders() {
+          return Arrays.asList(new MyMarketOrder(OrderType.SELL, "101"));
+        }
+
+        @Override
+        public List<MarketOrder> getBuyOrders() {
+          return Arrays.asList(
+              new MyMarketOrder(OrderType.BUY, "100"),
+              new MyMarketOrder(OrderType.BUY, "99"),
+              new MyMarketOrder(OrderType.BUY, "98"));
+        }
+      };
     }
 
     @Override
@@ -110,4 +182,36 @@ public class TestTradingApi {
       return null;
     }
   }
+
+  /** Test class. */
+  static class MyMarketOrder implements MarketOrder {
+
+    private final OrderType type;
+    private final BigDecimal price;
+
+    MyMarketOrder(OrderType type, String price) {
+      this.type = type;
+      this.price = new BigDecimal(price);
+    }
+
+    @Override
+    public OrderType getType() {
+      return type;
+    }
+
+    @Override
+    public BigDecimal getPrice() {
+      return price;
+    }
+
+    @Override
+    public BigDecimal getQuantity() {
+      return BigDecimal.ONE;
+    }
+
+    @Override
+    public BigDecimal getTotal() {
+      return price;
+    }
+  }
 }
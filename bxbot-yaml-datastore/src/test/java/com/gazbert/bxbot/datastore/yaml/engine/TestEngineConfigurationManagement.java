@@ -55,6 +55,7 @@ public class TestEngineConfigurationManagement {
   private static final String EMERGENCY_STOP_CURRENCY = "BTC";
   private static final BigDecimal EMERGENCY_STOP_BALANCE = new BigDecimal("0.5");
   private static final int TRADE_CYCLE_INTERVAL = 60;
+  private static final int STRATEGY_PARALLELISM = 4;
 
   @Test
   public void testLoadingValidYamlConfigFileIsSuccessful() {
@@ -66,6 +67,7 @@ public class TestEngineConfigurationManagement {
     assertEquals(
         0, EMERGENCY_STOP_BALANCE.compareTo(engineType.getEngine().getEmergencyStopBalance()));
     assertEquals(TRADE_CYCLE_INTERVAL, engineType.getEngine().getTradeCycleInterval());
+    assertEquals(STRATEGY_PARALLELISM, engineType.getEngine().getStrategyParallelism());
   }
 
   @Test(expected = IllegalStateException.class)
@@ -86,6 +88,7 @@ public class TestEngineConfigurationManagement {
     engineConfig.setEmergencyStopCurrency(EMERGENCY_STOP_CURRENCY);
     engineConfig.setEmergencyStopBalance(EMERGENCY_STOP_BALANCE);
     engineConfig.setTradeCycleInterval(TRADE_CYCLE_INTERVAL);
+    engineConfig.setStrategyParallelism(STRATEGY_PARALLELISM);
 
     final EngineType engineType = new EngineType();
     engineType.setEngine(engineConfig);
@@ -104,6 +107,8 @@ public class TestEngineConfigurationManagement {
         0,
         EMERGENCY_STOP_BALANCE.compareTo(engineTypeReloaded.getEngine().getEmergencyStopBalance()));
     assertEquals(TRADE_CYCLE_INTERVAL, engineTypeReloaded.getEngine().getTradeCycleInterval());
+    assertEquals(
+        STRATEGY_PARALLELISM, engineTypeReloaded.getEngine().getStrategyParallelism());
 
     // cleanup
     Files.delete(FileSystems.getDefault().getPath(YAML_CONFIG_TO_SAVE_FILENAME));
@@ -75,6 +75,23 @@ public class TestExchangeConfigurationManagement {
           "Connection reset",
           "Remote host closed connection during handshake",
           "Unexpected end of file from server");
+  private static final Integer MAX_CONNECTIONS = 10;
+  private static final Integer CONNECTION_IDLE_TIMEOUT = 60;
+  private static final String RATE_LIMITER = "token-bucket";
+  private static final Integer RATE_LIMIT_BURST = 10;
+  private static final Double RATE_LIMIT_CALLS_PER_SECOND = 0.5;
+  private static final Double HEDGE_LATENCY_PERCENTILE = 95.0;
+  private static final Double HEDGE_MAX_EXTRA_LOAD_PERCENT = 5.0;
+  private static final Integer CONNECT_TIMEOUT = 5;
+  private static final Integer TRADING_READ_TIMEOUT = 20;
+  private static final Integer ACCOUNT_READ_TIMEOUT = 15;
+  private static final Integer MARKET_DATA_READ_TIMEOUT = 10;
+  private static final Boolean ADAPTIVE_TIMEOUTS = true;
+  private static final Integer CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+  private static final Integer CIRCUIT_BREAKER_MIN_BACKOFF = 5;
+  private static final Integer CIRCUIT_BREAKER_MAX_BACKOFF = 300;
+  private static final Boolean PRE_WARM_CONNECTIONS = true;
+  private static final Boolean STREAM_MARKET_DATA = true;
 
   private static final String BUY_FEE_CONFIG_ITEM_KEY = "buy-fee";
   private static final String BUY_FEE_CONFIG_ITEM_VALUE = "0.5";
@@ -110,6 +127,40 @@ public class TestExchangeConfigurationManagement {
             .getNetworkConfig()
             .getNonFatalErrorMessages()
             .containsAll(NON_FATAL_ERROR_MESSAGES));
+    assertThat(exchangeType.getExchange().getNetworkConfig().getMaxConnections())
+        .isEqualTo(MAX_CONNECTIONS);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getConnectionIdleTimeout())
+        .isEqualTo(CONNECTION_IDLE_TIMEOUT);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getRateLimiter())
+        .isEqualTo(RATE_LIMITER);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getRateLimitBurst())
+        .isEqualTo(RATE_LIMIT_BURST);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getRateLimitCallsPerSecond())
+        .isEqualTo(RATE_LIMIT_CALLS_PER_SECOND);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getHedgeLatencyPercentile())
+        .isEqualTo(HEDGE_LATENCY_PERCENTILE);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getHedgeMaxExtraLoadPercent())
+        .isEqualTo(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getConnectTimeout())
+        .isEqualTo(CONNECT_TIMEOUT);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getTradingReadTimeout())
+        .isEqualTo(TRADING_READ_TIMEOUT);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getAccountReadTimeout())
+        .isEqualTo(ACCOUNT_READ_TIMEOUT);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getMarketDataReadTimeout())
+        .isEqualTo(MARKET_DATA_READ_TIMEOUT);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getAdaptiveTimeouts())
+        .isEqualTo(ADAPTIVE_TIMEOUTS);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getCircuitBreakerFailureThreshold())
+        .isEqualTo(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getCircuitBreakerMinBackoff())
+        .isEqualTo(CIRCUIT_BREAKER_MIN_BACKOFF);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getCircuitBreakerMaxBackoff())
+        .isEqualTo(CIRCUIT_BREAKER_MAX_BACKOFF);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getPreWarmConnections())
+        .isEqualTo(PRE_WARM_CONNECTIONS);
+    assertThat(exchangeType.getExchange().getNetworkConfig().getStreamMarketData())
+        .isEqualTo(STREAM_MARKET_DATA);
 
     assertThat(exchangeType.getExchange().getOtherConfig().get(BUY_FEE_CONFIG_ITEM_KEY))
         .isEqualTo(BUY_FEE_CONFIG_ITEM_VALUE);
@@ -137,6 +188,23 @@ public class TestExchangeConfigurationManagement {
     networkConfig.setConnectionTimeout(CONNECTION_TIMEOUT);
     networkConfig.setNonFatalErrorCodes(NON_FATAL_ERROR_CODES);
     networkConfig.setNonFatalErrorMessages(NON_FATAL_ERROR_MESSAGES);
+    networkConfig.setMaxConnections(MAX_CONNECTIONS);
+    networkConfig.setConnectionIdleTimeout(CONNECTION_IDLE_TIMEOUT);
+    networkConfig.setRateLimiter(RATE_LIMITER);
+    networkConfig.setRateLimitBurst(RATE_LIMIT_BURST);
+    networkConfig.setRateLimitCallsPerSecond(RATE_LIMIT_CALLS_PER_SECOND);
+    networkConfig.setHedgeLatencyPercentile(HEDGE_LATENCY_PERCENTILE);
+    networkConfig.setHedgeMaxExtraLoadPercent(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    networkConfig.setConnectTimeout(CONNECT_TIMEOUT);
+    networkConfig.setTradingReadTimeout(TRADING_READ_TIMEOUT);
+    networkConfig.setAccountReadTimeout(ACCOUNT_READ_TIMEOUT);
+    networkConfig.setMarketDataReadTimeout(MARKET_DATA_READ_TIMEOUT);
+    networkConfig.setAdaptiveTimeouts(ADAPTIVE_TIMEOUTS);
+    networkConfig.setCircuitBreakerFailureThreshold(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    networkConfig.setCircuitBreakerMinBackoff(CIRCUIT_BREAKER_MIN_BACKOFF);
+    networkConfig.setCircuitBreakerMaxBackoff(CIRCUIT_BREAKER_MAX_BACKOFF);
+    networkConfig.setPreWarmConnections(PRE_WARM_CONNECTIONS);
+    networkConfig.setStreamMarketData(STREAM_MARKET_DATA);
 
     final Map<String, String> otherConfig = new HashMap<>();
     otherConfig.put(BUY_FEE_CONFIG_ITEM_KEY, BUY_FEE_CONFIG_ITEM_VALUE);
@@ -182,6 +250,41 @@ public class TestExchangeConfigurationManagement {
             .getNetworkConfig()
             .getNonFatalErrorMessages()
             .containsAll(NON_FATAL_ERROR_MESSAGES));
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getMaxConnections())
+        .isEqualTo(MAX_CONNECTIONS);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getConnectionIdleTimeout())
+        .isEqualTo(CONNECTION_IDLE_TIMEOUT);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getRateLimiter())
+        .isEqualTo(RATE_LIMITER);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getRateLimitBurst())
+        .isEqualTo(RATE_LIMIT_BURST);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getRateLimitCallsPerSecond())
+        .isEqualTo(RATE_LIMIT_CALLS_PER_SECOND);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getHedgeLatencyPercentile())
+        .isEqualTo(HEDGE_LATENCY_PERCENTILE);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getHedgeMaxExtraLoadPercent())
+        .isEqualTo(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getConnectTimeout())
+        .isEqualTo(CONNECT_TIMEOUT);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getTradingReadTimeout())
+        .isEqualTo(TRADING_READ_TIMEOUT);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getAccountReadTimeout())
+        .isEqualTo(ACCOUNT_READ_TIMEOUT);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getMarketDataReadTimeout())
+        .isEqualTo(MARKET_DATA_READ_TIMEOUT);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getAdaptiveTimeouts())
+        .isEqualTo(ADAPTIVE_TIMEOUTS);
+    assertThat(
+            exchangeReloaded.getExchange().getNetworkConfig().getCircuitBreakerFailureThreshold())
+        .isEqualTo(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getCircuitBreakerMinBackoff())
+        .isEqualTo(CIRCUIT_BREAKER_MIN_BACKOFF);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getCircuitBreakerMaxBackoff())
+        .isEqualTo(CIRCUIT_BREAKER_MAX_BACKOFF);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getPreWarmConnections())
+        .isEqualTo(PRE_WARM_CONNECTIONS);
+    assertThat(exchangeReloaded.getExchange().getNetworkConfig().getStreamMarketData())
+        .isEqualTo(STREAM_MARKET_DATA);
 
     assertThat(exchangeReloaded.getExchange().getOtherConfig().get(BUY_FEE_CONFIG_ITEM_KEY))
         .isEqualTo(BUY_FEE_CONFIG_ITEM_VALUE);
@@ -202,6 +305,23 @@ public class TestExchangeConfigurationManagement {
     networkConfig.setConnectionTimeout(CONNECTION_TIMEOUT);
     networkConfig.setNonFatalErrorCodes(NON_FATAL_ERROR_CODES);
     networkConfig.setNonFatalErrorMessages(NON_FATAL_ERROR_MESSAGES);
+    networkConfig.setMaxConnections(MAX_CONNECTIONS);
+    networkConfig.setConnectionIdleTimeout(CONNECTION_IDLE_TIMEOUT);
+    networkConfig.setRateLimiter(RATE_LIMITER);
+    networkConfig.setRateLimitBurst(RATE_LIMIT_BURST);
+    networkConfig.setRateLimitCallsPerSecond(RATE_LIMIT_CALLS_PER_SECOND);
+    networkConfig.setHedgeLatencyPercentile(HEDGE_LATENCY_PERCENTILE);
+    networkConfig.setHedgeMaxExtraLoadPercent(HEDGE_MAX_EXTRA_LOAD_PERCENT);
+    networkConfig.setConnectTimeout(CONNECT_TIMEOUT);
+    networkConfig.setTradingReadTimeout(TRADING_READ_TIMEOUT);
+    networkConfig.setAccountReadTimeout(ACCOUNT_READ_TIMEOUT);
+    networkConfig.setMarketDataReadTimeout(MARKET_DATA_READ_TIMEOUT);
+    networkConfig.setAdaptiveTimeouts(ADAPTIVE_TIMEOUTS);
+    networkConfig.setCircuitBreakerFailureThreshold(CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    networkConfig.setCircuitBreakerMinBackoff(CIRCUIT_BREAKER_MIN_BACKOFF);
+    networkConfig.setCircuitBreakerMaxBackoff(CIRCUIT_BREAKER_MAX_BACKOFF);
+    networkConfig.setPreWarmConnections(PRE_WARM_CONNECTIONS);
+    networkConfig.setStreamMarketData(STREAM_MARKET_DATA);
 
     final Map<String, String> otherConfig = new HashMap<>();
     otherConfig.put(BUY_FEE_CONFIG_ITEM_KEY, BUY_FEE_CONFIG_ITEM_VALUE);
@@ -26,6 +26,7 @@ package com.gazbert.bxbot.datastore.yaml.market;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.gazbert.bxbot.datastore.yaml.ConfigurationManager;
@@ -58,6 +59,7 @@ public class TestMarketConfigurationManagement {
   private static final String MARKET_1_COUNTER_CURRENCY = "USD";
   private static final boolean MARKET_1_IS_ENABLED = true;
   private static final String MARKET_1_TRADING_STRATEGY_ID = "macd_trend_follower";
+  private static final Integer MARKET_1_TRADE_CYCLE_INTERVAL = 10;
 
   private static final String MARKET_2_ID = "coinbasepro_gbp/btc";
   private static final String MARKET_2_NAME = "BTC/GBP";
@@ -79,6 +81,7 @@ public class TestMarketConfigurationManagement {
     assertEquals("USD", marketsType.getMarkets().get(0).getCounterCurrency());
     assertTrue(marketsType.getMarkets().get(0).isEnabled());
     assertEquals("scalping-strategy", marketsType.getMarkets().get(0).getTradingStrategyId());
+    assertEquals(Integer.valueOf(10), marketsType.getMarkets().get(0).getTradeCycleInterval());
 
     assertEquals("ltc_usd", marketsType.getMarkets().get(1).getId());
     assertEquals("LTC/BTC", marketsType.getMarkets().get(1).getName());
@@ -86,6 +89,7 @@ public class TestMarketConfigurationManagement {
     assertEquals("BTC", marketsType.getMarkets().get(1).getCounterCurrency());
     assertFalse(marketsType.getMarkets().get(1).isEnabled());
     assertEquals("scalping-strategy", marketsType.getMarkets().get(1).getTradingStrategyId());
+    assertNull(marketsType.getMarkets().get(1).getTradeCycleInterval());
   }
 
   @Test(expected = IllegalStateException.class)
@@ -107,6 +111,7 @@ public class TestMarketConfigurationManagement {
     market1.setBaseCurrency(MARKET_1_BASE_CURRENCY);
     market1.setCounterCurrency(MARKET_1_COUNTER_CURRENCY);
     market1.setTradingStrategyId(MARKET_1_TRADING_STRATEGY_ID);
+    market1.setTradeCycleInterval(MARKET_1_TRADE_CYCLE_INTERVAL);
 
     final MarketConfig market2 = new MarketConfig();
     market2.setEnabled(MARKET_2_IS_ENABLED);
@@ -135,6 +140,8 @@ public class TestMarketConfigurationManagement {
         .isEqualTo(MARKET_1_COUNTER_CURRENCY);
     assertThat(marketsReloaded.getMarkets().get(0).getTradingStrategyId())
         .isEqualTo(MARKET_1_TRADING_STRATEGY_ID);
+    assertThat(marketsReloaded.getMarkets().get(0).getTradeCycleInterval())
+        .isEqualTo(MARKET_1_TRADE_CYCLE_INTERVAL);
 
     assertThat(marketsReloaded.getMarkets().get(1).isEnabled()).isEqualTo(MARKET_2_IS_ENABLED);
     assertThat(marketsReloaded.getMarkets().get(1).getId()).isEqualTo(MARKET_2_ID);
@@ -145,6 +152,7 @@ public class TestMarketConfigurationManagement {
         .isEqualTo(MARKET_2_COUNTER_CURRENCY);
     assertThat(marketsReloaded.getMarkets().get(1).getTradingStrategyId())
         .isEqualTo(MARKET_2_TRADING_STRATEGY_ID);
+    assertThat(marketsReloaded.getMarkets().get(1).getTradeCycleInterval()).isNull();
 
     // cleanup
     Files.delete(FileSystems.getDefault().getPath(YAML_CONFIG_TO_SAVE_FILENAME));